@@ -0,0 +1,118 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.ByteString;
+import org.yb.Common.QLMapValuePB;
+import org.yb.Common.QLSeqValuePB;
+import org.yb.Common.QLValuePB;
+
+/**
+ * Writes records in a compact binary form into a reused buffer. A record is laid out as
+ *
+ *   operation (1 byte) | hybrid time (8 bytes) | key cell count (varint) | key cells |
+ *   change cell count (varint) | change cells
+ *
+ * and each cell as its schema column index plus one (varint), or 0 followed by the
+ * length-prefixed column name for columns missing from the schema, then the value. A value is a
+ * one byte tag, the QLValuePB field number or 0 for null, followed by:
+ * - signed integers, timestamps and times: zigzag varint
+ * - dates and unsigned integers: varint
+ * - float and double: big endian IEEE 754 bits
+ * - bool: 1 byte
+ * - strings and all byte-valued types: varint length and the raw bytes
+ * - maps: varint entry count, then alternating keys and values
+ * - sets, lists and frozen values: varint element count, then the elements
+ */
+public class BinaryRecordSerializer implements RecordSerializer {
+  private final RecordBuffer buf = new RecordBuffer();
+
+  @Override
+  public RecordBuffer serialize(DecodedRecord record) {
+    buf.reset();
+    buf.put((byte) record.getOperation().getNumber());
+    buf.putFixedLong(record.getTime());
+    buf.putVarLong(record.getNumKeys());
+    for (int i = 0; i < record.getNumKeys(); i++) {
+      writeCell(record.getKey(i));
+    }
+    buf.putVarLong(record.getNumChanges());
+    for (int i = 0; i < record.getNumChanges(); i++) {
+      writeCell(record.getChange(i));
+    }
+    return buf;
+  }
+
+  private void writeCell(DecodedRecord.Cell cell) {
+    buf.putVarLong(cell.getColumnIndex() + 1);
+    if (cell.getColumnIndex() < 0) {
+      writeBytes(cell.getName());
+    }
+    writeValue(cell.getValue());
+  }
+
+  private void writeValue(QLValuePB value) {
+    QLValuePB.ValueCase valueCase = value.getValueCase();
+    buf.put((byte) valueCase.getNumber());
+    switch (valueCase) {
+      case INT8_VALUE: buf.putZigZagLong(value.getInt8Value()); return;
+      case INT16_VALUE: buf.putZigZagLong(value.getInt16Value()); return;
+      case INT32_VALUE: buf.putZigZagLong(value.getInt32Value()); return;
+      case INT64_VALUE: buf.putZigZagLong(value.getInt64Value()); return;
+      case TIMESTAMP_VALUE: buf.putZigZagLong(value.getTimestampValue()); return;
+      case TIME_VALUE: buf.putZigZagLong(value.getTimeValue()); return;
+      case DATE_VALUE: buf.putVarLong(value.getDateValue() & 0xFFFFFFFFL); return;
+      case UINT32_VALUE: buf.putVarLong(value.getUint32Value() & 0xFFFFFFFFL); return;
+      case UINT64_VALUE: buf.putVarLong(value.getUint64Value()); return;
+      case FLOAT_VALUE: buf.putFixedInt(Float.floatToRawIntBits(value.getFloatValue())); return;
+      case DOUBLE_VALUE:
+        buf.putFixedLong(Double.doubleToRawLongBits(value.getDoubleValue()));
+        return;
+      case BOOL_VALUE: buf.put((byte) (value.getBoolValue() ? 1 : 0)); return;
+      case STRING_VALUE: writeBytes(value.getStringValueBytes()); return;
+      case BINARY_VALUE: writeBytes(value.getBinaryValue()); return;
+      case INETADDRESS_VALUE: writeBytes(value.getInetaddressValue()); return;
+      case DECIMAL_VALUE: writeBytes(value.getDecimalValue()); return;
+      case VARINT_VALUE: writeBytes(value.getVarintValue()); return;
+      case UUID_VALUE: writeBytes(value.getUuidValue()); return;
+      case TIMEUUID_VALUE: writeBytes(value.getTimeuuidValue()); return;
+      case JSONB_VALUE: writeBytes(value.getJsonbValue()); return;
+      case MAP_VALUE: {
+        QLMapValuePB map = value.getMapValue();
+        buf.putVarLong(map.getKeysCount());
+        for (int i = 0; i < map.getKeysCount(); i++) {
+          writeValue(map.getKeys(i));
+          writeValue(map.getValues(i));
+        }
+        return;
+      }
+      case SET_VALUE: writeSeq(value.getSetValue()); return;
+      case LIST_VALUE: writeSeq(value.getListValue()); return;
+      case FROZEN_VALUE: writeSeq(value.getFrozenValue()); return;
+      case VALUE_NOT_SET: return;
+    }
+    throw new IllegalArgumentException("Unexpected value type " + valueCase);
+  }
+
+  private void writeSeq(QLSeqValuePB seq) {
+    buf.putVarLong(seq.getElemsCount());
+    for (int i = 0; i < seq.getElemsCount(); i++) {
+      writeValue(seq.getElems(i));
+    }
+  }
+
+  private void writeBytes(ByteString bytes) {
+    buf.putVarLong(bytes.size());
+    buf.put(bytes);
+  }
+}
@@ -0,0 +1,117 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.log4j.Logger;
+import org.yb.Opid.OpIdPB;
+import org.yb.client.LocatedTablet;
+import org.yb.client.YBClient;
+import org.yb.client.YBTable;
+import org.yb.util.HybridTimeUtil;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeds a downstream copy with a snapshot of the table, then lets each tablet switch over to
+ * streaming without a gap. Changes are delivered at least once: the copy converges to the table
+ * as long as records are applied as idempotent whole-row writes, in order per key.
+ *
+ * A bootstrapped stream is created first, which sets each tablet's checkpoint to the latest entry
+ * of its log. The snapshot time is then picked past every entry up to that checkpoint, and the
+ * pollers drop records at or before it, since the snapshot covers them. A snapshot source may
+ * read rows as of a later time than the snapshot time, see {@link SnapshotSource}, in which case
+ * the changes in between are both in the snapshot and streamed again after it.
+ */
+class Bootstrapper {
+  private static final Logger LOG = Logger.getLogger(Bootstrapper.class);
+
+  // Upper bound on how far the local clock may lag the tablet leaders. Matches the default
+  // max_clock_skew_usec of the servers.
+  private static final long MAX_CLOCK_SKEW_MS = 500;
+
+  private final YBClient syncClient;
+  private final YBTable table;
+  private final SnapshotSource snapshotSource;
+  private final OutputClient outputClient;
+  private final ExecutorService executor;
+
+  private long snapshotHybridTime = 0;
+
+  public Bootstrapper(YBClient syncClient, YBTable table, SnapshotSource snapshotSource,
+                      OutputClient outputClient, int parallelism) {
+    this.syncClient = syncClient;
+    this.table = table;
+    this.snapshotSource = snapshotSource;
+    this.outputClient = outputClient;
+    this.executor = Executors.newFixedThreadPool(
+        parallelism, new ThreadFactoryBuilder().setNameFormat("Snapshot-%d").build());
+  }
+
+  /**
+   * Creates the bootstrapped stream and picks the snapshot hybrid time.
+   * @return the id of the stream to poll.
+   */
+  public String createStream(HostAndPort hp) throws Exception {
+    String streamId = syncClient.bootstrapProducer(
+        hp, Collections.singletonList(table.getTableId())).getBootstrapIds().get(0);
+    // Taken after the bootstrap returned, so it is past every entry up to the checkpoints.
+    snapshotHybridTime = HybridTimeUtil.clockTimestampToHTTimestamp(
+        System.currentTimeMillis() + MAX_CLOCK_SKEW_MS, TimeUnit.MILLISECONDS);
+    LOG.info(String.format("Bootstrapped stream %s, snapshot hybrid time %d",
+                           streamId, snapshotHybridTime));
+    return streamId;
+  }
+
+  public long getSnapshotHybridTime() {
+    return snapshotHybridTime;
+  }
+
+  /**
+   * Snapshots one tablet in the background. The future completes once its rows are applied and
+   * flushed, at which point the tablet's poller can start, or fails if the snapshot failed.
+   */
+  public CompletableFuture<Void> snapshotTablet(LocatedTablet tablet) {
+    String tabletId = new String(tablet.getTabletId());
+    return CompletableFuture.runAsync(() -> {
+      LOG.info(String.format("Snapshotting tablet %s", tabletId));
+      try {
+        snapshotSource.snapshotTablet(table, tablet, snapshotHybridTime, outputClient);
+        outputClient.flush(tabletId, OpIdPB.getDefaultInstance());
+      } catch (Exception e) {
+        // Nothing is flushed for a failed snapshot, the future fails instead.
+        throw new CompletionException(
+            String.format("Snapshot of tablet %s failed", tabletId), e);
+      }
+      LOG.info(String.format("Finished snapshot of tablet %s", tabletId));
+    }, executor);
+  }
+
+  /**
+   * Stops the snapshots still running and closes the snapshot source.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+    try {
+      snapshotSource.close();
+    } catch (Exception e) {
+      LOG.error("Failed to close the snapshot source: ", e);
+    }
+  }
+}
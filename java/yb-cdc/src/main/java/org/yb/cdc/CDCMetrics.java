@@ -0,0 +1,119 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.exporter.HTTPServer;
+import org.apache.log4j.Logger;
+import org.yb.util.HybridTimeUtil;
+
+import java.io.IOException;
+
+/**
+ * Per-tablet metrics of the CDC connector, exported in the Prometheus text format.
+ *
+ * Throughput is exposed as monotonic counters; records and bytes per second are obtained with
+ * rate() on the Prometheus side.
+ */
+public class CDCMetrics {
+  private static final Logger LOG = Logger.getLogger(CDCMetrics.class);
+
+  private static final String TABLET = "tablet_id";
+
+  static final Counter records = Counter.build()
+      .name("yb_cdc_records_total").help("Change records received.")
+      .labelNames(TABLET).register();
+
+  static final Counter bytes = Counter.build()
+      .name("yb_cdc_bytes_total").help("Serialized size of the change records received.")
+      .labelNames(TABLET).register();
+
+  static final Histogram pollLatency = Histogram.build()
+      .name("yb_cdc_poll_latency_seconds").help("Latency of GetChanges calls.")
+      .labelNames(TABLET).register();
+
+  static final Histogram sinkLatency = Histogram.build()
+      .name("yb_cdc_sink_latency_seconds").help("Time spent applying a record to the sink.")
+      .labelNames(TABLET).register();
+
+  static final Counter pollErrors = Counter.build()
+      .name("yb_cdc_poll_errors_total").help("GetChanges calls that returned an error.")
+      .labelNames(TABLET, "code").register();
+
+  static final Counter sinkErrors = Counter.build()
+      .name("yb_cdc_sink_errors_total").help("Records the sink failed to apply.")
+      .labelNames(TABLET).register();
+
+  static final Counter sinkRetries = Counter.build()
+      .name("yb_cdc_sink_retries_total")
+      .help("Records queued again after they, or a record before them, failed to apply.")
+      .labelNames(TABLET).register();
+
+  static final Gauge lagOps = Gauge.build()
+      .name("yb_cdc_lag_ops").help("Latest leader OpId index minus the checkpoint index.")
+      .labelNames(TABLET).register();
+
+  static final Gauge lagMillis = Gauge.build()
+      .name("yb_cdc_lag_millis")
+      .help("Age of the hybrid time of the last record received, 0 when caught up.")
+      .labelNames(TABLET).register();
+
+  private static HTTPServer server = null;
+
+  /**
+   * Starts serving the default registry on the given port under /metrics.
+   */
+  public static synchronized void startServer(int port) throws IOException {
+    if (server != null) {
+      return;
+    }
+    server = new HTTPServer(port, true);
+    LOG.info(String.format("Serving CDC metrics on port %d", port));
+  }
+
+  public static synchronized void stopServer() {
+    if (server != null) {
+      server.stop();
+      server = null;
+    }
+  }
+
+  /**
+   * Records the age of a change, given its hybrid time, relative to the local clock.
+   */
+  static void updateHybridTimeLag(String tabletId, long hybridTime) {
+    long physicalMicros = HybridTimeUtil.HTTimestampToPhysicalAndLogical(hybridTime)[0];
+    long ageMs = System.currentTimeMillis() - physicalMicros / 1000;
+    lagMillis.labels(tabletId).set(Math.max(ageMs, 0));
+  }
+
+  /**
+   * Drops the series of a tablet that is no longer polled, e.g. the parent of a split.
+   */
+  static void removeTablet(String tabletId) {
+    records.remove(tabletId);
+    bytes.remove(tabletId);
+    pollLatency.remove(tabletId);
+    sinkLatency.remove(tabletId);
+    for (CdcService.CDCErrorPB.Code code : CdcService.CDCErrorPB.Code.values()) {
+      pollErrors.remove(tabletId, code.name());
+    }
+    sinkErrors.remove(tabletId);
+    sinkRetries.remove(tabletId);
+    lagOps.remove(tabletId);
+    lagMillis.remove(tabletId);
+  }
+}
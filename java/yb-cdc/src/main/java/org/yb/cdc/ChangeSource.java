@@ -0,0 +1,29 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import com.stumbleupon.async.Callback;
+
+/**
+ * Where pollers get their change batches from: the cluster's CDC service, or a synthetic
+ * generator for benchmarks.
+ */
+public interface ChangeSource {
+  /**
+   * Asks for the changes of a tablet after the given checkpoint, and calls back with the response.
+   * @param hp the tablet server to ask, which proxies to the tablet leader if needed.
+   */
+  public void getChanges(HostAndPort hp, String tabletId, long term, long index,
+                         Callback<Void, CdcService.GetChangesResponsePB> cb);
+}
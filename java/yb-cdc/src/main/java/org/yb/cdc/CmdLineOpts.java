@@ -23,6 +23,13 @@ import org.apache.log4j.Logger;
 public class CmdLineOpts {
 
   private static final String DEFAULT_MASTER_ADDRS = "127.0.0.1:7100";
+  private static final long DEFAULT_TOPOLOGY_REFRESH_MS = 30000;
+  static final long DEFAULT_SEGMENT_MAX_BYTES = 128L * 1024 * 1024;
+  static final long DEFAULT_SEGMENT_MAX_AGE_MS = 60000;
+  static final long DEFAULT_FSYNC_INTERVAL_MS = 10;
+  private static final int DEFAULT_BOOTSTRAP_PARALLELISM = 4;
+  static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+  static final int DEFAULT_MAX_APPLY_RETRIES = 10;
 
   private static final Logger LOG = Logger.getLogger(CmdLineOpts.class);
 
@@ -30,6 +37,18 @@ public class CmdLineOpts {
   public String namespaceName;
   public String masterAddrs = DEFAULT_MASTER_ADDRS;
   public String streamId = "";
+  public long topologyRefreshMs = DEFAULT_TOPOLOGY_REFRESH_MS;
+  public int metricsPort = 0;
+  public String segmentDir = null;
+  public long segmentMaxBytes = DEFAULT_SEGMENT_MAX_BYTES;
+  public long segmentMaxAgeMs = DEFAULT_SEGMENT_MAX_AGE_MS;
+  public long fsyncIntervalMs = DEFAULT_FSYNC_INTERVAL_MS;
+  public String snapshotSource = null;
+  public int bootstrapParallelism = DEFAULT_BOOTSTRAP_PARALLELISM;
+  public int dispatchThreads = Runtime.getRuntime().availableProcessors();
+  public int dispatchQueueSize = DEFAULT_DISPATCH_QUEUE_SIZE;
+  public boolean dispatchByKey = false;
+  public int maxApplyRetries = DEFAULT_MAX_APPLY_RETRIES;
 
   public static CmdLineOpts createFromArgs(String[] args) throws Exception {
     Options options = new Options();
@@ -39,6 +58,40 @@ public class CmdLineOpts {
             "Table to get change capture from in format <namespace>.<table>");
     options.addOption("stream_id", true,
             "Optional stream ID. Use this if you already have a CDC stream set up on the table");
+    options.addOption("topology_refresh_ms", true,
+            "How often to look for new, split or moved tablets and tablet servers " +
+            "(default " + DEFAULT_TOPOLOGY_REFRESH_MS + ")");
+    options.addOption("metrics_port", true,
+            "Optional port to serve Prometheus metrics (throughput, lag, latencies) on");
+    options.addOption("segment_dir", true,
+            "Optional directory to write changes to as rolling segment files instead of the log");
+    options.addOption("segment_max_bytes", true,
+            "Size after which a segment file is rolled (default " +
+            DEFAULT_SEGMENT_MAX_BYTES + ")");
+    options.addOption("segment_max_age_ms", true,
+            "Age after which a non-empty segment file is rolled (default " +
+            DEFAULT_SEGMENT_MAX_AGE_MS + ")");
+    options.addOption("fsync_interval_ms", true,
+            "How often segment files are synced to disk (default " +
+            DEFAULT_FSYNC_INTERVAL_MS + ")");
+    options.addOption("snapshot_source", true,
+            "Optional class implementing org.yb.cdc.SnapshotSource, e.g. " +
+            "org.yb.cdc.CqlSnapshotSource. If set, a snapshot of the table is emitted before " +
+            "streaming changes from a new bootstrapped stream");
+    options.addOption("bootstrap_parallelism", true,
+            "Number of tablets to snapshot concurrently (default " +
+            DEFAULT_BOOTSTRAP_PARALLELISM + ")");
+    options.addOption("dispatch_threads", true,
+            "Number of threads applying changes to the output (default: number of cores)");
+    options.addOption("dispatch_queue_size", true,
+            "Maximum number of changes queued per dispatch partition (default " +
+            DEFAULT_DISPATCH_QUEUE_SIZE + ")");
+    options.addOption("dispatch_by_key", false,
+            "Only keep changes ordered per primary key instead of per tablet, so that a single " +
+            "tablet's changes can be applied in parallel");
+    options.addOption("max_apply_retries", true,
+            "Retries of changes the output failed to apply before exiting, with a delay " +
+            "doubling from 1 s up to 30 s (default " + DEFAULT_MAX_APPLY_RETRIES + ")");
 
     // Do the actual arg parsing.
     CommandLineParser parser = new BasicParser();
@@ -85,5 +138,51 @@ public class CmdLineOpts {
       streamId = commandLine.getOptionValue("stream_id");
     }
 
+    if (commandLine.hasOption("topology_refresh_ms")) {
+      topologyRefreshMs = Long.parseLong(commandLine.getOptionValue("topology_refresh_ms"));
+    }
+
+    if (commandLine.hasOption("metrics_port")) {
+      metricsPort = Integer.parseInt(commandLine.getOptionValue("metrics_port"));
+    }
+
+    if (commandLine.hasOption("segment_dir")) {
+      segmentDir = commandLine.getOptionValue("segment_dir");
+    }
+
+    if (commandLine.hasOption("segment_max_bytes")) {
+      segmentMaxBytes = Long.parseLong(commandLine.getOptionValue("segment_max_bytes"));
+    }
+
+    if (commandLine.hasOption("segment_max_age_ms")) {
+      segmentMaxAgeMs = Long.parseLong(commandLine.getOptionValue("segment_max_age_ms"));
+    }
+
+    if (commandLine.hasOption("fsync_interval_ms")) {
+      fsyncIntervalMs = Long.parseLong(commandLine.getOptionValue("fsync_interval_ms"));
+    }
+
+    if (commandLine.hasOption("snapshot_source")) {
+      snapshotSource = commandLine.getOptionValue("snapshot_source");
+    }
+
+    if (commandLine.hasOption("bootstrap_parallelism")) {
+      bootstrapParallelism = Integer.parseInt(commandLine.getOptionValue("bootstrap_parallelism"));
+    }
+
+    if (commandLine.hasOption("dispatch_threads")) {
+      dispatchThreads = Integer.parseInt(commandLine.getOptionValue("dispatch_threads"));
+    }
+
+    if (commandLine.hasOption("dispatch_queue_size")) {
+      dispatchQueueSize = Integer.parseInt(commandLine.getOptionValue("dispatch_queue_size"));
+    }
+
+    dispatchByKey = commandLine.hasOption("dispatch_by_key");
+
+    if (commandLine.hasOption("max_apply_retries")) {
+      maxApplyRetries = Integer.parseInt(commandLine.getOptionValue("max_apply_retries"));
+    }
+
   }
 }
@@ -0,0 +1,235 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.LocalDate;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import com.google.protobuf.ByteString;
+import org.apache.log4j.Logger;
+import org.yb.ColumnSchema;
+import org.yb.Common.QLValuePB;
+import org.yb.Schema;
+import org.yb.client.LocatedTablet;
+import org.yb.client.Partition;
+import org.yb.client.YBTable;
+import org.yb.util.HybridTimeUtil;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Snapshots a YCQL table by scanning the hash range of each tablet through the CQL API.
+ *
+ * YCQL cannot read as of a past hybrid time, so the scan of a tablet starts once the clock passed
+ * the read time and returns the rows as of then. A row changed in between is emitted with its
+ * newer value, and the changes that led to it are streamed again after the snapshot. Since the
+ * records are whole-row writes applied in order, the copy ends up in the same state.
+ *
+ * The CQL port defaults to 9042 and can be set with the yb.cdc.cql_port system property. Decimal,
+ * varint, jsonb, collection and user-defined type columns are not supported.
+ */
+public class CqlSnapshotSource implements SnapshotSource {
+  private static final Logger LOG = Logger.getLogger(CqlSnapshotSource.class);
+
+  public static final String CQL_PORT_PROPERTY = "yb.cdc.cql_port";
+  private static final int DEFAULT_CQL_PORT = 9042;
+
+  // Rows fetched per page of a tablet scan.
+  private static final int FETCH_SIZE = 1000;
+
+  // The partition keys of hash partitioned tables start with a 16 bit hash code.
+  private static final int MAX_HASH_CODE = 0xFFFF;
+
+  // Shared by the concurrent tablet snapshots, created by the first one.
+  private Cluster cluster = null;
+  private Session session = null;
+
+  @Override
+  public void snapshotTablet(YBTable table, LocatedTablet tablet, long readHybridTime,
+                             OutputClient outputClient) throws Exception {
+    Schema schema = table.getSchema();
+    checkSupported(schema);
+    waitForClockPast(readHybridTime);
+
+    Partition partition = tablet.getPartition();
+    Statement statement = new SimpleStatement(
+        buildQuery(schema, table.getKeyspace(), table.getName()),
+        toHashCode(partition.getPartitionKeyStart()),
+        partition.isEndPartition() ? MAX_HASH_CODE
+                                   : toHashCode(partition.getPartitionKeyEnd()) - 1)
+        .setFetchSize(FETCH_SIZE);
+    long numRows = 0;
+    for (Row row : getSession(tablet).execute(statement)) {
+      outputClient.applyChange(table, toRecord(schema, row, readHybridTime));
+      numRows++;
+    }
+    LOG.info(String.format("Read %d rows of tablet %s", numRows,
+                           new String(tablet.getTabletId())));
+  }
+
+  @Override
+  public synchronized void close() {
+    if (cluster != null) {
+      cluster.close();
+      cluster = null;
+      session = null;
+    }
+  }
+
+  private synchronized Session getSession(LocatedTablet tablet) {
+    if (session == null) {
+      Cluster.Builder builder = Cluster.builder()
+          .withPort(Integer.getInteger(CQL_PORT_PROPERTY, DEFAULT_CQL_PORT));
+      for (LocatedTablet.Replica replica : tablet.getReplicas()) {
+        builder.addContactPoint(replica.getRpcHost());
+      }
+      cluster = builder.build();
+      session = cluster.connect();
+    }
+    return session;
+  }
+
+  private static void waitForClockPast(long hybridTime) throws InterruptedException {
+    long physicalMs = HybridTimeUtil.HTTimestampToPhysicalAndLogical(hybridTime)[0] / 1000 + 1;
+    long waitMs = physicalMs - System.currentTimeMillis();
+    if (waitMs > 0) {
+      Thread.sleep(waitMs);
+    }
+  }
+
+  static void checkSupported(Schema schema) {
+    if (schema.getNumHashKeyColumns() == 0) {
+      throw new IllegalArgumentException("Tables without hash columns are not supported");
+    }
+    for (ColumnSchema column : schema.getColumns()) {
+      switch (column.getQLType().toType()) {
+        case INT8: case INT16: case INT32: case INT64: case STRING: case BOOL: case FLOAT:
+        case DOUBLE: case BINARY: case TIMESTAMP: case INET: case UUID: case TIMEUUID: case DATE:
+        case TIME:
+          break;
+        default:
+          throw unsupported(column);
+      }
+    }
+  }
+
+  private static IllegalArgumentException unsupported(ColumnSchema column) {
+    return new IllegalArgumentException(String.format(
+        "Column %s of type %s is not supported", column.getName(),
+        column.getQLType().toCqlString()));
+  }
+
+  /**
+   * Returns the query selecting every column, in schema order, of the rows whose partition hash
+   * is between two bind values, both inclusive.
+   */
+  static String buildQuery(Schema schema, String keyspace, String tableName) {
+    List<String> columns = new ArrayList<>();
+    List<String> hashColumns = new ArrayList<>();
+    for (ColumnSchema column : schema.getColumns()) {
+      columns.add(quote(column.getName()));
+      if (column.isHashKey()) {
+        hashColumns.add(quote(column.getName()));
+      }
+    }
+    String hash = "partition_hash(" + String.join(", ", hashColumns) + ")";
+    return String.format("SELECT %s FROM %s.%s WHERE %s >= ? AND %s <= ?",
+                         String.join(", ", columns), quote(keyspace), quote(tableName), hash,
+                         hash);
+  }
+
+  private static String quote(String identifier) {
+    return "\"" + identifier.replace("\"", "\"\"") + "\"";
+  }
+
+  /**
+   * Returns the hash code a partition key starts with, 0 for the empty key of the first tablet.
+   */
+  static int toHashCode(byte[] partitionKey) {
+    if (partitionKey.length < 2) {
+      return 0;
+    }
+    return ((partitionKey[0] & 0xFF) << 8) | (partitionKey[1] & 0xFF);
+  }
+
+  private static CdcService.CDCRecordPB toRecord(Schema schema, Row row, long time) {
+    CdcService.CDCRecordPB.Builder record = CdcService.CDCRecordPB.newBuilder()
+        .setTime(time)
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE);
+    List<ColumnSchema> columns = schema.getColumns();
+    for (int i = 0; i < columns.size(); i++) {
+      ColumnSchema column = columns.get(i);
+      CdcService.KeyValuePairPB.Builder pair = CdcService.KeyValuePairPB.newBuilder()
+          .setKey(ByteString.copyFromUtf8(column.getName()))
+          .setValue(toValue(column, row.getObject(i)));
+      if (column.isKey()) {
+        record.addKey(pair);
+      } else {
+        record.addChanges(pair);
+      }
+    }
+    return record.build();
+  }
+
+  /**
+   * Converts a value as returned by the CQL driver to its wire form, see
+   * {@link RecordDecoder#toJavaValue(QLValuePB)}.
+   */
+  static QLValuePB toValue(ColumnSchema column, Object value) {
+    QLValuePB.Builder builder = QLValuePB.newBuilder();
+    if (value == null) {
+      return builder.build();
+    }
+    switch (column.getQLType().toType()) {
+      case INT8: return builder.setInt8Value((Byte) value).build();
+      case INT16: return builder.setInt16Value((Short) value).build();
+      case INT32: return builder.setInt32Value((Integer) value).build();
+      case INT64: return builder.setInt64Value((Long) value).build();
+      case STRING: return builder.setStringValue((String) value).build();
+      case BOOL: return builder.setBoolValue((Boolean) value).build();
+      case FLOAT: return builder.setFloatValue((Float) value).build();
+      case DOUBLE: return builder.setDoubleValue((Double) value).build();
+      case BINARY:
+        return builder.setBinaryValue(ByteString.copyFrom(((ByteBuffer) value).duplicate()))
+            .build();
+      case TIMESTAMP: return builder.setTimestampValue(((Date) value).getTime() * 1000).build();
+      case INET:
+        return builder.setInetaddressValue(ByteString.copyFrom(((InetAddress) value).getAddress()))
+            .build();
+      case UUID: return builder.setUuidValue(toBytes((UUID) value)).build();
+      case TIMEUUID: return builder.setTimeuuidValue(toBytes((UUID) value)).build();
+      case DATE:
+        // Days with 2^31 at the epoch, as an unsigned 32 bit value.
+        return builder.setDateValue(((LocalDate) value).getDaysSinceEpoch() + (1 << 31)).build();
+      case TIME: return builder.setTimeValue((Long) value).build();
+      default:
+        throw unsupported(column);
+    }
+  }
+
+  private static ByteString toBytes(UUID uuid) {
+    ByteBuffer buf = ByteBuffer.allocate(16);
+    buf.putLong(uuid.getMostSignificantBits());
+    buf.putLong(uuid.getLeastSignificantBits());
+    buf.flip();
+    return ByteString.copyFrom(buf);
+  }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.ByteString;
+import org.yb.ColumnSchema;
+import org.yb.Common.QLValuePB;
+import org.yb.QLType;
+
+import java.util.Arrays;
+
+/**
+ * A change record resolved against the table schema. Instances and their cells are meant to be
+ * reused across records by {@link RecordDecoder#decode}, so they must not be retained by
+ * consumers beyond the call that produced them.
+ */
+public class DecodedRecord {
+
+  /**
+   * One column of the record: the schema column it maps to and its value.
+   */
+  public static class Cell {
+    // Index of the column in the table schema, or -1 if the name is not in the schema we have.
+    int columnIndex;
+    ColumnSchema column;
+    ByteString name;
+    QLValuePB value;
+
+    public int getColumnIndex() {
+      return columnIndex;
+    }
+
+    /**
+     * @return the schema column, or null if the record refers to a column the decoder's schema
+     *         does not know about (e.g. one added after the schema was fetched).
+     */
+    public ColumnSchema getColumn() {
+      return column;
+    }
+
+    public QLType getType() {
+      return column == null ? null : column.getQLType();
+    }
+
+    public ByteString getName() {
+      return name;
+    }
+
+    public QLValuePB getValue() {
+      return value;
+    }
+
+    public boolean isNull() {
+      return value.getValueCase() == QLValuePB.ValueCase.VALUE_NOT_SET;
+    }
+
+    /**
+     * Converts the value to a plain Java object by the type of its column, see
+     * {@link RecordDecoder#toJavaValue(QLValuePB, QLType)}.
+     */
+    public Object getJavaValue() {
+      return RecordDecoder.toJavaValue(value, getType());
+    }
+  }
+
+  CdcService.CDCRecordPB.OperationType operation;
+  long time;
+  private Cell[] keys = new Cell[0];
+  private int numKeys;
+  private Cell[] changes = new Cell[0];
+  private int numChanges;
+
+  public CdcService.CDCRecordPB.OperationType getOperation() {
+    return operation;
+  }
+
+  /**
+   * @return the hybrid time of the change.
+   */
+  public long getTime() {
+    return time;
+  }
+
+  public int getNumKeys() {
+    return numKeys;
+  }
+
+  public Cell getKey(int i) {
+    return keys[i];
+  }
+
+  public int getNumChanges() {
+    return numChanges;
+  }
+
+  public Cell getChange(int i) {
+    return changes[i];
+  }
+
+  void reset(int numKeys, int numChanges) {
+    keys = ensureCells(keys, numKeys);
+    this.numKeys = numKeys;
+    changes = ensureCells(changes, numChanges);
+    this.numChanges = numChanges;
+  }
+
+  private static Cell[] ensureCells(Cell[] cells, int size) {
+    if (cells.length >= size) {
+      return cells;
+    }
+    Cell[] grown = Arrays.copyOf(cells, Math.max(size, cells.length * 2));
+    for (int i = cells.length; i < grown.length; i++) {
+      grown[i] = new Cell();
+    }
+    return grown;
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies change records on a pool of worker threads while keeping them ordered per partition.
+ *
+ * Work is submitted with a partition key (a tablet, or a tablet and primary key hash) and lands in
+ * one of a fixed number of partitions, each with a bounded queue. A partition is drained by at
+ * most one worker at a time, in submission order, so records with the same key are applied in
+ * order while unrelated partitions run in parallel. Partitions are scheduled on a work-stealing
+ * pool, so idle workers pick up partitions that are ready on busy ones. Submitters block while a
+ * partition's queue is full, which pushes back on the pollers feeding it.
+ */
+public class Dispatcher {
+  private static final Logger LOG = Logger.getLogger(Dispatcher.class);
+
+  // Tasks a worker runs from one partition before yielding to others.
+  private static final int MAX_TASKS_PER_RUN = 64;
+
+  private final ForkJoinPool pool;
+  private final Partition[] partitions;
+
+  public Dispatcher(int numThreads, int numPartitions, int queueSize) {
+    // Async mode gives FIFO scheduling of the partitions a worker forks.
+    pool = new ForkJoinPool(numThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory,
+                            null, true);
+    partitions = new Partition[numPartitions];
+    for (int i = 0; i < numPartitions; i++) {
+      partitions[i] = new Partition(queueSize);
+    }
+  }
+
+  /**
+   * Queues the task on the partition of the given key, blocking while that partition is full.
+   */
+  public void submit(int partitionKey, Runnable task) throws InterruptedException {
+    Partition partition = partitions[Math.floorMod(partitionKey, partitions.length)];
+    partition.queue.put(task);
+    partition.schedule();
+  }
+
+  /**
+   * Stops accepting tasks. The tasks already queued still run.
+   */
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  /**
+   * Waits for the queued tasks to run after a shutdown.
+   * @return whether they all ran before the timeout.
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return pool.awaitTermination(timeout, unit);
+  }
+
+  private class Partition implements Runnable {
+    private final BlockingQueue<Runnable> queue;
+    // Set while the partition is queued on or running in the pool.
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    Partition(int queueSize) {
+      queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    void schedule() {
+      if (scheduled.compareAndSet(false, true)) {
+        pool.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      // Once shut down, the partition cannot be scheduled again, so it is drained in one run.
+      for (int i = 0; i < MAX_TASKS_PER_RUN || pool.isShutdown(); i++) {
+        Runnable task = queue.poll();
+        if (task == null) {
+          break;
+        }
+        try {
+          task.run();
+        } catch (Throwable t) {
+          LOG.error("Dispatched task failed: ", t);
+        }
+      }
+      scheduled.set(false);
+      // A task may have been queued after the last poll but before the flag was cleared.
+      if (!queue.isEmpty()) {
+        try {
+          schedule();
+        } catch (RejectedExecutionException e) {
+          // Shut down since the loop ended, drain the rest on this worker.
+          run();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,244 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.ByteString;
+import org.yb.Common.QLMapValuePB;
+import org.yb.Common.QLSeqValuePB;
+import org.yb.Common.QLValuePB;
+
+/**
+ * Writes records as one JSON object each, straight into a reused UTF-8 buffer:
+ *
+ *   {"operation":"WRITE","time":...,"key":{"col":...},"changes":{"col":...}}
+ *
+ * Strings are copied from the protobuf bytes with escaping, numbers are formatted in place.
+ * Binary, decimal, varint and jsonb values are written as base64 strings, uuids in their canonical
+ * form, maps as arrays of [key, value] pairs and sets and lists as arrays.
+ */
+public class JsonRecordSerializer implements RecordSerializer {
+  private static final byte[] HEX = "0123456789abcdef".getBytes();
+  private static final byte[] BASE64 =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+  private final RecordBuffer buf = new RecordBuffer();
+
+  @Override
+  public RecordBuffer serialize(DecodedRecord record) {
+    buf.reset();
+    buf.putAscii("{\"operation\":\"");
+    buf.putAscii(record.getOperation().name());
+    buf.putAscii("\",\"time\":");
+    buf.putDecimal(record.getTime());
+    buf.putAscii(",\"key\":{");
+    for (int i = 0; i < record.getNumKeys(); i++) {
+      writeCell(i, record.getKey(i));
+    }
+    buf.putAscii("},\"changes\":{");
+    for (int i = 0; i < record.getNumChanges(); i++) {
+      writeCell(i, record.getChange(i));
+    }
+    buf.putAscii("}}");
+    return buf;
+  }
+
+  private void writeCell(int i, DecodedRecord.Cell cell) {
+    if (i > 0) {
+      buf.put((byte) ',');
+    }
+    writeString(cell.getName());
+    buf.put((byte) ':');
+    writeValue(cell.getValue());
+  }
+
+  private void writeValue(QLValuePB value) {
+    switch (value.getValueCase()) {
+      case INT8_VALUE: buf.putDecimal(value.getInt8Value()); return;
+      case INT16_VALUE: buf.putDecimal(value.getInt16Value()); return;
+      case INT32_VALUE: buf.putDecimal(value.getInt32Value()); return;
+      case INT64_VALUE: buf.putDecimal(value.getInt64Value()); return;
+      case TIMESTAMP_VALUE: buf.putDecimal(value.getTimestampValue()); return;
+      case DATE_VALUE: buf.putDecimal(value.getDateValue() & 0xFFFFFFFFL); return;
+      case TIME_VALUE: buf.putDecimal(value.getTimeValue()); return;
+      case UINT32_VALUE: buf.putDecimal(value.getUint32Value() & 0xFFFFFFFFL); return;
+      case UINT64_VALUE:
+        if (value.getUint64Value() >= 0) {
+          buf.putDecimal(value.getUint64Value());
+        } else {
+          buf.putAscii(Long.toUnsignedString(value.getUint64Value()));
+        }
+        return;
+      case FLOAT_VALUE: writeFloat(value.getFloatValue()); return;
+      case DOUBLE_VALUE: writeDouble(value.getDoubleValue()); return;
+      case BOOL_VALUE: buf.putAscii(value.getBoolValue() ? "true" : "false"); return;
+      case STRING_VALUE: writeString(value.getStringValueBytes()); return;
+      case BINARY_VALUE: writeBase64(value.getBinaryValue()); return;
+      case DECIMAL_VALUE: writeBase64(value.getDecimalValue()); return;
+      case VARINT_VALUE: writeBase64(value.getVarintValue()); return;
+      case JSONB_VALUE: writeBase64(value.getJsonbValue()); return;
+      case INETADDRESS_VALUE: writeInet(value.getInetaddressValue()); return;
+      case UUID_VALUE: writeUUID(value.getUuidValue()); return;
+      case TIMEUUID_VALUE: writeUUID(value.getTimeuuidValue()); return;
+      case MAP_VALUE: {
+        QLMapValuePB map = value.getMapValue();
+        buf.put((byte) '[');
+        for (int i = 0; i < map.getKeysCount(); i++) {
+          if (i > 0) {
+            buf.put((byte) ',');
+          }
+          buf.put((byte) '[');
+          writeValue(map.getKeys(i));
+          buf.put((byte) ',');
+          writeValue(map.getValues(i));
+          buf.put((byte) ']');
+        }
+        buf.put((byte) ']');
+        return;
+      }
+      case SET_VALUE: writeSeq(value.getSetValue()); return;
+      case LIST_VALUE: writeSeq(value.getListValue()); return;
+      case FROZEN_VALUE: writeSeq(value.getFrozenValue()); return;
+      case VALUE_NOT_SET: buf.putAscii("null"); return;
+    }
+    throw new IllegalArgumentException("Unexpected value type " + value.getValueCase());
+  }
+
+  private void writeSeq(QLSeqValuePB seq) {
+    buf.put((byte) '[');
+    for (int i = 0; i < seq.getElemsCount(); i++) {
+      if (i > 0) {
+        buf.put((byte) ',');
+      }
+      writeValue(seq.getElems(i));
+    }
+    buf.put((byte) ']');
+  }
+
+  private void writeDouble(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      // Not representable as a JSON number.
+      buf.put((byte) '"');
+      buf.putAscii(Double.toString(value));
+      buf.put((byte) '"');
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      buf.putDecimal((long) value);
+    } else {
+      buf.putAscii(Double.toString(value));
+    }
+  }
+
+  /**
+   * Writes the shortest decimal form of the float, e.g. 0.1 rather than the 0.10000000149011612 of
+   * the float widened to a double.
+   */
+  private void writeFloat(float value) {
+    if (Float.isNaN(value) || Float.isInfinite(value)) {
+      buf.put((byte) '"');
+      buf.putAscii(Float.toString(value));
+      buf.put((byte) '"');
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      buf.putDecimal((long) value);
+    } else {
+      buf.putAscii(Float.toString(value));
+    }
+  }
+
+  /**
+   * Writes UTF-8 bytes as a JSON string, escaping quotes, backslashes and control characters.
+   * Multi-byte sequences are copied as is.
+   */
+  private void writeString(ByteString utf8) {
+    buf.put((byte) '"');
+    for (int i = 0; i < utf8.size(); i++) {
+      byte b = utf8.byteAt(i);
+      if (b == '"' || b == '\\') {
+        buf.put((byte) '\\');
+        buf.put(b);
+      } else if (b >= 0 && b < 0x20) {
+        buf.putAscii("\\u00");
+        buf.put(HEX[b >> 4]);
+        buf.put(HEX[b & 0xF]);
+      } else {
+        buf.put(b);
+      }
+    }
+    buf.put((byte) '"');
+  }
+
+  private void writeBase64(ByteString bytes) {
+    buf.put((byte) '"');
+    int n = bytes.size();
+    int i = 0;
+    for (; i + 3 <= n; i += 3) {
+      int v = (bytes.byteAt(i) & 0xFF) << 16 | (bytes.byteAt(i + 1) & 0xFF) << 8 |
+              (bytes.byteAt(i + 2) & 0xFF);
+      buf.put(BASE64[v >>> 18]);
+      buf.put(BASE64[(v >>> 12) & 0x3F]);
+      buf.put(BASE64[(v >>> 6) & 0x3F]);
+      buf.put(BASE64[v & 0x3F]);
+    }
+    if (n - i == 1) {
+      int v = (bytes.byteAt(i) & 0xFF) << 16;
+      buf.put(BASE64[v >>> 18]);
+      buf.put(BASE64[(v >>> 12) & 0x3F]);
+      buf.putAscii("==");
+    } else if (n - i == 2) {
+      int v = (bytes.byteAt(i) & 0xFF) << 16 | (bytes.byteAt(i + 1) & 0xFF) << 8;
+      buf.put(BASE64[v >>> 18]);
+      buf.put(BASE64[(v >>> 12) & 0x3F]);
+      buf.put(BASE64[(v >>> 6) & 0x3F]);
+      buf.put((byte) '=');
+    }
+    buf.put((byte) '"');
+  }
+
+  private void writeUUID(ByteString bytes) {
+    buf.put((byte) '"');
+    for (int i = 0; i < bytes.size(); i++) {
+      if (i == 4 || i == 6 || i == 8 || i == 10) {
+        buf.put((byte) '-');
+      }
+      writeHexByte(bytes.byteAt(i));
+    }
+    buf.put((byte) '"');
+  }
+
+  /**
+   * Writes IPv4 addresses in dotted form and IPv6 addresses as eight uncompressed hex groups.
+   */
+  private void writeInet(ByteString bytes) {
+    buf.put((byte) '"');
+    if (bytes.size() == 4) {
+      for (int i = 0; i < 4; i++) {
+        if (i > 0) {
+          buf.put((byte) '.');
+        }
+        buf.putDecimal(bytes.byteAt(i) & 0xFF);
+      }
+    } else {
+      for (int i = 0; i < bytes.size(); i += 2) {
+        if (i > 0) {
+          buf.put((byte) ':');
+        }
+        writeHexByte(bytes.byteAt(i));
+        writeHexByte(bytes.byteAt(i + 1));
+      }
+    }
+    buf.put((byte) '"');
+  }
+
+  private void writeHexByte(byte b) {
+    buf.put(HEX[(b >> 4) & 0xF]);
+    buf.put(HEX[b & 0xF]);
+  }
+}
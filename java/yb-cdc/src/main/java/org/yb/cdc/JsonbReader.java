@@ -0,0 +1,148 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the serialized jsonb of the servers (see common/jsonb.h) to JSON text.
+ *
+ * A container starts with a 32 bit header holding the number of elements and whether it is an
+ * object, an array or a scalar, i.e. an array of one element. It is followed by a 32 bit JEntry
+ * per element (for objects, all the keys then all the values), holding the type of the element
+ * and the end offset of its data, then the data. Numbers are stored big endian, signed ones and
+ * floating point ones in their order preserving key encoding. Object keys are sorted.
+ */
+final class JsonbReader {
+  private static final int COUNT_MASK = 0x0FFFFFFF;
+  private static final int SCALAR = 0x10000000;
+  private static final int OBJECT = 0x20000000;
+  private static final int ARRAY = 0x40000000;
+
+  private static final int OFFSET_MASK = 0x0FFFFFFF;
+  private static final int TYPE_MASK = 0xF0000000;
+  private static final int IS_STRING = 0x00000000;
+  private static final int IS_OBJECT = 0x10000000;
+  private static final int IS_BOOL_FALSE = 0x20000000;
+  private static final int IS_BOOL_TRUE = 0x30000000;
+  private static final int IS_NULL = 0x40000000;
+  private static final int IS_ARRAY = 0x50000000;
+  private static final int IS_INT = 0x60000000;
+  private static final int IS_UINT = 0x70000000;
+  private static final int IS_INT64 = 0x80000000;
+  private static final int IS_UINT64 = 0x90000000;
+  private static final int IS_FLOAT = 0xA0000000;
+  private static final int IS_DOUBLE = 0xB0000000;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private JsonbReader() {
+  }
+
+  /**
+   * @return the JSON text of the serialized jsonb.
+   */
+  static String toJsonString(ByteBuffer jsonb) {
+    StringBuilder sb = new StringBuilder();
+    writeContainer(jsonb.slice(), sb);
+    return sb.toString();
+  }
+
+  private static void writeContainer(ByteBuffer jsonb, StringBuilder sb) {
+    int header = jsonb.getInt(0);
+    int count = header & COUNT_MASK;
+    if ((header & OBJECT) != 0) {
+      int dataBegin = 4 + 8 * count;
+      sb.append('{');
+      for (int i = 0; i < count; i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        writeString(element(jsonb, i, dataBegin), sb);
+        sb.append(':');
+        writeElement(jsonb.getInt(4 + 4 * (count + i)), element(jsonb, count + i, dataBegin), sb);
+      }
+      sb.append('}');
+    } else if ((header & ARRAY) != 0) {
+      int dataBegin = 4 + 4 * count;
+      if ((header & SCALAR) != 0 && count == 1) {
+        writeElement(jsonb.getInt(4), element(jsonb, 0, dataBegin), sb);
+        return;
+      }
+      sb.append('[');
+      for (int i = 0; i < count; i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        writeElement(jsonb.getInt(4 + 4 * i), element(jsonb, i, dataBegin), sb);
+      }
+      sb.append(']');
+    } else {
+      throw new IllegalArgumentException("Invalid jsonb header " + Integer.toHexString(header));
+    }
+  }
+
+  // Returns the data of the i-th element, which starts where the previous one ends.
+  private static ByteBuffer element(ByteBuffer jsonb, int i, int dataBegin) {
+    int begin = i == 0 ? 0 : jsonb.getInt(4 + 4 * (i - 1)) & OFFSET_MASK;
+    int end = jsonb.getInt(4 + 4 * i) & OFFSET_MASK;
+    ByteBuffer data = jsonb.duplicate();
+    data.limit(dataBegin + end).position(dataBegin + begin);
+    return data.slice();
+  }
+
+  private static void writeElement(int jentry, ByteBuffer data, StringBuilder sb) {
+    switch (jentry & TYPE_MASK) {
+      case IS_STRING: writeString(data, sb); return;
+      case IS_OBJECT: case IS_ARRAY: writeContainer(data, sb); return;
+      case IS_BOOL_FALSE: sb.append("false"); return;
+      case IS_BOOL_TRUE: sb.append("true"); return;
+      case IS_NULL: sb.append("null"); return;
+      case IS_INT: sb.append(data.getInt(0) ^ Integer.MIN_VALUE); return;
+      case IS_UINT: sb.append(data.getInt(0) & 0xFFFFFFFFL); return;
+      case IS_INT64: sb.append(data.getLong(0) ^ Long.MIN_VALUE); return;
+      case IS_UINT64: sb.append(Long.toUnsignedString(data.getLong(0))); return;
+      case IS_FLOAT: {
+        int bits = data.getInt(0);
+        sb.append(Float.intBitsToFloat(bits < 0 ? bits ^ Integer.MIN_VALUE : ~bits));
+        return;
+      }
+      case IS_DOUBLE: {
+        long bits = data.getLong(0);
+        sb.append(Double.longBitsToDouble(bits < 0 ? bits ^ Long.MIN_VALUE : ~bits));
+        return;
+      }
+      default:
+        throw new IllegalArgumentException("Invalid jsonb entry " + Integer.toHexString(jentry));
+    }
+  }
+
+  private static void writeString(ByteBuffer utf8, StringBuilder sb) {
+    byte[] bytes = new byte[utf8.remaining()];
+    utf8.duplicate().get(bytes);
+    String s = new String(bytes, StandardCharsets.UTF_8);
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < 0x20) {
+        sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import com.stumbleupon.async.Callback;
+import org.apache.log4j.Logger;
+import org.yb.client.AsyncYBClient;
+import org.yb.client.GetLatestEntryOpIdResponse;
+import org.yb.client.YBTable;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically asks each tablet leader for its latest OpId and publishes how far behind the
+ * poller's checkpoint is.
+ */
+class LagMonitor {
+  private static final Logger LOG = Logger.getLogger(LagMonitor.class);
+
+  private final AsyncYBClient client;
+  private final YBTable table;
+  private final TopologyWatcher topologyWatcher;
+  private final long intervalMs;
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor();
+
+  public LagMonitor(AsyncYBClient client, YBTable table, TopologyWatcher topologyWatcher,
+                    long intervalMs) {
+    this.client = client;
+    this.table = table;
+    this.topologyWatcher = topologyWatcher;
+    this.intervalMs = intervalMs;
+  }
+
+  public void start() {
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        update();
+      } catch (Exception e) {
+        LOG.warn("Failed to update CDC lag: ", e);
+      }
+    }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  public void stop() {
+    scheduler.shutdownNow();
+  }
+
+  private void update() {
+    for (Map.Entry<String, Poller> entry : topologyWatcher.getPollers().entrySet()) {
+      String tabletId = entry.getKey();
+      Poller poller = entry.getValue();
+      HostAndPort leader = topologyWatcher.getLeader(tabletId);
+      if (leader == null) {
+        continue;
+      }
+      client.getLatestEntryOpId(leader, table, tabletId).addCallback(
+          new Callback<Void, GetLatestEntryOpIdResponse>() {
+        @Override
+        public Void call(GetLatestEntryOpIdResponse response) throws Exception {
+          if (response.getResp().hasError()) {
+            // Most likely a leader change, the next topology refresh picks up the new leader.
+            LOG.debug(String.format("Could not get latest OpId of tablet %s: %s", tabletId,
+                                    response.getResp().getError()));
+            return null;
+          }
+          long lag = response.getResp().getOpId().getIndex() - poller.getIndex();
+          CDCMetrics.lagOps.labels(tabletId).set(Math.max(lag, 0));
+          return null;
+        }
+      });
+    }
+  }
+}
@@ -16,11 +16,26 @@ package org.yb.cdc;
 import org.apache.log4j.Logger;
 import org.yb.client.YBTable;
 
+import java.nio.charset.StandardCharsets;
+
 public class LogClient implements OutputClient {
   private static final Logger LOG = Logger.getLogger(LogClient.class);
 
+  // Pollers apply changes from several threads, the decoder and serializer are not thread safe.
+  private final ThreadLocal<RecordDecoder> decoder = new ThreadLocal<>();
+  private final ThreadLocal<DecodedRecord> decoded = ThreadLocal.withInitial(DecodedRecord::new);
+  private final ThreadLocal<JsonRecordSerializer> serializer =
+      ThreadLocal.withInitial(JsonRecordSerializer::new);
+
   @Override
   public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception {
-    LOG.info(changeRecord.toString());
+    RecordDecoder recordDecoder = decoder.get();
+    if (recordDecoder == null || recordDecoder.getSchema() != table.getSchema()) {
+      recordDecoder = new RecordDecoder(table.getSchema());
+      decoder.set(recordDecoder);
+    }
+    RecordBuffer json =
+        serializer.get().serialize(recordDecoder.decode(changeRecord, decoded.get()));
+    LOG.info(new String(json.array(), 0, json.length(), StandardCharsets.UTF_8));
   }
 }
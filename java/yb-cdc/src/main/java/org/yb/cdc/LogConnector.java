@@ -19,11 +19,13 @@ import org.yb.client.AsyncYBClient;
 import org.yb.client.YBClient;
 import org.yb.client.ListTablesResponse;
 import org.yb.client.ListTabletServersResponse;
-import org.yb.client.LocatedTablet;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.*;
 import org.apache.log4j.Logger;
 import org.yb.master.Master;
@@ -39,17 +41,37 @@ class LogConnector {
 
   private static final int DEFAULT_TIMEOUT = 30000;
   private static final int DEFAULT_NUM_THREADS = 8;
+  private static final int LAG_REFRESH_MS = 5000;
 
   private YBTable table;
 
-  private List<Poller> pollers = new ArrayList<>();
+  private TopologyWatcher topologyWatcher;
 
-  List<HostAndPort> hps = new ArrayList<>();
+  private long topologyRefreshMs;
+
+  private LagMonitor lagMonitor;
+
+  private int metricsPort;
+
+  private Bootstrapper bootstrapper;
+
+  private Dispatcher dispatcher;
+
+  private boolean dispatchByKey;
+
+  private int maxApplyRetries;
+
+  // Shared with the pollers and refreshed in place by the topology watcher.
+  List<HostAndPort> hps = new CopyOnWriteArrayList<>();
 
   private OutputClient outputClient;
 
   private String streamId;
 
+  private ChangeSource changeSource;
+
+  private final AtomicBoolean shutDown = new AtomicBoolean(false);
+
   public LogConnector(CmdLineOpts opts) throws Exception {
     LOG.info("Creating new YB client...");
     client = new AsyncYBClient.AsyncYBClientBuilder(opts.masterAddrs)
@@ -62,6 +84,12 @@ class LogConnector {
 
     executor = Executors.newFixedThreadPool(DEFAULT_NUM_THREADS);
 
+    // A few partitions per worker, so that colliding tablets rarely serialize each other.
+    dispatcher = new Dispatcher(opts.dispatchThreads, opts.dispatchThreads * 4,
+                                opts.dispatchQueueSize);
+    dispatchByKey = opts.dispatchByKey;
+    maxApplyRetries = opts.maxApplyRetries;
+
     String tableId = null;
     ListTablesResponse tablesResp = syncClient.getTablesList();
     for (Master.ListTablesResponsePB.TableInfo tableInfo : tablesResp.getTableInfoList()) {
@@ -84,28 +112,112 @@ class LogConnector {
       hps.add(HostAndPort.fromParts(serverInfo.getHost(), serverInfo.getPort()));
     }
 
-    outputClient = new LogClient();
+    if (opts.segmentDir != null) {
+      outputClient = new SegmentFileClient(new File(opts.segmentDir), opts.segmentMaxBytes,
+                                           opts.segmentMaxAgeMs, opts.fsyncIntervalMs);
+    } else {
+      outputClient = new LogClient();
+    }
 
     streamId = opts.streamId;
+
+    topologyRefreshMs = opts.topologyRefreshMs;
+
+    metricsPort = opts.metricsPort;
+
+    if (opts.snapshotSource != null) {
+      if (!streamId.isEmpty()) {
+        throw new Exception("--snapshot_source creates its own stream, it cannot be used with " +
+                            "--stream_id");
+      }
+      SnapshotSource snapshotSource = (SnapshotSource) Class.forName(opts.snapshotSource)
+          .getDeclaredConstructor().newInstance();
+      bootstrapper = new Bootstrapper(syncClient, table, snapshotSource, outputClient,
+                                      opts.bootstrapParallelism);
+    }
   }
 
   public void run() throws Exception {
     Random rand = new Random();
 
     HostAndPort hp = hps.get(rand.nextInt(hps.size()));
-    if (streamId.isEmpty()) {
+    if (bootstrapper != null) {
+      streamId = bootstrapper.createStream(hp);
+    } else if (streamId.isEmpty()) {
       streamId = syncClient.createCDCStream(hp, table.getTableId()).getStreamId();
       LOG.info(String.format("Created new stream with id %s", streamId));
     }
 
-    List<LocatedTablet> tabletLocations = table.getTabletsLocations(DEFAULT_TIMEOUT);
+    changeSource = new YBChangeSource(client, table, streamId);
+
+    // Registered first, so that a failure while starting also shuts down what was started.
+    Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "cdc-shutdown"));
+
+    topologyWatcher = new TopologyWatcher(
+        syncClient, table, hps, this::newPoller, DEFAULT_TIMEOUT, topologyRefreshMs);
+    topologyWatcher.setBootstrapper(bootstrapper, this::exitOnFailure);
+    topologyWatcher.start();
+
+    if (metricsPort > 0) {
+      CDCMetrics.startServer(metricsPort);
+      lagMonitor = new LagMonitor(client, table, topologyWatcher, LAG_REFRESH_MS);
+      lagMonitor.start();
+    }
+  }
+
+  /**
+   * Exits once the snapshot of a tablet failed, since the copy misses its rows, or once a poller
+   * gave up on records the output kept failing to apply, since its tablet is no longer streamed.
+   * The shutdown hook stops what runs. The exit waits for the hook, which may need a lock the
+   * caller holds, so it runs on its own thread.
+   */
+  private void exitOnFailure(Throwable error) {
+    LOG.error("Unrecoverable failure, exiting: ", error);
+    new Thread(() -> System.exit(1), "cdc-exit").start();
+  }
+
+  /**
+   * Stops the pollers, the lag monitor and the snapshots, waits for the changes already dispatched
+   * to be applied, closes the output client, which syncs what they wrote, and stops serving
+   * metrics.
+   */
+  private void shutdown() {
+    if (shutDown.getAndSet(true)) {
+      return;
+    }
+    LOG.info("Shutting down...");
+    if (topologyWatcher != null) {
+      topologyWatcher.stop();
+    }
+    if (lagMonitor != null) {
+      lagMonitor.stop();
+    }
+    if (bootstrapper != null) {
+      bootstrapper.shutdown();
+    }
+    dispatcher.shutdown();
+    try {
+      if (!dispatcher.awaitTermination(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Timed out waiting for dispatched changes to be applied");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      outputClient.close();
+    } catch (Exception e) {
+      LOG.error("Failed to close the output client: ", e);
+    }
+    CDCMetrics.stopServer();
+  }
 
-    for (LocatedTablet tablet : tabletLocations) {
-      String tabletId = new String(tablet.getTabletId());
-      LOG.info(String.format("Polling for new tablet %s", tabletId));
-      Poller poller = new Poller(outputClient, hps, table, streamId, tabletId, executor, client);
-      pollers.add(poller);
-      poller.poll();
+  private Poller newPoller(String tabletId) {
+    Poller poller = new Poller(outputClient, hps, table, tabletId, executor, changeSource,
+                               dispatcher, dispatchByKey);
+    poller.setApplyRetries(maxApplyRetries, this::exitOnFailure);
+    if (bootstrapper != null) {
+      poller.setSnapshotHybridTime(bootstrapper.getSnapshotHybridTime());
     }
+    return poller;
   }
 }
@@ -25,6 +25,14 @@ public class Main {
 
   public static void main(String[] args) throws Exception {
     LOG.info("Starting CDC Console Connector...");
+    setupConsoleLogging();
+
+    CmdLineOpts configuration = CmdLineOpts.createFromArgs(args);
+    Main main = new Main(configuration);
+    main.run();
+  }
+
+  static void setupConsoleLogging() {
     // First remove all appenders.
     Logger.getLogger("org.yb.cdc").removeAppender("YBConsoleLogger");
     Logger.getRootLogger().removeAppender("YBConsoleLogger");;
@@ -39,10 +47,6 @@ public class Main {
 
     Logger.getLogger("org.yb.cdc").addAppender(console);
     Logger.getLogger("org.yb.cdc").setAdditivity(false);
-
-    CmdLineOpts configuration = CmdLineOpts.createFromArgs(args);
-    Main main = new Main(configuration);
-    main.run();
   }
 
 
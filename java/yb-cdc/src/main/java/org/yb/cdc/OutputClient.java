@@ -13,8 +13,23 @@
 
 package org.yb.cdc;
 
+import org.yb.Opid.OpIdPB;
 import org.yb.client.YBTable;
 
 public interface OutputClient {
   public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception;
+
+  /**
+   * Called once all records of a non-empty GetChanges batch were applied, before the poller moves
+   * its checkpoint past them. Clients that buffer writes must not return until those records are
+   * durable, since the next GetChanges call acknowledges them to the server.
+   */
+  public default void flush(String tabletId, OpIdPB checkpoint) throws Exception {
+  }
+
+  /**
+   * Called on shutdown, once the pollers stopped.
+   */
+  public default void close() throws Exception {
+  }
 }
@@ -14,14 +14,21 @@
 package org.yb.cdc;
 
 import com.stumbleupon.async.Callback;
+import io.prometheus.client.Histogram;
 import org.apache.log4j.Logger;
-import org.yb.client.AsyncYBClient;
-import org.yb.client.GetChangesResponse;
 import org.yb.client.YBTable;
 
+import java.util.ArrayList;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.List;
 
 import com.google.common.net.HostAndPort;
@@ -30,30 +37,110 @@ import com.google.common.net.HostAndPort;
 public class Poller {
   private static final Logger LOG = Logger.getLogger(Poller.class);
 
-  private long term;
-  private long index;
-  private String streamId;
+  // Delay before the records that failed to apply are first retried, or before polling again when
+  // no tablet server is known.
+  private static final long RETRY_DELAY_MS = 1000;
+  // Further retries of the records double the delay, up to this one.
+  private static final long MAX_RETRY_DELAY_MS = 30000;
+
+  // Runs the delayed retries of all the pollers.
+  private static final ScheduledExecutorService retryScheduler =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cdc-poller-retry");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private volatile long term;
+  private volatile long index;
   private String tabletId;
   private ExecutorService executor;
   private YBTable table;
-  private AsyncYBClient client;
+  private ChangeSource changeSource;
   private List<HostAndPort> hps;
   private OutputClient outputClient;
+  private Dispatcher dispatcher;
+  // Whether records are ordered per primary key rather than per tablet.
+  private boolean dispatchByKey;
 
-  public Poller(OutputClient outputClient, List<HostAndPort> hps, YBTable table, String streamId,
-                String tabletId, ExecutorService executor, AsyncYBClient client) {
-    this.streamId = streamId;
+  // Set once this poller should stop issuing new GetChanges calls.
+  private volatile boolean stopped = false;
+  // Invoked when a draining poller has consumed everything its tablet will hand out.
+  private volatile Runnable onDrained = null;
+  // Records at or before this hybrid time are already covered by the initial snapshot.
+  private long snapshotHybridTime = 0;
+  // Retries of the records of a batch that failed to apply before giving up on the tablet.
+  private int maxApplyRetries = CmdLineOpts.DEFAULT_MAX_APPLY_RETRIES;
+  // Invoked once this poller gave up on the tablet.
+  private volatile Consumer<Throwable> onApplyFailure = null;
+
+  public Poller(OutputClient outputClient, List<HostAndPort> hps, YBTable table,
+                String tabletId, ExecutorService executor, ChangeSource changeSource,
+                Dispatcher dispatcher, boolean dispatchByKey) {
     this.tabletId = tabletId;
     this.term = 0;
     this.index = 0;
     this.executor = executor;
-    this.client = client;
+    this.changeSource = changeSource;
     this.table = table;
     this.hps = hps;
     this.outputClient = outputClient;
+    this.dispatcher = dispatcher;
+    this.dispatchByKey = dispatchByKey;
+  }
+
+  public String getTabletId() {
+    return tabletId;
+  }
+
+  /**
+   * Drops records with a hybrid time at or before the given one, which the initial snapshot of
+   * the table already contains.
+   */
+  public void setSnapshotHybridTime(long snapshotHybridTime) {
+    this.snapshotHybridTime = snapshotHybridTime;
+  }
+
+  /**
+   * Gives up on the tablet once records still fail to apply after the given number of retries:
+   * the poller stops without moving past them, and calls back with the error.
+   */
+  public void setApplyRetries(int maxRetries, Consumer<Throwable> onFailure) {
+    this.maxApplyRetries = maxRetries;
+    this.onApplyFailure = onFailure;
+  }
+
+  public long getTerm() {
+    return term;
+  }
+
+  public long getIndex() {
+    return index;
+  }
+
+  /**
+   * Stops polling this tablet once the in-flight request, if any, has been handled.
+   */
+  public void stop() {
+    stopped = true;
+  }
+
+  /**
+   * Keeps polling until the tablet stops handing out changes (for example, the parent of a split
+   * tablet), then stops and runs the given callback.
+   */
+  public void drain(Runnable callback) {
+    onDrained = callback;
+  }
+
+  public boolean isDraining() {
+    return onDrained != null;
   }
 
   public Void poll() {
+    if (stopped) {
+      return null;
+    }
     executor.submit(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
@@ -64,48 +151,189 @@ public class Poller {
   }
 
   private Void doPoll() {
+    if (hps.isEmpty()) {
+      LOG.warn(String.format("No tablet servers known, retrying poll of tablet %s in %d ms",
+                             tabletId, RETRY_DELAY_MS));
+      retryScheduler.schedule(this::poll, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+      return null;
+    }
     Random rand = new Random();
     HostAndPort hp = hps.get(rand.nextInt(hps.size()));
 
-    client.getChanges(hp, table, streamId, tabletId, term, index,
-                      new Callback<Void, GetChangesResponse>() {
+    Histogram.Timer pollTimer = CDCMetrics.pollLatency.labels(tabletId).startTimer();
+    changeSource.getChanges(hp, tabletId, term, index,
+                            new Callback<Void, CdcService.GetChangesResponsePB>() {
       @Override
-      public Void call(GetChangesResponse getChangesResponse) throws Exception {
-        return handlePoll(getChangesResponse);
+      public Void call(CdcService.GetChangesResponsePB response) throws Exception {
+        pollTimer.observeDuration();
+        return handlePoll(response);
       }
     });
     return null;
   }
 
-  private Void handlePoll(GetChangesResponse getChangesResponse) {
+  private Void handlePoll(CdcService.GetChangesResponsePB response) {
     executor.submit(new Callable<Void>() {
       @Override
       public Void call() throws Exception {
-        return doHandlePoll(getChangesResponse);
+        return doHandlePoll(response);
       }
     });
     return null;
   }
 
-  private Void doHandlePoll(GetChangesResponse getChangesResponse) throws Exception {
+  private Void doHandlePoll(CdcService.GetChangesResponsePB response) throws Exception {
     // Handle the poll
-    if (getChangesResponse.getResp().hasError()) {
-      if (getChangesResponse.getResp().getError().getCode() ==
-              CdcService.CDCErrorPB.Code.INVALID_REQUEST) {
+    if (response.hasError()) {
+      CdcService.CDCErrorPB.Code code = response.getError().getCode();
+      CDCMetrics.pollErrors.labels(tabletId, code.name()).inc();
+      if (code == CdcService.CDCErrorPB.Code.INVALID_REQUEST) {
         LOG.error("Invalid Request");
         System.exit(0);
       }
+      if (code == CdcService.CDCErrorPB.Code.TABLET_NOT_FOUND && isDraining()) {
+        return finishDrain();
+      }
       return poll();
     }
 
-    for (org.yb.cdc.CdcService.CDCRecordPB record : getChangesResponse.getResp().getRecordsList()) {
+    if (response.getRecordsCount() == 0 && isDraining()) {
+      return finishDrain();
+    }
+
+    List<CdcService.CDCRecordPB> records = new ArrayList<>();
+    for (CdcService.CDCRecordPB record : response.getRecordsList()) {
+      if (record.getTime() > snapshotHybridTime) {
+        records.add(record);
+      }
+    }
+    if (records.isEmpty()) {
+      return finishBatch(response);
+    }
+
+    applyBatch(response, records, 0);
+    return null;
+  }
+
+  /**
+   * Applies the records through the dispatcher and finishes the batch once they are all applied.
+   * Once a record fails, the records after it with the same partition key are skipped so that
+   * they stay in order, and the records not applied are retried after a delay. The records that
+   * were applied are not applied again.
+   * @param retry how many times the records were retried so far.
+   */
+  private void applyBatch(CdcService.GetChangesResponsePB response,
+                          List<CdcService.CDCRecordPB> records,
+                          int retry) throws InterruptedException {
+    AtomicInteger pending = new AtomicInteger(records.size());
+    // Partition keys with a failed record in this round.
+    Set<Integer> failedKeys = ConcurrentHashMap.newKeySet();
+    // Written before the pending count is decremented, so complete once it drops to 0.
+    boolean[] applied = new boolean[records.size()];
+    for (int i = 0; i < records.size(); i++) {
+      CdcService.CDCRecordPB record = records.get(i);
+      int key = partitionKey(record);
+      int index = i;
+      dispatcher.submit(key, () -> {
+        if (!failedKeys.contains(key)) {
+          if (applyRecord(record)) {
+            applied[index] = true;
+          } else {
+            failedKeys.add(key);
+          }
+        }
+        if (pending.decrementAndGet() == 0) {
+          List<CdcService.CDCRecordPB> remaining = new ArrayList<>();
+          for (int j = 0; j < records.size(); j++) {
+            if (!applied[j]) {
+              remaining.add(records.get(j));
+            }
+          }
+          if (remaining.isEmpty()) {
+            executor.submit(() -> finishBatch(response));
+          } else {
+            retryBatch(response, remaining, retry);
+          }
+        }
+      });
+    }
+  }
+
+  private void retryBatch(CdcService.GetChangesResponsePB response,
+                          List<CdcService.CDCRecordPB> records, int retry) {
+    if (retry >= maxApplyRetries) {
+      stop();
+      Exception error = new Exception(String.format(
+          "Gave up on tablet %s, %d records still failed to apply after %d retries",
+          tabletId, records.size(), retry));
+      LOG.error(error.getMessage());
+      Consumer<Throwable> onFailure = onApplyFailure;
+      if (onFailure != null) {
+        onFailure.accept(error);
+      }
+      return;
+    }
+    long delayMs = Math.min(RETRY_DELAY_MS << Math.min(retry, 16), MAX_RETRY_DELAY_MS);
+    CDCMetrics.sinkRetries.labels(tabletId).inc(records.size());
+    LOG.warn(String.format("Retrying %d records of tablet %s in %d ms (retry %d of %d)",
+                           records.size(), tabletId, delayMs, retry + 1, maxApplyRetries));
+    retryScheduler.schedule(() -> executor.submit(() -> {
+      if (!stopped) {
+        applyBatch(response, records, retry + 1);
+      }
+      return null;
+    }), delayMs, TimeUnit.MILLISECONDS);
+  }
+
+  private int partitionKey(CdcService.CDCRecordPB record) {
+    if (dispatchByKey) {
+      return 31 * tabletId.hashCode() + record.getKeyList().hashCode();
+    }
+    return tabletId.hashCode();
+  }
+
+  private boolean applyRecord(CdcService.CDCRecordPB record) {
+    CDCMetrics.records.labels(tabletId).inc();
+    CDCMetrics.bytes.labels(tabletId).inc(record.getSerializedSize());
+    Histogram.Timer sinkTimer = CDCMetrics.sinkLatency.labels(tabletId).startTimer();
+    try {
       outputClient.applyChange(table, record);
+      return true;
+    } catch (Exception e) {
+      LOG.error(String.format("Failed to apply change for tablet %s: ", tabletId), e);
+      CDCMetrics.sinkErrors.labels(tabletId).inc();
+      return false;
+    } finally {
+      sinkTimer.observeDuration();
+    }
+  }
+
+  private Void finishBatch(CdcService.GetChangesResponsePB response) throws Exception {
+    int numRecords = response.getRecordsCount();
+    if (numRecords > 0) {
+      CDCMetrics.updateHybridTimeLag(
+          tabletId, response.getRecords(numRecords - 1).getTime());
+    } else {
+      CDCMetrics.lagMillis.labels(tabletId).set(0);
+    }
+
+    // Polling an idle tablet returns empty batches, which have nothing to make durable. Their
+    // checkpoint is not recorded, a restart reads the same empty range again.
+    if (numRecords > 0) {
+      outputClient.flush(tabletId, response.getCheckpoint().getOpId());
     }
 
-    this.term = getChangesResponse.getResp().getCheckpoint().getOpId().getTerm();
-    this.index = getChangesResponse.getResp().getCheckpoint().getOpId().getIndex();
+    this.term = response.getCheckpoint().getOpId().getTerm();
+    this.index = response.getCheckpoint().getOpId().getIndex();
 
     return poll();
   }
 
+  private Void finishDrain() {
+    LOG.info(String.format("Finished draining tablet %s", tabletId));
+    stop();
+    CDCMetrics.removeTablet(tabletId);
+    onDrained.run();
+    return null;
+  }
 }
@@ -0,0 +1,142 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer that serializers write into and reset between records, so that steady
+ * state serialization does not allocate.
+ */
+public class RecordBuffer {
+  private static final int DEFAULT_CAPACITY = 4096;
+
+  private byte[] buf;
+  private int length = 0;
+
+  // Scratch space for formatting numbers without going through String.
+  private final byte[] digits = new byte[20];
+
+  public RecordBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public RecordBuffer(int capacity) {
+    buf = new byte[capacity];
+  }
+
+  public void reset() {
+    length = 0;
+  }
+
+  public byte[] array() {
+    return buf;
+  }
+
+  public int length() {
+    return length;
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buf, 0, length);
+  }
+
+  private void ensure(int extra) {
+    if (length + extra > buf.length) {
+      buf = Arrays.copyOf(buf, Math.max(buf.length * 2, length + extra));
+    }
+  }
+
+  public void put(byte b) {
+    ensure(1);
+    buf[length++] = b;
+  }
+
+  public void put(byte[] src, int offset, int len) {
+    ensure(len);
+    System.arraycopy(src, offset, buf, length, len);
+    length += len;
+  }
+
+  public void put(ByteString src) {
+    ensure(src.size());
+    src.copyTo(buf, length);
+    length += src.size();
+  }
+
+  /**
+   * Writes the characters of an ASCII-only string, e.g. a field name or enum constant.
+   */
+  public void putAscii(String s) {
+    ensure(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      buf[length++] = (byte) s.charAt(i);
+    }
+  }
+
+  /**
+   * Writes the decimal representation of the value as ASCII digits.
+   */
+  public void putDecimal(long value) {
+    if (value == Long.MIN_VALUE) {
+      putAscii("-9223372036854775808");
+      return;
+    }
+    if (value < 0) {
+      put((byte) '-');
+      value = -value;
+    }
+    int pos = digits.length;
+    do {
+      digits[--pos] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value != 0);
+    put(digits, pos, digits.length - pos);
+  }
+
+  /**
+   * Writes the value as an unsigned base 128 varint.
+   */
+  public void putVarLong(long value) {
+    ensure(10);
+    while ((value & ~0x7FL) != 0) {
+      buf[length++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buf[length++] = (byte) value;
+  }
+
+  /**
+   * Writes a signed value as a zigzag encoded varint, so small negative values stay small.
+   */
+  public void putZigZagLong(long value) {
+    putVarLong((value << 1) ^ (value >> 63));
+  }
+
+  public void putFixedInt(int value) {
+    ensure(4);
+    buf[length++] = (byte) (value >>> 24);
+    buf[length++] = (byte) (value >>> 16);
+    buf[length++] = (byte) (value >>> 8);
+    buf[length++] = (byte) value;
+  }
+
+  public void putFixedLong(long value) {
+    putFixedInt((int) (value >>> 32));
+    putFixedInt((int) value);
+  }
+}
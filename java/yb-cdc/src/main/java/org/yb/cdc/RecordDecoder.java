@@ -0,0 +1,326 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.ByteString;
+import org.yb.Common.QLMapValuePB;
+import org.yb.Common.QLSeqValuePB;
+import org.yb.Common.QLValuePB;
+import org.yb.QLType;
+import org.yb.Schema;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Resolves the key and change columns of {@link CdcService.CDCRecordPB}s against the table's
+ * {@link Schema}. Column names arrive as bytes in every key-value pair; they are mapped to schema
+ * columns through a cache keyed by those bytes, so no strings are decoded per record.
+ *
+ * Not thread safe, use one decoder per thread.
+ */
+public class RecordDecoder {
+  private final Schema schema;
+  private final Map<ByteString, Integer> columnIndexes = new HashMap<>();
+
+  public RecordDecoder(Schema schema) {
+    this.schema = schema;
+  }
+
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Decodes the record into the given (reused) instance and returns it.
+   */
+  public DecodedRecord decode(CdcService.CDCRecordPB record, DecodedRecord out) {
+    out.operation = record.getOperation();
+    out.time = record.getTime();
+    out.reset(record.getKeyCount(), record.getChangesCount());
+    for (int i = 0; i < record.getKeyCount(); i++) {
+      fill(out.getKey(i), record.getKey(i));
+    }
+    for (int i = 0; i < record.getChangesCount(); i++) {
+      fill(out.getChange(i), record.getChanges(i));
+    }
+    return out;
+  }
+
+  private void fill(DecodedRecord.Cell cell, CdcService.KeyValuePairPB pair) {
+    ByteString name = pair.getKey();
+    int index = columnIndex(name);
+    cell.columnIndex = index;
+    cell.column = index < 0 ? null : schema.getColumnByIndex(index);
+    cell.name = name;
+    cell.value = pair.getValue();
+  }
+
+  private int columnIndex(ByteString name) {
+    Integer index = columnIndexes.get(name);
+    if (index == null) {
+      try {
+        index = schema.getColumnIndex(name.toStringUtf8());
+      } catch (IllegalArgumentException e) {
+        index = -1;
+      }
+      columnIndexes.put(name, index);
+    }
+    return index;
+  }
+
+  /**
+   * Converts a value of a column of the given type to the closest plain Java type, see
+   * {@link #toJavaValue(QLValuePB)}. The elements of collections are converted by the parameters
+   * of the type.
+   *
+   * @param type the type of the column, or null if it is not known, in which case the value is
+   *             converted by its own kind.
+   * @return the value, or null for a null value.
+   * @throws IllegalArgumentException if the value is not of the given type.
+   */
+  public static Object toJavaValue(QLValuePB value, QLType type) {
+    if (type == null || value.getValueCase() == QLValuePB.ValueCase.VALUE_NOT_SET) {
+      return toJavaValue(value);
+    }
+    switch (type.getMain()) {
+      case DECIMAL:
+        checkValueCase(value, QLValuePB.ValueCase.DECIMAL_VALUE, type);
+        return toBigDecimal(value.getDecimalValue());
+      case VARINT:
+        checkValueCase(value, QLValuePB.ValueCase.VARINT_VALUE, type);
+        return toBigInteger(value.getVarintValue());
+      case JSONB:
+        checkValueCase(value, QLValuePB.ValueCase.JSONB_VALUE, type);
+        return JsonbReader.toJsonString(value.getJsonbValue().asReadOnlyByteBuffer());
+      case DATE:
+        checkValueCase(value, QLValuePB.ValueCase.DATE_VALUE, type);
+        return toLocalDate(value.getDateValue());
+      case MAP: {
+        checkValueCase(value, QLValuePB.ValueCase.MAP_VALUE, type);
+        QLMapValuePB map = value.getMapValue();
+        Map<Object, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < map.getKeysCount(); i++) {
+          result.put(toJavaValue(map.getKeys(i), type.getParams().get(0)),
+                     toJavaValue(map.getValues(i), type.getParams().get(1)));
+        }
+        return result;
+      }
+      case SET: {
+        checkValueCase(value, QLValuePB.ValueCase.SET_VALUE, type);
+        Set<Object> result = new LinkedHashSet<>();
+        for (QLValuePB elem : value.getSetValue().getElemsList()) {
+          result.add(toJavaValue(elem, type.getParams().get(0)));
+        }
+        return result;
+      }
+      case LIST: {
+        checkValueCase(value, QLValuePB.ValueCase.LIST_VALUE, type);
+        List<Object> result = new ArrayList<>(value.getListValue().getElemsCount());
+        for (QLValuePB elem : value.getListValue().getElemsList()) {
+          result.add(toJavaValue(elem, type.getParams().get(0)));
+        }
+        return result;
+      }
+      default:
+        // The kind of the value is enough for the other types, including frozen and
+        // user-defined ones, whose fields are not in the type.
+        return toJavaValue(value);
+    }
+  }
+
+  private static void checkValueCase(QLValuePB value, QLValuePB.ValueCase expected,
+                                     QLType type) {
+    if (value.getValueCase() != expected) {
+      throw new IllegalArgumentException(String.format(
+          "Value of type %s is not a %s", value.getValueCase(), type.toCqlString()));
+    }
+  }
+
+  /**
+   * Converts a QL value to the closest plain Java type. Timestamps are microseconds since the
+   * epoch and times are nanoseconds since midnight, as on the wire. Decimals are returned as
+   * BigDecimals, varints as BigIntegers, jsonb values as JSON text and dates as LocalDates.
+   *
+   * @return the value, or null for a null value.
+   */
+  public static Object toJavaValue(QLValuePB value) {
+    switch (value.getValueCase()) {
+      case INT8_VALUE: return (byte) value.getInt8Value();
+      case INT16_VALUE: return (short) value.getInt16Value();
+      case INT32_VALUE: return value.getInt32Value();
+      case INT64_VALUE: return value.getInt64Value();
+      case FLOAT_VALUE: return value.getFloatValue();
+      case DOUBLE_VALUE: return value.getDoubleValue();
+      case STRING_VALUE: return value.getStringValue();
+      case BOOL_VALUE: return value.getBoolValue();
+      case TIMESTAMP_VALUE: return value.getTimestampValue();
+      case BINARY_VALUE: return value.getBinaryValue().toByteArray();
+      case INETADDRESS_VALUE:
+        try {
+          return InetAddress.getByAddress(value.getInetaddressValue().toByteArray());
+        } catch (UnknownHostException e) {
+          throw new IllegalArgumentException("Invalid inet value", e);
+        }
+      case MAP_VALUE: {
+        QLMapValuePB map = value.getMapValue();
+        Map<Object, Object> result = new LinkedHashMap<>();
+        for (int i = 0; i < map.getKeysCount(); i++) {
+          result.put(toJavaValue(map.getKeys(i)), toJavaValue(map.getValues(i)));
+        }
+        return result;
+      }
+      case SET_VALUE: {
+        Set<Object> result = new LinkedHashSet<>();
+        for (QLValuePB elem : value.getSetValue().getElemsList()) {
+          result.add(toJavaValue(elem));
+        }
+        return result;
+      }
+      case LIST_VALUE: return toJavaList(value.getListValue());
+      case FROZEN_VALUE: return toJavaList(value.getFrozenValue());
+      case DECIMAL_VALUE: return toBigDecimal(value.getDecimalValue());
+      case VARINT_VALUE: return toBigInteger(value.getVarintValue());
+      case UUID_VALUE: return toUUID(value.getUuidValue());
+      case TIMEUUID_VALUE: return toUUID(value.getTimeuuidValue());
+      case JSONB_VALUE:
+        return JsonbReader.toJsonString(value.getJsonbValue().asReadOnlyByteBuffer());
+      case DATE_VALUE: return toLocalDate(value.getDateValue());
+      case TIME_VALUE: return value.getTimeValue();
+      case UINT32_VALUE: return value.getUint32Value() & 0xFFFFFFFFL;
+      case UINT64_VALUE: return value.getUint64Value();
+      case VALUE_NOT_SET: return null;
+    }
+    throw new IllegalArgumentException("Unexpected value type " + value.getValueCase());
+  }
+
+  private static List<Object> toJavaList(QLSeqValuePB seq) {
+    List<Object> result = new ArrayList<>(seq.getElemsCount());
+    for (QLValuePB elem : seq.getElemsList()) {
+      result.add(toJavaValue(elem));
+    }
+    return result;
+  }
+
+  // Dates are days with 2^31 at the epoch, as an unsigned 32 bit value.
+  private static LocalDate toLocalDate(int date) {
+    return LocalDate.ofEpochDay((date & 0xFFFFFFFFL) - (1L << 31));
+  }
+
+  /**
+   * Decodes a decimal in the comparable encoding of the servers (see util/decimal.h), i.e. the
+   * sign, the exponent e as a varint with two reserved bits and the digits d1 d2 ... of the
+   * number 0.d1d2... * 10^e, two per byte. Negative numbers have all their bits inverted.
+   */
+  static BigDecimal toBigDecimal(ByteString encoded) {
+    byte[] bytes = encoded.toByteArray();
+    if (bytes.length == 0) {
+      throw new IllegalArgumentException("Empty decimal value");
+    }
+    if ((bytes[0] & 0xFF) == 0x80) {
+      return BigDecimal.ZERO;
+    }
+    boolean negative = (bytes[0] & 0x80) == 0;
+    if (negative) {
+      invert(bytes);
+    }
+    ByteBuffer buf = ByteBuffer.wrap(bytes);
+    BigInteger exponent = toBigInteger(buf, 2);
+    // Each byte holds two digits times two, plus one if more digits follow.
+    BigInteger unscaled = BigInteger.ZERO;
+    int numDigits = 0;
+    int b;
+    do {
+      if (!buf.hasRemaining()) {
+        throw new IllegalArgumentException("Truncated decimal value");
+      }
+      b = buf.get() & 0xFF;
+      unscaled = unscaled.multiply(BigInteger.valueOf(100)).add(BigInteger.valueOf(b >> 1));
+      numDigits += 2;
+    } while ((b & 1) != 0);
+    BigDecimal result = new BigDecimal(
+        negative ? unscaled.negate() : unscaled,
+        BigInteger.valueOf(numDigits).subtract(exponent).intValueExact()).stripTrailingZeros();
+    return result.scale() < 0 ? result.setScale(0) : result;
+  }
+
+  /**
+   * Decodes a varint in the comparable encoding of the servers (see util/varint.h).
+   */
+  static BigInteger toBigInteger(ByteString encoded) {
+    return toBigInteger(ByteBuffer.wrap(encoded.toByteArray()), 0);
+  }
+
+  /**
+   * Decodes the comparable encoding of a varint at the position of the buffer, which is moved
+   * past it. The encoding starts with numReservedBits bits that are not part of it, then a sign
+   * bit, 1 for non-negative numbers, then as many 1 bits as the encoding has bytes, then the
+   * magnitude. Negative numbers have all their bits inverted.
+   */
+  private static BigInteger toBigInteger(ByteBuffer buf, int numReservedBits) {
+    byte[] bytes = new byte[buf.remaining()];
+    buf.duplicate().get(bytes);
+    if (bytes.length == 0) {
+      throw new IllegalArgumentException("Empty varint value");
+    }
+    boolean negative = (bytes[0] & (0x80 >>> numReservedBits)) == 0;
+    if (negative) {
+      invert(bytes);
+    }
+    // The reserved bits are counted along with the ones, and subtracted afterwards.
+    bytes[0] |= (byte) ~(0xFF >>> numReservedBits);
+    int numOnes = 0;
+    int i = 0;
+    while (bytes[i] == (byte) 0xFF) {
+      numOnes += 8;
+      if (++i == bytes.length) {
+        throw new IllegalArgumentException("Truncated varint value");
+      }
+    }
+    for (int bit = 0x80; (bytes[i] & bit) != 0; bit >>>= 1) {
+      bytes[i] ^= bit;
+      numOnes++;
+    }
+    int length = numOnes - numReservedBits;
+    if (length > bytes.length) {
+      throw new IllegalArgumentException("Truncated varint value");
+    }
+    buf.position(buf.position() + length);
+    BigInteger magnitude = new BigInteger(1, Arrays.copyOfRange(bytes, i, length));
+    return negative ? magnitude.negate() : magnitude;
+  }
+
+  private static void invert(byte[] bytes) {
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) ~bytes[i];
+    }
+  }
+
+  private static UUID toUUID(ByteString bytes) {
+    ByteBuffer buf = bytes.asReadOnlyByteBuffer();
+    return new UUID(buf.getLong(), buf.getLong());
+  }
+}
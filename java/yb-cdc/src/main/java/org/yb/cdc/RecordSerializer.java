@@ -0,0 +1,22 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+/**
+ * Serializes decoded change records into a buffer owned by the serializer. The buffer is reused
+ * across calls, so implementations are not thread safe and the returned buffer is only valid
+ * until the next call.
+ */
+public interface RecordSerializer {
+  public RecordBuffer serialize(DecodedRecord record);
+}
@@ -0,0 +1,297 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.apache.commons.math3.stat.descriptive.SynchronizedDescriptiveStatistics;
+import org.apache.log4j.Logger;
+import org.yb.ColumnSchema;
+import org.yb.Opid.OpIdPB;
+import org.yb.Schema;
+import org.yb.Type;
+import org.yb.client.YBTable;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Drives pollers, the dispatcher and an output client from a {@link SyntheticChangeSource}, and
+ * reports the throughput, allocation rate and latency of the pipeline. Used to size connector
+ * hosts and to compare pipeline changes without a cluster.
+ *
+ * Latency is measured per batch, from the time the source hands it to a poller until the output
+ * client has flushed its checkpoint, i.e. until the batch would be acknowledged.
+ */
+public class ReplayBenchmark {
+  private static final Logger LOG = Logger.getLogger(ReplayBenchmark.class);
+
+  private static final int NUM_POLL_THREADS = 8;
+  private static final long SHUTDOWN_GRACE_MS = 1000;
+  // Batch latencies kept for the percentiles.
+  private static final int LATENCY_WINDOW = 1 << 20;
+
+  private int numTablets = 8;
+  private int recordBytes = 256;
+  private int batchSize = 100;
+  private double errorRate = 0;
+  private String sink = "null";
+  private String segmentDir = null;
+  private long fsyncIntervalMs = CmdLineOpts.DEFAULT_FSYNC_INTERVAL_MS;
+  private int dispatchThreads = Runtime.getRuntime().availableProcessors();
+  private int dispatchQueueSize = CmdLineOpts.DEFAULT_DISPATCH_QUEUE_SIZE;
+  private boolean dispatchByKey = false;
+  private long warmupSecs = 5;
+  private long durationSecs = 30;
+
+  private final LongAdder records = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final SynchronizedDescriptiveStatistics batchLatencyMs =
+      new SynchronizedDescriptiveStatistics(LATENCY_WINDOW);
+
+  private SyntheticChangeSource source;
+
+  private void parseArgs(String[] args) throws Exception {
+    Options options = new Options();
+    options.addOption("tablets", true, "Number of tablets to poll (default 8)");
+    options.addOption("record_bytes", true, "Approximate size of a record (default 256)");
+    options.addOption("batch_size", true, "Records per GetChanges response (default 100)");
+    options.addOption("error_rate", true,
+                      "Fraction of GetChanges calls that fail and are retried (default 0)");
+    options.addOption("sink", true, "Output to apply records to: null, json, binary or segment " +
+                      "(default null)");
+    options.addOption("segment_dir", true, "Directory for the segment sink");
+    options.addOption("fsync_interval_ms", true, "Sync interval of the segment sink (default " +
+                      CmdLineOpts.DEFAULT_FSYNC_INTERVAL_MS + ")");
+    options.addOption("dispatch_threads", true,
+                      "Threads applying changes to the output (default: number of cores)");
+    options.addOption("dispatch_queue_size", true,
+                      "Changes queued per dispatch partition (default " +
+                      CmdLineOpts.DEFAULT_DISPATCH_QUEUE_SIZE + ")");
+    options.addOption("dispatch_by_key", false, "Order changes per key instead of per tablet");
+    options.addOption("warmup_secs", true, "Seconds to run before measuring (default 5)");
+    options.addOption("duration_secs", true, "Seconds to measure for (default 30)");
+
+    CommandLine commandLine = new BasicParser().parse(options, args);
+    if (commandLine.hasOption("tablets")) {
+      numTablets = Integer.parseInt(commandLine.getOptionValue("tablets"));
+    }
+    if (commandLine.hasOption("record_bytes")) {
+      recordBytes = Integer.parseInt(commandLine.getOptionValue("record_bytes"));
+    }
+    if (commandLine.hasOption("batch_size")) {
+      batchSize = Integer.parseInt(commandLine.getOptionValue("batch_size"));
+    }
+    if (commandLine.hasOption("error_rate")) {
+      errorRate = Double.parseDouble(commandLine.getOptionValue("error_rate"));
+    }
+    if (commandLine.hasOption("sink")) {
+      sink = commandLine.getOptionValue("sink");
+    }
+    if (commandLine.hasOption("segment_dir")) {
+      segmentDir = commandLine.getOptionValue("segment_dir");
+    }
+    if (commandLine.hasOption("fsync_interval_ms")) {
+      fsyncIntervalMs = Long.parseLong(commandLine.getOptionValue("fsync_interval_ms"));
+    }
+    if (commandLine.hasOption("dispatch_threads")) {
+      dispatchThreads = Integer.parseInt(commandLine.getOptionValue("dispatch_threads"));
+    }
+    if (commandLine.hasOption("dispatch_queue_size")) {
+      dispatchQueueSize = Integer.parseInt(commandLine.getOptionValue("dispatch_queue_size"));
+    }
+    dispatchByKey = commandLine.hasOption("dispatch_by_key");
+    if (commandLine.hasOption("warmup_secs")) {
+      warmupSecs = Long.parseLong(commandLine.getOptionValue("warmup_secs"));
+    }
+    if (commandLine.hasOption("duration_secs")) {
+      durationSecs = Long.parseLong(commandLine.getOptionValue("duration_secs"));
+    }
+  }
+
+  private OutputClient newSink() throws Exception {
+    switch (sink) {
+      case "null":
+        return new OutputClient() {
+          @Override
+          public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) {
+          }
+        };
+      case "json":
+        return new SerializingClient(JsonRecordSerializer::new);
+      case "binary":
+        return new SerializingClient(BinaryRecordSerializer::new);
+      case "segment":
+        if (segmentDir == null) {
+          throw new Exception("--sink segment requires --segment_dir");
+        }
+        return new SegmentFileClient(new File(segmentDir), CmdLineOpts.DEFAULT_SEGMENT_MAX_BYTES,
+                                     CmdLineOpts.DEFAULT_SEGMENT_MAX_AGE_MS, fsyncIntervalMs);
+      default:
+        throw new Exception("Unknown sink " + sink);
+    }
+  }
+
+  public void run() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_POLL_THREADS);
+    ExecutorService callbackExecutor = Executors.newFixedThreadPool(NUM_POLL_THREADS);
+    Dispatcher dispatcher = new Dispatcher(dispatchThreads, dispatchThreads * 4,
+                                           dispatchQueueSize);
+    source = new SyntheticChangeSource(recordBytes, batchSize, errorRate, callbackExecutor);
+    OutputClient sinkClient = newSink();
+    OutputClient outputClient = new MeasuringClient(sinkClient);
+    // Pollers pick a tablet server to call, the synthetic source ignores it.
+    List<HostAndPort> hps = Arrays.asList(HostAndPort.fromParts("127.0.0.1", 9100));
+
+    List<Poller> pollers = new ArrayList<>();
+    for (int i = 0; i < numTablets; i++) {
+      pollers.add(new Poller(outputClient, hps, null, String.format("tablet-%d", i), executor,
+                             source, dispatcher, dispatchByKey));
+    }
+    LOG.info(String.format("Replaying %d tablets into the %s sink, warming up for %d s",
+                           numTablets, sink, warmupSecs));
+    for (Poller poller : pollers) {
+      poller.poll();
+    }
+
+    Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSecs));
+    records.reset();
+    batches.reset();
+    batchLatencyMs.clear();
+    long startNanos = System.nanoTime();
+    long startAllocated = allocatedBytes();
+
+    Thread.sleep(TimeUnit.SECONDS.toMillis(durationSecs));
+    long elapsedNanos = System.nanoTime() - startNanos;
+    long allocated = allocatedBytes() - startAllocated;
+    long numRecords = records.sum();
+    long numBatches = batches.sum();
+
+    for (Poller poller : pollers) {
+      poller.stop();
+    }
+    // Stopped pollers finish the batch in flight, give them time before shutting down under it.
+    Thread.sleep(SHUTDOWN_GRACE_MS);
+    executor.shutdown();
+    callbackExecutor.shutdown();
+    dispatcher.shutdown();
+    sinkClient.close();
+
+    double secs = elapsedNanos / 1e9;
+    LOG.info(String.format("Records: %d in %.1f s, %.0f records/s, %.1f MB/s of records",
+                           numRecords, secs, numRecords / secs,
+                           numRecords * (double) recordBytes / secs / (1 << 20)));
+    LOG.info(String.format("Allocation: %.1f MB/s, %.0f bytes/record",
+                           allocated / secs / (1 << 20),
+                           numRecords == 0 ? 0.0 : allocated / (double) numRecords));
+    LOG.info(String.format("Batch latency (ms) over %d batches: p50 %.2f, p90 %.2f, p99 %.2f, " +
+                           "p99.9 %.2f, max %.2f", numBatches,
+                           batchLatencyMs.getPercentile(50), batchLatencyMs.getPercentile(90),
+                           batchLatencyMs.getPercentile(99), batchLatencyMs.getPercentile(99.9),
+                           batchLatencyMs.getMax()));
+  }
+
+  /**
+   * Returns the bytes allocated so far by the live threads of this JVM, or 0 if the JVM does not
+   * track allocations per thread.
+   */
+  private static long allocatedBytes() {
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+      return 0;
+    }
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long total = 0;
+    for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+      if (allocated > 0) {
+        total += allocated;
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Counts records and measures batch latency in front of the benchmarked output client.
+   */
+  private class MeasuringClient implements OutputClient {
+    private final OutputClient delegate;
+
+    MeasuringClient(OutputClient delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) throws Exception {
+      delegate.applyChange(table, changeRecord);
+      records.increment();
+    }
+
+    @Override
+    public void flush(String tabletId, OpIdPB checkpoint) throws Exception {
+      delegate.flush(tabletId, checkpoint);
+      long issued = source.getIssueTime(tabletId, checkpoint);
+      if (issued >= 0) {
+        batches.increment();
+        batchLatencyMs.addValue((System.nanoTime() - issued) / 1e6);
+      }
+    }
+  }
+
+  /**
+   * Decodes and serializes every record against the schema of the synthetic records, and drops
+   * the result. Measures the cost of the serializers without the cost of an actual output.
+   */
+  private static class SerializingClient implements OutputClient {
+    private static final Schema SCHEMA = new Schema(Arrays.asList(
+        new ColumnSchema.ColumnSchemaBuilder(SyntheticChangeSource.KEY_COLUMN, Type.INT64)
+            .hashKey(true).build(),
+        new ColumnSchema.ColumnSchemaBuilder(SyntheticChangeSource.VALUE_COLUMN, Type.STRING)
+            .build()));
+
+    private final ThreadLocal<RecordDecoder> decoder =
+        ThreadLocal.withInitial(() -> new RecordDecoder(SCHEMA));
+    private final ThreadLocal<DecodedRecord> decoded = ThreadLocal.withInitial(DecodedRecord::new);
+    private final ThreadLocal<RecordSerializer> serializer;
+
+    SerializingClient(Supplier<RecordSerializer> serializerFactory) {
+      serializer = ThreadLocal.withInitial(serializerFactory);
+    }
+
+    @Override
+    public void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord) {
+      serializer.get().serialize(decoder.get().decode(changeRecord, decoded.get()));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    Main.setupConsoleLogging();
+    ReplayBenchmark benchmark = new ReplayBenchmark();
+    try {
+      benchmark.parseArgs(args);
+      benchmark.run();
+    } catch (Exception e) {
+      LOG.error("Benchmark ran into error: ", e);
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,264 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.CodedOutputStream;
+import org.apache.log4j.Logger;
+import org.yb.Opid.OpIdPB;
+import org.yb.client.YBTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends change records to size and time rolled segment files in a local directory.
+ *
+ * Each segment NNN.seg holds length-prefixed (4 byte big endian) serialized CDCRecordPBs, in the
+ * order they were applied, which preserves the per-tablet order. Next to it, NNN.idx gets one
+ * entry per GetChanges batch: the tablet id, the batch checkpoint and the segment offset up to
+ * which that tablet's records are covered by it. The connector never reads the index back, it
+ * resumes from the checkpoints the CDC service keeps for the stream. The index is there for
+ * offline replay through {@link SegmentReader}, to tell which records a checkpoint covers.
+ *
+ * Writes go through a FileChannel from a reused buffer. A background thread fsyncs the open
+ * segment and its index at most every fsync interval, and {@link #flush} blocks until the batch
+ * it covers has been synced, so a poller only acknowledges records that are on disk.
+ */
+public class SegmentFileClient implements OutputClient {
+  private static final Logger LOG = Logger.getLogger(SegmentFileClient.class);
+
+  static final String DATA_SUFFIX = ".seg";
+  static final String INDEX_SUFFIX = ".idx";
+
+  private final File dir;
+  private final long maxSegmentBytes;
+  private final long maxSegmentAgeMs;
+
+  private long segmentSeq;
+  private FileChannel data;
+  private FileChannel index;
+  private long segmentBytes;
+  private long segmentStartMs;
+
+  // Bytes appended to segments and indexes over the lifetime of this client, and how much of
+  // that is known to be synced. Both only grow, across segment rolls.
+  private long writtenPosition = 0;
+  private long durablePosition = 0;
+  private IOException syncError = null;
+
+  private ByteBuffer writeBuf = ByteBuffer.allocate(64 * 1024);
+
+  private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor();
+
+  public SegmentFileClient(File dir, long maxSegmentBytes, long maxSegmentAgeMs,
+                           long fsyncIntervalMs) throws IOException {
+    this.dir = dir;
+    this.maxSegmentBytes = maxSegmentBytes;
+    this.maxSegmentAgeMs = maxSegmentAgeMs;
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Could not create segment directory " + dir);
+    }
+    // Never append to an existing segment, its tail may be torn.
+    segmentSeq = lastSegmentSeq(dir);
+    openSegment();
+    syncer.scheduleWithFixedDelay(this::syncAndMaybeRoll, fsyncIntervalMs, fsyncIntervalMs,
+                                  TimeUnit.MILLISECONDS);
+  }
+
+  static long lastSegmentSeq(File dir) {
+    long last = 0;
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return last;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (name.endsWith(DATA_SUFFIX)) {
+        try {
+          last = Math.max(last, Long.parseLong(
+              name.substring(0, name.length() - DATA_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+          // Not one of ours.
+        }
+      }
+    }
+    return last;
+  }
+
+  static File segmentFile(File dir, long seq, String suffix) {
+    return new File(dir, String.format("%020d%s", seq, suffix));
+  }
+
+  @Override
+  public synchronized void applyChange(YBTable table, CdcService.CDCRecordPB changeRecord)
+      throws Exception {
+    checkSyncError();
+    int size = changeRecord.getSerializedSize();
+    ByteBuffer buf = writeBuffer(4 + size);
+    buf.putInt(size);
+    CodedOutputStream out = CodedOutputStream.newInstance(buf.array(), 4, size);
+    changeRecord.writeTo(out);
+    out.checkNoSpaceLeft();
+    buf.position(4 + size);
+    buf.flip();
+    write(data, buf);
+    segmentBytes += 4 + size;
+    writtenPosition += 4 + size;
+
+    if (segmentBytes >= maxSegmentBytes) {
+      roll();
+    }
+  }
+
+  @Override
+  public void flush(String tabletId, OpIdPB checkpoint) throws Exception {
+    long target;
+    synchronized (this) {
+      checkSyncError();
+      byte[] id = tabletId.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer buf = writeBuffer(4 + id.length + 24);
+      buf.putInt(id.length);
+      buf.put(id);
+      buf.putLong(checkpoint.getTerm());
+      buf.putLong(checkpoint.getIndex());
+      buf.putLong(segmentBytes);
+      buf.flip();
+      int size = buf.remaining();
+      write(index, buf);
+      writtenPosition += size;
+      target = writtenPosition;
+
+      while (durablePosition < target) {
+        checkSyncError();
+        wait();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    syncer.shutdownNow();
+    synchronized (this) {
+      closeSegment();
+      durablePosition = writtenPosition;
+      notifyAll();
+    }
+  }
+
+  private ByteBuffer writeBuffer(int size) {
+    if (writeBuf.capacity() < size) {
+      writeBuf = ByteBuffer.allocate(Math.max(size, writeBuf.capacity() * 2));
+    }
+    writeBuf.clear();
+    return writeBuf;
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+  }
+
+  private void checkSyncError() throws IOException {
+    if (syncError != null) {
+      throw new IOException("Segment sync failed", syncError);
+    }
+  }
+
+  private void openSegment() throws IOException {
+    segmentSeq++;
+    File segment = segmentFile(dir, segmentSeq, DATA_SUFFIX);
+    data = FileChannel.open(segment.toPath(), StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.WRITE);
+    index = FileChannel.open(segmentFile(dir, segmentSeq, INDEX_SUFFIX).toPath(),
+                             StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    segmentBytes = 0;
+    segmentStartMs = System.currentTimeMillis();
+    LOG.info(String.format("Writing changes to segment %s", segment));
+  }
+
+  private void closeSegment() throws IOException {
+    data.force(false);
+    index.force(false);
+    data.close();
+    index.close();
+  }
+
+  /**
+   * Syncs and closes the current segment and starts the next one. Everything written so far is
+   * durable afterwards.
+   */
+  private void roll() throws IOException {
+    closeSegment();
+    durablePosition = writtenPosition;
+    notifyAll();
+    openSegment();
+  }
+
+  private void syncAndMaybeRoll() {
+    FileChannel syncData;
+    FileChannel syncIndex;
+    long position;
+    synchronized (this) {
+      if (syncError != null) {
+        return;
+      }
+      try {
+        if (segmentBytes > 0 &&
+            System.currentTimeMillis() - segmentStartMs >= maxSegmentAgeMs) {
+          roll();
+          return;
+        }
+      } catch (IOException e) {
+        LOG.error("Failed to roll segment: ", e);
+        syncError = e;
+        notifyAll();
+        return;
+      }
+      if (durablePosition >= writtenPosition) {
+        return;
+      }
+      syncData = data;
+      syncIndex = index;
+      position = writtenPosition;
+    }
+
+    // Sync without holding the lock, so that appends can go on meanwhile.
+    try {
+      syncData.force(false);
+      syncIndex.force(false);
+    } catch (ClosedChannelException e) {
+      // The segment was rolled in the meantime, which synced it already.
+    } catch (IOException e) {
+      LOG.error("Failed to sync segment: ", e);
+      synchronized (this) {
+        syncError = e;
+        notifyAll();
+      }
+      return;
+    }
+
+    synchronized (this) {
+      durablePosition = Math.max(durablePosition, position);
+      notifyAll();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.protobuf.CodedInputStream;
+import org.yb.Opid.OpIdPB;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads back the segments written by {@link SegmentFileClient}. Segments are memory-mapped, so
+ * replay is bound by disk throughput rather than by read calls.
+ */
+public class SegmentReader {
+
+  /**
+   * One batch checkpoint from a segment index.
+   */
+  public static class IndexEntry {
+    public final String tabletId;
+    public final OpIdPB checkpoint;
+    // Offset in the segment up to which the tablet's records are covered by the checkpoint.
+    public final long segmentOffset;
+
+    IndexEntry(String tabletId, OpIdPB checkpoint, long segmentOffset) {
+      this.tabletId = tabletId;
+      this.checkpoint = checkpoint;
+      this.segmentOffset = segmentOffset;
+    }
+  }
+
+  private final MappedByteBuffer buf;
+  // Records are copied out of the mapping into this reused array before parsing.
+  private byte[] scratch = new byte[4096];
+
+  public SegmentReader(File segment) throws IOException {
+    try (FileChannel channel = FileChannel.open(segment.toPath(), StandardOpenOption.READ)) {
+      buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  /**
+   * @return the offset of the next record in the segment.
+   */
+  public long position() {
+    return buf.position();
+  }
+
+  /**
+   * @return the next record, or null at the end of the segment or at a torn final record.
+   */
+  public CdcService.CDCRecordPB next() throws IOException {
+    if (buf.remaining() < 4) {
+      return null;
+    }
+    int size = buf.getInt(buf.position());
+    if (size < 0 || buf.remaining() - 4 < size) {
+      return null;
+    }
+    buf.position(buf.position() + 4);
+    if (scratch.length < size) {
+      scratch = new byte[Math.max(size, scratch.length * 2)];
+    }
+    buf.get(scratch, 0, size);
+    return CdcService.CDCRecordPB.parseFrom(CodedInputStream.newInstance(scratch, 0, size));
+  }
+
+  /**
+   * Reads the index of the given segment, stopping at a torn final entry.
+   */
+  public static List<IndexEntry> readIndex(File segment) throws IOException {
+    String path = segment.getPath();
+    String base = path.substring(0, path.length() - SegmentFileClient.DATA_SUFFIX.length());
+    File indexFile = new File(base + SegmentFileClient.INDEX_SUFFIX);
+    List<IndexEntry> entries = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      while (buf.remaining() >= 4) {
+        int idLength = buf.getInt();
+        if (idLength < 0 || buf.remaining() < idLength + 24) {
+          break;
+        }
+        byte[] id = new byte[idLength];
+        buf.get(id);
+        OpIdPB checkpoint = OpIdPB.newBuilder().setTerm(buf.getLong()).setIndex(buf.getLong())
+                                  .build();
+        entries.add(new IndexEntry(new String(id, StandardCharsets.UTF_8), checkpoint,
+                                   buf.getLong()));
+      }
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,37 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import org.yb.client.LocatedTablet;
+import org.yb.client.YBTable;
+
+/**
+ * Reads the rows of one tablet as of a hybrid time, for the initial snapshot of a table before
+ * streaming its changes. Implementations are loaded by class name (--snapshot_source) and need a
+ * public no-argument constructor. Several tablets are snapshotted concurrently.
+ */
+public interface SnapshotSource {
+  /**
+   * Hands every row of the tablet as of readHybridTime, or of a later time, to the output client,
+   * as a WRITE record whose time is readHybridTime. The changes after readHybridTime are streamed
+   * on top of it.
+   */
+  public void snapshotTablet(YBTable table, LocatedTablet tablet, long readHybridTime,
+                             OutputClient outputClient) throws Exception;
+
+  /**
+   * Releases the connections of the source, once no more tablets are snapshotted.
+   */
+  public default void close() throws Exception {
+  }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import com.google.protobuf.ByteString;
+import com.stumbleupon.async.Callback;
+import org.apache.log4j.Logger;
+import org.yb.Common.QLValuePB;
+import org.yb.Opid.OpIdPB;
+import org.yb.util.HybridTimeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves GetChanges calls from generated data, without a cluster.
+ *
+ * Every call for a tablet returns the same pre-built batch of records, so generating data costs
+ * nothing per call and the measured work is the connector's own. The checkpoint advances by the
+ * batch size on every successful call. A configurable fraction of calls fails with
+ * LEADER_NOT_READY, which pollers retry, to exercise the error path.
+ *
+ * Records have one int64 key column {@link #KEY_COLUMN} and one string column
+ * {@link #VALUE_COLUMN}, padded so that a serialized record is about the requested size.
+ */
+public class SyntheticChangeSource implements ChangeSource {
+  private static final Logger LOG = Logger.getLogger(SyntheticChangeSource.class);
+
+  public static final String KEY_COLUMN = "k";
+  public static final String VALUE_COLUMN = "v";
+
+  private final List<CdcService.CDCRecordPB> batch;
+  private final double errorRate;
+  private final ExecutorService executor;
+
+  // Checkpoint index and time (System.nanoTime) of the last batch handed out per tablet.
+  private final Map<String, long[]> issued = new ConcurrentHashMap<>();
+
+  /**
+   * @param recordBytes approximate serialized size of a record.
+   * @param batchSize records returned by every GetChanges call.
+   * @param errorRate fraction of calls, between 0 and 1, that return an error.
+   * @param executor runs the callbacks, like the RPC threads of a real client.
+   */
+  public SyntheticChangeSource(int recordBytes, int batchSize, double errorRate,
+                               ExecutorService executor) {
+    this.errorRate = errorRate;
+    this.executor = executor;
+    long time = HybridTimeUtil.clockTimestampToHTTimestamp(
+        System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    batch = new ArrayList<>(batchSize);
+    CdcService.CDCRecordPB sample = newRecord(0, time, "");
+    char[] padding = new char[Math.max(recordBytes - sample.getSerializedSize(), 0)];
+    Arrays.fill(padding, 'x');
+    for (int i = 0; i < batchSize; i++) {
+      batch.add(newRecord(i, time, new String(padding)));
+    }
+    LOG.info(String.format("Generated batches of %d records of %d bytes", batchSize,
+                           batch.isEmpty() ? 0 : batch.get(0).getSerializedSize()));
+  }
+
+  private static CdcService.CDCRecordPB newRecord(long key, long time, String value) {
+    return CdcService.CDCRecordPB.newBuilder()
+        .setTime(time)
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addKey(CdcService.KeyValuePairPB.newBuilder()
+            .setKey(ByteString.copyFromUtf8(KEY_COLUMN))
+            .setValue(QLValuePB.newBuilder().setInt64Value(key)))
+        .addChanges(CdcService.KeyValuePairPB.newBuilder()
+            .setKey(ByteString.copyFromUtf8(VALUE_COLUMN))
+            .setValue(QLValuePB.newBuilder().setStringValue(value)))
+        .build();
+  }
+
+  @Override
+  public void getChanges(HostAndPort hp, String tabletId, long term, long index,
+                         Callback<Void, CdcService.GetChangesResponsePB> cb) {
+    CdcService.GetChangesResponsePB.Builder response = CdcService.GetChangesResponsePB.newBuilder();
+    if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+      response.setError(CdcService.CDCErrorPB.newBuilder()
+          .setCode(CdcService.CDCErrorPB.Code.LEADER_NOT_READY));
+    } else {
+      long checkpointIndex = index + batch.size();
+      response.addAllRecords(batch)
+          .setCheckpoint(CdcService.CDCCheckpointPB.newBuilder()
+              .setOpId(OpIdPB.newBuilder().setTerm(1).setIndex(checkpointIndex)));
+      issued.put(tabletId, new long[] {checkpointIndex, System.nanoTime()});
+    }
+    CdcService.GetChangesResponsePB built = response.build();
+    executor.submit(() -> {
+      try {
+        cb.call(built);
+      } catch (Exception e) {
+        LOG.error(String.format("Callback for tablet %s failed: ", tabletId), e);
+      }
+    });
+  }
+
+  /**
+   * Returns the System.nanoTime at which the batch ending at the given checkpoint was handed out
+   * for the tablet, or -1 if that is not the tablet's latest batch.
+   */
+  public long getIssueTime(String tabletId, OpIdPB checkpoint) {
+    long[] last = issued.get(tabletId);
+    if (last == null || last[0] != checkpoint.getIndex()) {
+      return -1;
+    }
+    return last[1];
+  }
+}
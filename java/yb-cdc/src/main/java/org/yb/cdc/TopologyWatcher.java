@@ -0,0 +1,271 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import org.apache.log4j.Logger;
+import org.yb.client.Bytes;
+import org.yb.client.LocatedTablet;
+import org.yb.client.Partition;
+import org.yb.client.YBClient;
+import org.yb.client.YBTable;
+import org.yb.util.ServerInfo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Periodically re-locates the tablets of the CDC table and keeps one poller running per tablet.
+ *
+ * New tablets get a poller as soon as they show up. When a tablet splits, the children are held
+ * back until the parent poller has drained, so changes of a key range are never consumed out of
+ * order. Tablets that are gone otherwise are drained and dropped. The list of tablet servers
+ * shared with the pollers is refreshed on every pass, which covers both cluster growth and
+ * tablets moving between servers.
+ */
+class TopologyWatcher {
+  private static final Logger LOG = Logger.getLogger(TopologyWatcher.class);
+
+  private final YBClient syncClient;
+  private final YBTable table;
+  private final List<HostAndPort> hps;
+  private final Function<String, Poller> pollerFactory;
+  private final long timeoutMs;
+  private final long refreshIntervalMs;
+
+  // Tablets we are currently polling, keyed by tablet id.
+  private final Map<String, Poller> pollers = new HashMap<>();
+  private final Map<String, Partition> partitions = new HashMap<>();
+  // Leader of each located tablet as of the last refresh.
+  private final Map<String, HostAndPort> leaders = new HashMap<>();
+  // Split children waiting for their parent (the key) to drain.
+  private final Map<String, List<LocatedTablet>> pendingChildren = new HashMap<>();
+
+  // Snapshots the initial tablets before they are polled, if set.
+  private Bootstrapper bootstrapper = null;
+  // Called with the error of a failed snapshot.
+  private Consumer<Throwable> onBootstrapFailure = null;
+  private boolean initialized = false;
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor();
+
+  /**
+   * @param hps the tablet servers the pollers pick from. Must be safe for concurrent reads, since
+   *            it is updated in place while pollers are running.
+   * @param pollerFactory creates a (not yet started) poller for the given tablet id.
+   */
+  public TopologyWatcher(YBClient syncClient, YBTable table, List<HostAndPort> hps,
+                         Function<String, Poller> pollerFactory, long timeoutMs,
+                         long refreshIntervalMs) {
+    this.syncClient = syncClient;
+    this.table = table;
+    this.hps = hps;
+    this.pollerFactory = pollerFactory;
+    this.timeoutMs = timeoutMs;
+    this.refreshIntervalMs = refreshIntervalMs;
+  }
+
+  /**
+   * Makes the tablets found by the first refresh get snapshotted before they are polled. Tablets
+   * found later come from splits, whose data is covered by the parent's snapshot and stream.
+   * @param onFailure called with the error of a failed snapshot, the tablet is not polled then.
+   */
+  public void setBootstrapper(Bootstrapper bootstrapper, Consumer<Throwable> onFailure) {
+    this.bootstrapper = bootstrapper;
+    this.onBootstrapFailure = onFailure;
+  }
+
+  /**
+   * Locates the tablets once, starts polling them and schedules the periodic refresh.
+   */
+  public void start() throws Exception {
+    refresh();
+    scheduler.scheduleWithFixedDelay(() -> {
+      try {
+        refresh();
+      } catch (Exception e) {
+        LOG.warn("Failed to refresh tablet topology, will retry: ", e);
+      }
+    }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  public void stop() {
+    scheduler.shutdownNow();
+    synchronized (this) {
+      for (Poller poller : pollers.values()) {
+        poller.stop();
+      }
+    }
+  }
+
+  synchronized void refresh() throws Exception {
+    refreshTabletServers();
+
+    List<LocatedTablet> tabletLocations = table.getTabletsLocations(timeoutMs);
+    Set<String> located = new HashSet<>();
+    leaders.clear();
+    for (LocatedTablet tablet : tabletLocations) {
+      String tabletId = new String(tablet.getTabletId());
+      located.add(tabletId);
+      LocatedTablet.Replica leader = tablet.getLeaderReplica();
+      if (leader != null && leader.getRpcHost() != null) {
+        leaders.put(tabletId, HostAndPort.fromParts(leader.getRpcHost(), leader.getRpcPort()));
+      }
+    }
+
+    for (LocatedTablet tablet : tabletLocations) {
+      String tabletId = new String(tablet.getTabletId());
+      if (pollers.containsKey(tabletId) || isPending(tabletId)) {
+        continue;
+      }
+      if (!initialized && bootstrapper != null) {
+        Poller poller = addPoller(tabletId, tablet.getPartition());
+        bootstrapper.snapshotTablet(tablet).whenComplete((result, error) -> {
+          if (error != null) {
+            // The copy misses the rows of the tablet, streaming on top of it would not fix that.
+            onBootstrapFailure.accept(error);
+            return;
+          }
+          poller.poll();
+        });
+        continue;
+      }
+      String parentId = findParent(tablet.getPartition(), located);
+      if (parentId == null) {
+        startPoller(tabletId, tablet.getPartition());
+        continue;
+      }
+      LOG.info(String.format("Tablet %s was split from %s, waiting for the parent to drain",
+                             tabletId, parentId));
+      pendingChildren.computeIfAbsent(parentId, k -> new ArrayList<>()).add(tablet);
+      Poller parent = pollers.get(parentId);
+      if (!parent.isDraining()) {
+        parent.drain(() -> onTabletDrained(parentId));
+      }
+    }
+
+    // A tablet that is gone without split children, e.g. deleted, is drained and dropped rather
+    // than polled forever.
+    for (Map.Entry<String, Poller> entry : pollers.entrySet()) {
+      String tabletId = entry.getKey();
+      if (!located.contains(tabletId) && !entry.getValue().isDraining()) {
+        LOG.info(String.format("Tablet %s is gone, draining it", tabletId));
+        entry.getValue().drain(() -> onTabletDrained(tabletId));
+      }
+    }
+    initialized = true;
+  }
+
+  /**
+   * Returns a snapshot of the pollers currently running, keyed by tablet id.
+   */
+  synchronized Map<String, Poller> getPollers() {
+    return new HashMap<>(pollers);
+  }
+
+  /**
+   * Returns the leader of the tablet as of the last refresh, or null if it is not known.
+   */
+  synchronized HostAndPort getLeader(String tabletId) {
+    return leaders.get(tabletId);
+  }
+
+  private void refreshTabletServers() throws Exception {
+    List<HostAndPort> servers = new ArrayList<>();
+    for (ServerInfo serverInfo : syncClient.listTabletServers().getTabletServersList()) {
+      servers.add(HostAndPort.fromParts(serverInfo.getHost(), serverInfo.getPort()));
+    }
+    if (servers.isEmpty()) {
+      LOG.warn("Master reported no tablet servers, keeping the previous list");
+      return;
+    }
+    // Add before removing so that the list the pollers read from is never empty.
+    for (HostAndPort hp : servers) {
+      if (!hps.contains(hp)) {
+        LOG.info(String.format("Discovered tablet server %s", hp));
+        hps.add(hp);
+      }
+    }
+    hps.retainAll(servers);
+  }
+
+  private synchronized void onTabletDrained(String tabletId) {
+    pollers.remove(tabletId);
+    partitions.remove(tabletId);
+    List<LocatedTablet> children = pendingChildren.remove(tabletId);
+    if (children == null) {
+      return;
+    }
+    for (LocatedTablet child : children) {
+      startPoller(new String(child.getTabletId()), child.getPartition());
+    }
+  }
+
+  private void startPoller(String tabletId, Partition partition) {
+    LOG.info(String.format("Polling for new tablet %s", tabletId));
+    addPoller(tabletId, partition).poll();
+  }
+
+  private Poller addPoller(String tabletId, Partition partition) {
+    Poller poller = pollerFactory.apply(tabletId);
+    pollers.put(tabletId, poller);
+    partitions.put(tabletId, partition);
+    return poller;
+  }
+
+  private boolean isPending(String tabletId) {
+    for (List<LocatedTablet> children : pendingChildren.values()) {
+      for (LocatedTablet child : children) {
+        if (new String(child.getTabletId()).equals(tabletId)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the id of a polled tablet that is no longer located and whose key range covers the
+   * given partition, i.e. the tablet this one was split from, or null if there is none.
+   */
+  private String findParent(Partition child, Set<String> located) {
+    for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+      if (!located.contains(entry.getKey()) && covers(entry.getValue(), child)) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  private static boolean covers(Partition parent, Partition child) {
+    if (Bytes.memcmp(parent.getPartitionKeyStart(), child.getPartitionKeyStart()) > 0) {
+      return false;
+    }
+    if (parent.isEndPartition()) {
+      return true;
+    }
+    return !child.isEndPartition() &&
+           Bytes.memcmp(child.getPartitionKeyEnd(), parent.getPartitionKeyEnd()) <= 0;
+  }
+}
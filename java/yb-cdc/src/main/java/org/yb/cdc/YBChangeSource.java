@@ -0,0 +1,46 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import com.google.common.net.HostAndPort;
+import com.stumbleupon.async.Callback;
+import org.yb.client.AsyncYBClient;
+import org.yb.client.GetChangesResponse;
+import org.yb.client.YBTable;
+
+/**
+ * Gets changes of a CDC stream through GetChanges calls to the tablet servers.
+ */
+public class YBChangeSource implements ChangeSource {
+  private final AsyncYBClient client;
+  private final YBTable table;
+  private final String streamId;
+
+  public YBChangeSource(AsyncYBClient client, YBTable table, String streamId) {
+    this.client = client;
+    this.table = table;
+    this.streamId = streamId;
+  }
+
+  @Override
+  public void getChanges(HostAndPort hp, String tabletId, long term, long index,
+                         Callback<Void, CdcService.GetChangesResponsePB> cb) {
+    client.getChanges(hp, table, streamId, tabletId, term, index,
+                      new Callback<Void, GetChangesResponse>() {
+      @Override
+      public Void call(GetChangesResponse getChangesResponse) throws Exception {
+        return cb.call(getChangesResponse.getResp());
+      }
+    });
+  }
+}
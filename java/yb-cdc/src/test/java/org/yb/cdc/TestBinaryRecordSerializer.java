@@ -0,0 +1,130 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.assertArrayEquals;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.ColumnSchema;
+import org.yb.Common.QLMapValuePB;
+import org.yb.Common.QLValuePB;
+import org.yb.Schema;
+import org.yb.Type;
+import org.yb.YBTestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+@RunWith(value=YBTestRunner.class)
+public class TestBinaryRecordSerializer {
+
+  private final RecordDecoder decoder = new RecordDecoder(new Schema(Arrays.asList(
+      new ColumnSchema.ColumnSchemaBuilder("h", Type.INT32).hashKey(true).build(),
+      new ColumnSchema.ColumnSchemaBuilder("v", Type.STRING).build())));
+
+  private static CdcService.KeyValuePairPB pair(String name, QLValuePB.Builder value) {
+    return CdcService.KeyValuePairPB.newBuilder()
+        .setKey(ByteString.copyFromUtf8(name))
+        .setValue(value)
+        .build();
+  }
+
+  private byte[] serialize(CdcService.CDCRecordPB record) {
+    RecordBuffer buf = new BinaryRecordSerializer().serialize(
+        decoder.decode(record, new DecodedRecord()));
+    return Arrays.copyOf(buf.array(), buf.length());
+  }
+
+  private static int tag(QLValuePB.ValueCase valueCase) {
+    return valueCase.getNumber();
+  }
+
+  @Test
+  public void testRecord() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream expected = new DataOutputStream(bytes);
+    expected.writeByte(CdcService.CDCRecordPB.OperationType.WRITE.getNumber());
+    expected.writeLong(300);
+    // One key cell: column 0, a zigzag int.
+    expected.writeByte(1);
+    expected.writeByte(1);
+    expected.writeByte(tag(QLValuePB.ValueCase.INT32_VALUE));
+    expected.writeByte(5);
+    // Three change cells.
+    expected.writeByte(3);
+    // Column 1, a string.
+    expected.writeByte(2);
+    expected.writeByte(tag(QLValuePB.ValueCase.STRING_VALUE));
+    expected.writeByte(1);
+    expected.writeByte('a');
+    // A column missing from the schema, by name, then a float.
+    expected.writeByte(0);
+    expected.writeByte(1);
+    expected.writeByte('x');
+    expected.writeByte(tag(QLValuePB.ValueCase.FLOAT_VALUE));
+    expected.writeInt(Float.floatToRawIntBits(0.1f));
+    // Column 1 again, null.
+    expected.writeByte(2);
+    expected.writeByte(0);
+
+    assertArrayEquals(bytes.toByteArray(), serialize(CdcService.CDCRecordPB.newBuilder()
+        .setTime(300)
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addKey(pair("h", QLValuePB.newBuilder().setInt32Value(-3)))
+        .addChanges(pair("v", QLValuePB.newBuilder().setStringValue("a")))
+        .addChanges(pair("x", QLValuePB.newBuilder().setFloatValue(0.1f)))
+        .addChanges(pair("v", QLValuePB.newBuilder()))
+        .build()));
+  }
+
+  @Test
+  public void testValues() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream expected = new DataOutputStream(bytes);
+    expected.writeByte(CdcService.CDCRecordPB.OperationType.DELETE.getNumber());
+    expected.writeLong(0);
+    expected.writeByte(0);
+    expected.writeByte(3);
+    // 150 zigzag encoded is 300, whose varint spans two bytes.
+    expected.writeByte(2);
+    expected.writeByte(tag(QLValuePB.ValueCase.INT64_VALUE));
+    expected.write(new byte[] {(byte) 0xac, 0x02});
+    // Doubles are 8 big endian bytes.
+    expected.writeByte(2);
+    expected.writeByte(tag(QLValuePB.ValueCase.DOUBLE_VALUE));
+    expected.writeLong(Double.doubleToRawLongBits(2.5));
+    // A map of one entry.
+    expected.writeByte(2);
+    expected.writeByte(tag(QLValuePB.ValueCase.MAP_VALUE));
+    expected.writeByte(1);
+    expected.writeByte(tag(QLValuePB.ValueCase.BOOL_VALUE));
+    expected.writeByte(1);
+    expected.writeByte(tag(QLValuePB.ValueCase.BINARY_VALUE));
+    expected.writeByte(2);
+    expected.write(new byte[] {7, 8});
+
+    assertArrayEquals(bytes.toByteArray(), serialize(CdcService.CDCRecordPB.newBuilder()
+        .setOperation(CdcService.CDCRecordPB.OperationType.DELETE)
+        .addChanges(pair("v", QLValuePB.newBuilder().setInt64Value(150)))
+        .addChanges(pair("v", QLValuePB.newBuilder().setDoubleValue(2.5)))
+        .addChanges(pair("v", QLValuePB.newBuilder().setMapValue(QLMapValuePB.newBuilder()
+            .addKeys(QLValuePB.newBuilder().setBoolValue(true))
+            .addValues(QLValuePB.newBuilder().setBinaryValue(
+                ByteString.copyFrom(new byte[] {7, 8}))))))
+        .build()));
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.assertEquals;
+import static org.yb.AssertionWrappers.assertNull;
+
+import com.datastax.driver.core.LocalDate;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.ColumnSchema;
+import org.yb.Schema;
+import org.yb.Type;
+import org.yb.YBTestRunner;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+@RunWith(value=YBTestRunner.class)
+public class TestCqlSnapshotSource {
+
+  private static ColumnSchema column(String name, Type type) {
+    return new ColumnSchema.ColumnSchemaBuilder(name, type).build();
+  }
+
+  private static Object roundTrip(Type type, Object value) {
+    return RecordDecoder.toJavaValue(CqlSnapshotSource.toValue(column("c", type), value));
+  }
+
+  @Test
+  public void testBuildQuery() {
+    Schema schema = new Schema(Arrays.asList(
+        new ColumnSchema.ColumnSchemaBuilder("h1", Type.INT32).hashKey(true).build(),
+        new ColumnSchema.ColumnSchemaBuilder("H2", Type.STRING).hashKey(true).build(),
+        new ColumnSchema.ColumnSchemaBuilder("r", Type.INT64).key(true).build(),
+        column("v", Type.STRING)));
+    assertEquals("SELECT \"h1\", \"H2\", \"r\", \"v\" FROM \"ks\".\"t\" " +
+                 "WHERE partition_hash(\"h1\", \"H2\") >= ? " +
+                 "AND partition_hash(\"h1\", \"H2\") <= ?",
+                 CqlSnapshotSource.buildQuery(schema, "ks", "t"));
+  }
+
+  @Test
+  public void testToHashCode() {
+    assertEquals(0, CqlSnapshotSource.toHashCode(new byte[0]));
+    assertEquals(0x8000, CqlSnapshotSource.toHashCode(new byte[] {(byte) 0x80, 0x00}));
+    assertEquals(0xFFFE, CqlSnapshotSource.toHashCode(new byte[] {(byte) 0xFF, (byte) 0xFE}));
+  }
+
+  @Test
+  public void testValues() throws Exception {
+    assertEquals((byte) 7, roundTrip(Type.INT8, (byte) 7));
+    assertEquals((short) -7, roundTrip(Type.INT16, (short) -7));
+    assertEquals(7, roundTrip(Type.INT32, 7));
+    assertEquals(7L, roundTrip(Type.INT64, 7L));
+    assertEquals("abc", roundTrip(Type.STRING, "abc"));
+    assertEquals(true, roundTrip(Type.BOOL, true));
+    assertEquals(1.5f, roundTrip(Type.FLOAT, 1.5f));
+    assertEquals(2.5, roundTrip(Type.DOUBLE, 2.5));
+    assertEquals("[1, 2]", Arrays.toString(
+        (byte[]) roundTrip(Type.BINARY, ByteBuffer.wrap(new byte[] {1, 2}))));
+    // Microseconds on the wire.
+    assertEquals(1500000L, roundTrip(Type.TIMESTAMP, new Date(1500)));
+    InetAddress address = InetAddress.getByName("127.0.0.1");
+    assertEquals(address, roundTrip(Type.INET, address));
+    UUID uuid = UUID.randomUUID();
+    assertEquals(uuid, roundTrip(Type.UUID, uuid));
+    assertEquals(uuid, roundTrip(Type.TIMEUUID, uuid));
+    assertEquals(java.time.LocalDate.ofEpochDay(1),
+                 roundTrip(Type.DATE, LocalDate.fromDaysSinceEpoch(1)));
+    assertEquals(java.time.LocalDate.ofEpochDay(-1),
+                 roundTrip(Type.DATE, LocalDate.fromDaysSinceEpoch(-1)));
+    assertEquals(1000L, roundTrip(Type.TIME, 1000L));
+    assertNull(roundTrip(Type.STRING, null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedColumn() {
+    CqlSnapshotSource.checkSupported(new Schema(Arrays.asList(
+        new ColumnSchema.ColumnSchemaBuilder("h", Type.INT32).hashKey(true).build(),
+        column("v", Type.DECIMAL))));
+  }
+}
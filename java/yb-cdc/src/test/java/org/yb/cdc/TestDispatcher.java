@@ -0,0 +1,211 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.assertEquals;
+import static org.yb.AssertionWrappers.assertFalse;
+import static org.yb.AssertionWrappers.assertNull;
+import static org.yb.AssertionWrappers.assertTrue;
+
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.protobuf.ByteString;
+import com.stumbleupon.async.Callback;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.Common.QLValuePB;
+import org.yb.Opid.OpIdPB;
+import org.yb.YBTestRunner;
+import org.yb.client.YBTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(value=YBTestRunner.class)
+public class TestDispatcher {
+
+  private static final List<HostAndPort> HPS =
+      Arrays.asList(HostAndPort.fromParts("127.0.0.1", 9100));
+
+  private static CdcService.CDCRecordPB record(String key, long time) {
+    return CdcService.CDCRecordPB.newBuilder()
+        .setTime(time)
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addKey(CdcService.KeyValuePairPB.newBuilder()
+            .setKey(ByteString.copyFromUtf8("h"))
+            .setValue(QLValuePB.newBuilder().setStringValue(key)))
+        .build();
+  }
+
+  // A batch of records "a" at 1, "a" at 2 and "b" at 3, with a checkpoint at index 3.
+  private static CdcService.GetChangesResponsePB batch() {
+    return CdcService.GetChangesResponsePB.newBuilder()
+        .addRecords(record("a", 1))
+        .addRecords(record("a", 2))
+        .addRecords(record("b", 3))
+        .setCheckpoint(CdcService.CDCCheckpointPB.newBuilder()
+            .setOpId(OpIdPB.newBuilder().setTerm(1).setIndex(3)))
+        .build();
+  }
+
+  // Hands out the batch on the first call, and counts the later calls without answering them.
+  private static class OneBatchSource implements ChangeSource {
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch polledAgain = new CountDownLatch(1);
+
+    @Override
+    public void getChanges(HostAndPort hp, String tabletId, long term, long index,
+                           Callback<Void, CdcService.GetChangesResponsePB> cb) {
+      if (calls.getAndIncrement() > 0) {
+        polledAgain.countDown();
+        return;
+      }
+      try {
+        cb.call(batch());
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Test
+  public void testOrderPerKey() throws Exception {
+    // Fewer partitions than keys, so that keys share partitions.
+    Dispatcher dispatcher = new Dispatcher(4, 3, 8);
+    int numKeys = 8;
+    int numPerBatch = 400;
+    List<List<Integer>> applied = new ArrayList<>();
+    for (int key = 0; key < numKeys; key++) {
+      applied.add(Collections.synchronizedList(new ArrayList<>()));
+    }
+    // The second batch is submitted while the first one is still being applied.
+    for (int value = 0; value < 2 * numPerBatch; value++) {
+      int key = value % numKeys;
+      int v = value;
+      dispatcher.submit(key, () -> applied.get(key).add(v));
+    }
+    dispatcher.shutdown();
+    assertTrue(dispatcher.awaitTermination(10, TimeUnit.SECONDS));
+
+    for (int key = 0; key < numKeys; key++) {
+      List<Integer> values = applied.get(key);
+      assertEquals(2 * numPerBatch / numKeys, values.size());
+      for (int i = 0; i < values.size(); i++) {
+        assertEquals(key + i * numKeys, (int) values.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    Dispatcher dispatcher = new Dispatcher(1, 1, 1);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger ran = new AtomicInteger();
+    dispatcher.submit(0, () -> {
+      started.countDown();
+      Uninterruptibles.awaitUninterruptibly(release);
+      ran.incrementAndGet();
+    });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    // Fills the queue while the first task runs.
+    dispatcher.submit(0, ran::incrementAndGet);
+
+    Thread submitter = new Thread(() -> {
+      try {
+        dispatcher.submit(0, ran::incrementAndGet);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    submitter.start();
+    submitter.join(200);
+    assertTrue(submitter.isAlive());
+
+    release.countDown();
+    submitter.join(10000);
+    assertFalse(submitter.isAlive());
+    dispatcher.shutdown();
+    assertTrue(dispatcher.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(3, ran.get());
+  }
+
+  @Test
+  public void testFailedKeyRetry() throws Exception {
+    Dispatcher dispatcher = new Dispatcher(2, 4, 16);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    OneBatchSource source = new OneBatchSource();
+    List<Long> applied = Collections.synchronizedList(new ArrayList<>());
+    AtomicBoolean failed = new AtomicBoolean(false);
+    OutputClient output = new OutputClient() {
+      @Override
+      public void applyChange(YBTable table, CdcService.CDCRecordPB record) throws Exception {
+        if (record.getTime() == 1 && !failed.getAndSet(true)) {
+          throw new Exception("Injected failure");
+        }
+        applied.add(record.getTime());
+      }
+    };
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Poller poller = new Poller(output, HPS, null, "tablet", executor, source, dispatcher, true);
+    poller.setApplyRetries(1, error::set);
+    poller.poll();
+
+    assertTrue(source.polledAgain.await(10, TimeUnit.SECONDS));
+    // The record after the failed one with the same key waited for its retry, the other key did
+    // not, and nothing was applied twice.
+    assertEquals(Arrays.asList(3L, 1L, 2L), applied);
+    assertEquals(3L, poller.getIndex());
+    assertNull(error.get());
+    executor.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void testGiveUpAfterRetries() throws Exception {
+    Dispatcher dispatcher = new Dispatcher(2, 4, 16);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    OneBatchSource source = new OneBatchSource();
+    AtomicInteger attempts = new AtomicInteger();
+    OutputClient output = new OutputClient() {
+      @Override
+      public void applyChange(YBTable table, CdcService.CDCRecordPB record) throws Exception {
+        if (record.getTime() == 1) {
+          attempts.incrementAndGet();
+          throw new Exception("Injected failure");
+        }
+      }
+    };
+    CountDownLatch gaveUp = new CountDownLatch(1);
+    Poller poller = new Poller(output, HPS, null, "tablet", executor, source, dispatcher, true);
+    poller.setApplyRetries(1, error -> gaveUp.countDown());
+    poller.poll();
+
+    assertTrue(gaveUp.await(10, TimeUnit.SECONDS));
+    // The first attempt and one retry, then the poller stopped without moving past the records.
+    assertEquals(2, attempts.get());
+    assertEquals(1, source.calls.get());
+    assertEquals(0L, poller.getIndex());
+    executor.shutdown();
+    dispatcher.shutdown();
+  }
+}
@@ -0,0 +1,136 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.assertEquals;
+import static org.yb.AssertionWrappers.assertSame;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.ColumnSchema;
+import org.yb.Common.QLMapValuePB;
+import org.yb.Common.QLSeqValuePB;
+import org.yb.Common.QLValuePB;
+import org.yb.Schema;
+import org.yb.Type;
+import org.yb.YBTestRunner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@RunWith(value=YBTestRunner.class)
+public class TestJsonRecordSerializer {
+
+  private final RecordDecoder decoder = new RecordDecoder(new Schema(Arrays.asList(
+      new ColumnSchema.ColumnSchemaBuilder("h", Type.INT32).hashKey(true).build())));
+
+  private static CdcService.KeyValuePairPB pair(String name, QLValuePB.Builder value) {
+    return CdcService.KeyValuePairPB.newBuilder()
+        .setKey(ByteString.copyFromUtf8(name))
+        .setValue(value)
+        .build();
+  }
+
+  private static String toString(RecordBuffer buf) {
+    return new String(buf.array(), 0, buf.length(), StandardCharsets.UTF_8);
+  }
+
+  private String serialize(CdcService.CDCRecordPB record) {
+    return toString(new JsonRecordSerializer().serialize(
+        decoder.decode(record, new DecodedRecord())));
+  }
+
+  private String serializeValue(QLValuePB.Builder value) {
+    String json = serialize(CdcService.CDCRecordPB.newBuilder()
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addChanges(pair("v", value))
+        .build());
+    String prefix = "{\"operation\":\"WRITE\",\"time\":0,\"key\":{},\"changes\":{\"v\":";
+    assertEquals(prefix, json.substring(0, prefix.length()));
+    return json.substring(prefix.length(), json.length() - 2);
+  }
+
+  @Test
+  public void testRecord() {
+    assertEquals("{\"operation\":\"DELETE\",\"time\":12,\"key\":{\"h\":1,\"r\":\"a\"}," +
+                 "\"changes\":{\"v\":-5,\"w\":null}}",
+                 serialize(CdcService.CDCRecordPB.newBuilder()
+                     .setTime(12)
+                     .setOperation(CdcService.CDCRecordPB.OperationType.DELETE)
+                     .addKey(pair("h", QLValuePB.newBuilder().setInt32Value(1)))
+                     .addKey(pair("r", QLValuePB.newBuilder().setStringValue("a")))
+                     .addChanges(pair("v", QLValuePB.newBuilder().setInt64Value(-5)))
+                     .addChanges(pair("w", QLValuePB.newBuilder()))
+                     .build()));
+  }
+
+  @Test
+  public void testNumbers() {
+    // Floats are not widened to doubles, which would write 0.10000000149011612.
+    assertEquals("0.1", serializeValue(QLValuePB.newBuilder().setFloatValue(0.1f)));
+    assertEquals("2", serializeValue(QLValuePB.newBuilder().setFloatValue(2f)));
+    assertEquals("1.0E20", serializeValue(QLValuePB.newBuilder().setFloatValue(1e20f)));
+    assertEquals("\"NaN\"", serializeValue(QLValuePB.newBuilder().setFloatValue(Float.NaN)));
+    assertEquals("0.1", serializeValue(QLValuePB.newBuilder().setDoubleValue(0.1)));
+    assertEquals("-3", serializeValue(QLValuePB.newBuilder().setDoubleValue(-3)));
+    assertEquals("\"Infinity\"",
+                 serializeValue(QLValuePB.newBuilder().setDoubleValue(Double.POSITIVE_INFINITY)));
+    assertEquals("-9223372036854775808",
+                 serializeValue(QLValuePB.newBuilder().setInt64Value(Long.MIN_VALUE)));
+    assertEquals("18446744073709551615",
+                 serializeValue(QLValuePB.newBuilder().setUint64Value(-1)));
+    assertEquals("true", serializeValue(QLValuePB.newBuilder().setBoolValue(true)));
+  }
+
+  @Test
+  public void testStrings() {
+    assertEquals("\"a\\\"b\\\\c\\u000aé\"",
+                 serializeValue(QLValuePB.newBuilder().setStringValue("a\"b\\c\né")));
+    assertEquals("\"AQID\"", serializeValue(
+        QLValuePB.newBuilder().setBinaryValue(ByteString.copyFrom(new byte[] {1, 2, 3}))));
+    assertEquals("\"AQI=\"", serializeValue(
+        QLValuePB.newBuilder().setBinaryValue(ByteString.copyFrom(new byte[] {1, 2}))));
+    assertEquals("\"00112233-4455-6677-8899-aabbccddeeff\"", serializeValue(
+        QLValuePB.newBuilder().setUuidValue(ByteString.copyFrom(new byte[] {
+            0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, (byte) 0x88, (byte) 0x99,
+            (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, (byte) 0xdd, (byte) 0xee, (byte) 0xff}))));
+    assertEquals("\"127.0.0.1\"", serializeValue(QLValuePB.newBuilder().setInetaddressValue(
+        ByteString.copyFrom(new byte[] {127, 0, 0, 1}))));
+  }
+
+  @Test
+  public void testCollections() {
+    QLValuePB one = QLValuePB.newBuilder().setInt32Value(1).build();
+    QLValuePB x = QLValuePB.newBuilder().setStringValue("x").build();
+    assertEquals("[1,\"x\"]", serializeValue(QLValuePB.newBuilder().setListValue(
+        QLSeqValuePB.newBuilder().addElems(one).addElems(x))));
+    assertEquals("[[1,\"x\"]]", serializeValue(QLValuePB.newBuilder().setMapValue(
+        QLMapValuePB.newBuilder().addKeys(one).addValues(x))));
+  }
+
+  @Test
+  public void testBufferReused() {
+    JsonRecordSerializer serializer = new JsonRecordSerializer();
+    DecodedRecord decoded = decoder.decode(CdcService.CDCRecordPB.newBuilder()
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addChanges(pair("v", QLValuePB.newBuilder().setStringValue("a long string value")))
+        .build(), new DecodedRecord());
+    RecordBuffer buf = serializer.serialize(decoded);
+    decoder.decode(CdcService.CDCRecordPB.newBuilder()
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .build(), decoded);
+    assertSame(buf, serializer.serialize(decoded));
+    assertEquals("{\"operation\":\"WRITE\",\"time\":0,\"key\":{},\"changes\":{}}", toString(buf));
+  }
+}
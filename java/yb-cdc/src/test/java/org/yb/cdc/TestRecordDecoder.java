@@ -0,0 +1,175 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.assertEquals;
+import static org.yb.AssertionWrappers.assertNull;
+import static org.yb.AssertionWrappers.assertSame;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.ColumnSchema;
+import org.yb.Common.QLSeqValuePB;
+import org.yb.Common.QLValuePB;
+import org.yb.QLType;
+import org.yb.Schema;
+import org.yb.Type;
+import org.yb.YBTestRunner;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+@RunWith(value=YBTestRunner.class)
+public class TestRecordDecoder {
+
+  private static CdcService.KeyValuePairPB pair(String name, QLValuePB value) {
+    return CdcService.KeyValuePairPB.newBuilder()
+        .setKey(ByteString.copyFromUtf8(name))
+        .setValue(value)
+        .build();
+  }
+
+  private static QLValuePB bytesValue(String hex, QLValuePB.ValueCase valueCase) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+    ByteString value = ByteString.copyFrom(bytes);
+    switch (valueCase) {
+      case DECIMAL_VALUE: return QLValuePB.newBuilder().setDecimalValue(value).build();
+      case VARINT_VALUE: return QLValuePB.newBuilder().setVarintValue(value).build();
+      case JSONB_VALUE: return QLValuePB.newBuilder().setJsonbValue(value).build();
+      default: throw new IllegalArgumentException("Not a byte-valued type " + valueCase);
+    }
+  }
+
+  private static QLType qlType(Type type) {
+    return new ColumnSchema.ColumnSchemaBuilder("c", type).build().getQLType();
+  }
+
+  private static Object decimal(String hex) {
+    return RecordDecoder.toJavaValue(bytesValue(hex, QLValuePB.ValueCase.DECIMAL_VALUE),
+                                     QLType.DECIMAL);
+  }
+
+  private static Object varint(String hex) {
+    return RecordDecoder.toJavaValue(bytesValue(hex, QLValuePB.ValueCase.VARINT_VALUE),
+                                     QLType.VARINT);
+  }
+
+  @Test
+  public void testDecode() {
+    Schema schema = new Schema(Arrays.asList(
+        new ColumnSchema.ColumnSchemaBuilder("h", Type.INT32).hashKey(true).build(),
+        new ColumnSchema.ColumnSchemaBuilder("v", Type.STRING).build()));
+    CdcService.CDCRecordPB record = CdcService.CDCRecordPB.newBuilder()
+        .setTime(12)
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addKey(pair("h", QLValuePB.newBuilder().setInt32Value(1).build()))
+        .addChanges(pair("v", QLValuePB.newBuilder().setStringValue("a").build()))
+        .addChanges(pair("added", QLValuePB.newBuilder().setInt64Value(2).build()))
+        .build();
+    RecordDecoder decoder = new RecordDecoder(schema);
+    DecodedRecord decoded = decoder.decode(record, new DecodedRecord());
+    assertEquals(CdcService.CDCRecordPB.OperationType.WRITE, decoded.getOperation());
+    assertEquals(12L, decoded.getTime());
+    assertEquals(1, decoded.getNumKeys());
+    assertEquals(0, decoded.getKey(0).getColumnIndex());
+    assertEquals(1, decoded.getKey(0).getJavaValue());
+    assertEquals(2, decoded.getNumChanges());
+    assertEquals(1, decoded.getChange(0).getColumnIndex());
+    assertEquals("a", decoded.getChange(0).getJavaValue());
+    // A column the schema does not know about.
+    assertEquals(-1, decoded.getChange(1).getColumnIndex());
+    assertNull(decoded.getChange(1).getColumn());
+    assertEquals("added", decoded.getChange(1).getName().toStringUtf8());
+    assertEquals(2L, decoded.getChange(1).getJavaValue());
+
+    // The record and its cells are reused.
+    DecodedRecord.Cell key = decoded.getKey(0);
+    CdcService.CDCRecordPB delete = record.toBuilder()
+        .setOperation(CdcService.CDCRecordPB.OperationType.DELETE)
+        .clearChanges()
+        .build();
+    assertSame(decoded, decoder.decode(delete, decoded));
+    assertSame(key, decoded.getKey(0));
+    assertEquals(0, decoded.getNumChanges());
+  }
+
+  @Test
+  public void testDecimal() {
+    assertEquals(BigDecimal.ZERO, decimal("80"));
+    assertEquals(new BigDecimal("-1.34"), decimal("1ee4af"));
+    assertEquals(new BigDecimal("0.05"), decimal("de64"));
+    assertEquals(new BigDecimal("120"), decimal("e318"));
+    assertEquals(new BigDecimal("2378000"), decimal("e72f9c"));
+    assertEquals(new BigDecimal("-0.0004372"), decimal("23a86f"));
+    assertEquals(new BigDecimal("1.2e+100").setScale(0), decimal("f06518"));
+    assertEquals(new BigDecimal("12345678901234567890.5"),
+                 decimal("f0141945719db51945719db564"));
+  }
+
+  @Test
+  public void testVarint() {
+    assertEquals(BigInteger.ZERO, varint("80"));
+    assertEquals(BigInteger.valueOf(38), varint("a6"));
+    assertEquals(BigInteger.valueOf(-129), varint("3f7e"));
+    assertEquals(new BigInteger("8429024091289482183283928321"),
+                 varint("fffc1b3c534795df1b0a7bfd6d01"));
+    assertEquals(new BigInteger("-37618632178637216379216387"),
+                 varint("0007e0e1f1dd0130dcfbed5dfc"));
+  }
+
+  @Test
+  public void testJsonb() {
+    assertEquals("{\"a\":[1,1.5],\"b\":\"x\"}", RecordDecoder.toJavaValue(bytesValue(
+        "2000000200000001000000025000001a0000001b61624000000260000004b000000c800000" +
+        "01bff800000000000078", QLValuePB.ValueCase.JSONB_VALUE), qlType(Type.JSONB)));
+    // Scalars are arrays of one element.
+    assertEquals("\"s\"", RecordDecoder.toJavaValue(
+        bytesValue("500000010000000173", QLValuePB.ValueCase.JSONB_VALUE)));
+  }
+
+  @Test
+  public void testDate() {
+    // Days with 2^31 at the epoch, as an unsigned 32 bit value.
+    assertEquals(LocalDate.of(1970, 1, 2), RecordDecoder.toJavaValue(
+        QLValuePB.newBuilder().setDateValue((1 << 31) + 1).build(), qlType(Type.DATE)));
+    assertEquals(LocalDate.of(1969, 12, 31), RecordDecoder.toJavaValue(
+        QLValuePB.newBuilder().setDateValue((1 << 31) - 1).build()));
+  }
+
+  @Test
+  public void testCollection() {
+    QLValuePB list = QLValuePB.newBuilder()
+        .setListValue(QLSeqValuePB.newBuilder()
+            .addElems(bytesValue("a6", QLValuePB.ValueCase.VARINT_VALUE))
+            .addElems(QLValuePB.getDefaultInstance()))
+        .build();
+    assertEquals(Arrays.asList(BigInteger.valueOf(38), null),
+                 RecordDecoder.toJavaValue(list, QLType.createListType(QLType.VARINT)));
+  }
+
+  @Test
+  public void testNull() {
+    assertNull(RecordDecoder.toJavaValue(QLValuePB.getDefaultInstance(), QLType.DECIMAL));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTypeMismatch() {
+    RecordDecoder.toJavaValue(QLValuePB.newBuilder().setInt32Value(1).build(), QLType.DECIMAL);
+  }
+}
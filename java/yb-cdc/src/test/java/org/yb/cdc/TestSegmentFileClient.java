@@ -0,0 +1,166 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.cdc;
+
+import static org.yb.AssertionWrappers.assertEquals;
+import static org.yb.AssertionWrappers.assertFalse;
+import static org.yb.AssertionWrappers.assertNull;
+import static org.yb.AssertionWrappers.assertTrue;
+
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.yb.Common.QLValuePB;
+import org.yb.Opid.OpIdPB;
+import org.yb.YBTestRunner;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(value=YBTestRunner.class)
+public class TestSegmentFileClient {
+
+  // Long enough that neither the background sync nor the age based roll runs during a test.
+  private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+  private File dir;
+
+  @Before
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("segments").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  private static CdcService.CDCRecordPB record(long time) {
+    return CdcService.CDCRecordPB.newBuilder()
+        .setTime(time)
+        .setOperation(CdcService.CDCRecordPB.OperationType.WRITE)
+        .addChanges(CdcService.KeyValuePairPB.newBuilder()
+            .setKey(ByteString.copyFromUtf8("v"))
+            .setValue(QLValuePB.newBuilder().setStringValue("a value of some length")))
+        .build();
+  }
+
+  // Bytes a record takes in a segment, with its length prefix.
+  private static long recordBytes() {
+    return 4 + record(1).getSerializedSize();
+  }
+
+  private static OpIdPB opId(long index) {
+    return OpIdPB.newBuilder().setTerm(1).setIndex(index).build();
+  }
+
+  private static Thread startFlush(SegmentFileClient client, AtomicReference<Throwable> error) {
+    Thread flusher = new Thread(() -> {
+      try {
+        client.flush("tablet", opId(1));
+      } catch (Throwable t) {
+        error.set(t);
+      }
+    });
+    flusher.start();
+    return flusher;
+  }
+
+  @Test
+  public void testRoll() throws Exception {
+    // Rolls once two records were written.
+    SegmentFileClient client = new SegmentFileClient(dir, 2 * recordBytes(), HOUR_MS, 10);
+    client.applyChange(null, record(1));
+    client.applyChange(null, record(2));
+    client.applyChange(null, record(3));
+    client.flush("tablet", opId(3));
+    client.close();
+
+    File first = SegmentFileClient.segmentFile(dir, 1, SegmentFileClient.DATA_SUFFIX);
+    SegmentReader reader = new SegmentReader(first);
+    assertEquals(1L, reader.next().getTime());
+    assertEquals(2L, reader.next().getTime());
+    assertNull(reader.next());
+    assertTrue(SegmentReader.readIndex(first).isEmpty());
+
+    File second = SegmentFileClient.segmentFile(dir, 2, SegmentFileClient.DATA_SUFFIX);
+    reader = new SegmentReader(second);
+    assertEquals(3L, reader.next().getTime());
+    assertNull(reader.next());
+    List<SegmentReader.IndexEntry> entries = SegmentReader.readIndex(second);
+    assertEquals(1, entries.size());
+    assertEquals("tablet", entries.get(0).tabletId);
+    assertEquals(opId(3), entries.get(0).checkpoint);
+    assertEquals(recordBytes(), entries.get(0).segmentOffset);
+
+    // A new client starts a new segment rather than appending to the last one.
+    client = new SegmentFileClient(dir, 2 * recordBytes(), HOUR_MS, 10);
+    client.close();
+    assertEquals(3L, SegmentFileClient.lastSegmentSeq(dir));
+  }
+
+  @Test
+  public void testFlushAfterSync() throws Exception {
+    SegmentFileClient client = new SegmentFileClient(dir, 1 << 20, HOUR_MS, 10);
+    client.applyChange(null, record(1));
+    // Returns once the background sync ran.
+    client.flush("tablet", opId(1));
+    File segment = SegmentFileClient.segmentFile(dir, 1, SegmentFileClient.DATA_SUFFIX);
+    assertEquals(1, SegmentReader.readIndex(segment).size());
+    client.close();
+  }
+
+  @Test
+  public void testFlushWaitsForDurability() throws Exception {
+    SegmentFileClient client = new SegmentFileClient(dir, 2 * recordBytes(), HOUR_MS, HOUR_MS);
+    client.applyChange(null, record(1));
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread flusher = startFlush(client, error);
+    // Nothing syncs the segment yet.
+    flusher.join(200);
+    assertTrue(flusher.isAlive());
+
+    // Rolling syncs what was written, which releases the flush.
+    client.applyChange(null, record(2));
+    flusher.join(10000);
+    assertFalse(flusher.isAlive());
+    assertNull(error.get());
+    client.close();
+  }
+
+  @Test
+  public void testCloseWakesFlushers() throws Exception {
+    SegmentFileClient client = new SegmentFileClient(dir, 1 << 20, HOUR_MS, HOUR_MS);
+    client.applyChange(null, record(1));
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread flusher = startFlush(client, error);
+    flusher.join(200);
+    assertTrue(flusher.isAlive());
+
+    client.close();
+    flusher.join(10000);
+    assertFalse(flusher.isAlive());
+    assertNull(error.get());
+  }
+}
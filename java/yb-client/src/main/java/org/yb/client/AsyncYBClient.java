@@ -362,6 +362,28 @@ public class AsyncYBClient implements AutoCloseable {
     return d;
   }
 
+  /**
+   * Bootstrap CDC streams for the given tables, with checkpoints set to the latest entry of
+   * each tablet's log.
+   * @param hp host port of the server.
+   * @param tableIds the tables to bootstrap.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<BootstrapProducerResponse> bootstrapProducer(final HostAndPort hp,
+                                                               List<String> tableIds) {
+    checkIsClosed();
+    TabletClient client = newSimpleClient(hp);
+    if (client == null) {
+      throw new IllegalStateException("Could not create a client to " + hp.toString());
+    }
+    BootstrapProducerRequest rpc = new BootstrapProducerRequest(this.masterTable, tableIds);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    Deferred<BootstrapProducerResponse> d = rpc.getDeferred();
+    rpc.attempt++;
+    client.sendRpc(rpc);
+    return d;
+  }
+
   /**
    * Get changes for a given tablet and stream.
    * @param hp host port of the server.
@@ -388,6 +410,29 @@ public class AsyncYBClient implements AutoCloseable {
     return d.addCallback(cb);
   }
 
+  /**
+   * Get the OpId of the latest entry in the log of a tablet. This has to be sent to the tablet
+   * leader.
+   * @param hp host port of the server.
+   * @param table the table the tablet belongs to.
+   * @param tabletId the tablet to get the latest OpId for.
+   * @return a deferred object for the response from server.
+   */
+  public Deferred<GetLatestEntryOpIdResponse> getLatestEntryOpId(
+          HostAndPort hp, YBTable table, String tabletId) {
+    checkIsClosed();
+    TabletClient client = newSimpleClient(hp);
+    if (client == null) {
+      throw new IllegalStateException("Could not create a client to " + hp.toString());
+    }
+    GetLatestEntryOpIdRequest rpc = new GetLatestEntryOpIdRequest(table, tabletId);
+    rpc.setTimeoutMillis(defaultAdminOperationTimeoutMs);
+    Deferred<GetLatestEntryOpIdResponse> d = rpc.getDeferred();
+    rpc.attempt++;
+    client.sendRpc(rpc);
+    return d;
+  }
+
   /**
    * Check if the server is ready to serve requests.
    * @param hp host port of the server.
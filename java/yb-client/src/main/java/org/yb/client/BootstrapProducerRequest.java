@@ -0,0 +1,65 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.yb.cdc.CdcService.BootstrapProducerRequestPB;
+import org.yb.cdc.CdcService.BootstrapProducerResponsePB;
+import org.yb.util.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BootstrapProducerRequest extends YRpc<BootstrapProducerResponse> {
+  private final List<String> tableIds;
+
+  public BootstrapProducerRequest(YBTable masterTable, List<String> tableIds) {
+    super(masterTable);
+    this.tableIds = tableIds;
+  }
+
+  @Override
+  ChannelBuffer serialize(Message header) {
+    assert header.isInitialized();
+    final BootstrapProducerRequestPB.Builder builder = BootstrapProducerRequestPB.newBuilder();
+    builder.addAllTableIds(this.tableIds);
+    return toChannelBuffer(header, builder.build());
+  }
+
+  @Override
+  String serviceName() { return CDC_SERVICE_NAME; }
+
+  @Override
+  String method() {
+    return "BootstrapProducer";
+  }
+
+  @Override
+  Pair<BootstrapProducerResponse, Object> deserialize(
+          CallResponse callResponse, String uuid) throws Exception {
+    final BootstrapProducerResponsePB.Builder respBuilder =
+            BootstrapProducerResponsePB.newBuilder();
+    readProtobuf(callResponse.getPBMessage(), respBuilder);
+
+    List<String> bootstrapIds = new ArrayList<>();
+    for (ByteString id : respBuilder.getCdcBootstrapIdsList()) {
+      bootstrapIds.add(id.toStringUtf8());
+    }
+    BootstrapProducerResponse response = new BootstrapProducerResponse(
+            deadlineTracker.getElapsedMillis(), uuid, bootstrapIds);
+    return new Pair<BootstrapProducerResponse, Object>(
+            response, respBuilder.hasError() ? respBuilder.getError() : null);
+  }
+}
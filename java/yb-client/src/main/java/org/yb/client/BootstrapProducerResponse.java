@@ -0,0 +1,36 @@
+// Copyright (c) YugaByte, Inc.
+//
+// Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except
+// in compliance with the License.  You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software distributed under the License
+// is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+// or implied.  See the License for the specific language governing permissions and limitations
+// under the License.
+//
+package org.yb.client;
+
+import org.yb.annotations.InterfaceAudience;
+
+import java.util.List;
+
+@InterfaceAudience.Public
+public class BootstrapProducerResponse extends YRpcResponse {
+  private final List<String> bootstrapIds;
+
+  BootstrapProducerResponse(
+          long ellapsedMillis, String uuid, List<String> bootstrapIds) {
+    super(ellapsedMillis, uuid);
+    this.bootstrapIds = bootstrapIds;
+  }
+
+  /**
+   * @return one CDC stream id per requested table, in request order. Each stream starts at the
+   *         latest log entry its tablets had when the bootstrap was taken.
+   */
+  public List<String> getBootstrapIds() {
+    return bootstrapIds;
+  }
+}
@@ -1107,6 +1107,18 @@ public class YBClient implements AutoCloseable {
     return d.join(getDefaultAdminOperationTimeoutMs());
   }
 
+  /**
+   * Bootstrap CDC streams for the given tables.
+   * @param hp host port of the server.
+   * @param tableIds the tables to bootstrap.
+   * @return the response, with one bootstrap (stream) id per table.
+   */
+  public BootstrapProducerResponse bootstrapProducer(
+          final HostAndPort hp, List<String> tableIds) throws Exception {
+    Deferred<BootstrapProducerResponse> d = asyncClient.bootstrapProducer(hp, tableIds);
+    return d.join(getDefaultAdminOperationTimeoutMs());
+  }
+
   /**
    * Test if a table exists.
    * @param keyspace the keyspace name to which this table belongs.
@@ -50,6 +50,9 @@ public abstract class AbstractTaskBase implements ITask {
   // The UUID of the top-level user-facing task at the top of Task tree. Eg. CreateUniverse, etc.
   protected UUID userTaskUUID;
 
+  // Whether this run continues an interrupted run of the task.
+  private boolean resumed = false;
+
   protected ITaskParams taskParams() {
     return taskParams;
   }
@@ -74,6 +77,20 @@ public abstract class AbstractTaskBase implements ITask {
     return getName() + " : details=" + getTaskDetails();
   }
 
+  @Override
+  public boolean isResumable() {
+    return false;
+  }
+
+  @Override
+  public void setResumed(boolean resumed) {
+    this.resumed = resumed;
+  }
+
+  protected boolean isResumed() {
+    return resumed;
+  }
+
   @Override
   public abstract void run();
 
@@ -2,19 +2,30 @@
 
 package com.yugabyte.yw.commissioner;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.yugabyte.yw.commissioner.tasks.MultiTableBackup;
+import com.yugabyte.yw.commissioner.tasks.params.CloudTaskParams;
+import com.yugabyte.yw.commissioner.tasks.params.KMSConfigTaskParams;
 import com.yugabyte.yw.forms.ITaskParams;
+import com.yugabyte.yw.forms.UniverseTaskParams;
+import com.yugabyte.yw.models.Customer;
 import com.yugabyte.yw.models.CustomerTask;
+import com.yugabyte.yw.models.Provider;
+import com.yugabyte.yw.models.ScheduleTask;
+import com.yugabyte.yw.models.Universe;
 import com.yugabyte.yw.models.helpers.TaskType;
 import com.yugabyte.yw.models.TaskInfo;
 import org.slf4j.Logger;
@@ -22,8 +33,10 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import play.Configuration;
 import play.libs.Json;
 
 @Singleton
@@ -31,8 +44,29 @@ public class Commissioner {
 
   public static final Logger LOG = LoggerFactory.getLogger(Commissioner.class);
 
-  // Minimum number of concurrent tasks to execute at a time.
+  // Default limits on the tasks running at a time, overall, per customer and per universe, and on
+  // the tasks waiting to run. Overridden by the yb.commissioner.* settings.
   private static final int TASK_THREADS = 200;
+  private static final int DEFAULT_MAX_TASKS_PER_CUSTOMER = 50;
+  private static final int DEFAULT_MAX_TASKS_PER_UNIVERSE = 4;
+  private static final int DEFAULT_MAX_QUEUED_TASKS = 1000;
+
+  // Default time after which a task whose owner stopped heartbeating may be claimed by another
+  // process, and default interval between scans for such tasks. Overridden by the
+  // yb.commissioner.task_lease_ms and yb.commissioner.task_claim_interval_ms settings.
+  private static final long DEFAULT_TASK_LEASE_MS = 60000L;
+  private static final long DEFAULT_TASK_CLAIM_INTERVAL_MS = 10000L;
+  // Default interval between heartbeats, well within the lease. Overridden by the
+  // yb.commissioner.task_heartbeat_interval_ms setting.
+  private static final long DEFAULT_TASK_HEARTBEAT_INTERVAL_MS = 5000L;
+  private static final int MAX_TASKS_CLAIMED_PER_SCAN = 100;
+  // Default limit on the subtask groups of a task running at the same time, for the tasks that
+  // declare dependencies between their groups. Overridden by the
+  // yb.commissioner.max_parallel_subtask_groups setting.
+  private static final int DEFAULT_MAX_PARALLEL_SUBTASK_GROUPS = 4;
+  // Default limit on the subtasks of a group running at the same time, 0 for no limit beyond the
+  // threads of the task. Overridden by the yb.commissioner.max_parallel_subtasks setting.
+  private static final int DEFAULT_MAX_PARALLEL_SUBTASKS = 0;
 
   // The maximum time that excess idle threads will wait for new tasks before terminating.
   // The unit is specified in the API (and is seconds).
@@ -47,22 +81,51 @@ public class Commissioner {
   // Threadpool to run user submitted tasks.
   static ExecutorService executor;
 
+  // Decides which of the submitted tasks run next on the threadpool.
+  static TaskExecutor taskExecutor;
+
+  private final long taskLeaseMs;
+  private final long taskClaimIntervalMs;
+  private final long taskHeartbeatIntervalMs;
+
   // A map of all task UUID's to the task runner objects for all the user tasks that are currently
   // active. Recently completed tasks are also in this list, their completion percentage should be
   // persisted before removing the task from this map.
   static Map<UUID, TaskRunner> runningTasks = new ConcurrentHashMap<UUID, TaskRunner>();
 
-  public Commissioner() {
+  @Inject
+  public Commissioner(Configuration appConfig) {
+    int maxRunningTasks = getConfigInt(appConfig, "yb.commissioner.max_running_tasks",
+                                       TASK_THREADS);
     // Initialize the tasks threadpool.
     ThreadFactory namedThreadFactory =
         new ThreadFactoryBuilder().setNameFormat("TaskPool-%d").build();
-    // Create an task pool which can handle an unbounded number of tasks, while using an initial set
-    // of threads that get spawned upto TASK_THREADS limit.
+    // The task executor never hands over more tasks than there are threads, so the queue of the
+    // pool stays empty; tasks wait in the task executor instead.
     executor =
-        new ThreadPoolExecutor(TASK_THREADS, TASK_THREADS, THREAD_ALIVE_TIME,
+        new ThreadPoolExecutor(maxRunningTasks, maxRunningTasks, THREAD_ALIVE_TIME,
                                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
                                namedThreadFactory);
+    taskExecutor = new TaskExecutor(
+        executor, maxRunningTasks,
+        getConfigInt(appConfig, "yb.commissioner.max_running_tasks_per_customer",
+                     DEFAULT_MAX_TASKS_PER_CUSTOMER),
+        getConfigInt(appConfig, "yb.commissioner.max_running_tasks_per_universe",
+                     DEFAULT_MAX_TASKS_PER_UNIVERSE),
+        getConfigInt(appConfig, "yb.commissioner.max_queued_tasks", DEFAULT_MAX_QUEUED_TASKS));
     LOG.info("Started Commissioner TaskPool.");
+    SubTaskGroupQueue.setDefaultMaxParallelGroups(
+        getConfigInt(appConfig, "yb.commissioner.max_parallel_subtask_groups",
+                     DEFAULT_MAX_PARALLEL_SUBTASK_GROUPS));
+    SubTaskGroup.setDefaultNumThreads(
+        getConfigInt(appConfig, "yb.commissioner.max_parallel_subtasks",
+                     DEFAULT_MAX_PARALLEL_SUBTASKS));
+
+    taskLeaseMs = getConfigLong(appConfig, "yb.commissioner.task_lease_ms", DEFAULT_TASK_LEASE_MS);
+    taskClaimIntervalMs = getConfigLong(appConfig, "yb.commissioner.task_claim_interval_ms",
+                                        DEFAULT_TASK_CLAIM_INTERVAL_MS);
+    taskHeartbeatIntervalMs = getConfigLong(appConfig, "yb.commissioner.task_heartbeat_interval_ms",
+                                            DEFAULT_TASK_HEARTBEAT_INTERVAL_MS);
 
     // TODO: Conisder replacing simple thread sleep with ScheduledExecutorService
     // Initialize the task manager.
@@ -71,26 +134,44 @@ public class Commissioner {
     LOG.info("Started TaskProgressMonitor thread.");
   }
 
+  private static int getConfigInt(Configuration appConfig, String key, int defaultValue) {
+    // There is no configuration when the commissioner is built outside of the injector.
+    Integer value = appConfig == null ? null : appConfig.getInt(key);
+    return value == null ? defaultValue : value;
+  }
+
+  private static long getConfigLong(Configuration appConfig, String key, long defaultValue) {
+    Long value = appConfig == null ? null : appConfig.getLong(key);
+    return value == null ? defaultValue : value;
+  }
+
   /**
    * Creates a new task runner to run the required task, and submits it to a threadpool if needed.
+   * The task runs with interactive priority.
    */
   public UUID submit(TaskType taskType, ITaskParams taskParams) {
+    return submit(taskType, taskParams, TaskExecutor.Priority.INTERACTIVE);
+  }
+
+  /**
+   * Same as above, with the given priority. Tasks are queued when over the concurrency limits.
+   * When the local queue is full, the task is persisted without an owner, for this or another
+   * process to claim once it has capacity.
+   */
+  public UUID submit(TaskType taskType, ITaskParams taskParams, TaskExecutor.Priority priority) {
     try {
       // Claim the task if we can - check if we will go above the max local concurrent task
       // threshold. If we can claim it, set ourselves as the owner of the task. Otherwise, do not
       // claim the task so that some other process can claim it.
-      // TODO: enforce a limit on number of tasks here.
-      boolean claimTask = true;
+      boolean claimTask = taskExecutor.hasCapacity();
 
       // Create the task runner object based on the various parameters passed in.
       TaskRunner taskRunner = TaskRunner.createTask(taskType, taskParams, claimTask);
-
       if (claimTask) {
-        // Add this task to our queue.
-        runningTasks.put(taskRunner.getTaskUUID(), taskRunner);
-
-        // If we had claimed ownership of the task, submit it to the task threadpool.
-        executor.submit(taskRunner);
+        enqueue(taskRunner, priority);
+      } else {
+        LOG.info("Too many tasks queued, leaving task {} to be claimed later.",
+                 taskRunner.getTaskUUID());
       }
       return taskRunner.getTaskUUID();
     } catch (Throwable t) {
@@ -100,13 +181,98 @@ public class Commissioner {
     }
   }
 
+  /**
+   * Queues a task this process owns on the task executor, which starts it on the threadpool when
+   * its turn comes. If the queue filled up in the meantime, gives the task up for claiming later.
+   */
+  private void enqueue(TaskRunner taskRunner, TaskExecutor.Priority priority) {
+    // Add this task to our queue.
+    runningTasks.put(taskRunner.getTaskUUID(), taskRunner);
+
+    ITaskParams taskParams = taskRunner.getTaskParams();
+    UUID universeUUID = null;
+    if (taskParams instanceof UniverseTaskParams) {
+      universeUUID = ((UniverseTaskParams) taskParams).universeUUID;
+    }
+    try {
+      taskExecutor.submit(taskRunner, getCustomerUUID(taskParams), universeUUID, priority);
+    } catch (RejectedExecutionException e) {
+      runningTasks.remove(taskRunner.getTaskUUID());
+      taskRunner.release();
+      LOG.info("Too many tasks queued, leaving task {} to be claimed later.",
+               taskRunner.getTaskUUID());
+    }
+  }
+
+  /**
+   * Claims the tasks that no process owns, or whose owner stopped heartbeating, as long as there
+   * is room in the local queue, and runs them.
+   */
+  private void claimTasks() {
+    List<TaskInfo> claimable = TaskInfo.findClaimable(taskLeaseMs, MAX_TASKS_CLAIMED_PER_SCAN);
+    for (TaskInfo taskInfo : claimable) {
+      if (!taskExecutor.hasCapacity()) {
+        return;
+      }
+      UUID taskUUID = taskInfo.getTaskUUID();
+      if (runningTasks.containsKey(taskUUID) ||
+          !TaskInfo.claim(taskUUID, TaskRunner.getOwnerId(), taskLeaseMs)) {
+        // Ours already, or another process claimed it first.
+        continue;
+      }
+      LOG.info("Claimed task {} last owned by '{}'.", taskUUID, taskInfo.getOwner());
+      TaskRunner taskRunner = TaskRunner.resumeTask(TaskInfo.get(taskUUID));
+      if (taskRunner != null) {
+        // Scheduled tasks are the only background ones.
+        TaskExecutor.Priority priority = ScheduleTask.fetchByTaskUUID(taskUUID) == null ?
+            TaskExecutor.Priority.INTERACTIVE : TaskExecutor.Priority.BACKGROUND;
+        enqueue(taskRunner, priority);
+      }
+    }
+  }
+
+  /**
+   * Returns whether a task submitted now would be queued rather than rejected as over capacity.
+   */
+  public boolean hasCapacity() {
+    return taskExecutor.hasCapacity();
+  }
+
+  /**
+   * Returns the customer the task is run for, which the task executor shares the capacity fairly
+   * between, or null if it cannot be determined.
+   */
+  private static UUID getCustomerUUID(ITaskParams taskParams) {
+    if (taskParams instanceof MultiTableBackup.Params &&
+        ((MultiTableBackup.Params) taskParams).customerUUID != null) {
+      return ((MultiTableBackup.Params) taskParams).customerUUID;
+    }
+    if (taskParams instanceof KMSConfigTaskParams) {
+      return ((KMSConfigTaskParams) taskParams).customerUUID;
+    }
+    if (taskParams instanceof UniverseTaskParams &&
+        ((UniverseTaskParams) taskParams).universeUUID != null) {
+      Universe universe = Universe.find.byId(((UniverseTaskParams) taskParams).universeUUID);
+      if (universe != null && universe.customerId != null) {
+        Customer customer = Customer.get(universe.customerId);
+        return customer == null ? null : customer.uuid;
+      }
+    }
+    if (taskParams instanceof CloudTaskParams &&
+        ((CloudTaskParams) taskParams).providerUUID != null) {
+      Provider provider = Provider.find.byId(((CloudTaskParams) taskParams).providerUUID);
+      return provider == null ? null : provider.customerUUID;
+    }
+    return null;
+  }
+
   public ObjectNode getStatus(UUID taskUUID) {
     ObjectNode responseJson = Json.newObject();
 
-    // Check if the task is in the DB
-    TaskInfo taskInfo = TaskInfo.get(taskUUID);
-    CustomerTask task = CustomerTask.find.where().eq("task_uuid", taskUUID).findUnique();
-    if (taskInfo != null && task != null) {
+    // Check if the task is in the DB. The task info is read along with the customer task, and its
+    // progress is kept on it, so its subtasks are not loaded.
+    CustomerTask task = CustomerTask.findWithProgress(taskUUID);
+    if (task != null) {
       // Add some generic information about the task
       responseJson.put("title", task.getFriendlyDescription());
       responseJson.put("createTime", task.getCreateTime().toString());
@@ -114,11 +280,11 @@ public class Commissioner {
       responseJson.put("targetUUID", task.getTargetUUID().toString());
       responseJson.put("type", task.getType().name());
       // Find out the state of the task.
-      responseJson.put("status", taskInfo.getTaskState().toString());
+      responseJson.put("status", task.getTaskState().toString());
       // Get the percentage of subtasks that ran and completed
-      responseJson.put("percent", taskInfo.getPercentCompleted());
+      responseJson.put("percent", task.getPercentComplete());
       // Get subtask groups
-      responseJson.set("details", Json.toJson(taskInfo.getUserTaskDetails()));
+      responseJson.set("details", Json.toJson(task.getUserTaskDetails()));
       return responseJson;
     }
 
@@ -129,7 +295,8 @@ public class Commissioner {
 
   /**
    * A progress monitor to constantly write a last updated timestamp in the DB so that this
-   * process and all its subtasks are considered to be alive.
+   * process and all its subtasks are considered to be alive, to save the pending subtask changes,
+   * and to claim the tasks that no live process owns.
    */
   private class ProgressMonitor extends Thread {
 
@@ -139,16 +306,18 @@ public class Commissioner {
 
     @Override
     public void run() {
+      long lastHeartbeatTime = 0;
+      long lastClaimTime = 0;
       while (true) {
         // Loop through all the active tasks.
+        List<UUID> activeTasks = new ArrayList<>();
         Iterator<Entry<UUID, TaskRunner>> iter = runningTasks.entrySet().iterator();
         while (iter.hasNext()) {
           Entry<UUID, TaskRunner> entry = iter.next();
           TaskRunner taskRunner = entry.getValue();
 
-          // If the task is still running, update its latest timestamp as a part of the heartbeat.
-          if (taskRunner.isTaskRunning()) {
-            taskRunner.doHeartbeat();
+          if (taskRunner.isTaskActive()) {
+            activeTasks.add(entry.getKey());
           } else if (taskRunner.hasTaskSucceeded()) {
             LOG.info("Task " + taskRunner.toString() + " has succeeded.");
             // Remove task from the set of live tasks.
@@ -160,7 +329,25 @@ public class Commissioner {
           }
         }
 
-        // TODO: Scan the DB for tasks that have failed to make progress and claim one if possible.
+        // Save the subtask changes made since the last round.
+        TaskInfoWriter.flush();
+
+        // Update the latest timestamp of the queued and running tasks, all at once, as a part of
+        // the heartbeat, which keeps other processes from claiming them.
+        if (System.currentTimeMillis() - lastHeartbeatTime >= taskHeartbeatIntervalMs) {
+          lastHeartbeatTime = System.currentTimeMillis();
+          heartbeat(activeTasks);
+        }
+
+        // Scan the DB for tasks that have failed to make progress and claim them if possible.
+        if (System.currentTimeMillis() - lastClaimTime >= taskClaimIntervalMs) {
+          lastClaimTime = System.currentTimeMillis();
+          try {
+            claimTasks();
+          } catch (Exception e) {
+            LOG.error("Error claiming tasks", e);
+          }
+        }
 
         // Sleep for the required interval.
         try {
@@ -169,5 +356,20 @@ public class Commissioner {
         }
       }
     }
+
+    private void heartbeat(List<UUID> taskUUIDs) {
+      try {
+        for (UUID taskUUID : TaskRunner.doHeartbeat(taskUUIDs)) {
+          LOG.error("Task " + taskUUID + " is now owned by another process, aborting it.");
+          TaskRunner taskRunner = runningTasks.remove(taskUUID);
+          if (taskRunner != null) {
+            taskRunner.abort();
+          }
+        }
+      } catch (Exception e) {
+        // Keep the tasks, their leases are renewed on the next round.
+        LOG.warn("Error updating the heartbeat of " + taskUUIDs.size() + " tasks", e);
+      }
+    }
   }
 }
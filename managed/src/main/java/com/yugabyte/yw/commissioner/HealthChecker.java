@@ -17,8 +17,16 @@ import java.util.HashMap;
 import java.util.stream.Collectors;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -58,6 +66,7 @@ import scala.concurrent.duration.Duration;
 
 import io.prometheus.client.Gauge;
 import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -77,11 +86,34 @@ public class HealthChecker {
 
   private long STATUS_UPDATE_INTERVAL_MS = 0;
 
-  // Last time we sent a status update email per customer.
-  private Map<UUID, Long> lastStatusUpdateTimeMap = new HashMap<>();
+  // Defaults for the number of universes checked at a time, and how long a check may take.
+  private static final int DEFAULT_MAX_PARALLEL_CHECKS = 8;
+  private static final long DEFAULT_CHECK_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(10);
+
+  // Each check of a universe comes up to this fraction of the check interval early, so that the
+  // checks of universes first checked together spread out over time.
+  private static final double CHECK_JITTER = 0.1;
+
+  // The runner looks for universes due for a check this many times per check interval.
+  private static final int RUNS_PER_CHECK_INTERVAL = 10;
+
+  // Last time we sent a status update email per universe.
+  private Map<UUID, Long> lastStatusUpdateTimeMap = new ConcurrentHashMap<>();
+
+  // Last time we actually ran the health check script per universe, and how early the next check
+  // of the universe is due.
+  private Map<UUID, Long> lastCheckTimeMap = new ConcurrentHashMap<>();
+  private Map<UUID, Long> checkJitterMsMap = new ConcurrentHashMap<>();
 
-  // Last time we actually ran the health check script per customer.
-  private Map<UUID, Long> lastCheckTimeMap = new HashMap<>();
+  // The universes with a check queued or running.
+  private Set<UUID> checksInFlight = ConcurrentHashMap.newKeySet();
+
+  // Runs the checks scheduled by the runner, and interrupts them when they time out.
+  private ExecutorService checkExecutor;
+  private ScheduledExecutorService checkTimeoutExecutor;
+
+  private Histogram checkDuration = null;
+  private Histogram checkQueueDelay = null;
 
   // What will run the health checking script.
   HealthManager healthManager;
@@ -128,10 +160,16 @@ public class HealthChecker {
   }
 
   private void initialize() {
-    LOG.info("Scheduling health checker every " + this.healthCheckIntervalMs() + " ms");
+    checkExecutor = Executors.newFixedThreadPool(maxParallelChecks(),
+        new ThreadFactoryBuilder().setNameFormat("health-check-%d").setDaemon(true).build());
+    checkTimeoutExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("health-check-timeout").setDaemon(true).build());
+
+    long runIntervalMs = Math.max(1000, this.healthCheckIntervalMs() / RUNS_PER_CHECK_INTERVAL);
+    LOG.info("Scheduling health checker every " + runIntervalMs + " ms");
     this.actorSystem.scheduler().schedule(
       Duration.create(0, TimeUnit.MILLISECONDS), // initialDelay
-      Duration.create(this.healthCheckIntervalMs(), TimeUnit.MILLISECONDS), // interval
+      Duration.create(runIntervalMs, TimeUnit.MILLISECONDS), // interval
       () -> scheduleRunner(),
       this.executionContext
     );
@@ -143,7 +181,19 @@ public class HealthChecker {
     } catch (IllegalArgumentException e) {
       LOG.warn("Failed to build prometheus gauge for name: " + kUnivMetricName);
     }
-
+    try {
+      checkDuration = Histogram.build("yb_health_check_duration_seconds",
+                                      "Time taken by the health check of a universe")
+                               .labelNames("result")
+                               .buckets(1, 5, 15, 30, 60, 120, 300, 600)
+                               .register(this.promRegistry);
+      checkQueueDelay = Histogram.build("yb_health_check_queue_delay_seconds",
+                                        "Time a universe health check waited to run")
+                                 .buckets(0.1, 1, 5, 15, 30, 60, 120, 300, 600)
+                                 .register(this.promRegistry);
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Failed to build prometheus histograms for health checks");
+    }
   }
 
   // The interval at which the checker will run.
@@ -160,6 +210,17 @@ public class HealthChecker {
     return interval == null ? 0 : interval;
   }
 
+  private int maxParallelChecks() {
+    Integer maxParallelChecks = config.getInt("yb.health.max_parallel_checks");
+    return maxParallelChecks == null || maxParallelChecks <= 0
+        ? DEFAULT_MAX_PARALLEL_CHECKS : maxParallelChecks;
+  }
+
+  private long checkTimeoutMs() {
+    Long timeout = config.getLong("yb.health.check_timeout_ms");
+    return timeout == null || timeout <= 0 ? DEFAULT_CHECK_TIMEOUT_MS : timeout;
+  }
+
   private String ybAlertEmail() {
     return config.getString("yb.health.default_email");
   }
@@ -195,6 +256,14 @@ public class HealthChecker {
     }
   }
 
+  /**
+   * Interface through which the universes due for a check are handed over.
+   */
+  private interface UniverseCheck {
+    void run(Universe u, Customer c, CustomerConfig config, boolean shouldSendStatusUpdate,
+             SmtpData smtpData);
+  }
+
   @VisibleForTesting
   void scheduleRunner() {
     if (running.get()) {
@@ -202,21 +271,85 @@ public class HealthChecker {
       return;
     }
 
-    LOG.info("Running health checker");
+    LOG.debug("Running health checker");
     running.set(true);
     // TODO(bogdan): This will not be too DB friendly when we go multi-tenant.
     for (Customer c : Customer.getAll()) {
       try {
-        checkCustomer(c);
+        forEachDueUniverse(c, this::submitCheck);
       } catch (Exception ex) {
         LOG.error("Error running health check for customer " + c.uuid, ex);
       }
     }
-    LOG.info("Completed running health checker.");
+    LOG.debug("Completed running health checker.");
     running.set(false);
   }
 
+  // Queues the check of the universe, unless one is queued or running already.
+  private void submitCheck(Universe u, Customer c, CustomerConfig config,
+                           boolean shouldSendStatusUpdate, SmtpData smtpData) {
+    if (!checksInFlight.add(u.universeUUID)) {
+      LOG.info("Skipping universe " + u.name + " due to health check in progress...");
+      return;
+    }
+    long submitTimeNanos = System.nanoTime();
+    try {
+      checkExecutor.submit(() -> runCheck(u, c, config, shouldSendStatusUpdate, smtpData,
+                                          submitTimeNanos));
+    } catch (Exception e) {
+      checksInFlight.remove(u.universeUUID);
+      throw e;
+    }
+  }
+
+  private void runCheck(Universe u, Customer c, CustomerConfig config,
+                        boolean shouldSendStatusUpdate, SmtpData smtpData, long submitTimeNanos) {
+    long startTimeNanos = System.nanoTime();
+    if (checkQueueDelay != null) {
+      checkQueueDelay.observe((startTimeNanos - submitTimeNanos) / 1e9);
+    }
+    // Interrupting the check stops the health check script.
+    Thread checkThread = Thread.currentThread();
+    AtomicBoolean timedOut = new AtomicBoolean(false);
+    ScheduledFuture<?> timeout = checkTimeoutExecutor.schedule(() -> {
+      timedOut.set(true);
+      checkThread.interrupt();
+    }, checkTimeoutMs(), TimeUnit.MILLISECONDS);
+    String result = "success";
+    try {
+      checkSingleUniverse(u, c, config, shouldSendStatusUpdate, smtpData);
+    } catch (Exception ex) {
+      result = "failure";
+      LOG.error("Error running health check for universe " + u.universeUUID, ex);
+    } finally {
+      timeout.cancel(false);
+      // Clears the interrupt, if any, before the thread runs another check.
+      Thread.interrupted();
+      if (timedOut.get()) {
+        result = "timeout";
+        LOG.error("Health check for universe " + u.name + " timed out after " +
+                  checkTimeoutMs() + " ms");
+      }
+      if (checkDuration != null) {
+        checkDuration.labels(result).observe((System.nanoTime() - startTimeNanos) / 1e9);
+      }
+      checksInFlight.remove(u.universeUUID);
+    }
+  }
+
   public void checkCustomer(Customer c) {
+    forEachDueUniverse(c, (u, customer, config, shouldSendStatusUpdate, smtpData) -> {
+      try {
+        checkSingleUniverse(u, customer, config, shouldSendStatusUpdate, smtpData);
+      } catch (Exception ex) {
+        LOG.error("Error running health check for universe " + u.universeUUID, ex);
+      }
+    });
+  }
+
+  // Calls the check on each universe of the customer that is due for a check or a status update,
+  // and records that it was checked.
+  private void forEachDueUniverse(Customer c, UniverseCheck check) {
     // We need an alerting config to do work.
     CustomerConfig config = CustomerConfig.getAlertConfig(c.uuid);
     if (config == null) {
@@ -224,30 +357,45 @@ public class HealthChecker {
       return;
     }
     AlertingData alertingData = Json.fromJson(config.data, AlertingData.class);
-    long now = (new Date()).getTime();
     long checkIntervalMs = alertingData.checkIntervalMs <= 0
       ? healthCheckIntervalMs()
       : alertingData.checkIntervalMs;
-    boolean shouldRunCheck = (now - checkIntervalMs) >
-        lastCheckTimeMap.getOrDefault(c.uuid, 0l);
     long statusUpdateIntervalMs = alertingData.statusUpdateIntervalMs <= 0
       ? statusUpdateIntervalMs()
       : alertingData.statusUpdateIntervalMs;
-    boolean shouldSendStatusUpdate = (now - statusUpdateIntervalMs) >
-        lastStatusUpdateTimeMap.getOrDefault(c.uuid, 0l);
-    // Always do a check if it's time for a status update OR if it's time for a check.
-    if (shouldSendStatusUpdate || shouldRunCheck) {
+    boolean smtpDataLoaded = false;
+    SmtpData smtpData = null;
+    // Only the universes due for a check are loaded.
+    for (UUID universeUUID : c.getUniverseUUIDs()) {
+      if (checksInFlight.contains(universeUUID)) {
+        continue;
+      }
+      long now = (new Date()).getTime();
+      boolean shouldRunCheck = (now - checkIntervalMs) >
+          lastCheckTimeMap.getOrDefault(universeUUID, 0l) -
+          checkJitterMsMap.getOrDefault(universeUUID, 0l);
+      boolean shouldSendStatusUpdate = (now - statusUpdateIntervalMs) >
+          lastStatusUpdateTimeMap.getOrDefault(universeUUID, 0l);
+      // Always do a check if it's time for a status update OR if it's time for a check.
+      if (!shouldSendStatusUpdate && !shouldRunCheck) {
+        continue;
+      }
       // Since we'll do a check, update this all the time.
-      lastCheckTimeMap.put(c.uuid, now);
+      lastCheckTimeMap.put(universeUUID, now);
+      checkJitterMsMap.put(universeUUID,
+          (long) (ThreadLocalRandom.current().nextDouble() * CHECK_JITTER * checkIntervalMs));
       if (shouldSendStatusUpdate) {
-        lastStatusUpdateTimeMap.put(c.uuid, now);
+        lastStatusUpdateTimeMap.put(universeUUID, now);
       }
-      CustomerConfig smtpConfig = CustomerConfig.getSmtpConfig(c.uuid);
-      SmtpData smtpData = null;
-      if (smtpConfig != null) {
-        smtpData =  Json.fromJson(smtpConfig.data, SmtpData.class);
+      Universe u = Universe.get(universeUUID);
+      if (!smtpDataLoaded) {
+        CustomerConfig smtpConfig = CustomerConfig.getSmtpConfig(c.uuid);
+        if (smtpConfig != null) {
+          smtpData =  Json.fromJson(smtpConfig.data, SmtpData.class);
+        }
+        smtpDataLoaded = true;
       }
-      checkAllUniverses(c, config, shouldSendStatusUpdate, smtpData);
+      check.run(u, c, config, shouldSendStatusUpdate, smtpData);
     }
   }
 
@@ -266,7 +414,7 @@ public class HealthChecker {
   public void checkSingleUniverse(Universe u, Customer c, CustomerConfig config,
                                   boolean shouldSendStatusUpdate, SmtpData smtpData) {
     // Validate universe data and make sure nothing is in progress.
-    UniverseDefinitionTaskParams details = u.getUniverseDetails();
+    UniverseDefinitionTaskParams details = u.getUniverseDetailsReadOnly();
     if (details == null) {
       LOG.warn("Skipping universe " + u.name + " due to invalid details json...");
       return;
@@ -44,4 +44,16 @@ public interface ITask extends Runnable {
    * @param userTaskUUID UUID of the user-facing top-level task for this Task's Task tree.
    */
   public void setUserTaskUUID(UUID userTaskUUID);
+
+  /**
+   * Whether the task can be run again after the process running it went away, skipping the
+   * subtask groups the interrupted run completed. Such a task must create the same sequence of
+   * subtask groups on every run.
+   */
+  public boolean isResumable();
+
+  /**
+   * Tells the task it continues an interrupted run, which may have locked the universe already.
+   */
+  public void setResumed(boolean resumed);
 }
@@ -4,9 +4,18 @@ package com.yugabyte.yw.commissioner;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -14,6 +23,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.yugabyte.yw.models.TaskInfo;
 import com.yugabyte.yw.models.helpers.TaskType;
+import io.prometheus.client.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +31,13 @@ public class SubTaskGroup implements Runnable {
 
   public static final Logger LOG = LoggerFactory.getLogger(SubTaskGroup.class);
 
+  static final Histogram subTaskDuration = Histogram.build()
+      .name("yw_commissioner_subtask_duration_seconds").help("Time taken by subtasks to run.")
+      .labelNames("task_type", "result").register();
+
+  // Default for numThreads, overridden by the yb.commissioner.max_parallel_subtasks setting.
+  private static int defaultNumThreads = 0;
+
   // User facing subtask. If this field is 'Invalid', the state of this task list  should
   // not be exposed to the user. Note that multiple task lists can be combined into a single user
   // facing entry by providing the same subtask id.
@@ -35,13 +52,19 @@ public class SubTaskGroup implements Runnable {
   // The list of tasks in this task list.
   private Map<AbstractTaskBase, TaskInfo> taskMap;
 
-  // The list of futures to wait for.
+  // The futures of the submitted tasks that have not completed yet.
   private Map<Future<?>, TaskInfo> futuresMap;
 
+  // The tasks not submitted yet, waiting for a free slot under numThreads.
+  private Deque<AbstractTaskBase> pendingTasks;
+
+  // Hands over the futures in the order the tasks complete.
+  private CompletionService<Object> completionService;
+
   private AtomicInteger numTasksCompleted;
 
-  // The number of threads to run in parallel.
-  int numThreads;
+  // The maximum number of tasks of this group running at the same time, 0 for no limit.
+  int numThreads = defaultNumThreads;
 
   // The threadpool executor in case parallel execution is requested.
   ExecutorService executor;
@@ -72,18 +95,29 @@ public class SubTaskGroup implements Runnable {
   public SubTaskGroup(String name, ExecutorService executor, boolean ignoreErrors) {
     this.name = name;
     this.executor = executor;
-    this.taskMap = new HashMap<>();
+    this.taskMap = new LinkedHashMap<>();
     this.futuresMap = new HashMap<>();
+    this.pendingTasks = new ArrayDeque<>();
     this.numTasksCompleted = new AtomicInteger(0);
     this.ignoreErrors = ignoreErrors;
   }
 
+  /**
+   * Sets how many tasks of the group may run at the same time, 0 for no limit. The other tasks
+   * are submitted, in the order they were added, as the running ones complete.
+   */
+  public void setNumThreads(int numThreads) {
+    this.numThreads = numThreads;
+  }
+
+  static void setDefaultNumThreads(int numThreads) {
+    defaultNumThreads = numThreads;
+  }
+
   public synchronized void setSubTaskGroupType(UserTaskDetails.SubTaskGroupType subTaskGroupType) {
     this.subTaskGroupType = subTaskGroupType;
-    for (TaskInfo taskInfo : taskMap.values()) {
-      taskInfo.setSubTaskGroupType(subTaskGroupType);
-      taskInfo.save();
-    }
+    TaskInfoWriter.update(taskMap.values(),
+                          taskInfo -> taskInfo.setSubTaskGroupType(subTaskGroupType));
   }
 
   public UserTaskDetails.SubTaskGroupType getSubTaskGroupType() {
@@ -92,10 +126,8 @@ public class SubTaskGroup implements Runnable {
 
   public synchronized void setUserSubTaskState(TaskInfo.State userTaskState) {
     this.userSubTaskState = userTaskState;
-    for (TaskInfo taskInfo : taskMap.values()) {
-      taskInfo.setTaskState(userTaskState);
-      taskInfo.save();
-    }
+    // A state change, users see it right away, along with the progress of the user task.
+    TaskInfoWriter.updateNow(taskMap.values(), taskInfo -> taskInfo.setTaskState(userTaskState));
   }
 
   public synchronized TaskInfo.State getUserSubTaskState() {
@@ -129,7 +161,7 @@ public class SubTaskGroup implements Runnable {
     if (this.subTaskGroupType != null) {
       taskInfo.setSubTaskGroupType(this.subTaskGroupType);
     }
-    taskInfo.save();
+    TaskInfoWriter.insert(taskInfo);
     taskMap.put(task, taskInfo);
   }
 
@@ -142,16 +174,40 @@ public class SubTaskGroup implements Runnable {
   }
 
   public void setTaskContext(int position, UUID userTaskUUID) {
-    for (TaskInfo taskInfo : taskMap.values()) {
+    TaskInfoWriter.update(taskMap.values(), taskInfo -> {
       taskInfo.setPosition(position);
       taskInfo.setParentUuid(userTaskUUID);
-      taskInfo.save();
+    });
+  }
+
+  /**
+   * Returns whether the group consists of the same tasks, with the same details, as the given
+   * persisted ones, in any order.
+   */
+  public synchronized boolean hasSameTasks(List<TaskInfo> taskInfos) {
+    return describe(taskMap.values()).equals(describe(taskInfos));
+  }
+
+  private static List<String> describe(Iterable<TaskInfo> taskInfos) {
+    List<String> descriptions = new ArrayList<>();
+    for (TaskInfo taskInfo : taskInfos) {
+      descriptions.add(taskInfo.getTaskType() + ":" + taskInfo.getTaskDetails());
     }
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+
+  /**
+   * Drops the tasks of a group that will not run, along with their persisted task info.
+   */
+  public synchronized void discard() {
+    TaskInfoWriter.delete(taskMap.values());
+    taskMap.clear();
   }
 
   /**
-   * Asynchronously starts the tasks and returns. To wait for the tasks to complete, call the
-   * waitFor() method.
+   * Asynchronously starts the tasks, up to numThreads of them, and returns. To wait for the tasks
+   * to complete, and start the remaining ones, call the waitFor() method.
    */
   @Override
   public void run() {
@@ -161,40 +217,96 @@ public class SubTaskGroup implements Runnable {
       return;
     }
     LOG.info("Running task list {}.", getName());
-    for (AbstractTaskBase task : taskMap.keySet()) {
-      Future<?> future = executor.submit(task);
+    completionService = new ExecutorCompletionService<>(executor);
+    pendingTasks.addAll(taskMap.keySet());
+    submitPending();
+  }
+
+  private void submitPending() {
+    while (!pendingTasks.isEmpty() && (numThreads <= 0 || futuresMap.size() < numThreads)) {
+      AbstractTaskBase task = pendingTasks.poll();
+      Future<?> future = completionService.submit(() -> runTimed(task), null);
       futuresMap.put(future, taskMap.get(task));
     }
   }
 
+  private static void runTimed(AbstractTaskBase task) {
+    String taskType = task.getClass().getSimpleName();
+    long startTime = System.nanoTime();
+    String result = "failure";
+    try {
+      task.run();
+      result = "success";
+    } finally {
+      double seconds = (System.nanoTime() - startTime) / 1e9;
+      subTaskDuration.labels(taskType, result).observe(seconds);
+      LOG.info("Task {} finished with {} in {} ms.", task, result, (long) (seconds * 1000));
+    }
+  }
+
+  /**
+   * Waits for the tasks in the order they complete. Unless errors are ignored, the first failure
+   * cancels the other tasks of the group and returns right away. Returns whether all the tasks
+   * succeeded.
+   */
   public boolean waitFor() {
-    String errorString = null;
-    for (Future<?> future : futuresMap.keySet()) {
-      // Wait for each future to finish.
+    boolean success = true;
+    while (!futuresMap.isEmpty()) {
+      Future<?> future;
       try {
-        if (future.get() == null) {
-          // Task succeeded.
-          numTasksCompleted.incrementAndGet();
-        } else {
-          errorString = "ERROR: task " + future.toString() + " get() returned null.";
-          LOG.error(errorString);
-        }
+        future = completionService.take();
+      } catch (InterruptedException e) {
+        LOG.error("Interrupted while waiting for task list {}.", getName());
+        cancelAll();
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      TaskInfo taskInfo = futuresMap.remove(future);
+      String errorString = null;
+      try {
+        future.get();
+        numTasksCompleted.incrementAndGet();
+      } catch (ExecutionException e) {
+        errorString = "Failed to execute task " + taskInfo.getTaskType() + ", hit error " +
+            e.getCause().getMessage() + ".";
+        LOG.error(errorString, e.getCause());
       } catch (Exception e) {
-        errorString = "Failed to execute task " + future.toString() + ", hit error " +
+        errorString = "Failed to execute task " + taskInfo.getTaskType() + ", hit error " +
             e.getMessage() + ".";
         LOG.error(errorString, e);
-      } finally {
-        if (errorString != null) {
-          TaskInfo taskInfo = futuresMap.get(future);
-          ObjectNode details = taskInfo.getTaskDetails().deepCopy();
-          details.put("errorString", errorString);
-          taskInfo.setTaskDetails(details);
-          taskInfo.save();
+      }
+      if (errorString != null) {
+        ObjectNode details = taskInfo.getTaskDetails().deepCopy();
+        details.put("errorString", errorString);
+        TaskInfoWriter.updateNow(Collections.singletonList(taskInfo),
+                                 t -> t.setTaskDetails(details));
+        success = false;
+        if (!ignoreErrors) {
+          cancelAll();
           return false;
         }
       }
+      submitPending();
     }
+    return success;
+  }
 
-    return true;
+  // Drops the tasks not submitted yet and interrupts the running ones, marking them failed. The
+  // interrupt also kills the commands they run, e.g. a provisioning or upgrade command of the
+  // sibling nodes, which are retried as a whole when the task is.
+  private void cancelAll() {
+    List<TaskInfo> cancelled = new ArrayList<>(futuresMap.values());
+    for (AbstractTaskBase task : pendingTasks) {
+      cancelled.add(taskMap.get(task));
+    }
+    if (!cancelled.isEmpty()) {
+      LOG.info("Cancelling {} remaining tasks of task list {}.", cancelled.size(), getName());
+    }
+    pendingTasks.clear();
+    for (Future<?> future : futuresMap.keySet()) {
+      future.cancel(true);
+    }
+    futuresMap.clear();
+    TaskInfoWriter.updateNow(cancelled, taskInfo -> taskInfo.setTaskState(TaskInfo.State.Failure));
   }
 }
@@ -2,9 +2,24 @@
 
 package com.yugabyte.yw.commissioner;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.yugabyte.yw.models.TaskInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,45 +31,236 @@ public class SubTaskGroupQueue {
   // The list of tasks lists in this task list sequence.
   CopyOnWriteArrayList<SubTaskGroup> subTaskGroups = new CopyOnWriteArrayList<SubTaskGroup>();
 
+  // The positions of the groups completed by an interrupted run, for the user tasks that continue
+  // it, by user task UUID. Taken by the first queue the task creates.
+  private static Map<UUID, Set<Integer>> completedPositionsByTask = new ConcurrentHashMap<>();
+
   private UUID userTaskUUID;
 
+  // The positions of the groups completed by an interrupted run of the user task. Groups that
+  // run in parallel complete out of order, so these need not be the first positions.
+  private Set<Integer> completedPositions;
+
+  // The number of groups skipped as already completed.
+  private int numSkipped = 0;
+
+  // The groups each group waits for, as indexes in subTaskGroups, for the groups that were given
+  // explicit dependencies. The other groups wait for all the groups added before them.
+  private Map<Integer, List<Integer>> dependencies = new HashMap<>();
+
+  // Default for maxParallelGroups, overridden by the yb.commissioner.max_parallel_subtask_groups
+  // setting.
+  private static int defaultMaxParallelGroups = 4;
+
+  // The maximum number of groups running at the same time.
+  private int maxParallelGroups = defaultMaxParallelGroups;
+
   public SubTaskGroupQueue(UUID userTaskUUID) {
     this.userTaskUUID = userTaskUUID;
+    Set<Integer> positions = completedPositionsByTask.remove(userTaskUUID);
+    this.completedPositions = positions == null ? Collections.emptySet() : positions;
+  }
+
+  /**
+   * Makes the next queue created for the user task skip the groups at the given positions.
+   */
+  static void setCompletedPositions(UUID userTaskUUID, Set<Integer> positions) {
+    completedPositionsByTask.put(userTaskUUID, positions);
+  }
+
+  static void clearCompletedPositions(UUID userTaskUUID) {
+    completedPositionsByTask.remove(userTaskUUID);
   }
 
   /**
    * Add a task list to this sequence.
    */
   public boolean add(SubTaskGroup subTaskGroup) {
-    subTaskGroup.setTaskContext(subTaskGroups.size(), userTaskUUID);
+    int position = numSkipped + subTaskGroups.size();
+    if (completedPositions.contains(position)) {
+      // Only skip what the interrupted run did, a task whose plan changed in the meantime (e.g.
+      // because it depends on which master is the leader) cannot be resumed.
+      List<TaskInfo> completed = TaskInfo.find.where()
+          .eq("parentUuid", userTaskUUID)
+          .eq("position", position)
+          .findList();
+      if (!subTaskGroup.hasSameTasks(completed)) {
+        subTaskGroup.discard();
+        throw new IllegalStateException("SubTaskGroup '" + subTaskGroup.getName() +
+            "' at position " + position + " differs from the one of the interrupted run.");
+      }
+      LOG.info("Skipping SubTaskGroup '{}' at position {}, completed by an earlier run.",
+               subTaskGroup.getName(), position);
+      subTaskGroup.discard();
+      numSkipped++;
+      return false;
+    }
+    subTaskGroup.setTaskContext(position, userTaskUUID);
     return subTaskGroups.add(subTaskGroup);
   }
 
   /**
-   * Execute the sequence of task lists in a sequential manner.
+   * Lets the group start as soon as the given groups completed, instead of after all the groups
+   * added before it. The given groups must have been added before it. A group with no
+   * dependencies starts right away. Groups skipped as completed by an interrupted run count as
+   * completed.
+   */
+  public void setDependencies(SubTaskGroup subTaskGroup, SubTaskGroup... dependsOn) {
+    int index = subTaskGroups.indexOf(subTaskGroup);
+    if (index < 0) {
+      // Skipped, or never added since it had no tasks.
+      return;
+    }
+    List<Integer> dependencyIndexes = new ArrayList<>();
+    for (SubTaskGroup dependency : dependsOn) {
+      int dependencyIndex = subTaskGroups.indexOf(dependency);
+      if (dependencyIndex >= index) {
+        throw new IllegalArgumentException("SubTaskGroup '" + subTaskGroup.getName() +
+            "' cannot depend on '" + dependency.getName() + "', which was added after it.");
+      }
+      if (dependencyIndex >= 0) {
+        dependencyIndexes.add(dependencyIndex);
+      }
+    }
+    dependencies.put(index, dependencyIndexes);
+  }
+
+  /**
+   * Sets how many groups may run at the same time, when some have explicit dependencies.
+   */
+  public void setMaxParallelGroups(int maxParallelGroups) {
+    this.maxParallelGroups = maxParallelGroups;
+  }
+
+  static void setDefaultMaxParallelGroups(int maxParallelGroups) {
+    defaultMaxParallelGroups = maxParallelGroups;
+  }
+
+  /**
+   * Execute the task lists. Without explicit dependencies, they run one after the other, in the
+   * order they were added. Otherwise each starts once the groups it depends on completed, up to
+   * maxParallelGroups at a time, and the first failure stops new groups from starting.
    */
   public void run() {
+    if (dependencies.isEmpty()) {
+      for (SubTaskGroup subTaskGroup : subTaskGroups) {
+        runGroup(subTaskGroup);
+      }
+    } else {
+      runGraph();
+    }
+  }
+
+  private void runGroup(SubTaskGroup subTaskGroup) {
     boolean success = false;
-    for (SubTaskGroup subTaskGroup : subTaskGroups) {
-      subTaskGroup.setUserSubTaskState(TaskInfo.State.Running);
-      try {
-        subTaskGroup.run();
-        success = subTaskGroup.waitFor();
-      } catch (Throwable t) {
-        // Update task state to failure
-        subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
-        if (!subTaskGroup.ignoreErrors) {
-          throw t;
-        }
+    subTaskGroup.setUserSubTaskState(TaskInfo.State.Running);
+    try {
+      subTaskGroup.run();
+      success = subTaskGroup.waitFor();
+    } catch (Throwable t) {
+      // Update task state to failure
+      subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
+      if (!subTaskGroup.ignoreErrors) {
+        throw t;
       }
-      if (!success) {
-        LOG.error("SubTaskGroup '{}' waitFor() returned failed status.", subTaskGroup.toString());
-        subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
-        if (!subTaskGroup.ignoreErrors) {
-          throw new RuntimeException(subTaskGroup.toString() + " failed.");
+    }
+    if (!success) {
+      LOG.error("SubTaskGroup '{}' waitFor() returned failed status.", subTaskGroup.toString());
+      subTaskGroup.setUserSubTaskState(TaskInfo.State.Failure);
+      if (!subTaskGroup.ignoreErrors) {
+        throw new RuntimeException(subTaskGroup.toString() + " failed.");
+      }
+    }
+    subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
+  }
+
+  private void runGraph() {
+    int numGroups = subTaskGroups.size();
+    boolean[] started = new boolean[numGroups];
+    boolean[] done = new boolean[numGroups];
+    // All the groups before this one are done.
+    int firstNotDone = 0;
+    int numRunning = 0;
+    Throwable failure = null;
+
+    ThreadFactory namedThreadFactory =
+        new ThreadFactoryBuilder().setNameFormat("SubTaskGroupQueue-" + userTaskUUID + "-%d")
+                                  .build();
+    ExecutorService groupExecutor = Executors.newFixedThreadPool(
+        Math.max(1, Math.min(maxParallelGroups, numGroups)), namedThreadFactory);
+    CompletionService<Integer> completionService =
+        new ExecutorCompletionService<>(groupExecutor);
+    try {
+      while (true) {
+        // Start the groups whose dependencies are done, unless a group failed.
+        for (int i = firstNotDone; failure == null && i < numGroups &&
+             numRunning < maxParallelGroups; i++) {
+          if (started[i] || !isReady(i, done, firstNotDone)) {
+            continue;
+          }
+          started[i] = true;
+          numRunning++;
+          SubTaskGroup subTaskGroup = subTaskGroups.get(i);
+          int index = i;
+          completionService.submit(() -> {
+            runGroup(subTaskGroup);
+            return index;
+          });
         }
+        if (numRunning == 0) {
+          break;
+        }
+
+        Future<Integer> completed;
+        try {
+          completed = completionService.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException("Interrupted while running " + userTaskUUID, e);
+        }
+        numRunning--;
+        try {
+          done[completed.get()] = true;
+        } catch (ExecutionException e) {
+          // Let the running groups finish, start no new ones and report the first failure.
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        } catch (InterruptedException e) {
+          // Cannot happen, the future is done.
+        }
+        while (firstNotDone < numGroups && done[firstNotDone]) {
+          firstNotDone++;
+        }
+      }
+    } finally {
+      groupExecutor.shutdownNow();
+    }
+
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+    if (firstNotDone < numGroups) {
+      throw new IllegalStateException("SubTaskGroup '" + subTaskGroups.get(firstNotDone).getName() +
+          "' never became ready to run.");
+    }
+  }
+
+  private boolean isReady(int index, boolean[] done, int firstNotDone) {
+    List<Integer> dependencyIndexes = dependencies.get(index);
+    if (dependencyIndexes == null) {
+      // Waits for all the groups added before it.
+      return firstNotDone >= index;
+    }
+    for (int dependencyIndex : dependencyIndexes) {
+      if (!done[dependencyIndex]) {
+        return false;
       }
-      subTaskGroup.setUserSubTaskState(TaskInfo.State.Success);
     }
+    return true;
   }
 }
@@ -0,0 +1,260 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+/**
+ * Decides which of the submitted user tasks run next, and hands them to a thread pool.
+ *
+ * Tasks are queued per priority class and, within a class, per customer. Higher priority classes
+ * are always served first. Within a class, customers take turns, one task at a time, starting with
+ * the one that waited the longest, so a customer with a long queue (e.g. a large backup schedule)
+ * does not hold up the tasks of other customers.
+ *
+ * A task only starts while the number of running tasks, overall, for its customer and for its
+ * universe are all below their limits; tasks over a limit stay queued, without blocking the tasks
+ * behind them that are not. Once the queue is full, new tasks are rejected.
+ */
+public class TaskExecutor {
+
+  public static final Logger LOG = LoggerFactory.getLogger(TaskExecutor.class);
+
+  /**
+   * Priority classes, from the highest to the lowest.
+   */
+  public enum Priority {
+    // Operations requested by a user, who is waiting on the result.
+    INTERACTIVE,
+    // Operations started by the platform itself, e.g. scheduled backups.
+    BACKGROUND
+  }
+
+  private static final String PRIORITY_LABEL = "priority";
+
+  static final Gauge queuedTasks = Gauge.build()
+      .name("yw_commissioner_queued_tasks").help("User tasks waiting to run.")
+      .labelNames(PRIORITY_LABEL).register();
+
+  static final Gauge runningTasks = Gauge.build()
+      .name("yw_commissioner_running_tasks").help("User tasks currently running.")
+      .labelNames(PRIORITY_LABEL).register();
+
+  static final Counter rejectedTasks = Counter.build()
+      .name("yw_commissioner_rejected_tasks_total").help("User tasks rejected as over capacity.")
+      .labelNames(PRIORITY_LABEL).register();
+
+  private static class QueuedTask {
+    final Runnable task;
+    final UUID customerUUID;
+    final UUID universeUUID;
+    final Priority priority;
+
+    QueuedTask(Runnable task, UUID customerUUID, UUID universeUUID, Priority priority) {
+      this.task = task;
+      this.customerUUID = customerUUID;
+      this.universeUUID = universeUUID;
+      this.priority = priority;
+    }
+  }
+
+  private final Executor executor;
+  private final int maxRunningTasks;
+  private final int maxRunningTasksPerCustomer;
+  private final int maxRunningTasksPerUniverse;
+  private final int maxQueuedTasks;
+
+  // The queued tasks of each priority class, by customer in the order they first queued a task.
+  private final Map<Priority, LinkedHashMap<UUID, Deque<QueuedTask>>> queues =
+      new EnumMap<>(Priority.class);
+  // When each customer with queued or running tasks last had a task started, as a sequence number.
+  // The customer that has waited the longest goes next.
+  private final Map<UUID, Long> lastStarted = new HashMap<>();
+  private long numStarted = 0;
+  private final Map<UUID, Integer> runningPerCustomer = new HashMap<>();
+  private final Map<UUID, Integer> runningPerUniverse = new HashMap<>();
+  private int numRunning = 0;
+  private int numQueued = 0;
+
+  /**
+   * @param executor runs the tasks once they are started, it should not queue them.
+   */
+  public TaskExecutor(Executor executor, int maxRunningTasks, int maxRunningTasksPerCustomer,
+                      int maxRunningTasksPerUniverse, int maxQueuedTasks) {
+    this.executor = executor;
+    this.maxRunningTasks = maxRunningTasks;
+    this.maxRunningTasksPerCustomer = maxRunningTasksPerCustomer;
+    this.maxRunningTasksPerUniverse = maxRunningTasksPerUniverse;
+    this.maxQueuedTasks = maxQueuedTasks;
+    for (Priority priority : Priority.values()) {
+      queues.put(priority, new LinkedHashMap<>());
+    }
+  }
+
+  /**
+   * Queues the task and starts it as soon as the limits allow.
+   *
+   * @param customerUUID the customer the task is run for, null for tasks that belong to none.
+   * @param universeUUID the universe the task operates on, null if it does not operate on one.
+   * @throws RejectedExecutionException if the queue is full.
+   */
+  public synchronized void submit(Runnable task, UUID customerUUID, UUID universeUUID,
+                                  Priority priority) {
+    if (!hasCapacity()) {
+      rejectedTasks.labels(priority.name()).inc();
+      throw new RejectedExecutionException(String.format(
+          "Too many tasks queued (%d), try again later", numQueued));
+    }
+    queues.get(priority)
+          .computeIfAbsent(customerUUID, k -> new ArrayDeque<>())
+          .add(new QueuedTask(task, customerUUID, universeUUID, priority));
+    numQueued++;
+    queuedTasks.labels(priority.name()).inc();
+    dispatch();
+  }
+
+  /**
+   * Returns whether a task submitted now would be accepted.
+   */
+  public synchronized boolean hasCapacity() {
+    return numQueued < maxQueuedTasks;
+  }
+
+  public synchronized int getNumQueued() {
+    return numQueued;
+  }
+
+  public synchronized int getNumRunning() {
+    return numRunning;
+  }
+
+  private void dispatch() {
+    while (numRunning < maxRunningTasks) {
+      QueuedTask next = pollNext();
+      if (next == null) {
+        return;
+      }
+      start(next);
+    }
+  }
+
+  /**
+   * Removes and returns the next task that may start, or null if there is none.
+   */
+  private QueuedTask pollNext() {
+    for (LinkedHashMap<UUID, Deque<QueuedTask>> byCustomer : queues.values()) {
+      Deque<QueuedTask> nextQueue = null;
+      QueuedTask next = null;
+      long nextLastStarted = Long.MAX_VALUE;
+      for (Map.Entry<UUID, Deque<QueuedTask>> entry : byCustomer.entrySet()) {
+        Long customerLastStarted = lastStarted.get(entry.getKey());
+        long last = customerLastStarted == null ? -1 : customerLastStarted;
+        if (last >= nextLastStarted ||
+            count(runningPerCustomer, entry.getKey()) >= maxRunningTasksPerCustomer) {
+          continue;
+        }
+        QueuedTask task = firstStartable(entry.getValue());
+        if (task != null) {
+          nextQueue = entry.getValue();
+          next = task;
+          nextLastStarted = last;
+        }
+      }
+      if (next != null) {
+        nextQueue.remove(next);
+        if (nextQueue.isEmpty()) {
+          byCustomer.remove(next.customerUUID);
+        }
+        return next;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the first task of the queue whose universe is below its limit, or null.
+   */
+  private QueuedTask firstStartable(Deque<QueuedTask> queue) {
+    for (QueuedTask task : queue) {
+      if (task.universeUUID == null ||
+          count(runningPerUniverse, task.universeUUID) < maxRunningTasksPerUniverse) {
+        return task;
+      }
+    }
+    return null;
+  }
+
+  private void start(QueuedTask task) {
+    numQueued--;
+    numRunning++;
+    lastStarted.put(task.customerUUID, numStarted++);
+    increment(runningPerCustomer, task.customerUUID, 1);
+    if (task.universeUUID != null) {
+      increment(runningPerUniverse, task.universeUUID, 1);
+    }
+    queuedTasks.labels(task.priority.name()).dec();
+    runningTasks.labels(task.priority.name()).inc();
+    try {
+      executor.execute(() -> {
+        try {
+          task.task.run();
+        } finally {
+          onCompleted(task);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOG.error("Thread pool rejected a started task", e);
+      onCompleted(task);
+    }
+  }
+
+  private synchronized void onCompleted(QueuedTask task) {
+    numRunning--;
+    increment(runningPerCustomer, task.customerUUID, -1);
+    if (task.universeUUID != null) {
+      increment(runningPerUniverse, task.universeUUID, -1);
+    }
+    runningTasks.labels(task.priority.name()).dec();
+    if (count(runningPerCustomer, task.customerUUID) == 0 && !hasQueued(task.customerUUID)) {
+      lastStarted.remove(task.customerUUID);
+    }
+    dispatch();
+  }
+
+  private boolean hasQueued(UUID customerUUID) {
+    for (LinkedHashMap<UUID, Deque<QueuedTask>> byCustomer : queues.values()) {
+      if (byCustomer.containsKey(customerUUID)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int count(Map<UUID, Integer> counts, UUID key) {
+    Integer count = counts.get(key);
+    return count == null ? 0 : count;
+  }
+
+  private static void increment(Map<UUID, Integer> counts, UUID key, int delta) {
+    int count = count(counts, key) + delta;
+    if (count == 0) {
+      counts.remove(key);
+    } else {
+      counts.put(key, count);
+    }
+  }
+}
@@ -0,0 +1,294 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Transaction;
+import com.yugabyte.yw.models.TaskInfo;
+import com.yugabyte.yw.models.TaskInfo.ProgressKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind persistence of subtask info. New subtasks, and updates that do not change the state
+ * of a task like attaching subtasks to their parent, are applied in memory and saved by the next
+ * flush, which writes all the pending task infos in a single JDBC batch. The progress monitor
+ * flushes on every round, and state changes flush right away so that the progress users see is
+ * never behind. When the batch fails, the task infos are saved one at a time so that a bad one
+ * does not hold back the others, and the ones that keep failing are dropped.
+ *
+ * The progress of the user tasks is saved along with their subtasks. It is kept in memory as
+ * counts of the subtasks, which each save adjusts by what the saved subtasks counted for before,
+ * so the subtasks are only read back once per task.
+ *
+ * All the changes to a task info that is handed to this class must go through it, since the
+ * flush may run on another thread.
+ */
+class TaskInfoWriter {
+
+  public static final Logger LOG = LoggerFactory.getLogger(TaskInfoWriter.class);
+
+  // The task infos with unsaved changes.
+  private static Set<TaskInfo> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  // The pending task infos whose insert was not committed yet. Tracked here rather than read off
+  // the bean state, which a failed batch may leave marked as inserted.
+  private static Set<TaskInfo> notInserted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  // How many times a task info failed to save on its own, after which its changes are dropped.
+  private static final int MAX_SAVE_ATTEMPTS = 3;
+
+  // The failed attempts of the pending task infos that failed to save on their own.
+  private static Map<TaskInfo, Integer> numFailedSaves = new IdentityHashMap<>();
+
+  // The subtask counts of the user tasks with subtasks saved by this process, read on first use.
+  private static Map<UUID, Map<ProgressKey, Integer>> progressByTask = new HashMap<>();
+
+  // What the saved subtasks count for in the progress of their parent.
+  private static Map<TaskInfo, Contribution> savedContributions = new IdentityHashMap<>();
+
+  private static class Contribution {
+    final UUID parentUUID;
+    final ProgressKey key;
+
+    Contribution(UUID parentUUID, ProgressKey key) {
+      this.parentUUID = parentUUID;
+      this.key = key;
+    }
+
+    static Contribution of(TaskInfo taskInfo) {
+      UUID parentUUID = taskInfo.getParentUUID();
+      return parentUUID == null ? null : new Contribution(parentUUID, ProgressKey.of(taskInfo));
+    }
+  }
+
+  // The user tasks this process lost to another one, whose subtask changes are dropped. Losing a
+  // task is rare, so these are kept for the life of the process.
+  private static Set<UUID> fencedTasks = new HashSet<>();
+
+  /**
+   * Drops the pending and future changes to the subtasks of the user task, once this process no
+   * longer owns it.
+   */
+  static synchronized void fence(UUID userTaskUUID) {
+    fencedTasks.add(userTaskUUID);
+    pending.removeIf(TaskInfoWriter::isFenced);
+    notInserted.removeIf(TaskInfoWriter::isFenced);
+    numFailedSaves.keySet().removeIf(TaskInfoWriter::isFenced);
+    forgetProgress(userTaskUUID);
+  }
+
+  /**
+   * Drops the progress kept for the user task, once it completed or its subtasks were changed
+   * outside of this class.
+   */
+  static synchronized void forgetProgress(UUID userTaskUUID) {
+    progressByTask.remove(userTaskUUID);
+    savedContributions.values().removeIf(c -> c.parentUUID.equals(userTaskUUID));
+  }
+
+  private static boolean isFenced(TaskInfo taskInfo) {
+    return taskInfo.getParentUUID() != null && fencedTasks.contains(taskInfo.getParentUUID());
+  }
+
+  /**
+   * Queues a new task info, to be inserted by the next flush. Its id is assigned right away.
+   */
+  static synchronized void insert(TaskInfo taskInfo) {
+    if (taskInfo.getTaskUUID() == null) {
+      taskInfo.setTaskUUID(UUID.randomUUID());
+    }
+    pending.add(taskInfo);
+    notInserted.add(taskInfo);
+  }
+
+  /**
+   * Applies the change to the task infos, to be saved by the next flush.
+   */
+  static synchronized void update(Collection<TaskInfo> taskInfos, Consumer<TaskInfo> change) {
+    for (TaskInfo taskInfo : taskInfos) {
+      change.accept(taskInfo);
+      pending.add(taskInfo);
+    }
+  }
+
+  /**
+   * Applies the change to the task infos and saves them right away, along with all the pending
+   * changes.
+   *
+   * @throws RuntimeException if the change could not be saved.
+   */
+  static synchronized void updateNow(Collection<TaskInfo> taskInfos, Consumer<TaskInfo> change) {
+    update(taskInfos, change);
+    Set<TaskInfo> failed = saveAll();
+    for (TaskInfo taskInfo : taskInfos) {
+      if (failed.contains(taskInfo)) {
+        throw new RuntimeException("Failed to save task info " + taskInfo.getTaskUUID());
+      }
+    }
+  }
+
+  /**
+   * Deletes the task infos, or only drops them if they have not been inserted yet.
+   */
+  static synchronized void delete(Collection<TaskInfo> taskInfos) {
+    Map<UUID, Map<ProgressKey, Integer>> changedProgress = new HashMap<>();
+    Set<UUID> recounted = new HashSet<>();
+    for (TaskInfo taskInfo : taskInfos) {
+      pending.remove(taskInfo);
+      numFailedSaves.remove(taskInfo);
+      if (!notInserted.remove(taskInfo) && !isFenced(taskInfo)) {
+        Contribution contribution = savedContributions.remove(taskInfo);
+        if (contribution != null) {
+          // Read before the delete, if the subtask counts are read.
+          addContribution(changedProgress, contribution, -1);
+        } else if (taskInfo.getParentUUID() != null) {
+          recounted.add(taskInfo.getParentUUID());
+        }
+        taskInfo.delete();
+      }
+    }
+    for (UUID parentUUID : recounted) {
+      changedProgress.put(parentUUID, TaskInfo.loadProgressCounts(parentUUID));
+    }
+    for (Map.Entry<UUID, Map<ProgressKey, Integer>> entry : changedProgress.entrySet()) {
+      TaskInfo.saveProgress(entry.getKey(), entry.getValue());
+      progressByTask.put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  // Adds the contribution of a subtask to the progress of its parent, in a copy of the progress
+  // that is kept only once saved.
+  private static void addContribution(Map<UUID, Map<ProgressKey, Integer>> changedProgress,
+                                      Contribution contribution, int sign) {
+    if (contribution == null) {
+      return;
+    }
+    Map<ProgressKey, Integer> counts = changedProgress.computeIfAbsent(
+        contribution.parentUUID, parentUUID -> new HashMap<>(progressByTask.computeIfAbsent(
+            parentUUID, TaskInfo::loadProgressCounts)));
+    if (counts.merge(contribution.key, sign, Integer::sum) == 0) {
+      counts.remove(contribution.key);
+    }
+  }
+
+  /**
+   * Saves the pending changes in one batch. The ones that fail stay pending for the next flush,
+   * unless they failed too many times. The rows are written whole, since a failed batch may have
+   * marked the changes it rolled back as saved.
+   */
+  static synchronized void flush() {
+    saveAll();
+  }
+
+  // Saves the pending changes and returns the task infos that failed to save.
+  private static Set<TaskInfo> saveAll() {
+    Set<TaskInfo> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+    pending.removeIf(TaskInfoWriter::isFenced);
+    notInserted.removeIf(TaskInfoWriter::isFenced);
+    if (pending.isEmpty()) {
+      return failed;
+    }
+    List<TaskInfo> toSave = new ArrayList<>(pending);
+    if (save(toSave)) {
+      pending.clear();
+      notInserted.clear();
+      numFailedSaves.clear();
+      return failed;
+    }
+    LOG.warn("Failed to save " + toSave.size() + " task infos in a batch, saving them one by one");
+    for (TaskInfo taskInfo : toSave) {
+      if (!save(Collections.singletonList(taskInfo))) {
+        failed.add(taskInfo);
+        int numFailures = numFailedSaves.merge(taskInfo, 1, Integer::sum);
+        if (numFailures < MAX_SAVE_ATTEMPTS) {
+          continue;
+        }
+        LOG.error("Dropping the changes to task info " + taskInfo.getTaskUUID() + " after " +
+                  numFailures + " failed attempts");
+      }
+      pending.remove(taskInfo);
+      notInserted.remove(taskInfo);
+      numFailedSaves.remove(taskInfo);
+    }
+    return failed;
+  }
+
+  // Saves the task infos, and the progress of their parents, in a single transaction, returns
+  // whether it committed.
+  private static boolean save(List<TaskInfo> taskInfos) {
+    Transaction transaction = Ebean.beginTransaction();
+    try {
+      // The tasks with subtasks in the DB that were not saved by this class, so what they count
+      // for is not known, are counted again once written.
+      Set<UUID> recounted = new HashSet<>();
+      for (TaskInfo taskInfo : taskInfos) {
+        if (taskInfo.getParentUUID() != null && !notInserted.contains(taskInfo) &&
+            !savedContributions.containsKey(taskInfo)) {
+          recounted.add(taskInfo.getParentUUID());
+        }
+      }
+      // The subtask counts of the others are read, if needed, before anything is written.
+      Map<UUID, Map<ProgressKey, Integer>> changedProgress = new HashMap<>();
+      Map<TaskInfo, Contribution> contributions = new IdentityHashMap<>();
+      for (TaskInfo taskInfo : taskInfos) {
+        Contribution contribution = Contribution.of(taskInfo);
+        if (contribution == null || !recounted.contains(contribution.parentUUID)) {
+          addContribution(changedProgress, savedContributions.get(taskInfo), -1);
+          addContribution(changedProgress, contribution, 1);
+        }
+        contributions.put(taskInfo, contribution);
+      }
+      // Only the tasks whose subtasks changed state, group or position are saved.
+      changedProgress.entrySet().removeIf(
+          entry -> entry.getValue().equals(progressByTask.get(entry.getKey())));
+      transaction.setBatchMode(true);
+      transaction.setBatchSize(taskInfos.size() + changedProgress.size());
+      transaction.setUpdateAllLoadedProperties(true);
+      for (TaskInfo taskInfo : taskInfos) {
+        if (notInserted.contains(taskInfo)) {
+          Ebean.insert(taskInfo);
+        } else {
+          Ebean.markAsDirty(taskInfo);
+          Ebean.update(taskInfo);
+        }
+      }
+      for (Map.Entry<UUID, Map<ProgressKey, Integer>> entry : changedProgress.entrySet()) {
+        TaskInfo.saveProgress(entry.getKey(), entry.getValue());
+      }
+      // The query flushes the batch, so it counts the subtasks just written.
+      for (UUID parentUUID : recounted) {
+        Map<ProgressKey, Integer> counts = TaskInfo.loadProgressCounts(parentUUID);
+        TaskInfo.saveProgress(parentUUID, counts);
+        changedProgress.put(parentUUID, counts);
+      }
+      Ebean.commitTransaction();
+      progressByTask.putAll(changedProgress);
+      for (Map.Entry<TaskInfo, Contribution> entry : contributions.entrySet()) {
+        if (entry.getValue() == null) {
+          savedContributions.remove(entry.getKey());
+        } else {
+          savedContributions.put(entry.getKey(), entry.getValue());
+        }
+      }
+      return true;
+    } catch (Exception e) {
+      LOG.error("Failed to save " + taskInfos.size() + " task infos", e);
+      return false;
+    } finally {
+      Ebean.endTransaction();
+    }
+  }
+}
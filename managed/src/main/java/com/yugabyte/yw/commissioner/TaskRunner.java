@@ -2,11 +2,17 @@
 
 package com.yugabyte.yw.commissioner;
 
+import java.lang.reflect.Method;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import com.yugabyte.yw.models.helpers.TaskType;
@@ -17,6 +23,9 @@ import org.slf4j.LoggerFactory;
 
 import com.yugabyte.yw.forms.ITaskParams;
 import com.yugabyte.yw.models.TaskInfo;
+import com.yugabyte.yw.models.Universe;
+
+import play.libs.Json;
 
 /**
  * This class is responsible for creating and running a task. It provides all the common
@@ -30,12 +39,29 @@ public class TaskRunner implements Runnable {
   // This is a map from the task types to the classes so that we can instantiate the task.
   private static Map<TaskType, Class<? extends ITask>> taskTypeToTaskClassMap;
 
+  // Identifies this process as the owner of the tasks it runs. The hostname tells the operator
+  // where a task runs, the random part tells a restarted process from the one before it.
+  private static final String OWNER_ID = getHostname() + "/" + UUID.randomUUID();
+
   // The data underlying the task.
   private TaskInfo taskInfo;
 
   // The task object that will run the current task.
   private ITask task;
 
+  // The params the task was created with.
+  private ITaskParams taskParams;
+
+  // The positions of the subtask groups completed by an interrupted run, which the resumed run
+  // skips, or null if the task runs from the start.
+  private Set<Integer> completedPositions = null;
+
+  // The thread running the task, while it runs.
+  private Thread runThread;
+
+  // Set once another process owns the task, after which this runner saves nothing.
+  private volatile boolean aborted = false;
+
   static {
     // Initialize the map which holds the task types to their task class.
     Map<TaskType, Class<? extends ITask>> typeMap = new HashMap<TaskType, Class<? extends ITask>>();
@@ -59,7 +85,8 @@ public class TaskRunner implements Runnable {
    * Creates the task runner along with the task object and persists the task info info.
    *
    * @param taskType        : the task type
-   * @param claimTask       : if true, adds this process as the owner of the task being created
+   * @param claimTask       : if true, adds this process as the owner of the task being created,
+   *                          otherwise leaves the task for any process to claim
    * @return the TaskRunner object on which run can be called.
    * @throws InstantiationException
    * @throws IllegalAccessException
@@ -71,6 +98,7 @@ public class TaskRunner implements Runnable {
 
     // Create the task runner object.
     TaskRunner taskRunner = new TaskRunner(taskType, taskParams);
+    taskRunner.taskInfo.setOwner(claimTask ? OWNER_ID : "");
 
     // Persist the task in the queue.
     taskRunner.save();
@@ -79,6 +107,64 @@ public class TaskRunner implements Runnable {
     return taskRunner;
   }
 
+  /**
+   * Creates the task runner for a persisted task this process has just claimed. A task that never
+   * started runs from the start. A task that was interrupted continues from its first subtask
+   * group that did not complete if it is resumable, and is marked as failed otherwise.
+   *
+   * @return the TaskRunner object on which run can be called, or null if the task cannot run.
+   */
+  public static TaskRunner resumeTask(TaskInfo taskInfo) {
+    TaskRunner taskRunner;
+    try {
+      taskRunner = new TaskRunner(taskInfo);
+    } catch (Exception e) {
+      LOG.error("Could not rebuild task " + taskInfo.getTaskUUID() + " from its details", e);
+      taskInfo.setTaskState(TaskInfo.State.Failure);
+      taskInfo.save();
+      markCompleted(taskInfo.getTaskUUID());
+      return null;
+    }
+    if (taskInfo.getTaskState() == TaskInfo.State.Created) {
+      LOG.info("Claimed task, details: " + taskRunner.toString());
+      return taskRunner;
+    }
+    if (!taskRunner.task.isResumable()) {
+      LOG.warn("Task " + taskRunner.toString() + " was interrupted and cannot be resumed.");
+      taskRunner.abandon();
+      return null;
+    }
+    // Groups that may run in parallel complete out of order, so every completed group is kept,
+    // not only the ones before the first incomplete group.
+    taskRunner.completedPositions = getCompletedPositions(taskInfo.getSubTasks());
+    // The other subtasks are created again by the resumed run.
+    taskInfo.deleteIncompleteSubTasks();
+    TaskInfoWriter.forgetProgress(taskInfo.getTaskUUID());
+    TaskInfo.updateProgress(taskInfo.getTaskUUID());
+    taskRunner.task.setResumed(true);
+    LOG.info("Resuming task " + taskRunner.toString() + ", skipping completed subtask groups " +
+             taskRunner.completedPositions);
+    return taskRunner;
+  }
+
+  /**
+   * Returns the positions of the subtask groups whose subtasks all succeeded.
+   */
+  private static Set<Integer> getCompletedPositions(List<TaskInfo> subTasks) {
+    Map<Integer, Boolean> succeededByPosition = new TreeMap<>();
+    for (TaskInfo subTask : subTasks) {
+      boolean succeeded = subTask.getTaskState() == TaskInfo.State.Success;
+      succeededByPosition.merge(subTask.getPosition(), succeeded, Boolean::logicalAnd);
+    }
+    Set<Integer> positions = new TreeSet<>();
+    for (Map.Entry<Integer, Boolean> entry : succeededByPosition.entrySet()) {
+      if (entry.getValue()) {
+        positions.add(entry.getKey());
+      }
+    }
+    return positions;
+  }
+
   private TaskRunner(TaskType taskType, ITaskParams taskParams)
       throws InstantiationException, IllegalAccessException {
 
@@ -86,24 +172,62 @@ public class TaskRunner implements Runnable {
     task = taskTypeToTaskClassMap.get(taskType).newInstance();
     // Init the task.
     task.initialize(taskParams);
+    this.taskParams = taskParams;
     // Create a new task info object.
     taskInfo = new TaskInfo(taskType);
     // Set the task details.
     taskInfo.setTaskDetails(task.getTaskDetails());
-    // Set the owner info.
-    String hostname = "";
+  }
+
+  private TaskRunner(TaskInfo taskInfo) throws InstantiationException, IllegalAccessException {
+    Class<? extends ITask> taskClass = taskTypeToTaskClassMap.get(taskInfo.getTaskType());
+    task = taskClass.newInstance();
+    // The task details are the JSON form of the params the task was created with.
+    taskParams = Json.fromJson(taskInfo.getTaskDetails(), getParamsClass(taskClass));
+    task.initialize(taskParams);
+    this.taskInfo = taskInfo;
+  }
+
+  /**
+   * Returns the params class of the task, i.e. the type the most derived taskParams() returns.
+   */
+  private static Class<? extends ITaskParams> getParamsClass(Class<?> taskClass) {
+    for (Class<?> c = taskClass; c != null; c = c.getSuperclass()) {
+      try {
+        // With covariant overrides, this picks the method with the most specific return type.
+        Method method = c.getDeclaredMethod("taskParams");
+        return method.getReturnType().asSubclass(ITaskParams.class);
+      } catch (NoSuchMethodException e) {
+        // Look in the superclass.
+      }
+    }
+    throw new IllegalArgumentException("No taskParams() found in " + taskClass.getName());
+  }
+
+  private static String getHostname() {
     try {
-      hostname = InetAddress.getLocalHost().getHostName();
+      return InetAddress.getLocalHost().getHostName();
     } catch (UnknownHostException e) {
       LOG.error("Could not determine the hostname", e);
+      return "";
     }
-    taskInfo.setOwner(hostname);
+  }
+
+  /**
+   * Returns the owner id this process records on the tasks it runs.
+   */
+  public static String getOwnerId() {
+    return OWNER_ID;
   }
 
   public UUID getTaskUUID() {
     return taskInfo.getTaskUUID();
   }
 
+  public ITaskParams getTaskParams() {
+    return taskParams;
+  }
+
   /**
    * Serializes and saves the task object created so far in the persistent queue.
    */
@@ -115,6 +239,16 @@ public class TaskRunner implements Runnable {
     return taskInfo.getTaskState() == TaskInfo.State.Running;
   }
 
+  /**
+   * Returns whether the task is waiting to run or running, i.e. whether this process must keep
+   * its lease on the task.
+   */
+  public boolean isTaskActive() {
+    TaskInfo.State state = taskInfo.getTaskState();
+    return state == TaskInfo.State.Created || state == TaskInfo.State.Initializing ||
+           state == TaskInfo.State.Running;
+  }
+
   public boolean hasTaskSucceeded() {
     return taskInfo.getTaskState() == TaskInfo.State.Success;
   }
@@ -124,21 +258,55 @@ public class TaskRunner implements Runnable {
   }
 
   /**
-   * This method does two things. First, it updates the timestamp on the task to indicate progress.
-   * Second, it gives the underlying task to checkpoint its work if needed.
+   * Updates the timestamp on the tasks to indicate progress, which renews the lease of this
+   * process on them. All the tasks are updated with a single statement.
+   *
+   * @return the tasks among them that this process no longer owns.
    */
-  public void doHeartbeat() {
-    // Set the last updated timestamp of the task to now by force saving it.
-    taskInfo.markAsDirty();
-    taskInfo.save();
+  public static Set<UUID> doHeartbeat(Collection<UUID> taskUUIDs) {
+    return TaskInfo.heartbeat(taskUUIDs, OWNER_ID);
+  }
+
+  /**
+   * Gives up a task that was created but will not run here, so that any process can claim it.
+   */
+  public void release() {
+    TaskInfo.release(getTaskUUID(), OWNER_ID);
+  }
+
+  /**
+   * Stops the task once this process lost it to another one: interrupts its run, and keeps it and
+   * its subtasks from saving anything from then on. The new owner completes the task.
+   */
+  public void abort() {
+    TaskInfoWriter.fence(getTaskUUID());
+    synchronized (this) {
+      aborted = true;
+      if (runThread != null) {
+        runThread.interrupt();
+      }
+    }
   }
 
   @Override
   public void run() {
+    synchronized (this) {
+      if (aborted) {
+        LOG.info("Not running task " + getTaskUUID() + ", now owned by another process.");
+        return;
+      }
+      runThread = Thread.currentThread();
+    }
     LOG.info("Running task");
     task.setUserTaskUUID(getTaskUUID());
-    updateTaskState(TaskInfo.State.Running);
+    if (completedPositions != null) {
+      SubTaskGroupQueue.setCompletedPositions(getTaskUUID(), completedPositions);
+    }
     try {
+      if (!updateTaskState(TaskInfo.State.Running)) {
+        return;
+      }
+
       // Run the task.
       task.run();
 
@@ -152,32 +320,72 @@ public class TaskRunner implements Runnable {
       updateTaskState(TaskInfo.State.Failure);
 
     } finally {
-      // Update the customer task to a completed state.
-      CustomerTask customerTask = CustomerTask.findByTaskUUID(taskInfo.getTaskUUID());
-      if (customerTask != null) {
-        customerTask.markAsCompleted();
+      synchronized (this) {
+        runThread = null;
       }
-
-      // In case it was a scheduled task, update state of the task.
-      ScheduleTask scheduleTask = ScheduleTask.fetchByTaskUUID(getTaskUUID());
-      if (scheduleTask != null) {
-        scheduleTask.setCompletedTime();
+      if (aborted) {
+        // Do not leave the interrupt to whatever runs next on this thread.
+        Thread.interrupted();
+      }
+      SubTaskGroupQueue.clearCompletedPositions(getTaskUUID());
+      Universe.clearWriteLeases(getTaskUUID());
+      if (!aborted) {
+        markCompleted(getTaskUUID());
       }
     }
   }
 
+  /**
+   * Marks a task that will never run, or never run to completion, as failed.
+   */
+  public void abandon() {
+    updateTaskState(TaskInfo.State.Failure);
+    markCompleted(getTaskUUID());
+  }
+
+  private static void markCompleted(UUID taskUUID) {
+    // Update the customer task to a completed state.
+    CustomerTask customerTask = CustomerTask.findByTaskUUID(taskUUID);
+    if (customerTask != null) {
+      customerTask.markAsCompleted();
+    }
+
+    // In case it was a scheduled task, update state of the task.
+    ScheduleTask scheduleTask = ScheduleTask.fetchByTaskUUID(taskUUID);
+    if (scheduleTask != null) {
+      scheduleTask.setCompletedTime();
+    }
+  }
+
   public String getState() {
     return taskInfo.getTaskState().toString();
   }
 
   /**
-   * Updates the task state and saves it to the persistent queue.
+   * Updates the task state and saves it to the persistent queue, as long as this process still
+   * owns the task.
    * @param newState
+   * @return false if the task is now owned by another process.
    */
-  private void updateTaskState(TaskInfo.State newState) {
+  private boolean updateTaskState(TaskInfo.State newState) {
+    if (aborted) {
+      LOG.warn("Not updating task " + getTaskUUID() + " owned by another process to " + newState);
+      return false;
+    }
     LOG.info("Updating task [" + taskInfo.toString() + "] to new state " + newState);
+    // Save the pending subtask changes first, so that they are in place once the task completes.
+    TaskInfoWriter.flush();
     taskInfo.setTaskState(newState);
-    taskInfo.save();
+    if (!TaskInfo.updateState(getTaskUUID(), newState, OWNER_ID)) {
+      LOG.error("Task " + getTaskUUID() + " is now owned by another process.");
+      abort();
+      return false;
+    }
+    if (!isTaskActive()) {
+      // The subtasks will not change anymore, their progress was saved by the flush.
+      TaskInfoWriter.forgetProgress(getTaskUUID());
+    }
+    return true;
   }
 
   @Override
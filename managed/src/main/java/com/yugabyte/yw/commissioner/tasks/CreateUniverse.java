@@ -61,8 +61,8 @@ public class CreateUniverse extends UniverseDefinitionTaskBase {
 
       // Get all information about the nodes of the cluster. This includes the public ip address,
       // the private ip address (in the case of AWS), etc.
-      createServerInfoTasks(taskParams().nodeDetailsSet)
-          .setSubTaskGroupType(SubTaskGroupType.Provisioning);
+      SubTaskGroup serverInfoTasks = createServerInfoTasks(taskParams().nodeDetailsSet);
+      serverInfoTasks.setSubTaskGroupType(SubTaskGroupType.Provisioning);
 
       // Configures and deploys software on all the nodes (masters and tservers).
       createConfigureServerTasks(taskParams().nodeDetailsSet, false /* isShell */)
@@ -115,19 +115,24 @@ public class CreateUniverse extends UniverseDefinitionTaskBase {
       createWaitForTServerHeartBeatsTask()
           .setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
 
-      // Update the swamper target file.
-      createSwamperTargetUpdateTask(false /* removeFile */);
+      // Update the swamper target file. It only needs the node addresses, so it does not wait for
+      // the servers to come up.
+      SubTaskGroup swamperTasks = createSwamperTargetUpdateTask(false /* removeFile */);
+      subTaskGroupQueue.setDependencies(swamperTasks, serverInfoTasks);
 
       // Create a simple redis table.
       createTableTask(Common.TableType.REDIS_TABLE_TYPE, YBClient.REDIS_DEFAULT_TABLE_NAME, null)
           .setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
 
-      // Update the DNS entry for all the nodes once, using the primary cluster type.
-      createDnsManipulationTask(DnsManager.DnsCommandType.Create, false,
-                                primaryCluster.userIntent.providerType,
-                                primaryCluster.userIntent.provider,
-                                primaryCluster.userIntent.universeName)
-          .setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+      // Update the DNS entry for all the nodes once, using the primary cluster type. This too only
+      // needs the node addresses.
+      SubTaskGroup dnsTasks =
+          createDnsManipulationTask(DnsManager.DnsCommandType.Create, false,
+                                    primaryCluster.userIntent.providerType,
+                                    primaryCluster.userIntent.provider,
+                                    primaryCluster.userIntent.universeName);
+      dnsTasks.setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
+      subTaskGroupQueue.setDependencies(dnsTasks, serverInfoTasks);
 
       // Marks the update of this universe as a success only if all the tasks before it succeeded.
       createMarkUniverseUpdateSuccessTasks()
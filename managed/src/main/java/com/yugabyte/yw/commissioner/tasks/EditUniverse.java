@@ -216,16 +216,18 @@ public class EditUniverse extends UniverseDefinitionTaskBase {
     }
 
     // Update the blacklist servers on master leader.
-    createPlacementInfoTask(tserversToBeRemoved)
-        .setSubTaskGroupType(SubTaskGroupType.WaitForDataMigration);
+    SubTaskGroup placementInfoTasks = createPlacementInfoTask(tserversToBeRemoved);
+    placementInfoTasks.setSubTaskGroupType(SubTaskGroupType.WaitForDataMigration);
 
     // Update the swamper target file.
     createSwamperTargetUpdateTask(false /* removeFile */);
 
+    // The wait for the data to move only depends on the new placement, so the swamper update
+    // does not hold it up.
+    SubTaskGroup waitForDataTasks;
     if (!nodesToBeRemoved.isEmpty()) {
       // Wait for %age completion of the tablet move from master.
-      createWaitForDataMoveTask()
-          .setSubTaskGroupType(SubTaskGroupType.WaitForDataMigration);
+      waitForDataTasks = createWaitForDataMoveTask();
     } else {
       if (!tserversToBeRemoved.isEmpty()) {
         String errMsg = "Universe shrink should have been handled using node decommision.";
@@ -233,9 +235,10 @@ public class EditUniverse extends UniverseDefinitionTaskBase {
         throw new IllegalStateException(errMsg);
       }
       // If only tservers are added, wait for load to balance across all tservers.
-      createWaitForLoadBalanceTask()
-          .setSubTaskGroupType(SubTaskGroupType.WaitForDataMigration);
+      waitForDataTasks = createWaitForLoadBalanceTask();
     }
+    waitForDataTasks.setSubTaskGroupType(SubTaskGroupType.WaitForDataMigration);
+    subTaskGroupQueue.setDependencies(waitForDataTasks, placementInfoTasks);
 
     if (cluster.clusterType == ClusterType.PRIMARY &&
         PlacementInfoUtil.didAffinitizedLeadersChange(
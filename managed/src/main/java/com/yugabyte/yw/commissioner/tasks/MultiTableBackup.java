@@ -10,6 +10,7 @@
 
 package com.yugabyte.yw.commissioner.tasks;
 
+import com.yugabyte.yw.commissioner.SubTaskGroup;
 import com.yugabyte.yw.commissioner.SubTaskGroupQueue;
 import com.yugabyte.yw.commissioner.UserTaskDetails;
 import com.yugabyte.yw.common.services.YBClientService;
@@ -142,8 +143,10 @@ public class MultiTableBackup extends UniverseTaskBase {
       LOG.info("Successfully started scheduled backup of tables.");
       for (BackupTableParams tableParams : tableBackupParams) {
         Backup backup = Backup.create(params().customerUUID, tableParams);
-        createTableBackupTask(tableParams, backup).setSubTaskGroupType(
-            UserTaskDetails.SubTaskGroupType.CreatingTableBackup);
+        SubTaskGroup backupTask = createTableBackupTask(tableParams, backup);
+        backupTask.setSubTaskGroupType(UserTaskDetails.SubTaskGroupType.CreatingTableBackup);
+        // The tables are backed up independently of each other.
+        subTaskGroupQueue.setDependencies(backupTask);
       }
 
       // Marks the update of this universe as a success only if all the tasks before it succeeded.
@@ -5,6 +5,7 @@ package com.yugabyte.yw.commissioner.tasks;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
@@ -23,6 +24,7 @@ import com.google.common.net.HostAndPort;
 import com.yugabyte.yw.commissioner.Common.CloudType;
 import com.yugabyte.yw.commissioner.AbstractTaskBase;
 import com.yugabyte.yw.commissioner.SubTaskGroup;
+import com.yugabyte.yw.commissioner.TaskRunner;
 import com.yugabyte.yw.commissioner.UserTaskDetails;
 import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskGroupType;
 import com.yugabyte.yw.commissioner.tasks.UniverseDefinitionTaskBase.ServerType;
@@ -48,6 +50,8 @@ import com.yugabyte.yw.commissioner.tasks.subtasks.UpdateSoftwareVersion;
 import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForEncryptionKeyInMemory;
 import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForServer;
 import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForServerReady;
+import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForTServerHeartBeats;
+import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForUnderReplicatedTablets;
 import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForDataMove;
 import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForLeadersOnPreferredOnly;
 import com.yugabyte.yw.commissioner.tasks.subtasks.WaitForLoadBalance;
@@ -146,9 +150,19 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
   }
 
   private Universe lockUniverseForUpdate(int expectedUniverseVersion, UniverseUpdater updater) {
+    // From the lock on, the updates of the universe only apply while this process owns the task.
+    if (userTaskUUID != null) {
+      Universe.setWriteLease(taskParams().universeUUID, userTaskUUID, TaskRunner.getOwnerId());
+    }
     // Perform the update. If unsuccessful, this will throw a runtime exception which we do not
     // catch as we want to fail.
-    Universe universe = Universe.saveDetails(taskParams().universeUUID, updater);
+    Universe universe;
+    try {
+      universe = Universe.saveDetails(taskParams().universeUUID, updater);
+    } catch (RuntimeException e) {
+      Universe.clearWriteLease(taskParams().universeUUID, userTaskUUID);
+      throw e;
+    }
     universeLocked = true;
     LOG.debug("Locked universe {} at version {}.", taskParams().universeUUID,
       expectedUniverseVersion);
@@ -249,6 +263,10 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
    *                                version. -1 implies always lock the universe.
    */
   public Universe lockUniverseForUpdate(int expectedUniverseVersion) {
+    if (isResumed()) {
+      // The interrupted run may have locked, and updated, the universe already.
+      return forceLockUniverseForUpdate(-1);
+    }
     UniverseUpdater updater = getLockingUniverseUpdater(expectedUniverseVersion, true);
     return lockUniverseForUpdate(expectedUniverseVersion, updater);
   }
@@ -297,6 +315,7 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
     // Perform the update. If unsuccessful, this will throw a runtime exception which we do not
     // catch as we want to fail.
     Universe.saveDetails(taskParams().universeUUID, updater);
+    Universe.clearWriteLease(taskParams().universeUUID, userTaskUUID);
     LOG.debug("Unlocked universe {} for updates.", taskParams().universeUUID);
   }
 
@@ -434,13 +453,60 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
    */
   public SubTaskGroup createWaitForServerReady(NodeDetails node, ServerType serverType,
                                                int sleepTimeMs) {
+    return createWaitForServersReady(Collections.singletonList(node), serverType, sleepTimeMs,
+                                     false /* waitOnlyUntilReady */);
+  }
+
+  /**
+   * Creates a task list to wait, in parallel, for the servers to be ready to serve requests.
+   *
+   * @param sleepTimeMs : the time to wait for, in case the servers cannot tell whether they are
+   *                      ready, or always if waitOnlyUntilReady is not set.
+   * @param waitOnlyUntilReady : whether to stop waiting as soon as the servers are ready, and to
+   *                             fail if they do not get ready in time.
+   */
+  public SubTaskGroup createWaitForServersReady(Collection<NodeDetails> nodes,
+                                                ServerType serverType, int sleepTimeMs,
+                                                boolean waitOnlyUntilReady) {
     SubTaskGroup subTaskGroup = new SubTaskGroup("WaitForServerReady", executor);
-    WaitForServerReady.Params params = new WaitForServerReady.Params();
+    for (NodeDetails node : nodes) {
+      WaitForServerReady.Params params = new WaitForServerReady.Params();
+      params.universeUUID = taskParams().universeUUID;
+      params.nodeName = node.nodeName;
+      params.serverType = serverType;
+      params.waitTimeMs = sleepTimeMs;
+      params.waitOnlyUntilReady = waitOnlyUntilReady;
+      WaitForServerReady task = new WaitForServerReady();
+      task.initialize(params);
+      subTaskGroup.addTask(task);
+    }
+    subTaskGroupQueue.add(subTaskGroup);
+    return subTaskGroup;
+  }
+
+  /**
+   * Creates a task list to wait for a minimum number of tservers to heartbeat
+   * to the master leader.
+   */
+  public SubTaskGroup createWaitForTServerHeartBeatsTask() {
+    SubTaskGroup subTaskGroup = new SubTaskGroup("WaitForTServerHeartBeats", executor);
+    WaitForTServerHeartBeats task = new WaitForTServerHeartBeats();
+    WaitForTServerHeartBeats.Params params = new WaitForTServerHeartBeats.Params();
+    params.universeUUID = taskParams().universeUUID;
+    task.initialize(params);
+    subTaskGroup.addTask(task);
+    subTaskGroupQueue.add(subTaskGroup);
+    return subTaskGroup;
+  }
+
+  /**
+   * Creates a task list to wait for the master leader to report no under-replicated tablets.
+   */
+  public SubTaskGroup createWaitForUnderReplicatedTabletsTask() {
+    SubTaskGroup subTaskGroup = new SubTaskGroup("WaitForUnderReplicatedTablets", executor);
+    WaitForUnderReplicatedTablets task = new WaitForUnderReplicatedTablets();
+    WaitForUnderReplicatedTablets.Params params = new WaitForUnderReplicatedTablets.Params();
     params.universeUUID = taskParams().universeUUID;
-    params.nodeName = node.nodeName;
-    params.serverType = serverType;
-    params.waitTimeMs = sleepTimeMs;
-    WaitForServerReady task = new WaitForServerReady();
     task.initialize(params);
     subTaskGroup.addTask(task);
     subTaskGroupQueue.add(subTaskGroup);
@@ -513,8 +579,9 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
    * Create a task to update the swamper target file
    *
    * @param removeFile, flag to state if we want to remove the swamper or not
+   * @return subtask group
    */
-  public void createSwamperTargetUpdateTask(boolean removeFile) {
+  public SubTaskGroup createSwamperTargetUpdateTask(boolean removeFile) {
     SubTaskGroup subTaskGroup = new SubTaskGroup("SwamperTargetFileUpdate", executor);
     SwamperTargetsFileUpdate.Params params = new SwamperTargetsFileUpdate.Params();
     SwamperTargetsFileUpdate task = new SwamperTargetsFileUpdate();
@@ -524,6 +591,7 @@ public abstract class UniverseTaskBase extends AbstractTaskBase {
     subTaskGroup.setSubTaskGroupType(SubTaskGroupType.ConfigureUniverse);
     subTaskGroup.addTask(task);
     subTaskGroupQueue.add(subTaskGroup);
+    return subTaskGroup;
   }
 
   /**
@@ -18,11 +18,15 @@ import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskGroupType;
 import com.yugabyte.yw.commissioner.tasks.UniverseDefinitionTaskBase.ServerType;
 import com.yugabyte.yw.commissioner.tasks.UniverseDefinitionTaskBase;
 import com.yugabyte.yw.commissioner.tasks.subtasks.AnsibleConfigureServers;
+import com.yugabyte.yw.common.PlacementInfoUtil;
 import com.yugabyte.yw.forms.UpgradeParams;
+import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
+import com.yugabyte.yw.forms.UniverseDefinitionTaskParams.Cluster;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams.UserIntent;
 import com.yugabyte.yw.models.Universe;
 import com.yugabyte.yw.models.helpers.CloudSpecificInfo;
 import com.yugabyte.yw.models.helpers.NodeDetails;
+import com.yugabyte.yw.models.helpers.PlacementInfo.PlacementAZ;
 
 import static com.yugabyte.yw.models.helpers.NodeDetails.NodeState.UpgradeSoftware;
 import static com.yugabyte.yw.models.helpers.NodeDetails.NodeState.UpdateGFlags;
@@ -30,7 +34,9 @@ import static com.yugabyte.yw.models.helpers.NodeDetails.NodeState.UpdateGFlags;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -61,6 +67,13 @@ public class UpgradeUniverse extends UniverseTaskBase {
     return (UpgradeParams)taskParams;
   }
 
+  // Each node is upgraded by its own subtask groups, which are safe to run again, so an upgrade
+  // interrupted by a platform restart picks up with the node it was on.
+  @Override
+  public boolean isResumable() {
+    return true;
+  }
+
   @Override
   public void run() {
     try {
@@ -103,7 +116,8 @@ public class UpgradeUniverse extends UniverseTaskBase {
 
           switch (taskParams().upgradeOption) {
             case ROLLING_UPGRADE:
-              // Disable the load balancer for rolling upgrade.
+              // Disable the load balancer for rolling upgrade, after the download so that a
+              // failed download leaves it enabled.
               createLoadBalancerStateChangeTask(false /*enable*/)
                   .setSubTaskGroupType(getTaskSubGroupType());
 
@@ -237,8 +251,17 @@ public class UpgradeUniverse extends UniverseTaskBase {
                                      ServerType processType) {
     switch (taskParams().upgradeOption) {
       case ROLLING_UPGRADE:
-        for (NodeDetails node : nodes) {
-          createSingleNodeUpgradeTasks(node, processType);
+        if (isBatchedRollingUpgrade() && processType == ServerType.TSERVER) {
+          UniverseDefinitionTaskParams universeDetails =
+              Universe.get(taskParams().universeUUID).getUniverseDetails();
+          for (List<NodeDetails> batch : getUpgradeBatches(
+                   nodes, taskParams().rollingUpgradeBatchSize, universeDetails)) {
+            createBatchUpgradeTasks(batch, processType);
+          }
+        } else {
+          for (NodeDetails node : nodes) {
+            createSingleNodeUpgradeTasks(node, processType);
+          }
         }
         break;
       case NON_ROLLING_UPGRADE:
@@ -303,12 +326,100 @@ public class UpgradeUniverse extends UniverseTaskBase {
 
     createServerControlTask(node, processType, "start").setSubTaskGroupType(subGroupType);
     createWaitForServersTasks(new HashSet<NodeDetails>(Arrays.asList(node)), processType);
-    createWaitForServerReady(node, processType, getSleepTimeForProcess(processType))
+    createWaitForServersReady(Arrays.asList(node), processType, getSleepTimeForProcess(processType),
+                              isBatchedRollingUpgrade())
         .setSubTaskGroupType(subGroupType);
     createWaitForKeyInMemoryTask(node);
     createSetNodeStateTask(node, NodeDetails.NodeState.Live).setSubTaskGroupType(subGroupType);
   }
 
+  private boolean isBatchedRollingUpgrade() {
+    return taskParams().rollingUpgradeBatchSize != null;
+  }
+
+  // Splits the nodes into batches of the same zone, one zone after the other, so that a batch
+  // never takes down replicas in more than one zone. Within a zone, a batch holds at most
+  // batchSize nodes, and no more than keep a majority of the replicas of every tablet up.
+  static List<List<NodeDetails>> getUpgradeBatches(List<NodeDetails> nodes, int batchSize,
+                                                   UniverseDefinitionTaskParams universeDetails) {
+    Map<UUID, List<NodeDetails>> nodesByZone = new LinkedHashMap<>();
+    for (NodeDetails node : nodes) {
+      nodesByZone.computeIfAbsent(node.azUuid, k -> new ArrayList<>()).add(node);
+    }
+    List<List<NodeDetails>> batches = new ArrayList<>();
+    for (List<NodeDetails> zoneNodes : nodesByZone.values()) {
+      int zoneBatchSize = getSafeBatchSize(zoneNodes.get(0), batchSize, universeDetails);
+      for (int i = 0; i < zoneNodes.size(); i += zoneBatchSize) {
+        batches.add(zoneNodes.subList(i, Math.min(i + zoneBatchSize, zoneNodes.size())));
+      }
+    }
+    return batches;
+  }
+
+  // A tablet keeps a majority as long as at most (RF - 1) / 2 of its replicas are down. A batch
+  // of the zone of the node takes down at most as many replicas of a tablet as the zone holds, so
+  // when the zone holds no more than that, the batch may be as large as asked. Otherwise, or when
+  // the placement of the zone is unknown, the batch is capped to (RF - 1) / 2 nodes.
+  private static int getSafeBatchSize(NodeDetails node, int batchSize,
+                                      UniverseDefinitionTaskParams universeDetails) {
+    batchSize = Math.max(1, batchSize);
+    Cluster cluster = universeDetails.getClusterByUuid(node.placementUuid);
+    if (cluster == null) {
+      return 1;
+    }
+    int replicationFactor = cluster.userIntent.replicationFactor;
+    int maxReplicasDown = (replicationFactor - 1) / 2;
+    if (maxReplicasDown == 0) {
+      // RF 1 and 2 cannot lose any replica, one node at a time as without batches.
+      return 1;
+    }
+    PlacementAZ placementAZ = cluster.placementInfo == null || node.azUuid == null ? null :
+        PlacementInfoUtil.findPlacementAzByUuid(cluster.placementInfo, node.azUuid);
+    int zoneReplicas = placementAZ == null ? replicationFactor : placementAZ.replicationFactor;
+    if (zoneReplicas <= maxReplicasDown) {
+      return batchSize;
+    }
+    return Math.min(batchSize, maxReplicasDown);
+  }
+
+  // This is used for batched rolling upgrade: the nodes of a batch are upgraded together, and the
+  // next batch starts once they are all ready, all the tservers heartbeat to the master leader and
+  // no tablet is under-replicated.
+  private void createBatchUpgradeTasks(List<NodeDetails> nodes, ServerType processType) {
+    NodeDetails.NodeState nodeState = taskParams().taskType == UpgradeTaskType.Software
+        ? UpgradeSoftware : UpdateGFlags;
+    SubTaskGroupType subGroupType = getTaskSubGroupType();
+    createSetNodeStateTasks(nodes, nodeState).setSubTaskGroupType(subGroupType);
+    if (taskParams().taskType == UpgradeTaskType.Software) {
+      createServerControlTasks(nodes, processType, "stop").setSubTaskGroupType(subGroupType);
+      SubTaskGroup subTaskGroup = new SubTaskGroup(String.format(
+          "AnsibleConfigureServers (%s) for: %s", SubTaskGroupType.InstallingSoftware,
+          taskParams().nodePrefix), executor);
+      for (NodeDetails node : nodes) {
+        subTaskGroup.addTask(getConfigureTask(node, processType, UpgradeTaskType.Software,
+                                              UpgradeTaskSubType.Install));
+      }
+      subTaskGroup.setSubTaskGroupType(SubTaskGroupType.InstallingSoftware);
+      subTaskGroupQueue.add(subTaskGroup);
+    } else if (taskParams().taskType == UpgradeTaskType.GFlags) {
+      createServerConfFileUpdateTasks(nodes, processType);
+      // Stop is done after conf file update to reduce unavailability.
+      createServerControlTasks(nodes, processType, "stop").setSubTaskGroupType(subGroupType);
+    }
+
+    createServerControlTasks(nodes, processType, "start").setSubTaskGroupType(subGroupType);
+    createWaitForServersTasks(nodes, processType);
+    createWaitForServersReady(nodes, processType, getSleepTimeForProcess(processType),
+                              true /* waitOnlyUntilReady */)
+        .setSubTaskGroupType(subGroupType);
+    for (NodeDetails node : nodes) {
+      createWaitForKeyInMemoryTask(node);
+    }
+    createWaitForTServerHeartBeatsTask().setSubTaskGroupType(subGroupType);
+    createWaitForUnderReplicatedTabletsTask().setSubTaskGroupType(subGroupType);
+    createSetNodeStateTasks(nodes, NodeDetails.NodeState.Live).setSubTaskGroupType(subGroupType);
+  }
+
   private void createNonRestartUpgradeTasks(List<NodeDetails> nodes, ServerType processType) {
     SubTaskGroupType subGroupType = getTaskSubGroupType();
     createSetNodeStateTasks(nodes, UpdateGFlags).setSubTaskGroupType(subGroupType);
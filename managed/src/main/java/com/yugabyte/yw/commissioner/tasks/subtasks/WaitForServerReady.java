@@ -40,6 +40,10 @@ public class WaitForServerReady extends ServerSubTaskBase {
   public static class Params extends ServerSubTaskParams {
     // Time to wait (as a backup) in case the server does not support is-ready check rpc.
     public int waitTimeMs;
+
+    // Whether to return as soon as the server is ready, rather than after waitTimeMs, and to fail
+    // if it does not get ready in time. waitTimeMs still applies if the server cannot tell.
+    public boolean waitOnlyUntilReady;
   }
 
   @Override
@@ -77,6 +81,8 @@ public class WaitForServerReady extends ServerSubTaskBase {
     boolean isTserverTask = taskParams().serverType == ServerType.TSERVER;
 
     IsServerReadyResponse response = null;
+    boolean ready = false;
+    boolean timedOut = false;
     try {
       while (true) {
         numIters++;
@@ -91,12 +97,14 @@ public class WaitForServerReady extends ServerSubTaskBase {
         if (response.getNumNotRunningTablets() == 0) {
           LOG.info("{} on node {} ready after iters={}.",
                    taskParams().serverType, taskParams().nodeName, numIters);
+          ready = true;
           break;
         }
 
         if (numIters > (MAX_TOTAL_WAIT_MS / WAIT_EACH_ATTEMPT_MS)) {
           LOG.info("Timing out after iters={}. {} tablets not running, out of {}.",
                    numIters, response.getNumNotRunningTablets(), response.getTotalTablets());
+          timedOut = true;
           break;
         }
 
@@ -114,8 +122,17 @@ public class WaitForServerReady extends ServerSubTaskBase {
       LOG.info("{} hit exception '{}' after {} iters.", getName(), e.getMessage(), numIters);
     }
 
-    // Sleep for the remaining portion of user specified time, if any.
-    sleepRemaining(userWaitTimeMs, numIters);
+    if (taskParams().waitOnlyUntilReady && timedOut) {
+      closeClient(client);
+      throw new RuntimeException(taskParams().serverType + " on node " + taskParams().nodeName +
+          " not ready, " + response.getNumNotRunningTablets() + " tablets not running out of " +
+          response.getTotalTablets() + ".");
+    }
+
+    if (!(taskParams().waitOnlyUntilReady && ready)) {
+      // Sleep for the remaining portion of user specified time, if any.
+      sleepRemaining(userWaitTimeMs, numIters);
+    }
     closeClient(client);
   }
 }
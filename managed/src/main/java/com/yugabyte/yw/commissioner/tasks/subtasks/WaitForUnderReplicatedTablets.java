@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 YugaByte, Inc. and Contributors
+ *
+ * Licensed under the Polyform Free Trial License 1.0.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ *     https://github.com/YugaByte/yugabyte-db/blob/master/licenses/POLYFORM-FREE-TRIAL-LICENSE-1.0.0.txt
+ */
+
+package com.yugabyte.yw.commissioner.tasks.subtasks;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.yugabyte.yw.commissioner.AbstractTaskBase;
+import com.yugabyte.yw.common.ApiHelper;
+import com.yugabyte.yw.forms.ITaskParams;
+import com.yugabyte.yw.forms.UniverseTaskParams;
+import com.yugabyte.yw.models.Universe;
+import com.yugabyte.yw.models.helpers.NodeDetails;
+
+import play.api.Play;
+
+// Waits for the master leader to report no under-replicated tablets, i.e. for every tablet to
+// have all its replicas back, so that restarting the next servers of a rolling upgrade cannot
+// take a tablet below a majority of its replicas.
+public class WaitForUnderReplicatedTablets extends AbstractTaskBase {
+  public static final Logger LOG = LoggerFactory.getLogger(WaitForUnderReplicatedTablets.class);
+
+  private ApiHelper apiHelper = null;
+
+  // Timeout when tablets are still under-replicated.
+  private static final long TIMEOUT_SERVER_WAIT_MS = 600000;
+
+  // Time to wait (in millisec) during each iteration of check.
+  private static final int WAIT_EACH_ATTEMPT_MS = 1000;
+
+  // Log after these many iterations.
+  private static final int LOG_EVERY_NUM_ITERS = 30;
+
+  // Parameters for under-replicated tablets wait task.
+  public static class Params extends UniverseTaskParams { }
+
+  @Override
+  protected Params taskParams() {
+    return (Params)taskParams;
+  }
+
+  @Override
+  public void initialize(ITaskParams params) {
+    super.initialize(params);
+    apiHelper = Play.current().injector().instanceOf(ApiHelper.class);
+  }
+
+  @Override
+  public String getName() {
+    return super.getName() + "(" + taskParams().universeUUID + ")";
+  }
+
+  @Override
+  public void run() {
+    int numIters = 0;
+    int numUnderReplicated = -1;
+    long start = System.currentTimeMillis();
+    do {
+      numIters++;
+      try {
+        numUnderReplicated = getNumUnderReplicatedTablets();
+        if (numUnderReplicated < 0) {
+          // Like the server readiness check, servers that cannot tell are not waited on.
+          LOG.info("{}: master does not report under-replicated tablets, not waiting.", getName());
+          return;
+        }
+        if (numUnderReplicated == 0) {
+          LOG.info("{}: no under-replicated tablets after iters={}.", getName(), numIters);
+          return;
+        }
+        if (numIters % LOG_EVERY_NUM_ITERS == 0) {
+          LOG.info("{}: {} under-replicated tablets after iters={}.", getName(),
+                   numUnderReplicated, numIters);
+        }
+      } catch (Exception e) {
+        LOG.warn("{}: ignoring error '{}'.", getName(), e.getMessage());
+      }
+      try {
+        Thread.sleep(WAIT_EACH_ATTEMPT_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(getName() + " interrupted.");
+      }
+    } while (System.currentTimeMillis() < start + TIMEOUT_SERVER_WAIT_MS);
+
+    throw new RuntimeException(getName() + " timed out, " + numUnderReplicated +
+                               " under-replicated tablets.");
+  }
+
+  // Reads the under-replicated tablets off the health check of the master leader, -1 if the
+  // master does not report them.
+  private int getNumUnderReplicatedTablets() {
+    Universe universe = Universe.get(taskParams().universeUUID);
+    String masterLeaderHost = universe.getMasterLeaderHostText();
+    if (masterLeaderHost.isEmpty()) {
+      throw new RuntimeException("Could not find the master leader.");
+    }
+    int masterHttpPort = new NodeDetails().masterHttpPort;
+    for (NodeDetails node : universe.getMasters()) {
+      if (masterLeaderHost.equals(node.cloudInfo.private_ip)) {
+        masterHttpPort = node.masterHttpPort;
+      }
+    }
+    JsonNode response = apiHelper.getRequest(
+        "http://" + masterLeaderHost + ":" + masterHttpPort + "/api/v1/health-check");
+    if (response.has("error")) {
+      throw new RuntimeException(response.get("error").asText());
+    }
+    JsonNode underReplicated = response.get("under_replicated_tablets");
+    return underReplicated != null && underReplicated.isArray() ? underReplicated.size() : -1;
+  }
+}
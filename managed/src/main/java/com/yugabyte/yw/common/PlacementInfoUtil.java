@@ -139,7 +139,7 @@ public class PlacementInfoUtil {
    * @param azUUID        UUID of the PlacementAZ to look for.
    * @return The specified PlacementAZ if it exists, else null.
    */
-  private static PlacementAZ findPlacementAzByUuid(PlacementInfo placementInfo, UUID azUUID) {
+  public static PlacementAZ findPlacementAzByUuid(PlacementInfo placementInfo, UUID azUUID) {
     for (PlacementCloud cloud : placementInfo.cloudList) {
       for (PlacementRegion region : cloud.regionList) {
         for (PlacementAZ az : region.azList) {
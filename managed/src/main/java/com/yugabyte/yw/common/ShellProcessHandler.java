@@ -63,12 +63,13 @@ public class ShellProcessHandler {
 
         File tempOutputFile = null;
         File tempErrorFile = null;
+        Process process = null;
         try {
             tempOutputFile = File.createTempFile("shell_process_out", "tmp");
             tempErrorFile = File.createTempFile("shell_process_err", "tmp");
             pb.redirectOutput(tempOutputFile);
             pb.redirectError(tempErrorFile);
-            Process process = pb.start();
+            process = pb.start();
             response.code = process.waitFor();
             String processOutput = fetchStream(new FileInputStream(tempOutputFile), logCmdOutput);
             String processError = fetchStream(new FileInputStream(tempErrorFile), logCmdOutput);
@@ -76,6 +77,16 @@ public class ShellProcessHandler {
         } catch (IOException | InterruptedException e) {
             LOG.error(e.getMessage());
             response.message = e.getMessage();
+            if (e instanceof InterruptedException) {
+                // Do not leave the command running, and let the caller see the interrupt. The
+                // command did not complete, whatever it returned once killed.
+                if (process != null) {
+                    process.destroyForcibly();
+                }
+                response.code = -1;
+                response.message = "Interrupted while running " + String.join(" ", command);
+                Thread.currentThread().interrupt();
+            }
         } finally {
             if (tempOutputFile != null && tempOutputFile.exists()) {
                 tempOutputFile.delete();
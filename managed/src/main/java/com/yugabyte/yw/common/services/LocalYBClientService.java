@@ -2,41 +2,144 @@
 
 package com.yugabyte.yw.common.services;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import javax.inject.Singleton;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.yb.client.YBClient;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Hands out clients from a cache keyed by the master addresses and cert file, so that callers
+ * share the connections to the masters instead of setting up a new client each time. Each
+ * getClient takes a reference on the client which closeClient releases, and clients that have
+ * not been referenced for IDLE_TIMEOUT_MS are closed. A universe whose masters changed gets a new
+ * client, and the old one is closed once idle.
+ */
 @Singleton
 public class LocalYBClientService implements YBClientService {
   public static final Logger LOG = LoggerFactory.getLogger(LocalYBClientService.class);
 
+  // How long a client is kept after its last reference is released.
+  static final long IDLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+  // How often to look for idle clients.
+  private static final long EVICT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+  private static class CachedClient {
+    final String key;
+    final YBClient client;
+    int refCount = 0;
+    long lastReleaseTime;
+
+    CachedClient(String key, YBClient client) {
+      this.key = key;
+      this.client = client;
+    }
+  }
+
+  // The clients by key, and by client for closeClient.
+  private final Map<String, CachedClient> clients = new HashMap<>();
+  private final Map<YBClient, CachedClient> clientsByInstance = new IdentityHashMap<>();
+
+  // The netty boss and worker threads of all the clients run on this pool, so that they are
+  // reused across clients. Clients only get it as an Executor, since netty shuts down any
+  // ExecutorService it is handed when the client is closed.
+  private final ExecutorService nioThreadPool = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setNameFormat("yb-client-nio-%d").setDaemon(true).build());
+  private final Executor nioExecutor = nioThreadPool::execute;
+
+  public LocalYBClientService() {
+    ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("yb-client-evictor").setDaemon(true).build());
+    evictor.scheduleWithFixedDelay(() -> evictIdleClients(IDLE_TIMEOUT_MS), EVICT_INTERVAL_MS,
+                                   EVICT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
   @Override
-  public synchronized YBClient getClient(String masterHostPorts) {
+  public YBClient getClient(String masterHostPorts) {
     return getClient(masterHostPorts, null);
   }
 
   @Override
   public synchronized YBClient getClient(String masterHostPorts, String certFile) {
-    if (masterHostPorts != null) {
-      return getNewClient(masterHostPorts, certFile);
+    if (masterHostPorts == null) {
+      return null;
     }
-    return null;
+    String key = getKey(masterHostPorts, certFile);
+    CachedClient cachedClient = clients.get(key);
+    if (cachedClient == null) {
+      LOG.info("Creating client masters={}.", masterHostPorts);
+      cachedClient = new CachedClient(key, getNewClient(masterHostPorts, certFile));
+      clients.put(key, cachedClient);
+      clientsByInstance.put(cachedClient.client, cachedClient);
+    }
+    cachedClient.refCount++;
+    return cachedClient.client;
   }
 
   @Override
   public synchronized void closeClient(YBClient client, String masterHostPorts) {
-    if (client != null) {
-      LOG.info("Closing client masters={}.", masterHostPorts);
-      try {
-        client.close();
-      } catch (Exception e) {
-        LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
-      }
-    } else {
+    if (client == null) {
       LOG.warn("Client for masters {} was null, cannot close", masterHostPorts);
+      return;
+    }
+    CachedClient cachedClient = clientsByInstance.get(client);
+    if (cachedClient == null) {
+      // Not from this cache, or already closed.
+      close(client, masterHostPorts);
+      return;
+    }
+    if (cachedClient.refCount > 0 && --cachedClient.refCount == 0) {
+      cachedClient.lastReleaseTime = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * Closes the clients with no references that have been released for at least idleTimeoutMs.
+   */
+  synchronized void evictIdleClients(long idleTimeoutMs) {
+    long now = System.currentTimeMillis();
+    Iterator<CachedClient> iter = clients.values().iterator();
+    while (iter.hasNext()) {
+      CachedClient cachedClient = iter.next();
+      if (cachedClient.refCount == 0 && now - cachedClient.lastReleaseTime >= idleTimeoutMs) {
+        iter.remove();
+        clientsByInstance.remove(cachedClient.client);
+        close(cachedClient.client, cachedClient.key);
+      }
+    }
+  }
+
+  synchronized int getNumClients() {
+    return clients.size();
+  }
+
+  // The same masters listed in another order share the client.
+  private static String getKey(String masterHostPorts, String certFile) {
+    String[] hostPorts = masterHostPorts.replace(" ", "").split(",");
+    Arrays.sort(hostPorts);
+    return String.join(",", hostPorts) + "|" + Objects.toString(certFile, "");
+  }
+
+  private void close(YBClient client, String masterHostPorts) {
+    LOG.info("Closing client masters={}.", masterHostPorts);
+    try {
+      client.close();
+    } catch (Exception e) {
+      LOG.warn("Closing client with masters={} hit error {}", masterHostPorts, e.getMessage());
     }
   }
 
@@ -44,6 +147,7 @@ public class LocalYBClientService implements YBClientService {
     return new YBClient.YBClientBuilder(masterHPs)
                        .defaultAdminOperationTimeoutMs(120000)
                        .sslCertFile(certFile)
+                       .nioExecutors(nioExecutor, nioExecutor)
                        .build();
   }
 }
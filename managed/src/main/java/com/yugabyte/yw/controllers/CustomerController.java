@@ -231,7 +231,8 @@ public class CustomerController extends AuthenticatedController {
     ObjectNode filterJson = Json.newObject();
     if (!params.containsKey("nodePrefix")) {
       String universePrefixes = customer.getUniverses().stream()
-        .map((universe -> universe.getUniverseDetails().nodePrefix)).collect(Collectors.joining("|"));
+        .map((universe -> universe.getUniverseDetailsReadOnly().nodePrefix))
+        .collect(Collectors.joining("|"));
       filterJson.put(universeFilterLabel, String.join("|", universePrefixes));
     } else {
       // Check if it is a kubernetes deployment.
@@ -260,10 +261,10 @@ public class CustomerController extends AuthenticatedController {
           final String nodePrefix = params.remove("nodePrefix");
           String completeNamespace = nodePrefix;
           List<Universe> universes =  customer.getUniverses().stream()
-            .filter(u -> u.getUniverseDetails().nodePrefix.equals(nodePrefix))
+            .filter(u -> u.getUniverseDetailsReadOnly().nodePrefix.equals(nodePrefix))
             .collect(Collectors.toList());
           Provider provider = Provider.get(UUID.fromString(
-            universes.get(0).getUniverseDetails().getPrimaryCluster().userIntent.provider));
+            universes.get(0).getUniverseDetailsReadOnly().getPrimaryCluster().userIntent.provider));
           if (PlacementInfoUtil.isMultiAZ(provider)) {
             completeNamespace = String.format("%s-(.*)", completeNamespace);
           }
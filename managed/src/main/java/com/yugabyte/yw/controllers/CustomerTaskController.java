@@ -3,12 +3,14 @@
 package com.yugabyte.yw.controllers;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.Map;
-import java.util.HashMap;
 
+import akka.stream.javadsl.Source;
+import akka.util.ByteString;
 import com.avaje.ebean.Query;
 import com.yugabyte.yw.forms.SubTaskFormData;
 import com.yugabyte.yw.models.TaskInfo;
@@ -16,7 +18,6 @@ import com.yugabyte.yw.models.Universe;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import com.yugabyte.yw.commissioner.Commissioner;
@@ -34,6 +35,14 @@ public class CustomerTaskController extends AuthenticatedController {
   Commissioner commissioner;
 
   protected static final int TASK_HISTORY_LIMIT = 6;
+
+  // The default and maximum number of tasks listed at a time.
+  protected static final int DEFAULT_TASK_PAGE_SIZE = 200;
+  protected static final int MAX_TASK_PAGE_SIZE = 1000;
+
+  // Response header with the value of the "before" parameter for the next page, set when there
+  // may be more tasks.
+  public static final String NEXT_PAGE_HEADER = "X-Next-Page-Before";
   public static final Logger LOG = LoggerFactory.getLogger(CustomerTaskController.class);
 
   private List<SubTaskFormData> fetchFailedSubTasks(UUID parentUUID) {
@@ -56,44 +65,67 @@ public class CustomerTaskController extends AuthenticatedController {
     return subTasks;
   }
 
-  private Map<UUID, List<CustomerTaskFormData>> fetchTasks(UUID customerUUID, UUID targetUUID) {
-    Query<CustomerTask> customerTaskQuery = CustomerTask.find.where()
-        .eq("customer_uuid", customerUUID)
-        .orderBy("create_time desc");
-
-    if (targetUUID != null) {
-      customerTaskQuery.where().eq("target_uuid", targetUUID);
+  /**
+   * Lists a page of the tasks of the customer, newest first, grouped by target. The request may
+   * filter on the target type, the task type and the task state with the targetType, type and
+   * state parameters, and page with the limit and before parameters. The tasks and their progress
+   * come from a single query, and the response is streamed one target at a time.
+   */
+  private Result listTasks(UUID customerUUID, UUID targetUUID) {
+    int limit;
+    Long beforeId;
+    CustomerTask.TargetType targetType;
+    CustomerTask.TaskType type;
+    TaskInfo.State state;
+    try {
+      String limitParam = request().getQueryString("limit");
+      limit = limitParam == null ? DEFAULT_TASK_PAGE_SIZE : Integer.parseInt(limitParam);
+      if (limit <= 0 || limit > MAX_TASK_PAGE_SIZE) {
+        return ApiResponse.error(BAD_REQUEST,
+                                 "limit must be between 1 and " + MAX_TASK_PAGE_SIZE);
+      }
+      String beforeParam = request().getQueryString("before");
+      beforeId = beforeParam == null ? null : Long.parseLong(beforeParam);
+      String targetTypeParam = request().getQueryString("targetType");
+      targetType = targetTypeParam == null ? null :
+          CustomerTask.TargetType.valueOf(targetTypeParam);
+      String typeParam = request().getQueryString("type");
+      type = typeParam == null ? null : CustomerTask.TaskType.valueOf(typeParam);
+      String stateParam = request().getQueryString("state");
+      state = stateParam == null ? null : TaskInfo.State.valueOf(stateParam);
+    } catch (IllegalArgumentException e) {
+      return ApiResponse.error(BAD_REQUEST, "Invalid task list parameter: " + e.getMessage());
     }
 
-    Set<CustomerTask> pendingTasks = customerTaskQuery.findSet();
-
-    Map<UUID, List<CustomerTaskFormData>> taskListMap = new HashMap<>();
-
-    for (CustomerTask task : pendingTasks) {
+    List<CustomerTask> tasks = CustomerTask.findPage(customerUUID, targetUUID, targetType, type,
+                                                     state, beforeId, limit);
+    Map<UUID, List<CustomerTaskFormData>> taskListMap = new LinkedHashMap<>();
+    for (CustomerTask task : tasks) {
       CustomerTaskFormData taskData = new CustomerTaskFormData();
+      taskData.percentComplete = (int) task.getPercentComplete();
+      taskData.status = task.getTaskState().name();
+      taskData.id = task.getTaskUUID();
+      taskData.title = task.getFriendlyDescription();
+      taskData.createTime = task.getCreateTime();
+      taskData.completionTime = task.getCompletionTime();
+      taskData.target = task.getTarget().name();
+      taskData.type = task.getType().name();
+      taskData.targetUUID = task.getTargetUUID();
+      taskListMap.computeIfAbsent(task.getTargetUUID(), k -> new ArrayList<>()).add(taskData);
+    }
 
-      JsonNode taskProgress = commissioner.getStatus(task.getTaskUUID());
-      // If the task progress API returns error, we will log it and not add that task to
-      // to the task list for UI rendering.
-      if (taskProgress.has("error")) {
-        LOG.error("Error fetching Task Progress for " + task.getTaskUUID() + ", Error: " + taskProgress.get("error"));
-      } else {
-        taskData.percentComplete = taskProgress.get("percent").asInt();
-        taskData.status = taskProgress.get("status").asText();
-        taskData.id = task.getTaskUUID();
-        taskData.title = task.getFriendlyDescription();
-        taskData.createTime = task.getCreateTime();
-        taskData.completionTime = task.getCompletionTime();
-        taskData.target = task.getTarget().name();
-        taskData.type = task.getType().name();
-        taskData.targetUUID = task.getTargetUUID();
-
-        List<CustomerTaskFormData> taskList = taskListMap.getOrDefault(task.getTargetUUID(), new ArrayList<>());
-        taskList.add(taskData);
-        taskListMap.put(task.getTargetUUID(), taskList);
-      }
+    // Stream the map one target at a time, as the members of a single JSON object.
+    Source<ByteString, ?> body = Source.from(new ArrayList<>(taskListMap.entrySet()))
+        .map(entry -> Json.stringify(Json.toJson(entry.getKey())) + ":" +
+                      Json.stringify(Json.toJson(entry.getValue())))
+        .intersperse("{", ",", "}")
+        .map(ByteString::fromString);
+    Result result = ok().chunked(body).as("application/json");
+    if (tasks.size() == limit) {
+      result = result.withHeader(NEXT_PAGE_HEADER,
+                                 tasks.get(tasks.size() - 1).getId().toString());
     }
-    return taskListMap;
+    return result;
   }
 
   public Result list(UUID customerUUID) {
@@ -105,8 +137,7 @@ public class CustomerTaskController extends AuthenticatedController {
       return badRequest(responseJson);
     }
 
-    Map<UUID, List<CustomerTaskFormData>> taskList = fetchTasks(customerUUID, null);
-    return ApiResponse.success(taskList);
+    return listTasks(customerUUID, null);
   }
 
   public Result universeTasks(UUID customerUUID, UUID universeUUID) {
@@ -114,13 +145,13 @@ public class CustomerTaskController extends AuthenticatedController {
     if (customer == null) {
       return ApiResponse.error(BAD_REQUEST, "Invalid Customer UUID: " + customerUUID);
     }
+    Universe universe;
     try {
-      Universe universe = Universe.get(universeUUID);
-      Map<UUID, List<CustomerTaskFormData>> taskList = fetchTasks(customerUUID, universe.universeUUID);
-      return ApiResponse.success(taskList);
+      universe = Universe.get(universeUUID);
     } catch (RuntimeException e) {
       return ApiResponse.error(BAD_REQUEST, "Invalid Universe UUID: " + universeUUID);
     }
+    return listTasks(customerUUID, universe.universeUUID);
   }
 
   public Result status(UUID customerUUID, UUID taskUUID) {
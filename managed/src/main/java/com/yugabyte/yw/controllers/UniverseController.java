@@ -10,10 +10,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.yugabyte.yw.cloud.PublicCloudConstants;
 import com.yugabyte.yw.common.CertificateHelper;
 import com.yugabyte.yw.common.ConfigHelper;
@@ -81,6 +86,16 @@ import static com.yugabyte.yw.common.PlacementInfoUtil.updatePlacementInfo;
 public class UniverseController extends AuthenticatedController {
   public static final Logger LOG = LoggerFactory.getLogger(UniverseController.class);
 
+  // Response header with the number of universes of the customer, for paging through the list.
+  public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+  // Universe summaries with their cost, as of the universe version in them. The cost is kept for
+  // as long as the version, so price changes show once the universe changes or the entry expires.
+  private static final Cache<UUID, ObjectNode> universeSummaries = CacheBuilder.newBuilder()
+      .maximumSize(10000)
+      .expireAfterWrite(1, TimeUnit.HOURS)
+      .build();
+
   @Inject
   FormFactory formFactory;
 
@@ -719,20 +734,86 @@ public class UniverseController extends AuthenticatedController {
     if (customer == null) {
       return ApiResponse.error(BAD_REQUEST, "Invalid Customer UUID: " + customerUUID);
     }
-    ArrayNode universes = Json.newArray();
-    // TODO: Restrict the list api json payload, possibly to only include UUID, Name etc
-    for (Universe universe: customer.getUniverses()) {
-      ObjectNode universePayload = (ObjectNode) universe.toJson();
-      try {
-        UniverseResourceDetails details = UniverseResourceDetails.create(universe.getNodes(),
-            universe.getUniverseDetails());
-        universePayload.put("pricePerHour", details.pricePerHour);
-      } catch (Exception e) {
-        LOG.error("Unable to fetch cost for universe {}.", universe.universeUUID);
+    // The full universe json is returned unless summary=true, one page when offset or limit is
+    // given.
+    boolean summary = Boolean.parseBoolean(request().getQueryString("summary"));
+    int offset;
+    int limit;
+    try {
+      String offsetParam = request().getQueryString("offset");
+      offset = offsetParam == null ? 0 : Integer.parseInt(offsetParam);
+      String limitParam = request().getQueryString("limit");
+      limit = limitParam == null ? Integer.MAX_VALUE : Integer.parseInt(limitParam);
+    } catch (IllegalArgumentException e) {
+      return ApiResponse.error(BAD_REQUEST, "Invalid query parameter: " + e.getMessage());
+    }
+    if (offset < 0 || limit <= 0) {
+      return ApiResponse.error(BAD_REQUEST, "offset must not be negative and limit positive");
+    }
+
+    List<Universe> versions = Universe.getVersions(customer.getUniverseUUIDs());
+    List<Universe> page = versions.subList(Math.min(offset, versions.size()),
+        (int) Math.min((long) offset + limit, versions.size()));
+    // The summaries only change with the name and version of the universes, so those are enough
+    // to tell if the client has the list already. The full json also has the universe config,
+    // which is saved without a new version, so it is always sent.
+    String eTag = null;
+    if (summary) {
+      Hasher hasher = Hashing.murmur3_128().newHasher()
+          .putInt(offset)
+          .putInt(limit)
+          .putInt(versions.size());
+      for (Universe universe : page) {
+        hasher.putLong(universe.universeUUID.getMostSignificantBits())
+              .putLong(universe.universeUUID.getLeastSignificantBits())
+              .putInt(universe.version)
+              .putUnencodedChars(universe.name);
       }
-      universes.add(universePayload);
+      eTag = "\"" + hasher.hash() + "\"";
+      if (eTag.equals(request().getHeader(IF_NONE_MATCH))) {
+        return status(NOT_MODIFIED).withHeader(ETAG, eTag);
+      }
+    }
+
+    ArrayNode universes = Json.newArray();
+    for (Universe version : page) {
+      universes.add(summary ? getSummary(version)
+                            : getUniverseJson(Universe.get(version.universeUUID)));
+    }
+    Result result = ApiResponse.success(universes)
+        .withHeader(TOTAL_COUNT_HEADER, String.valueOf(versions.size()));
+    return eTag == null ? result : result.withHeader(ETAG, eTag);
+  }
+
+  private ObjectNode getUniverseJson(Universe universe) {
+    ObjectNode universePayload = (ObjectNode) universe.toJson();
+    try {
+      UniverseResourceDetails details = UniverseResourceDetails.create(universe.getNodes(),
+          universe.getUniverseDetails());
+      universePayload.put("pricePerHour", details.pricePerHour);
+    } catch (Exception e) {
+      LOG.error("Unable to fetch cost for universe {}.", universe.universeUUID);
+    }
+    return universePayload;
+  }
+
+  // Returns the summary of the universe at the version of the given one, from the cache if there.
+  private ObjectNode getSummary(Universe version) {
+    ObjectNode summary = universeSummaries.getIfPresent(version.universeUUID);
+    if (summary != null && summary.get("version").asInt() == version.version) {
+      return summary;
+    }
+    Universe universe = Universe.get(version.universeUUID);
+    summary = universe.toSummaryJson();
+    try {
+      UniverseResourceDetails details = UniverseResourceDetails.create(universe.getNodes(),
+          universe.getUniverseDetails());
+      summary.put("pricePerHour", details.pricePerHour);
+    } catch (Exception e) {
+      LOG.error("Unable to fetch cost for universe {}.", universe.universeUUID);
     }
-    return ApiResponse.success(universes);
+    universeSummaries.put(universe.universeUUID, summary);
+    return summary;
   }
 
   /**
@@ -19,4 +19,9 @@ public class MetricQueryParams {
   public String nodePrefix;
 
   public String nodeName;
+
+  // Optional limits on the series returned per metric and the points per series.
+  public Integer maxSeries;
+
+  public Integer maxPoints;
 }
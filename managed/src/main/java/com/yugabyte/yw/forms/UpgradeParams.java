@@ -41,4 +41,10 @@ public class UpgradeParams extends UniverseDefinitionTaskParams {
 
   public UpgradeOption upgradeOption = UpgradeOption.ROLLING_UPGRADE;
 
+  // The number of tservers a rolling upgrade restarts at the same time, all in the same
+  // availability zone. When set, the upgrade moves on as soon as the restarted servers are ready
+  // rather than sleeping after each restart, and stops if they do not get ready in time. Null for
+  // one node at a time with the sleeps above.
+  public Integer rollingUpgradeBatchSize = null;
+
 }
@@ -0,0 +1,128 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Trims the graph data of a metric before it is sent to the UI, so that metrics with a series
+ * per node or per table on big universes stay small enough to plot.
+ */
+public class MetricDownsampler {
+  // Fewest points a series is downsampled to, however many series there are.
+  static final int MIN_POINTS_PER_SERIES = 20;
+
+  /**
+   * Keeps the maxSeries series with the highest peaks, in their original order.
+   * @param maxSeries, number of series to keep, or 0 to keep all of them
+   */
+  public static List<MetricGraphData> selectTopSeries(List<MetricGraphData> series,
+                                                      int maxSeries) {
+    if (maxSeries <= 0 || series.size() <= maxSeries) {
+      return series;
+    }
+    double[] peaks = series.stream().mapToDouble(MetricDownsampler::getPeak).toArray();
+    return IntStream.range(0, series.size()).boxed()
+        .sorted(Comparator.comparingDouble((Integer i) -> peaks[i]).reversed())
+        .limit(maxSeries)
+        .sorted()
+        .map(series::get)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Downsamples each of the series so that none has more than maxPointsPerSeries points, and
+   * all of them together have at most about maxPointsPerMetric.
+   * @param maxPointsPerSeries, 0 for no limit per series
+   * @param maxPointsPerMetric, 0 for no limit on the total
+   */
+  public static void downsample(List<MetricGraphData> series, int maxPointsPerSeries,
+                                int maxPointsPerMetric) {
+    int maxPoints = maxPointsPerSeries > 0 ? maxPointsPerSeries : Integer.MAX_VALUE;
+    if (maxPointsPerMetric > 0 && !series.isEmpty()) {
+      maxPoints = Math.min(maxPoints, Math.max(MIN_POINTS_PER_SERIES,
+                                               maxPointsPerMetric / series.size()));
+    }
+    for (MetricGraphData data : series) {
+      downsample(data, maxPoints);
+    }
+  }
+
+  /**
+   * Downsamples the series to maxPoints using largest-triangle-three-buckets, which keeps the
+   * first and last points and, from each bucket in between, the point that makes the largest
+   * triangle with the point kept before it and the average of the next bucket. Unlike taking
+   * every n-th point, this keeps the spikes.
+   */
+  static void downsample(MetricGraphData data, int maxPoints) {
+    int numPoints = data.x.size();
+    if (maxPoints < 3 || numPoints <= maxPoints) {
+      return;
+    }
+    double[] x = new double[numPoints];
+    double[] y = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      x[i] = data.x.get(i).asDouble();
+      y[i] = data.y.get(i).asDouble();
+    }
+
+    List<Integer> kept = new ArrayList<>(maxPoints);
+    kept.add(0);
+    double bucketSize = (double) (numPoints - 2) / (maxPoints - 2);
+    int prev = 0;
+    for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+      // Average of the next bucket, which is just the last point for the last bucket.
+      int nextStart = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+      int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, numPoints);
+      double avgX = 0;
+      double avgY = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+        avgX += x[i];
+        avgY += y[i];
+      }
+      avgX /= nextEnd - nextStart;
+      avgY /= nextEnd - nextStart;
+
+      int start = (int) Math.floor(bucket * bucketSize) + 1;
+      int end = nextStart;
+      int best = start;
+      double bestArea = -1;
+      for (int i = start; i < end; i++) {
+        double area = Math.abs((x[prev] - avgX) * (y[i] - y[prev]) -
+                               (x[prev] - x[i]) * (avgY - y[prev]));
+        if (area > bestArea) {
+          bestArea = area;
+          best = i;
+        }
+      }
+      kept.add(best);
+      prev = best;
+    }
+    kept.add(numPoints - 1);
+
+    ArrayNode sampledX = Json.newArray();
+    ArrayNode sampledY = Json.newArray();
+    for (int i : kept) {
+      sampledX.add(data.x.get(i));
+      sampledY.add(data.y.get(i));
+    }
+    data.x = sampledX;
+    data.y = sampledY;
+  }
+
+  private static double getPeak(MetricGraphData data) {
+    double peak = Double.NEGATIVE_INFINITY;
+    for (JsonNode value : data.y) {
+      peak = Math.max(peak, value.asDouble());
+    }
+    return peak;
+  }
+}
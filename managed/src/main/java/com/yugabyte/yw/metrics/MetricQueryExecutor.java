@@ -22,6 +22,10 @@ import java.util.concurrent.Callable;
 public class MetricQueryExecutor implements Callable<JsonNode> {
   public static final Logger LOG = LoggerFactory.getLogger(MetricQueryExecutor.class);
 
+  // Limits on the graph data returned for a metric, unless set in the config or the query.
+  private static final int DEFAULT_MAX_POINTS_PER_SERIES = 250;
+  private static final int DEFAULT_MAX_POINTS_PER_METRIC = 20000;
+
   private ApiHelper apiHelper;
   private Configuration appConfig;
   private YBMetricQueryComponent ybMetricQueryComponent;
@@ -97,8 +101,27 @@ public class MetricQueryExecutor implements Callable<JsonNode> {
           output.addAll(queryResponse.getGraphData(metric, config.getLayout()));
         }
       }
-      responseJson.set("data", Json.toJson(output));
+      List<MetricGraphData> trimmed = MetricDownsampler.selectTopSeries(
+          output, getLimit("maxSeries", "yb.metrics.max_series", 0));
+      MetricDownsampler.downsample(
+          trimmed,
+          getLimit("maxPoints", "yb.metrics.max_points_per_series", DEFAULT_MAX_POINTS_PER_SERIES),
+          getLimit(null, "yb.metrics.max_points_per_metric", DEFAULT_MAX_POINTS_PER_METRIC));
+      responseJson.set("data", Json.toJson(trimmed));
     }
     return responseJson;
   }
+
+  // The limit from the query param if given, else from the config.
+  private int getLimit(String param, String configKey, int defaultValue) {
+    if (param != null && queryParam.containsKey(param)) {
+      try {
+        return Integer.parseInt(queryParam.get(param));
+      } catch (NumberFormatException e) {
+        LOG.warn("Ignoring invalid {}: {}", param, queryParam.get(param));
+      }
+    }
+    Integer limit = appConfig.getInt(configKey);
+    return limit != null ? limit : defaultValue;
+  }
 }
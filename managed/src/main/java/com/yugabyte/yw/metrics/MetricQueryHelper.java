@@ -5,6 +5,9 @@ package com.yugabyte.yw.metrics;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.yugabyte.yw.common.ApiHelper;
@@ -16,21 +19,40 @@ import play.libs.Json;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class MetricQueryHelper {
   public static final Logger LOG = LoggerFactory.getLogger(MetricQueryHelper.class);
   public static final Integer STEP_SIZE =  100;
-  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 5;
+  public static final Integer QUERY_EXECUTOR_THREAD_POOL = 20;
+
+  // How long a metric response is served from the cache, and how many are kept.
+  static final long QUERY_CACHE_TTL_SECS = 10;
+  private static final long QUERY_CACHE_MAX_SIZE = 1000;
+
+  // Shared by all requests, so that a dashboard firing many panel queries at once does not set up
+  // a thread pool per request.
+  private final ExecutorService threadPool = Executors.newFixedThreadPool(
+      QUERY_EXECUTOR_THREAD_POOL,
+      new ThreadFactoryBuilder().setNameFormat("metric-query-%d").setDaemon(true).build());
+
+  // Responses by query, including the ones still running so that concurrent requests for the same
+  // query share it.
+  private final Cache<String, Future<JsonNode>> queryCache = CacheBuilder.newBuilder()
+      .maximumSize(QUERY_CACHE_MAX_SIZE)
+      .expireAfterWrite(QUERY_CACHE_TTL_SECS, TimeUnit.SECONDS)
+      .build();
+
   @Inject
   Configuration appConfig;
 
@@ -85,34 +107,83 @@ public class MetricQueryHelper {
       return responseJson;
     }
 
-    ExecutorService threadPool = Executors.newFixedThreadPool(QUERY_EXECUTOR_THREAD_POOL);
-    Set<Future<JsonNode>> futures = new HashSet<Future<JsonNode>>();
+    Map<String, String> cacheKeys = new LinkedHashMap<>();
+    Map<String, Future<JsonNode>> futures = new HashMap<>();
     for (String metricKey : metricKeys) {
-      Map<String, String> queryParams = params;
+      // Each query gets its own params, as the executors run concurrently.
+      Map<String, String> queryParams = new HashMap<>(params);
       queryParams.put("queryKey", metricKey);
-      Callable<JsonNode> callable = new MetricQueryExecutor(appConfig, apiHelper,
-                                                            queryParams, additionalFilters,
-                                                            ybMetricQueryComponent);
-      Future<JsonNode> future = threadPool.submit(callable);
-      futures.add(future);
+      String cacheKey = getCacheKey(queryParams, additionalFilters);
+      cacheKeys.put(metricKey, cacheKey);
+      futures.put(metricKey, submitQuery(cacheKey, queryParams, additionalFilters));
     }
 
-
-    for (Future<JsonNode> future : futures) {
+    for (Map.Entry<String, String> entry : cacheKeys.entrySet()) {
       JsonNode response = Json.newObject();
+      Future<JsonNode> future = futures.get(entry.getKey());
       try {
-        response = future.get();
+        // Cached responses are shared, so hand out a copy.
+        response = future.get().deepCopy();
+        // Only successful responses are kept for other requests.
+        if (response.has("error")) {
+          queryCache.asMap().remove(entry.getValue(), future);
+        }
       } catch (InterruptedException e) {
         LOG.error("Error fetching metrics data: {}", e.getMessage());
         e.printStackTrace();
       } catch (ExecutionException e) {
         LOG.error("Error fetching metrics data: {}", e.getMessage());
         e.printStackTrace();
+        queryCache.asMap().remove(entry.getValue(), future);
       }
 
-      responseJson.set(response.get("queryKey").asText(), response);
+      responseJson.set(entry.getKey(), response);
     }
-    threadPool.shutdown();
     return responseJson;
   }
+
+  /**
+   * Runs the query on the shared pool, unless the same query is already running or finished
+   * within the last QUERY_CACHE_TTL_SECS, in which case its response is used.
+   */
+  private Future<JsonNode> submitQuery(String cacheKey, Map<String, String> queryParams,
+                                       Map<String, String> additionalFilters) {
+    try {
+      return queryCache.get(cacheKey, () -> threadPool.submit(
+          new MetricQueryExecutor(appConfig, apiHelper, queryParams, additionalFilters,
+                                  ybMetricQueryComponent)));
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * The cache key of a query: its params with the timestamps aligned down to the step, so that
+   * requests made within the same step share the response. The cache busting "_" is left out.
+   */
+  static String getCacheKey(Map<String, String> queryParams,
+                            Map<String, String> additionalFilters) {
+    Map<String, String> keyParams = new TreeMap<>(queryParams);
+    keyParams.remove("_");
+    keyParams.remove("filters");
+    long step = 0;
+    try {
+      step = Long.parseLong(keyParams.getOrDefault("step", "0"));
+    } catch (NumberFormatException e) {
+      // Keep the timestamps as they are.
+    }
+    if (step > 0) {
+      for (String param : new String[] {"start", "end", "time"}) {
+        if (keyParams.containsKey(param)) {
+          try {
+            long timestamp = Long.parseLong(keyParams.get(param));
+            keyParams.put(param, Long.toString(timestamp - Math.floorMod(timestamp, step)));
+          } catch (NumberFormatException e) {
+            // Not a timestamp in seconds, keep it as it is.
+          }
+        }
+      }
+    }
+    return keyParams + "|" + new TreeMap<>(additionalFilters);
+  }
 }
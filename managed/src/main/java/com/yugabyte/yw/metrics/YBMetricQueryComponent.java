@@ -3,15 +3,22 @@ package com.yugabyte.yw.metrics;
 
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.JdkSSLOptions;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.SSLOptions;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -41,10 +48,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
@@ -74,41 +81,42 @@ public class YBMetricQueryComponent {
   private static final Integer TIMESTAMP_RANGE_SECS = 30;
 
 
-  // Each data entry needs to be of the format:
-  // [Timestamp, value]
-  private static final String DATA_ENTRY_FORMAT = "[%d,\"%f\"]";
+  // Each data entry is of the format:
+  // [Timestamp, "value"]
+  // with the value formatted as below.
+  private static final String DATA_VALUE_FORMAT = "%f";
 
-  // Each metric needs to be in the following format for each service method.
+  // Each metric is in the following format for each service method.
   /*
   {
    "metric":{
       "service_method": <method_name>
    },
-   "values": List of DATA_ENTRY_FORMAT
+   "values": List of data entries
   }
   */
-  private static final String SERVICE_METRIC_FORMAT = "{\"metric\":{\"service_method\":\"%s\"}," +
-                                                   "\"values\":%s}";
-  private static final String NODE_METRIC_FORMAT = "{\"metric\": {\"node_prefix\": \"%s:%d\"}," +
-                                                    "\"values\":%s} ";
+  // or with {"node_prefix": "<ip>:<port>"} as the metric for each node.
 
-  // The final return format needs to be as follows:
+  // The final return format is as follows:
   /*
   {
      "status":"success",
      "data":{
         "resultType":"matrix",
-        "result": List of METRIC_DATA_FORMAT
+        "result": List of metrics
      }
   }
   */
-  private static final String RESPONSE_FORMAT = "{\"status\":\"success\"," +
-                                                "\"data\":{\"resultType\":\"matrix\"," +
-                                                "\"result\":%s}}";
 
   private static final String METRICS_TABLE = "system.metrics";
-  private static final String QUERY_FORMAT = "select * from %s where metric = '%s' " +
-                                             "and node = '%s' and ts >= %d and ts < %d";
+  private static final String SELECT_FORMAT = "select * from %s where metric = ? " +
+                                              "and node = ? and ts >= ? and ts < ?";
+
+  // How long the session to a universe is kept once it is no longer queried.
+  private static final long CONNECTION_IDLE_TIMEOUT_MINS = 10;
+
+  // How long the tservers of a universe are cached, unless the universe changes.
+  private static final long TSERVER_MAPPINGS_TTL_SECS = 60;
 
   // Array of metrics whose values should be retrieved from details column instead of value column.
   private static final List<String> METRICS_WITH_DETAILS_VALUE = Arrays.asList(
@@ -136,17 +144,64 @@ public class YBMetricQueryComponent {
     Average
   }
 
-  private class CassandraConnection {
+  static class CassandraConnection {
+    // The YQL servers and certificate the connection was made with.
+    String key;
     Cluster cluster = null;
     Session session = null;
+    PreparedStatement selectStatement = null;
+    // The queries using the connection, plus one while it is pooled. Closed once this drops to 0.
+    private int refCount = 1;
+
+    /**
+     * Takes a reference for a query, unless the connection was already closed.
+     */
+    synchronized boolean retain() {
+      if (refCount == 0) {
+        return false;
+      }
+      refCount++;
+      return true;
+    }
+
+    synchronized void release() {
+      if (--refCount == 0) {
+        close();
+      }
+    }
+
+    void close() {
+      if (session != null) session.close();
+      if (cluster != null) cluster.close();
+    }
+  }
+
+  // Sessions are pooled per universe, as setting up a cluster for each query is slow. A session
+  // is dropped from the pool when it has not been used for CONNECTION_IDLE_TIMEOUT_MINS, or when
+  // the YQL servers of the universe change, and closed once the queries still using it are done.
+  private final Cache<UUID, CassandraConnection> connections = CacheBuilder.newBuilder()
+      .expireAfterAccess(CONNECTION_IDLE_TIMEOUT_MINS, TimeUnit.MINUTES)
+      .removalListener((RemovalListener<UUID, CassandraConnection>) n -> n.getValue().release())
+      .build();
+
+  private static class CachedTServerMappings {
+    final int universeVersion;
+    final TServerMappings mappings;
+
+    CachedTServerMappings(int universeVersion, TServerMappings mappings) {
+      this.universeVersion = universeVersion;
+      this.mappings = mappings;
+    }
   }
 
-  private CassandraConnection createCassandraConnection(UUID universeUUID) {
+  private final Cache<UUID, CachedTServerMappings> tserverMappings = CacheBuilder.newBuilder()
+      .expireAfterWrite(TSERVER_MAPPINGS_TTL_SECS, TimeUnit.SECONDS)
+      .build();
+
+  private CassandraConnection createCassandraConnection(UUID universeUUID, String key) {
     CassandraConnection cc = new CassandraConnection();
+    cc.key = key;
     List<InetSocketAddress> addresses = Util.getNodesAsInet(universeUUID);
-    if (addresses.isEmpty()) {
-      return cc;
-    }
     Cluster.Builder builder = Cluster.builder()
                               .addContactPointsWithPorts(addresses);
     String certificate = Universe.get(universeUUID).getCertificate();
@@ -155,11 +210,49 @@ public class YBMetricQueryComponent {
     }
     cc.cluster = builder.build();
 
-    cc.session = cc.cluster.connect();
+    try {
+      cc.session = cc.cluster.connect();
+      cc.selectStatement = cc.session.prepare(String.format(SELECT_FORMAT, METRICS_TABLE));
+    } catch (RuntimeException e) {
+      cc.close();
+      throw e;
+    }
     return cc;
   }
 
-  private Double getValue(Row r) {
+  /**
+   * Returns the pooled connection to the universe, or null if it has no YQL servers. The caller
+   * must release the connection once done with it.
+   */
+  CassandraConnection getCassandraConnection(Universe universe) {
+    String yqlServers = universe.getYQLServerAddresses();
+    if (yqlServers.isEmpty()) {
+      return null;
+    }
+    String key = yqlServers + "|" + universe.getCertificate();
+    try {
+      while (true) {
+        CassandraConnection cc = connections.get(universe.universeUUID,
+            () -> createCassandraConnection(universe.universeUUID, key));
+        if (!cc.key.equals(key)) {
+          LOG.info("YQL servers of universe {} changed, reconnecting.", universe.name);
+          connections.asMap().remove(universe.universeUUID, cc);
+          continue;
+        }
+        if (cc.retain()) {
+          return cc;
+        }
+        // Evicted and closed in the meantime, the next lookup creates a new one.
+      }
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private double getValue(Row r) {
     if (METRICS_WITH_DETAILS_VALUE.contains(r.getString("metric"))) {
       return Util.convertStringToJson(r.getString("details")).get("value").asDouble();
     } else {
@@ -178,7 +271,21 @@ public class YBMetricQueryComponent {
     }
   };
 
-  private TServerMappings getTservers(Universe universe) {
+  TServerMappings getTservers(Universe universe) {
+    CachedTServerMappings cached = tserverMappings.getIfPresent(universe.universeUUID);
+    if (cached != null && cached.universeVersion == universe.version) {
+      return cached.mappings;
+    }
+    TServerMappings mappings = listTservers(universe);
+    // Keep trying while the tservers cannot be listed.
+    if (!mappings.nameToUUID.isEmpty()) {
+      tserverMappings.put(universe.universeUUID,
+                          new CachedTServerMappings(universe.version, mappings));
+    }
+    return mappings;
+  }
+
+  private TServerMappings listTservers(Universe universe) {
     YBClient client = null;
     Map<String, String> nameToUUID = new HashMap<>();
     Map<String, String> uuidToIP = new HashMap<>();
@@ -209,24 +316,78 @@ public class YBMetricQueryComponent {
     return new TServerMappings(nameToUUID, uuidToIP);
   }
 
-  private ResultSet cassandraTserverSelectQuery(String metric, String tserverUUID,
-                                                Session session, Universe universe,
-                                                long startMs, long endMs) {
-    int count = 0;
-    ResultSet rs = null;
-    String queryString = String.format(QUERY_FORMAT, METRICS_TABLE, metric,
-                                       tserverUUID.toString(), (startMs * 1000),
-                                       (endMs * 1000));
-    return session.execute(queryString);
+  private ResultSetFuture cassandraTserverSelectQuery(String metric, String tserverUUID,
+                                                      CassandraConnection cc,
+                                                      long startSecs, long endSecs) {
+    return cc.session.executeAsync(cc.selectStatement.bind(
+        metric, tserverUUID, new Date(startSecs * 1000), new Date(endSecs * 1000)));
   }
 
-  // Convert the map to the required output format.
-  private List<String> mapToStringList(Map<Long, Double> metrics) {
-    List<String> vals = new ArrayList<>();
-    for (Entry<Long, Double> entry : metrics.entrySet()) {
-      vals.add(String.format(DATA_ENTRY_FORMAT, entry.getKey(), entry.getValue()));
+  /**
+   * Values by timestamp in seconds, kept sorted by timestamp in primitive arrays.
+   */
+  static class TimeSeries {
+    private long[] timestamps = new long[16];
+    private double[] values = new double[16];
+    private int size = 0;
+
+    int size() {
+      return size;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    long getTimestamp(int idx) {
+      return timestamps[idx];
+    }
+
+    double getValue(int idx) {
+      return values[idx];
+    }
+
+    void setValue(int idx, double value) {
+      values[idx] = value;
+    }
+
+    // Index of the latest timestamp at or before the given one, or -1 if there is none.
+    int floorIndex(long timestamp) {
+      int idx = Arrays.binarySearch(timestamps, 0, size, timestamp);
+      return idx >= 0 ? idx : -idx - 2;
+    }
+
+    // Sets the value at the timestamp, adding the timestamp if needed.
+    void put(long timestamp, double value) {
+      int idx = Arrays.binarySearch(timestamps, 0, size, timestamp);
+      if (idx >= 0) {
+        values[idx] = value;
+        return;
+      }
+      idx = -idx - 1;
+      if (size == timestamps.length) {
+        timestamps = Arrays.copyOf(timestamps, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      System.arraycopy(timestamps, idx, timestamps, idx + 1, size - idx);
+      System.arraycopy(values, idx, values, idx + 1, size - idx);
+      timestamps[idx] = timestamp;
+      values[idx] = value;
+      size++;
     }
-    return vals;
+  }
+
+  private static void addDataEntry(ArrayNode values, long timestampSec, double value) {
+    values.addArray().add(timestampSec).add(String.format(DATA_VALUE_FORMAT, value));
+  }
+
+  // Convert the series to the required output format.
+  private static ArrayNode toValues(TimeSeries metrics) {
+    ArrayNode values = Json.newArray();
+    for (int i = 0; i < metrics.size(); i++) {
+      addDataEntry(values, metrics.getTimestamp(i), metrics.getValue(i));
+    }
+    return values;
   }
 
   private double compute(Function function, double initialVal, double valToUpdate, int count) {
@@ -240,9 +401,8 @@ public class YBMetricQueryComponent {
     }
   }
 
-  public NavigableMap<Long, Double> calculateRate(List<ResultSet> results, Function function,
-                                              int numTservers) {
-    NavigableMap<Long, Double> timeRangeMap = new TreeMap<>();
+  public TimeSeries calculateRate(List<ResultSet> results, Function function, int numTservers) {
+    TimeSeries timeRangeMap = new TimeSeries();
     for (ResultSet rs : results) {
       long currTimestampSec = 0;
       long prevTimestampSec = 0;
@@ -272,15 +432,15 @@ public class YBMetricQueryComponent {
           currRate = (prevVal - currVal) /
                      (prevTimestampSec - currTimestampSec);
         }
-        Entry<Long, Double> entry = timeRangeMap.floorEntry(currTimestampSec);
+        int idx = timeRangeMap.floorIndex(currTimestampSec);
         // In case there is no entry lower than that, or the entry lower than the key
         // is older than the range for the same timestamped metric.
-        if (entry == null || currTimestampSec - entry.getKey() > TIMESTAMP_RANGE_SECS) {
+        if (idx < 0 || currTimestampSec - timeRangeMap.getTimestamp(idx) > TIMESTAMP_RANGE_SECS) {
           double calcVal = compute(function, 0.0, currRate, numTservers);
           timeRangeMap.put(currTimestampSec, calcVal);
         } else {
-          double calcVal = compute(function, entry.getValue(), currRate, numTservers);
-          timeRangeMap.put(entry.getKey(), calcVal);
+          double calcVal = compute(function, timeRangeMap.getValue(idx), currRate, numTservers);
+          timeRangeMap.setValue(idx, calcVal);
         }
         prevVal = currVal;
         prevTimestampSec = currTimestampSec;
@@ -289,72 +449,70 @@ public class YBMetricQueryComponent {
     return timeRangeMap;
   }
 
-  private TreeMap<Long, Double> metricDivide(NavigableMap<Long, Double> metricsNum,
-                                             NavigableMap<Long, Double> metricsDenom) {
-    TreeMap<Long, Double> timeToVal = new TreeMap<>();
-    for (Entry<Long, Double> entry : metricsNum.entrySet()) {
-      Entry<Long, Double> entry2 = metricsDenom.floorEntry(entry.getKey());
-      if (entry2 != null && Math.abs(entry.getKey() - entry2.getKey()) < TIMESTAMP_RANGE_SECS) {
-        Double val = entry.getValue() / entry2.getValue();
+  private TimeSeries metricDivide(TimeSeries metricsNum, TimeSeries metricsDenom) {
+    TimeSeries timeToVal = new TimeSeries();
+    for (int i = 0; i < metricsNum.size(); i++) {
+      long timestamp = metricsNum.getTimestamp(i);
+      int idx = metricsDenom.floorIndex(timestamp);
+      if (idx >= 0 &&
+          Math.abs(timestamp - metricsDenom.getTimestamp(idx)) < TIMESTAMP_RANGE_SECS) {
+        double val = metricsNum.getValue(i) / metricsDenom.getValue(idx);
         // Due to the metrics being written and read into/from a user table, we get
         // some rpcs when no workload is running. This causes the latency
         // graph to be jittery. The following code can be uncommented if we want
         // to get rid of the jitters/mark the values only when the RPC count is
         // significant.
         /*
-        Double val = 0.0;
-        if (entry2.getValue() > 10) {
-          val = entry.getValue() / entry2.getValue();
+        double val = 0.0;
+        if (metricsDenom.getValue(idx) > 10) {
+          val = metricsNum.getValue(i) / metricsDenom.getValue(idx);
         }
         */
-        timeToVal.put(entry2.getKey(), val);
+        timeToVal.put(metricsDenom.getTimestamp(idx), val);
       }
     }
     return timeToVal;
   }
 
-  private NavigableMap<Long, Double> convertToGb(List<ResultSet> results) {
+  private TimeSeries convertToGb(List<ResultSet> results) {
     return divideByConstant(results, BYTES_IN_GB);
   }
 
-  private NavigableMap<Long, Double> divideByConstant(List<ResultSet> results, double denom) {
-    NavigableMap<Long, Double> timeRangeMap = new TreeMap<>();
+  private TimeSeries divideByConstant(List<ResultSet> results, double denom) {
+    TimeSeries timeRangeMap = new TimeSeries();
     for (ResultSet rs : results) {
       Iterator<Row> rowIter = rs.iterator();
       while (rowIter.hasNext()) {
         Row row = rowIter.next();
         long timestampSec = row.getTimestamp("ts").getTime() / 1000;
-        double val = (double) getValue(row) / denom;
+        double val = getValue(row) / denom;
         timeRangeMap.put(timestampSec, val);
       }
     }
     return timeRangeMap;
   }
 
-  private List<ResultSet> queryRunner(String metricName, Session session,
+  private List<ResultSet> queryRunner(String metricName, CassandraConnection cc,
                                       Map<String, String> tserverMap,
-                                      JsonNode params, Universe universe,
-                                      long start, long end) {
-    List<ResultSet> results = new ArrayList<>();
+                                      JsonNode params, long start, long end) {
+    List<ResultSetFuture> futures = new ArrayList<>();
     // Check if metric needs to be reported for only a single tserver.
     if (params.has("exported_instance")) {
-      String tserverName = params.path("exported_instance").asText();
-      ResultSet rs = cassandraTserverSelectQuery(metricName,
-                                                 tserverMap.get(tserverName),
-                                                 session, universe,
-                                                 start, end);
-      if (rs != null && rs.iterator().hasNext()) {
-        results.add(rs);
+      String tserverUUID = tserverMap.get(params.path("exported_instance").asText());
+      if (tserverUUID != null) {
+        futures.add(cassandraTserverSelectQuery(metricName, tserverUUID, cc, start, end));
       }
     } else {
-      // TODO: Maybe query for all tservers and split here rather than make more
-      // database calls.
+      // The tservers are queried in parallel.
       for (Entry<String, String> entry : tserverMap.entrySet()) {
-        ResultSet rs = cassandraTserverSelectQuery(metricName, entry.getValue(),
-                                                   session, universe, start, end);
-        if (rs != null && rs.iterator().hasNext()) {
-          results.add(rs);
-        }
+        futures.add(cassandraTserverSelectQuery(metricName, entry.getValue(), cc, start, end));
+      }
+    }
+    List<ResultSet> results = new ArrayList<>();
+    for (ResultSetFuture future : futures) {
+      ResultSet rs = future.getUninterruptibly();
+      if (rs != null && rs.iterator().hasNext()) {
+        results.add(rs);
       }
     }
     return results;
@@ -363,16 +521,21 @@ public class YBMetricQueryComponent {
   /**
    * Utility function for inserting calculated metrics with the proper formatting.
    */
-  private void insertMetrics(List<String> totalMetrics, Map<Long, Double> newVals,
-                             String method) {
+  private void insertMetrics(ArrayNode totalMetrics, TimeSeries newVals, String method) {
     if (!newVals.isEmpty()) {
-      totalMetrics.add(String.format(SERVICE_METRIC_FORMAT, method,
-                                      mapToStringList(newVals)));
-      // Note that we are passing a List<String> to the %s parameter and expecting
-      // it to be serialized as [ s1, s2 ], which also matches the json array format
+      ObjectNode metric = totalMetrics.addObject();
+      metric.putObject("metric").put("service_method", method);
+      metric.set("values", toValues(newVals));
     }
   }
 
+  private void insertNodeMetrics(ArrayNode totalMetrics, String nodeIP, int port,
+                                 ArrayNode values) {
+    ObjectNode metric = totalMetrics.addObject();
+    metric.putObject("metric").put("node_prefix", nodeIP + ":" + port);
+    metric.set("values", values);
+  }
+
   /**
    * Query the metrics table in YB for a given metricType and query params
    * @param queryParams, Query params like start, end timestamps, even filters
@@ -386,7 +549,7 @@ public class YBMetricQueryComponent {
     // total_rpcs_per_sec
     // tserver_ops_latency
     JsonNode responseJson = null;
-    List<String> metricResults = new ArrayList<>();
+    ArrayNode metricResults = Json.newArray();
     String queryKey = queryParam.get("queryKey");
     Date date = new Date();
     Long startTime = Long.parseLong(queryParam.getOrDefault("start", "0"));
@@ -410,179 +573,164 @@ public class YBMetricQueryComponent {
       TServerMappings tserverMaps = getTservers(universe);
       CassandraConnection cc = null;
 
-      switch (queryKey) {
-        case "total_rpcs_per_sec":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          for (String method : serviceMethods) {
-            String metricName = String.format(COUNT_METRIC_STRING, method);
-            List<ResultSet> results = queryRunner(
-              metricName,
-              cc.session,
+      try {
+        switch (queryKey) {
+          case "total_rpcs_per_sec":
+            cc = getCassandraConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            for (String method : serviceMethods) {
+              String metricName = String.format(COUNT_METRIC_STRING, method);
+              List<ResultSet> results = queryRunner(
+                metricName,
+                cc,
+                tserverMaps.nameToUUID,
+                params,
+                startTime,
+                endTime
+              );
+              TimeSeries metricsVals = calculateRate(results, Function.Sum, results.size());
+              insertMetrics(metricResults, metricsVals, method);
+            }
+            break;
+          case "tserver_ops_latency":
+            cc = getCassandraConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            for (String method : serviceMethods) {
+              String metricCount = String.format(COUNT_METRIC_STRING, method);
+              String metricSum = String.format(SUM_METRIC_STRING, method);
+              List<ResultSet> resultCount = queryRunner(
+                metricCount,
+                cc,
+                tserverMaps.nameToUUID,
+                params,
+                startTime,
+                endTime
+              );
+              List<ResultSet> resultSum = queryRunner(
+                metricSum,
+                cc,
+                tserverMaps.nameToUUID,
+                params,
+                startTime,
+                endTime
+              );
+              TimeSeries metricsCount = calculateRate(resultCount, Function.Average,
+                                                      resultCount.size());
+              TimeSeries metricsSum = calculateRate(resultSum, Function.Average,
+                                                    resultSum.size());
+              TimeSeries metricsVals = metricDivide(metricsSum, metricsCount);
+              insertMetrics(metricResults, metricsVals, method);
+            }
+            break;
+          case "disk_usage":
+            cc = getCassandraConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            List<ResultSet> totalDiskRaw = queryRunner(
+              TOTAL_DISK_STRING,
+              cc,
               tserverMaps.nameToUUID,
               params,
-              universe,
               startTime,
               endTime
             );
-            NavigableMap<Long, Double> metricsVals = calculateRate(results, Function.Sum,
-                                                                   results.size());
-            insertMetrics(metricResults, metricsVals, method);
-          }
-          break;
-        case "tserver_ops_latency":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          for (String method : serviceMethods) {
-            String metricCount = String.format(COUNT_METRIC_STRING, method);
-            String metricSum = String.format(SUM_METRIC_STRING, method);
-            List<ResultSet> resultCount = queryRunner(
-              metricCount,
-              cc.session,
+            List<ResultSet> freeDiskRaw = queryRunner(
+              FREE_DISK_STRING,
+              cc,
               tserverMaps.nameToUUID,
               params,
-              universe,
               startTime,
               endTime
             );
-            List<ResultSet> resultSum = queryRunner(
-              metricSum,
-              cc.session,
+            TimeSeries totalDiskMetrics = convertToGb(totalDiskRaw);
+            TimeSeries freeDiskMetrics = convertToGb(freeDiskRaw);
+            insertMetrics(metricResults, totalDiskMetrics, "size");
+            insertMetrics(metricResults, freeDiskMetrics, "free");
+            break;
+          case "cpu_usage":
+            cc = getCassandraConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            List<ResultSet> userCpuRaw = queryRunner(
+              CPU_USAGE_USER_STRING,
+              cc,
               tserverMaps.nameToUUID,
               params,
-              universe,
               startTime,
               endTime
             );
-            NavigableMap<Long, Double> metricsCount = calculateRate(resultCount, Function.Average,
-                                                                    resultCount.size());
-            NavigableMap<Long, Double> metricsSum = calculateRate(resultSum, Function.Average,
-                                                                  resultSum.size());
-            TreeMap<Long, Double> metricsVals = metricDivide(metricsSum, metricsCount);
-            insertMetrics(metricResults, metricsVals, method);
-          }
-          break;
-        case "disk_usage":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          List<ResultSet> totalDiskRaw = queryRunner(
-            TOTAL_DISK_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          List<ResultSet> freeDiskRaw = queryRunner(
-            FREE_DISK_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          NavigableMap<Long, Double> totalDiskMetrics = convertToGb(totalDiskRaw);
-          NavigableMap<Long, Double> freeDiskMetrics = convertToGb(freeDiskRaw);
-          insertMetrics(metricResults, totalDiskMetrics, "size");
-          insertMetrics(metricResults, freeDiskMetrics, "free");
-          break;
-        case "cpu_usage":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          List<ResultSet> userCpuRaw = queryRunner(
-            CPU_USAGE_USER_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          List<ResultSet> systemCpuRaw = queryRunner(
-            CPU_USAGE_SYSTEM_STRING,
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          NavigableMap<Long, Double> userCpuMetrics = divideByConstant(userCpuRaw, 0.01);
-          NavigableMap<Long, Double> systemCpuMetrics = divideByConstant(systemCpuRaw, 0.01);
-          insertMetrics(metricResults, userCpuMetrics, "user");
-          insertMetrics(metricResults, systemCpuMetrics, "system");
-          break;
-        case "node_up":
-          cc = createCassandraConnection(universe.universeUUID);
-          if (cc.session == null) {
-            return responseJson;
-          }
-          List<ResultSet> results = queryRunner(
-            "node_up",
-            cc.session,
-            tserverMaps.nameToUUID,
-            params,
-            universe,
-            startTime,
-            endTime
-          );
-          Map<String, List<String>> nodeUpMetrics = new HashMap<>();
-          for (ResultSet rs : results) {
-            Iterator<Row> rowIter = rs.iterator();
-            while (rowIter.hasNext()) {
-              Row row = rowIter.next();
-              String nodeIP = tserverMaps.uuidToIP.get(row.getString("node"));
-
-              if (null != nodeIP) {
-                long timestampSec = row.getTimestamp("ts").getTime() / 1000;
-                double val = (double) getValue(row);
-                String valStr = String.format(DATA_ENTRY_FORMAT, timestampSec, val);
-
-                if (null == nodeUpMetrics.get(nodeIP)) {
-                  nodeUpMetrics.put(nodeIP, new ArrayList<String>());
+            List<ResultSet> systemCpuRaw = queryRunner(
+              CPU_USAGE_SYSTEM_STRING,
+              cc,
+              tserverMaps.nameToUUID,
+              params,
+              startTime,
+              endTime
+            );
+            TimeSeries userCpuMetrics = divideByConstant(userCpuRaw, 0.01);
+            TimeSeries systemCpuMetrics = divideByConstant(systemCpuRaw, 0.01);
+            insertMetrics(metricResults, userCpuMetrics, "user");
+            insertMetrics(metricResults, systemCpuMetrics, "system");
+            break;
+          case "node_up":
+            cc = getCassandraConnection(universe);
+            if (cc == null) {
+              return responseJson;
+            }
+            List<ResultSet> results = queryRunner(
+              "node_up",
+              cc,
+              tserverMaps.nameToUUID,
+              params,
+              startTime,
+              endTime
+            );
+            Map<String, ArrayNode> nodeUpMetrics = new HashMap<>();
+            for (ResultSet rs : results) {
+              Iterator<Row> rowIter = rs.iterator();
+              while (rowIter.hasNext()) {
+                Row row = rowIter.next();
+                String nodeIP = tserverMaps.uuidToIP.get(row.getString("node"));
+
+                if (null != nodeIP) {
+                  long timestampSec = row.getTimestamp("ts").getTime() / 1000;
+                  ArrayNode values = nodeUpMetrics.computeIfAbsent(nodeIP, ip -> Json.newArray());
+                  addDataEntry(values, timestampSec, getValue(row));
                 }
-                nodeUpMetrics.get(nodeIP).add(valStr);
               }
             }
-          }
 
-          for (Entry<String, List<String>> nodeUpMetric : nodeUpMetrics.entrySet()) {
-            metricResults.add(String.format(
-              NODE_METRIC_FORMAT,
-              nodeUpMetric.getKey(),
-              SwamperHelper.TargetType.MASTER_EXPORT.getPort(),
-              nodeUpMetric.getValue()
-            ));
-            metricResults.add(String.format(
-              NODE_METRIC_FORMAT,
-              nodeUpMetric.getKey(),
-              SwamperHelper.TargetType.TSERVER_EXPORT.getPort(),
-              nodeUpMetric.getValue()
-            ));
-            // Note that we are passing a List<String> to the %s parameter and expecting
-            // it to be serialized as [ s1, s2 ], which also matches the json array format
-          }
-          break;
-        default:
-          LOG.warn("Query: " + queryKey + " not supported.");
-      }
-      if (cc != null) {
-        if (cc.session != null) cc.session.close();
-        if (cc.cluster != null) cc.cluster.close();
+            for (Entry<String, ArrayNode> nodeUpMetric : nodeUpMetrics.entrySet()) {
+              insertNodeMetrics(metricResults, nodeUpMetric.getKey(),
+                                SwamperHelper.TargetType.MASTER_EXPORT.getPort(),
+                                nodeUpMetric.getValue());
+              insertNodeMetrics(metricResults, nodeUpMetric.getKey(),
+                                SwamperHelper.TargetType.TSERVER_EXPORT.getPort(),
+                                nodeUpMetric.getValue().deepCopy());
+            }
+            break;
+          default:
+            LOG.warn("Query: " + queryKey + " not supported.");
+        }
+      } finally {
+        // Closes the connection if it was dropped from the pool while in use.
+        if (cc != null) {
+          cc.release();
+        }
       }
-      if (!metricResults.isEmpty()) {
-        String returnJson = String.format(RESPONSE_FORMAT, metricResults);
-        responseJson = Util.convertStringToJson(returnJson);
+      if (metricResults.size() > 0) {
+        ObjectNode response = Json.newObject();
+        response.put("status", "success");
+        ObjectNode data = response.putObject("data");
+        data.put("resultType", "matrix");
+        data.set("result", metricResults);
+        responseJson = response;
       }
     }
     return responseJson;
@@ -115,7 +115,7 @@ public class Customer extends Model {
   }
 
   private boolean checkClusterInProvider(Universe universe, UUID providerUUID) {
-    for (Cluster cluster : universe.getUniverseDetails().clusters) {
+    for (Cluster cluster : universe.getUniverseDetailsReadOnly().clusters) {
       if (cluster.userIntent.provider.equals(providerUUID.toString())) {
         return true;
       }
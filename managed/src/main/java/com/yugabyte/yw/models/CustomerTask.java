@@ -3,6 +3,7 @@
 package com.yugabyte.yw.models;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -15,12 +16,19 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.SequenceGenerator;
+import javax.persistence.Transient;
 
+import com.avaje.ebean.Ebean;
 import com.avaje.ebean.Model;
+import com.avaje.ebean.SqlQuery;
+import com.avaje.ebean.SqlRow;
 import com.avaje.ebean.annotation.EnumValue;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.yugabyte.yw.commissioner.UserTaskDetails;
 
 import play.data.validation.Constraints;
+import play.libs.Json;
 
 @Entity
 public class CustomerTask extends Model {
@@ -152,6 +160,7 @@ public class CustomerTask extends Model {
     name="customer_task_id_seq", sequenceName="customer_task_id_seq", allocationSize=1)
   @GeneratedValue(strategy = GenerationType.SEQUENCE, generator="customer_task_id_seq")
   private Long id;
+  public Long getId() { return id; }
 
   @Constraints.Required
   @Column(nullable = false)
@@ -200,6 +209,21 @@ public class CustomerTask extends Model {
     }
   }
 
+  // The state and progress of the task, only set on the customer tasks returned by findPage.
+  @Transient
+  private TaskInfo.State taskState;
+  public TaskInfo.State getTaskState() { return taskState; }
+
+  @Transient
+  private double percentComplete;
+  public double getPercentComplete() { return percentComplete; }
+
+  // The state of the user facing subtask groups, only set by findWithProgress.
+  @Transient
+  private UserTaskDetails userTaskDetails;
+  @JsonIgnore
+  public UserTaskDetails getUserTaskDetails() { return userTaskDetails; }
+
   public static final Find<Long, CustomerTask> find = new Find<Long, CustomerTask>(){};
 
   public static CustomerTask create(Customer customer, UUID targetUUID, UUID taskUUID,
@@ -248,4 +272,131 @@ public class CustomerTask extends Model {
       return null;
     }
   }
+
+  // Selects the customer tasks along with the state and progress of their task infos.
+  private static final String SELECT_WITH_PROGRESS =
+    "SELECT ct.id, ct.customer_uuid, ct.task_uuid, ct.target_type, ct.target_name, ct.type, " +
+    "ct.target_uuid, ct.create_time, ct.completion_time, ti.task_state, ti.num_sub_tasks, " +
+    "ti.num_sub_tasks_done, ti.sub_task_group_states " +
+    "FROM customer_task ct JOIN task_info ti ON ti.uuid = ct.task_uuid ";
+
+  /**
+   * Returns the customer task of the task, along with the state, progress and subtask group states
+   * of the task, with a single query, or null if there is none.
+   */
+  public static CustomerTask findWithProgress(UUID taskUUID) {
+    SqlQuery query = Ebean.createSqlQuery(SELECT_WITH_PROGRESS + "WHERE ct.task_uuid = :taskUUID");
+    query.setParameter("taskUUID", taskUUID);
+    SqlRow row = query.findUnique();
+    if (row == null) {
+      return null;
+    }
+    CustomerTask task = fromRow(row);
+    String groupStates = row.getString("sub_task_group_states");
+    if (groupStates == null) {
+      // The progress is not kept on the tasks created before it was, so compute it from the
+      // subtasks.
+      TaskInfo taskInfo = TaskInfo.get(taskUUID);
+      task.percentComplete = taskInfo.getPercentCompleted();
+      task.userTaskDetails = taskInfo.getUserTaskDetails();
+    } else {
+      task.userTaskDetails = TaskInfo.toUserTaskDetails(Json.parse(groupStates), task.taskState);
+    }
+    return task;
+  }
+
+  /**
+   * Returns a page of the tasks of the customer, newest first, along with the state and progress
+   * of each task, with a single query joining the task infos. Pages are keyed on the id of the
+   * customer tasks, so a page does not shift as new tasks are created.
+   *
+   * @param targetUUID, targetType, type, state : optional filters, ignored when null.
+   * @param beforeId : if not null, only the tasks older than the customer task with this id.
+   * @param maxTasks : the page size.
+   */
+  public static List<CustomerTask> findPage(UUID customerUUID, UUID targetUUID,
+                                            TargetType targetType, TaskType type,
+                                            TaskInfo.State state, Long beforeId, int maxTasks) {
+    StringBuilder sb = new StringBuilder(SELECT_WITH_PROGRESS);
+    sb.append("WHERE ct.customer_uuid = :customerUUID");
+    if (targetUUID != null) {
+      sb.append(" AND ct.target_uuid = :targetUUID");
+    }
+    if (targetType != null) {
+      sb.append(" AND ct.target_type = :targetType");
+    }
+    if (type != null) {
+      sb.append(" AND ct.type = :type");
+    }
+    if (state != null) {
+      sb.append(" AND ti.task_state = :state");
+    }
+    if (beforeId != null) {
+      sb.append(" AND ct.id < :beforeId");
+    }
+    sb.append(" ORDER BY ct.id DESC");
+    SqlQuery query = Ebean.createSqlQuery(sb.toString());
+    query.setParameter("customerUUID", customerUUID);
+    if (targetUUID != null) {
+      query.setParameter("targetUUID", targetUUID);
+    }
+    if (targetType != null) {
+      query.setParameter("targetType", toDbValue(targetType));
+    }
+    if (type != null) {
+      query.setParameter("type", toDbValue(type));
+    }
+    if (state != null) {
+      query.setParameter("state", state.name());
+    }
+    if (beforeId != null) {
+      query.setParameter("beforeId", beforeId);
+    }
+    query.setMaxRows(maxTasks);
+
+    List<CustomerTask> tasks = new ArrayList<>();
+    for (SqlRow row : query.findList()) {
+      tasks.add(fromRow(row));
+    }
+    return tasks;
+  }
+
+  private static CustomerTask fromRow(SqlRow row) {
+    CustomerTask task = new CustomerTask();
+    task.id = row.getLong("id");
+    task.customerUUID = row.getUUID("customer_uuid");
+    task.taskUUID = row.getUUID("task_uuid");
+    task.targetType = fromDbValue(TargetType.class, row.getString("target_type"));
+    task.targetName = row.getString("target_name");
+    task.type = fromDbValue(TaskType.class, row.getString("type"));
+    task.targetUUID = row.getUUID("target_uuid");
+    task.createTime = row.getTimestamp("create_time");
+    task.completionTime = row.getTimestamp("completion_time");
+    task.taskState = TaskInfo.State.valueOf(row.getString("task_state"));
+    Integer numSubTasks = row.getInteger("num_sub_tasks");
+    Integer numSubTasksDone = row.getInteger("num_sub_tasks_done");
+    task.percentComplete = numSubTasks == null || numSubTasks == 0 ? 0.0 :
+        numSubTasksDone * 100.0 / numSubTasks;
+    return task;
+  }
+
+  // The values stored for the enums, which differ from their names for some.
+  private static String toDbValue(Enum<?> value) {
+    try {
+      EnumValue enumValue =
+          value.getDeclaringClass().getField(value.name()).getAnnotation(EnumValue.class);
+      return enumValue == null ? value.name() : enumValue.value();
+    } catch (NoSuchFieldException e) {
+      return value.name();
+    }
+  }
+
+  private static <T extends Enum<T>> T fromDbValue(Class<T> enumClass, String dbValue) {
+    for (T value : enumClass.getEnumConstants()) {
+      if (toDbValue(value).equals(dbValue)) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Unknown " + enumClass.getSimpleName() + ": " + dbValue);
+  }
 }
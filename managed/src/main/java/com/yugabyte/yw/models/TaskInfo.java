@@ -2,10 +2,18 @@
 
 package com.yugabyte.yw.models;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.Column;
@@ -14,19 +22,26 @@ import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.persistence.Id;
 
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.Expr;
 import com.avaje.ebean.Model;
 import com.avaje.ebean.Query;
+import com.avaje.ebean.SqlRow;
+import com.avaje.ebean.SqlUpdate;
 import com.avaje.ebean.annotation.CreatedTimestamp;
 import com.avaje.ebean.annotation.DbJson;
 import com.avaje.ebean.annotation.EnumValue;
 import com.avaje.ebean.annotation.UpdatedTimestamp;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.yugabyte.yw.commissioner.UserTaskDetails;
 import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskDetails;
 import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskGroupType;
 import com.yugabyte.yw.models.helpers.TaskType;
 import play.data.validation.Constraints;
+import play.libs.Json;
 
 import static com.yugabyte.yw.commissioner.UserTaskDetails.createSubTask;
 
@@ -105,6 +120,20 @@ public class TaskInfo extends Model {
   @Column(nullable = false)
   private String owner;
 
+  // The number of subtasks, and of the subtasks that succeeded, and the state of each user facing
+  // subtask group as a JSON array of {type, state} in the order the groups run. These are updated
+  // whenever subtasks change state, so that the progress of a task is read without loading its
+  // subtasks. The group states are null for tasks created before they were kept.
+  @Column(columnDefinition = "integer default 0")
+  private Integer numSubTasks = 0;
+
+  @Column(columnDefinition = "integer default 0")
+  private Integer numSubTasksDone = 0;
+
+  @Column(columnDefinition = "TEXT")
+  @DbJson
+  private JsonNode subTaskGroupStates = Json.newArray();
+
   public TaskInfo(TaskType taskType) {
     this.taskType = taskType;
   }
@@ -117,6 +146,10 @@ public class TaskInfo extends Model {
     return updateTime;
   }
 
+  public String getOwner() {
+    return owner;
+  }
+
   public UUID getParentUUID() {
     return parentUuid;
   }
@@ -149,6 +182,13 @@ public class TaskInfo extends Model {
     return uuid;
   }
 
+  /**
+   * Sets the id of a task that is not saved yet, so that it is known before the insert.
+   */
+  public void setTaskUUID(UUID uuid) {
+    this.uuid = uuid;
+  }
+
   public void setOwner(String owner) {
     this.owner = owner;
   }
@@ -184,6 +224,133 @@ public class TaskInfo extends Model {
     return find.byId(taskUUID);
   }
 
+  /**
+   * Returns the current time of the database. Lease times are all taken from this clock, so that
+   * the clocks of the processes sharing the tasks need not agree.
+   */
+  private static Date dbNow() {
+    return Ebean.createSqlQuery("SELECT CURRENT_TIMESTAMP AS now").findUnique().getTimestamp("now");
+  }
+
+  private static Date staleBefore(long leaseMs) {
+    return new Date(dbNow().getTime() - leaseMs);
+  }
+
+  /**
+   * Returns the user tasks, oldest first, that have not completed and that either have no owner or
+   * whose owner has not heartbeated for the length of a lease, i.e. the tasks another process may
+   * claim. Only tasks the user can see (those with a customer task) are returned, so that subtasks
+   * left behind before being attached to their parent are never picked up.
+   */
+  public static List<TaskInfo> findClaimable(long leaseMs, int maxTasks) {
+    Date staleBefore = staleBefore(leaseMs);
+    return find.where()
+        .isNull("parentUuid")
+        .in("taskState", State.Created, State.Initializing, State.Running)
+        .or(Expr.eq("owner", ""), Expr.lt("updateTime", staleBefore))
+        .raw("uuid in (select task_uuid from customer_task)")
+        .orderBy("createTime asc")
+        .setMaxRows(maxTasks)
+        .findList();
+  }
+
+  /**
+   * Makes the given process the owner of the task, if the task has not completed and either has
+   * no owner or its owner has not heartbeated for the length of a lease. This is a single
+   * conditional update, so when several processes race to claim the same task only one of them
+   * gets it.
+   *
+   * @return true if the task was claimed.
+   */
+  public static boolean claim(UUID taskUUID, String owner, long leaseMs) {
+    String updateQuery = "UPDATE task_info SET owner = :owner, update_time = CURRENT_TIMESTAMP " +
+      "WHERE uuid = :uuid AND task_state IN ('Created', 'Initializing', 'Running') " +
+      "AND (owner = '' OR update_time < :staleBefore)";
+    SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
+    update.setParameter("owner", owner);
+    update.setParameter("uuid", taskUUID);
+    update.setParameter("staleBefore", staleBefore(leaseMs));
+    return Ebean.execute(update) == 1;
+  }
+
+  /**
+   * Renews the lease of the given owner on the tasks, with a single statement.
+   *
+   * @return the tasks among them that are no longer owned by the given process, e.g. because their
+   * lease expired and another process claimed them.
+   */
+  public static Set<UUID> heartbeat(Collection<UUID> taskUUIDs, String owner) {
+    Set<UUID> lost = new HashSet<>(taskUUIDs);
+    if (taskUUIDs.isEmpty()) {
+      return lost;
+    }
+    String updateQuery = "UPDATE task_info SET update_time = CURRENT_TIMESTAMP " +
+      "WHERE owner = ? AND uuid IN (" +
+      String.join(", ", Collections.nCopies(taskUUIDs.size(), "?")) + ")";
+    SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
+    int index = 1;
+    update.setParameter(index++, owner);
+    for (UUID taskUUID : taskUUIDs) {
+      update.setParameter(index++, taskUUID);
+    }
+    if (Ebean.execute(update) == taskUUIDs.size()) {
+      lost.clear();
+      return lost;
+    }
+    // Some were lost, which is rare, find out which.
+    for (TaskInfo taskInfo : find.where().in("uuid", taskUUIDs).eq("owner", owner).findList()) {
+      lost.remove(taskInfo.getTaskUUID());
+    }
+    return lost;
+  }
+
+  /**
+   * Saves the state of the task, and renews its lease, if the given process still owns it, so that
+   * a process that lost the task to another one cannot overwrite what the new owner does.
+   *
+   * @return true if the state was saved.
+   */
+  public static boolean updateState(UUID taskUUID, State state, String owner) {
+    String updateQuery = "UPDATE task_info SET task_state = :state, " +
+      "update_time = CURRENT_TIMESTAMP WHERE uuid = :uuid AND owner = :owner";
+    SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
+    update.setParameter("state", state.name());
+    update.setParameter("uuid", taskUUID);
+    update.setParameter("owner", owner);
+    return Ebean.execute(update) == 1;
+  }
+
+  /**
+   * Returns whether the given process owns the task.
+   */
+  public static boolean isOwner(UUID taskUUID, String owner) {
+    return find.where().eq("uuid", taskUUID).eq("owner", owner).findRowCount() == 1;
+  }
+
+  /**
+   * Gives up the ownership of the task, if the given process still owns it, so that any process
+   * can claim it.
+   */
+  public static void release(UUID taskUUID, String owner) {
+    String updateQuery = "UPDATE task_info SET owner = '' WHERE uuid = :uuid AND owner = :owner";
+    SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
+    update.setParameter("uuid", taskUUID);
+    update.setParameter("owner", owner);
+    Ebean.execute(update);
+  }
+
+  /**
+   * Deletes the subtasks of this task at the positions where some subtask did not succeed, i.e.
+   * the subtask groups that will be created again when the task resumes.
+   */
+  public void deleteIncompleteSubTasks() {
+    String deleteQuery = "DELETE FROM task_info WHERE parent_uuid = :uuid AND position IN " +
+      "(SELECT position FROM task_info WHERE parent_uuid = :uuid AND task_state <> 'Success')";
+    SqlUpdate delete = Ebean.createSqlUpdate(deleteQuery);
+    delete.setParameter("uuid", getTaskUUID());
+    Ebean.execute(delete);
+  }
+
   public List<TaskInfo> getSubTasks() {
     Query<TaskInfo> subTaskQuery = TaskInfo.find.where()
         .eq("parent_uuid", getTaskUUID())
@@ -200,6 +367,142 @@ public class TaskInfo extends Model {
     return sb.toString();
   }
 
+  /**
+   * What a subtask counts for in the progress of its parent task.
+   */
+  public static final class ProgressKey {
+    public final SubTaskGroupType groupType;
+    public final int position;
+    public final State state;
+
+    public ProgressKey(SubTaskGroupType groupType, int position, State state) {
+      this.groupType = groupType;
+      this.position = position;
+      this.state = state;
+    }
+
+    public static ProgressKey of(TaskInfo subTask) {
+      return new ProgressKey(subTask.subTaskGroupType,
+                             subTask.position == null ? -1 : subTask.position, subTask.taskState);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ProgressKey)) {
+        return false;
+      }
+      ProgressKey other = (ProgressKey) o;
+      return groupType == other.groupType && position == other.position && state == other.state;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(groupType, position, state);
+    }
+  }
+
+  /**
+   * Recomputes the progress of the task from the states of its subtasks, with a single aggregate
+   * query, and saves it on the task. The task row is locked first, so that concurrent updates of
+   * the same task save in the order they read. While a task runs, its progress is kept up to date
+   * without reading its subtasks back, see TaskInfoWriter.
+   */
+  public static void updateProgress(UUID taskUUID) {
+    Ebean.beginTransaction();
+    try {
+      Ebean.createSqlQuery("SELECT uuid FROM task_info WHERE uuid = :uuid FOR UPDATE")
+          .setParameter("uuid", taskUUID)
+          .findUnique();
+      saveProgress(taskUUID, loadProgressCounts(taskUUID));
+      Ebean.commitTransaction();
+    } finally {
+      Ebean.endTransaction();
+    }
+  }
+
+  /**
+   * Returns the number of subtasks of the task by group type, position and state.
+   */
+  public static Map<ProgressKey, Integer> loadProgressCounts(UUID taskUUID) {
+    String selectQuery = "SELECT sub_task_group_type, position, task_state, " +
+      "COUNT(*) AS num_tasks FROM task_info WHERE parent_uuid = :uuid " +
+      "GROUP BY sub_task_group_type, position, task_state";
+    Map<ProgressKey, Integer> counts = new HashMap<>();
+    for (SqlRow row : Ebean.createSqlQuery(selectQuery).setParameter("uuid", taskUUID).findList()) {
+      String groupType = row.getString("sub_task_group_type");
+      Integer position = row.getInteger("position");
+      ProgressKey key = new ProgressKey(
+          groupType == null ? null : SubTaskGroupType.valueOf(groupType),
+          position == null ? -1 : position, State.valueOf(row.getString("task_state")));
+      counts.put(key, row.getInteger("num_tasks"));
+    }
+    return counts;
+  }
+
+  /**
+   * Saves the progress of the task given the number of its subtasks by group type, position and
+   * state, with a single row update.
+   */
+  public static void saveProgress(UUID taskUUID, Map<ProgressKey, Integer> counts) {
+    List<ProgressKey> keys = new ArrayList<>(counts.keySet());
+    keys.sort(Comparator.comparing(key -> key.position));
+    int numSubTasks = 0;
+    int numSubTasksDone = 0;
+    Map<SubTaskGroupType, State> groupStates = new LinkedHashMap<>();
+    for (ProgressKey key : keys) {
+      int numTasks = counts.get(key);
+      numSubTasks += numTasks;
+      if (key.state == State.Success) {
+        numSubTasksDone += numTasks;
+      }
+      if (key.groupType == null || key.groupType == SubTaskGroupType.Invalid) {
+        continue;
+      }
+      groupStates.merge(key.groupType, toGroupState(key.state), TaskInfo::mergeGroupStates);
+    }
+    ArrayNode groupStatesJson = Json.newArray();
+    for (Map.Entry<SubTaskGroupType, State> entry : groupStates.entrySet()) {
+      ObjectNode groupState = groupStatesJson.addObject();
+      groupState.put("type", entry.getKey().name());
+      groupState.put("state", entry.getValue().name());
+    }
+    String updateQuery = "UPDATE task_info SET num_sub_tasks = :numSubTasks, " +
+      "num_sub_tasks_done = :numSubTasksDone, percent_done = :percentDone, " +
+      "sub_task_group_states = :groupStates WHERE uuid = :uuid";
+    SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
+    update.setParameter("numSubTasks", numSubTasks);
+    update.setParameter("numSubTasksDone", numSubTasksDone);
+    update.setParameter("percentDone",
+                        numSubTasks == 0 ? 0 : numSubTasksDone * 100 / numSubTasks);
+    update.setParameter("groupStates", groupStatesJson.toString());
+    update.setParameter("uuid", taskUUID);
+    Ebean.execute(update);
+  }
+
+  // The state a subtask gives its user facing group: a failure or a running subtask shows, and so
+  // does a subtask yet to run, the other states are not shown.
+  private static State toGroupState(State subTaskState) {
+    switch (subTaskState) {
+      case Failure:
+      case Running:
+      case Created:
+        return subTaskState;
+      default:
+        return State.Unknown;
+    }
+  }
+
+  // Groups of the same type may run at the same time, a failure in any of them shows first, then
+  // a running one, then one yet to run.
+  private static State mergeGroupStates(State state1, State state2) {
+    for (State state : new State[] {State.Failure, State.Running, State.Created}) {
+      if (state1 == state || state2 == state) {
+        return state;
+      }
+    }
+    return State.Unknown;
+  }
+
   /**
    * Retrieve the UserTaskDetails for the task mapped to this TaskInfo object. Should only be called
    * on the user-level parent task, since only that task will have subtasks. Nothing will break if
@@ -209,6 +512,33 @@ public class TaskInfo extends Model {
    * subTaskGroups.
    */
   public UserTaskDetails getUserTaskDetails() {
+    if (subTaskGroupStates == null) {
+      return computeUserTaskDetails();
+    }
+    return toUserTaskDetails(subTaskGroupStates, taskState);
+  }
+
+  /**
+   * Builds the UserTaskDetails of a task from the states of its subtask groups as kept on the task.
+   */
+  public static UserTaskDetails toUserTaskDetails(JsonNode subTaskGroupStates, State taskState) {
+    UserTaskDetails taskDetails = new UserTaskDetails();
+    boolean customerTaskFailure = taskState.equals(State.Failure);
+    for (JsonNode groupState : subTaskGroupStates) {
+      SubTaskDetails subTask =
+          createSubTask(SubTaskGroupType.valueOf(groupState.get("type").asText()));
+      if (subTask == null) {
+        continue;
+      }
+      State state = State.valueOf(groupState.get("state").asText());
+      subTask.setState(state == State.Created && customerTaskFailure ? State.Unknown : state);
+      taskDetails.add(subTask);
+    }
+    return taskDetails;
+  }
+
+  // Builds the UserTaskDetails from the subtasks, for the tasks whose progress is not kept.
+  private UserTaskDetails computeUserTaskDetails() {
     UserTaskDetails taskDetails = new UserTaskDetails();
     List<TaskInfo> result = getSubTasks();
     Map<SubTaskGroupType, SubTaskDetails> userTasksMap = new HashMap<>();
@@ -223,7 +553,9 @@ public class TaskInfo extends Model {
         subTask = createSubTask(subTaskGroupType);
         taskDetails.add(subTask);
       } else if (subTask.getState().equals(State.Failure.name()) ||
-          subTask.getState().equals(State.Running.name())) {
+          (subTask.getState().equals(State.Running.name()) &&
+           taskInfo.getTaskState() != State.Failure)) {
+        // Groups of the same type may run at the same time, a failure in any of them shows.
         continue;
       }
       switch (taskInfo.getTaskState()) {
@@ -250,6 +582,9 @@ public class TaskInfo extends Model {
    * @return a number between 0.0 and 100.0.
    */
   public double getPercentCompleted() {
+    if (subTaskGroupStates != null) {
+      return numSubTasks == 0 ? 0.0 : numSubTasksDone * 100.0 / numSubTasks;
+    }
     Query<TaskInfo> subTaskQuery = TaskInfo.find.where()
         .eq("parent_uuid", getTaskUUID())
         .orderBy("position asc");
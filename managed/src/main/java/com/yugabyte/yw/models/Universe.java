@@ -4,6 +4,11 @@ package com.yugabyte.yw.models;
 
 import com.google.common.net.HostAndPort;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -16,15 +21,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import java.util.stream.Collectors;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Striped;
 import com.yugabyte.yw.cloud.UniverseResourceDetails;
 import com.yugabyte.yw.common.NodeActionType;
 import com.yugabyte.yw.models.helpers.PlacementInfo;
@@ -114,23 +131,54 @@ public class Universe extends Model {
     }
   }
 
-  // The Json serialized version of universeDetails. This is used only in read from and writing to
-  // the DB.
-  @Constraints.Required
-  @Column(columnDefinition = "TEXT", nullable = false)
+  // The Json serialized version of universeDetails, as written by older versions. This is used only
+  // in read from the DB, for the universes that have not been saved in the binary format yet.
+  @Column(columnDefinition = "TEXT")
   private String universeDetailsJson;
 
+  // The binary serialized version of universeDetails, see encodeDetails. This is used only in read
+  // from and writing to the DB.
+  @Column(columnDefinition = "bytea")
+  private byte[] universeDetailsBinary;
+
+  // The details owned by this object: set on create, or copied from the shared details on the
+  // first call of getUniverseDetails.
   private UniverseDefinitionTaskParams universeDetails;
+
+  // The details of this version of the universe shared by all readers, see get.
+  @Transient
+  private CachedDetails sharedDetails;
+
   public void setUniverseDetails(UniverseDefinitionTaskParams details) {
     universeDetails = details;
   }
+
+  /**
+   * Returns the details of the universe, which the caller is free to modify, e.g. in an updater.
+   * The first call on an object returned by get makes a copy of the shared details.
+   */
   public UniverseDefinitionTaskParams getUniverseDetails() {
+    if (universeDetails == null && sharedDetails != null) {
+      universeDetails = sharedDetails.copy();
+    }
+    return universeDetails;
+  }
+
+  /**
+   * Returns the details of the universe without copying them. They may be shared with the other
+   * readers of this version of the universe, and must not be modified.
+   */
+  @JsonIgnore
+  public UniverseDefinitionTaskParams getUniverseDetailsReadOnly() {
+    if (universeDetails == null && sharedDetails != null) {
+      return sharedDetails.shared();
+    }
     return universeDetails;
   }
 
   public String getDnsName() {
     Provider p = Provider.get(
-        UUID.fromString(universeDetails.getPrimaryCluster().userIntent.provider));
+        UUID.fromString(getUniverseDetailsReadOnly().getPrimaryCluster().userIntent.provider));
     if (p == null) {
       return null;
     }
@@ -151,9 +199,10 @@ public class Universe extends Model {
     if (dnsName != null) {
       json.put("dnsName", dnsName);
     }
-    UniverseDefinitionTaskParams params = getUniverseDetails();
+    UniverseDefinitionTaskParams params = getUniverseDetailsReadOnly();
     try {
-      json.set("resources", Json.toJson(UniverseResourceDetails.create(getNodes(), params)));
+      json.set("resources", Json.toJson(
+          UniverseResourceDetails.create(params.nodeDetailsSet, params)));
     } catch (Exception e) {
       json.set("resources", null);
     }
@@ -171,6 +220,36 @@ public class Universe extends Model {
     return json;
   }
 
+  /**
+   * Returns the fields of the universe shown in universe lists, which are much cheaper to compute
+   * and send than toJson.
+   */
+  public ObjectNode toSummaryJson() {
+    ObjectNode json = Json.newObject()
+        .put("universeUUID", universeUUID.toString())
+        .put("name", name)
+        .put("creationDate", creationDate.toString())
+        .put("version", version);
+    UniverseDefinitionTaskParams details = getUniverseDetailsReadOnly();
+    if (details == null) {
+      return json;
+    }
+    json.put("updateInProgress", details.updateInProgress)
+        .put("updateSucceeded", details.updateSucceeded);
+    ObjectNode nodeStates = Json.newObject();
+    Collection<NodeDetails> nodes = details.nodeDetailsSet;
+    if (nodes == null) {
+      nodes = Collections.emptyList();
+    }
+    for (NodeDetails node : nodes) {
+      String state = node.state == null ? "Unknown" : node.state.name();
+      nodeStates.put(state, nodeStates.path(state).asInt() + 1);
+    }
+    json.put("numNodes", nodes.size());
+    json.set("nodeStates", nodeStates);
+    return json;
+  }
+
   public static final Find<UUID, Universe> find = new Find<UUID, Universe>() {
   };
 
@@ -201,9 +280,10 @@ public class Universe extends Model {
     universe.customerId = customerId;
     // Create the default universe details. This should be updated after creation.
     universe.universeDetails = taskParams;
-    universe.universeDetailsJson = Json.stringify(Json.toJson(universe.universeDetails));
+    JsonNode detailsJson = Json.toJson(universe.universeDetails);
+    universe.universeDetailsBinary = encodeDetails(detailsJson);
     LOG.debug("Created universe {} with details [{}] with name {}.",
-        universe.universeUUID, universe.universeDetailsJson, universe.name);
+        universe.universeUUID, detailsJson, universe.name);
     // Save the object.
     universe.save();
     return universe;
@@ -228,32 +308,152 @@ public class Universe extends Model {
   }
 
   /**
-   * Returns the Universe object given its uuid.
+   * Fetch ONLY the universeUUID, name and version fields of the given universes, ordered by name.
+   * WARNING: Returns partially filled Universe objects!!
+   * @return list of the universes
+   */
+  public static List<Universe> getVersions(Set<UUID> universeUUIDs) {
+    if (universeUUIDs.isEmpty()) {
+      return new ArrayList<>();
+    }
+    return find.select("universeUUID, name, version")
+               .where().idIn(new ArrayList<>(universeUUIDs))
+               .orderBy("name, universeUUID")
+               .findList();
+  }
+
+  // The columns of a universe but its details, see get.
+  private static final String SELECT_WITHOUT_DETAILS =
+      "universeUUID, version, creationDate, name, customerId, config";
+
+  /**
+   * Returns the Universe object given its uuid. Its details are shared with the other readers of
+   * the same version, they are only read from the DB and parsed when not cached yet.
    *
    * @param universeUUID
    * @return the universe object
    */
   public static Universe get(UUID universeUUID) {
-    // Find the universe.
-    Universe universe = find.byId(universeUUID);
+    // Find the universe, without its details.
+    Universe universe = find.select(SELECT_WITHOUT_DETAILS)
+                            .where().idEq(universeUUID)
+                            .findUnique();
     if (universe == null) {
       throw new RuntimeException("Cannot find universe " + universeUUID);
     }
 
-    JsonNode detailsJson = Json.parse(universe.universeDetailsJson);
-    universe.universeDetails = Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
+    CachedDetails cached = detailsCache.getIfPresent(universeUUID);
+    if (cached == null || cached.version != universe.version) {
+      universe = find.byId(universeUUID);
+      if (universe == null) {
+        throw new RuntimeException("Cannot find universe " + universeUUID);
+      }
+      cached = readDetails(universe);
+    }
+    universe.sharedDetails = cached;
+
+    // Return the universe object.
+    return universe;
+  }
+
+  // Parses the details read from the DB and caches them. Returns null for null details, which
+  // fromJson cannot read back, and are not cached.
+  private static CachedDetails readDetails(Universe universe) {
+    JsonNode detailsJson = universe.universeDetailsBinary != null ?
+        decodeDetails(universe.universeDetailsBinary) : Json.parse(universe.universeDetailsJson);
+    if (detailsJson == null || detailsJson.isNull()) {
+      detailsCache.invalidate(universe.universeUUID);
+      return null;
+    }
+    UniverseDefinitionTaskParams details =
+        Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
 
     // For backwards compatibility from {universeDetails: {"userIntent": <foo>, "placementInfo": <bar>}}
     // to {universeDetails: {clusters: [{"userIntent": <foo>, "placementInfo": <bar>},...]}}
-    if (detailsJson != null && !detailsJson.isNull() &&
-        (!detailsJson.has("clusters") || detailsJson.get("clusters").size() == 0)) {
+    if (!detailsJson.has("clusters") || detailsJson.get("clusters").size() == 0) {
       UserIntent userIntent = Json.fromJson(detailsJson.get("userIntent"), UserIntent.class);
       PlacementInfo placementInfo = Json.fromJson(detailsJson.get("placementInfo"), PlacementInfo.class);
-      universe.universeDetails.upsertPrimaryCluster(userIntent, placementInfo);
+      details.upsertPrimaryCluster(userIntent, placementInfo);
+      detailsJson = Json.toJson(details);
     }
+    CachedDetails cached = new CachedDetails(universe.version, detailsJson, details);
+    cacheDetails(universe.universeUUID, cached);
+    return cached;
+  }
 
-    // Return the universe object.
-    return universe;
+  // Max number of universes whose details are kept parsed.
+  private static final int MAX_CACHED_DETAILS = 1000;
+
+  /**
+   * The details of a version of a universe. Readers share one bound instance, which must not be
+   * modified. Writers bind their own copy from the json tree.
+   */
+  private static class CachedDetails {
+    final int version;
+    final JsonNode detailsJson;
+    private volatile UniverseDefinitionTaskParams shared;
+
+    CachedDetails(int version, JsonNode detailsJson, UniverseDefinitionTaskParams shared) {
+      this.version = version;
+      this.detailsJson = detailsJson;
+      this.shared = shared;
+    }
+
+    UniverseDefinitionTaskParams shared() {
+      UniverseDefinitionTaskParams details = shared;
+      if (details == null) {
+        // Concurrent readers may each bind the details, any of the copies will do.
+        details = Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
+        shared = details;
+      }
+      return details;
+    }
+
+    UniverseDefinitionTaskParams copy() {
+      return Json.fromJson(detailsJson, UniverseDefinitionTaskParams.class);
+    }
+  }
+
+  // The details of the recently used universes, keyed by universe and checked against the version
+  // read from the DB, which every write of the details bumps.
+  private static final Cache<UUID, CachedDetails> detailsCache =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_DETAILS).build();
+
+  // Caches the details unless newer ones are cached already.
+  private static void cacheDetails(UUID universeUUID, CachedDetails details) {
+    detailsCache.asMap().merge(universeUUID, details,
+        (cached, newer) -> cached.version > newer.version ? cached : newer);
+  }
+
+  // The first byte of the binary universe details tells their format. So far there is one: CBOR,
+  // deflated, which is several times smaller than the json text of large universes.
+  private static final byte DETAILS_FORMAT_CBOR_DEFLATE = 1;
+
+  private static final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+  static byte[] encodeDetails(JsonNode detailsJson) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(DETAILS_FORMAT_CBOR_DEFLATE);
+    try (OutputStream out =
+             new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_SPEED))) {
+      cborMapper.writeValue(out, detailsJson);
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot encode universe details", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  static JsonNode decodeDetails(byte[] detailsBinary) {
+    if (detailsBinary.length == 0 || detailsBinary[0] != DETAILS_FORMAT_CBOR_DEFLATE) {
+      throw new RuntimeException("Unknown universe details format " +
+          (detailsBinary.length == 0 ? "(empty)" : detailsBinary[0]));
+    }
+    try (InputStream in = new InflaterInputStream(
+             new ByteArrayInputStream(detailsBinary, 1, detailsBinary.length - 1))) {
+      return cborMapper.readTree(in);
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot decode universe details", e);
+    }
   }
 
   public static Set<Universe> get(Set<UUID> universeUUIDs) {
@@ -279,17 +479,70 @@ public class Universe extends Model {
     void run(Universe universe);
   }
 
+  // Serializes the updates to a universe within this process, so that they do not fail each other's
+  // compare and swap. Updates to universes on different stripes do not wait on each other, and the
+  // compare and swap still guards against updates from other processes.
+  private static final Striped<Lock> universeLocks = Striped.lock(256);
+
+  // The user task holding the lock on each universe this process updates, and the process that
+  // task belongs to. While a task holds the lock, the updates to the universe only apply as long
+  // as the task is still owned by this process, so that a process that lost the task to another
+  // one cannot overwrite the universe the new owner works on.
+  private static final Map<UUID, WriteLease> writeLeases = new ConcurrentHashMap<>();
+
+  private static class WriteLease {
+    final UUID taskUUID;
+    final String owner;
+
+    WriteLease(UUID taskUUID, String owner) {
+      this.taskUUID = taskUUID;
+      this.owner = owner;
+    }
+  }
+
+  /**
+   * Makes the updates of the universe from this process conditional on the given task being owned
+   * by the given process, unless another task of this process already holds the universe.
+   */
+  public static void setWriteLease(UUID universeUUID, UUID taskUUID, String owner) {
+    writeLeases.putIfAbsent(universeUUID, new WriteLease(taskUUID, owner));
+  }
+
+  /**
+   * Drops the condition on the updates of the universe, if the given task set it.
+   */
+  public static void clearWriteLease(UUID universeUUID, UUID taskUUID) {
+    writeLeases.computeIfPresent(universeUUID,
+        (uuid, lease) -> lease.taskUUID.equals(taskUUID) ? null : lease);
+  }
+
+  /**
+   * Drops the conditions the given task set on the updates of any universe.
+   */
+  public static void clearWriteLeases(UUID taskUUID) {
+    writeLeases.values().removeIf(lease -> lease.taskUUID.equals(taskUUID));
+  }
+
+  // The backoff between attempts of saveDetails starts at this and doubles up to the max.
+  private static final long MIN_RETRY_SLEEP_MS = 10;
+  private static final long MAX_RETRY_SLEEP_MS = 1000;
+
   // Helper api to make an atomic read of universe version, and compare and swap the
   // updated version to disk.
-  private static synchronized Universe readModifyWrite(UUID universeUUID,
-                                                       UniverseUpdater updater)
+  private static Universe readModifyWrite(UUID universeUUID, UniverseUpdater updater)
       throws ConcurrentModificationException {
-    Universe universe = Universe.get(universeUUID);
-    // Update the universe object which is supplied as a lambda function.
-    updater.run(universe);
-    // Save the universe object by doing a compare and swap.
-    universe.compareAndSwap();
-    return universe;
+    Lock lock = universeLocks.get(universeUUID);
+    lock.lock();
+    try {
+      Universe universe = Universe.get(universeUUID);
+      // Update the universe object which is supplied as a lambda function.
+      updater.run(universe);
+      // Save the universe object by doing a compare and swap.
+      universe.compareAndSwap();
+      return universe;
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -301,7 +554,7 @@ public class Universe extends Model {
    */
   public static Universe saveDetails(UUID universeUUID, UniverseUpdater updater) {
     int numRetriesLeft = 10;
-    long sleepTimeMillis = 100;
+    long sleepTimeMillis = MIN_RETRY_SLEEP_MS;
     // Try the read and update for a few times till it succeeds.
     Universe universe = null;
     while (numRetriesLeft > 0) {
@@ -315,12 +568,15 @@ public class Universe extends Model {
         if (numRetriesLeft == 0) {
           throw e;
         }
-        // If we have more retries left, wait and retry.
+        // If we have more retries left, wait a jittered backoff and retry, so that the updaters
+        // racing from other processes do not retry in lockstep.
         try {
-          Thread.sleep(sleepTimeMillis);
+          Thread.sleep(ThreadLocalRandom.current().nextLong(sleepTimeMillis / 2,
+                                                            sleepTimeMillis + 1));
         } catch (InterruptedException e1) {
           LOG.error("Error while sleeping", e1);
         }
+        sleepTimeMillis = Math.min(sleepTimeMillis * 2, MAX_RETRY_SLEEP_MS);
         continue;
       }
     }
@@ -336,10 +592,11 @@ public class Universe extends Model {
     // First get the universe.
     Universe universe = Universe.get(universeUUID);
     // Make sure this universe has been locked.
-    assert !universe.universeDetails.updateInProgress;
+    assert !universe.getUniverseDetailsReadOnly().updateInProgress;
     // Delete the universe.
     LOG.info("Deleting universe " + universe.name + ":" + universeUUID);
     universe.delete();
+    detailsCache.invalidate(universeUUID);
   }
 
   /**
@@ -590,27 +847,45 @@ public class Universe extends Model {
    * @return the new version number after the update if successful, or throws a RuntimeException.
    */
   private int compareAndSwap() {
-    // Update the universe details json.
-    universeDetailsJson = Json.stringify(Json.toJson(universeDetails));
+    // Update the serialized universe details. The text written by older versions is dropped.
+    // Details this object never copied are unchanged, their json tree is reused.
+    JsonNode detailsJson = universeDetails == null && sharedDetails != null ?
+        sharedDetails.detailsJson : Json.toJson(universeDetails);
+    universeDetailsBinary = encodeDetails(detailsJson);
 
     // Create the new version number.
     int newVersion = this.version + 1;
 
     // Save the object if the version is the same.
     String updateQuery = "UPDATE universe " +
-      "SET universe_details_json = :universeDetails, version = :newVersion " +
-      "WHERE universe_uuid = :universeUUID AND version = :curVersion";
+      "SET universe_details_binary = :universeDetails, universe_details_json = NULL, " +
+      "version = :newVersion WHERE universe_uuid = :universeUUID AND version = :curVersion";
+    // And, if a task of this process holds the universe, only if the task is still ours.
+    WriteLease lease = writeLeases.get(universeUUID);
+    if (lease != null) {
+      updateQuery += " AND EXISTS (SELECT 1 FROM task_info WHERE uuid = :taskUUID " +
+        "AND owner = :owner)";
+    }
     SqlUpdate update = Ebean.createSqlUpdate(updateQuery);
-    update.setParameter("universeDetails", universeDetailsJson);
+    update.setParameter("universeDetails", universeDetailsBinary);
     update.setParameter("universeUUID", universeUUID);
     update.setParameter("curVersion", this.version);
     update.setParameter("newVersion", newVersion);
+    if (lease != null) {
+      update.setParameter("taskUUID", lease.taskUUID);
+      update.setParameter("owner", lease.owner);
+    }
     LOG.debug("Swapped universe {}:{} details to [{}] with new version = {}.",
-              universeUUID, this.name, universeDetailsJson, newVersion);
+              universeUUID, this.name, detailsJson, newVersion);
     int modifiedCount = Ebean.execute(update);
 
     // Check if the save was not successful.
     if (modifiedCount == 0) {
+      if (lease != null && !TaskInfo.isOwner(lease.taskUUID, lease.owner)) {
+        // Retrying would not help, the task is gone to another process.
+        throw new IllegalStateException("Task " + lease.taskUUID + " updating universe " +
+            universeUUID + " is now owned by another process.");
+      }
       // Throw an exception as the save was not successful.
       throw new ConcurrentModificationException("Stale version " + this.version);
     } else if (modifiedCount > 1) {
@@ -621,6 +896,9 @@ public class Universe extends Model {
 
     // Update and return the current version number.
     this.version = newVersion;
+    universeDetailsJson = null;
+    sharedDetails = new CachedDetails(newVersion, detailsJson, null);
+    cacheDetails(universeUUID, sharedDetails);
     return this.version;
   }
 
@@ -133,6 +133,8 @@ public enum TaskType {
 
   WaitForServerReady("subtasks.WaitForServerReady"),
 
+  WaitForUnderReplicatedTablets("subtasks.WaitForUnderReplicatedTablets"),
+
   // Tasks belonging to subtasks.cloud classpath
   CloudAccessKeyCleanup("subtasks.cloud.CloudAccessKeyCleanup"),
 
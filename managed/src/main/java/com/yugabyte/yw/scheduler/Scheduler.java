@@ -31,6 +31,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.text.SimpleDateFormat;
 
 import com.yugabyte.yw.commissioner.Commissioner;
+import com.yugabyte.yw.commissioner.TaskExecutor;
 import com.yugabyte.yw.commissioner.tasks.MultiTableBackup;
 import com.yugabyte.yw.forms.BackupTableParams;
 import com.yugabyte.yw.models.helpers.TaskType;
@@ -199,14 +200,20 @@ public class Scheduler {
       schedule.stopSchedule();
       return;
     }
-    if (universe.getUniverseDetails().updateInProgress ||
-        universe.getUniverseDetails().backupInProgress) {
+    if (universe.getUniverseDetailsReadOnly().updateInProgress ||
+        universe.getUniverseDetailsReadOnly().backupInProgress) {
       LOG.warn("Cannot run Backup task since the universe {} is currently {}",
                taskParams.universeUUID.toString(), "in a locked state");
       return;
     }
+    if (!commissioner.hasCapacity()) {
+      LOG.warn("Deferring Backup task for universe {} to the next run, too many tasks queued",
+               taskParams.universeUUID.toString());
+      return;
+    }
     Backup backup = Backup.create(customerUUID, taskParams);
-    UUID taskUUID = commissioner.submit(TaskType.BackupUniverse, taskParams);
+    UUID taskUUID = commissioner.submit(TaskType.BackupUniverse, taskParams,
+                                        TaskExecutor.Priority.BACKGROUND);
     ScheduleTask.create(taskUUID, schedule.getScheduleUUID());
     LOG.info("Submitted task to backup table {}:{}, task uuid = {}.",
         taskParams.tableUUID, taskParams.tableName, taskUUID);
@@ -235,14 +242,20 @@ public class Scheduler {
       return;
     }
     Map<String, String> config = universe.getConfig();
-    if (universe.getUniverseDetails().updateInProgress || config.isEmpty() ||
+    if (universe.getUniverseDetailsReadOnly().updateInProgress || config.isEmpty() ||
         config.get(Universe.TAKE_BACKUPS).equals("false") ||
-        universe.getUniverseDetails().backupInProgress) {
+        universe.getUniverseDetailsReadOnly().backupInProgress) {
       LOG.warn("Cannot run MultiTableBackup task since the universe {} is currently {}",
                taskParams.universeUUID.toString(), "in a locked state");
       return;
     }
-    UUID taskUUID = commissioner.submit(TaskType.MultiTableBackup, taskParams);
+    if (!commissioner.hasCapacity()) {
+      LOG.warn("Deferring MultiTableBackup task for universe {} to the next run, too many " +
+               "tasks queued", taskParams.universeUUID.toString());
+      return;
+    }
+    UUID taskUUID = commissioner.submit(TaskType.MultiTableBackup, taskParams,
+                                        TaskExecutor.Priority.BACKGROUND);
     ScheduleTask.create(taskUUID, schedule.getScheduleUUID());
     LOG.info("Submitted backup for universe: {}, task uuid = {}.",
         taskParams.universeUUID, taskUUID);
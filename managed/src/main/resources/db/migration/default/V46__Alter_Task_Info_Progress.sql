@@ -0,0 +1,7 @@
+-- Copyright (c) YugaByte, Inc.
+
+alter table task_info add column num_sub_tasks integer default 0;
+alter table task_info add column num_sub_tasks_done integer default 0;
+alter table task_info add column sub_task_group_states TEXT;
+create index ix_task_info_parent_uuid on task_info (parent_uuid);
+create index ix_customer_task_task_uuid on customer_task (task_uuid);
@@ -0,0 +1,25 @@
+-- Copyright (c) YugaByte, Inc.
+
+update task_info set
+  num_sub_tasks = (select count(*) from task_info s where s.parent_uuid = task_info.uuid),
+  num_sub_tasks_done = (select count(*) from task_info s
+                        where s.parent_uuid = task_info.uuid and s.task_state = 'Success')
+  where parent_uuid is null;
+
+-- The state of each user facing subtask group, in the order the groups run, as kept by
+-- TaskInfo.updateProgress: a failed subtask shows first, then a running one, then one yet to run.
+update task_info set sub_task_group_states = coalesce((
+  select '[' || string_agg('{"type":"' || g.sub_task_group_type || '","state":"' || g.state || '"}',
+                           ',' order by g.position) || ']'
+  from (select sub_task_group_type, min(position) as position,
+          case when bool_or(task_state = 'Failure') then 'Failure'
+               when bool_or(task_state = 'Running') then 'Running'
+               when bool_or(task_state = 'Created') then 'Created'
+               else 'Unknown' end as state
+        from task_info s
+        where s.parent_uuid = task_info.uuid and s.sub_task_group_type is not null
+          and s.sub_task_group_type <> 'Invalid'
+        group by sub_task_group_type) g), '[]')
+  where parent_uuid is null;
+
+create index ix_customer_task_customer_uuid_id on customer_task (customer_uuid, id);
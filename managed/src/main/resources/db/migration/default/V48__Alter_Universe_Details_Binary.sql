@@ -0,0 +1,4 @@
+-- Copyright (c) YugaByte, Inc.
+
+alter table universe add column universe_details_binary bytea;
+alter table universe alter column universe_details_json drop not null;
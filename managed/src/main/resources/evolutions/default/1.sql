@@ -230,6 +230,9 @@ create table task_info (
   percent_done                  integer default 0,
   details                       TEXT default '{}' not null,
   owner                         varchar(255) not null,
+  num_sub_tasks                 integer default 0,
+  num_sub_tasks_done            integer default 0,
+  sub_task_group_states         TEXT,
   create_time                   timestamp not null,
   update_time                   timestamp not null,
   constraint ck_task_info_task_type check (task_type in ('CloudBootstrap','CloudCleanup','CreateCassandraTable','CreateUniverse','ReadOnlyClusterCreate','ReadOnlyClusterDelete','CreateKubernetesUniverse','DestroyUniverse','DestroyKubernetesUniverse','DeleteTable','BackupUniverse','MultiTableBackup','EditUniverse','EditKubernetesUniverse','KubernetesProvision','ImportIntoTable','UpgradeUniverse','UpgradeKubernetesUniverse','DeleteNodeFromUniverse','StopNodeInUniverse','StartNodeInUniverse','AddNodeToUniverse','RemoveNodeFromUniverse','ReleaseInstanceFromUniverse','SetUniverseKey','SetKubernetesUniverseKey','CreateKMSConfig','DeleteKMSConfig','AnsibleClusterServerCtl','AnsibleConfigureServers','AnsibleDestroyServer','AnsibleSetupServer','AnsibleUpdateNodeInfo','BulkImport','ChangeMasterConfig','CreateTable','DeleteNode','UpdateNodeProcess','DeleteTableFromUniverse','LoadBalancerStateChange','ModifyBlackList','ManipulateDnsRecordTask','RemoveUniverseEntry','SetNodeState','SwamperTargetsFileUpdate','UniverseUpdateSucceeded','UpdateAndPersistGFlags','UpdatePlacementInfo','UpdateSoftwareVersion','WaitForDataMove','WaitForLoadBalance','WaitForMasterLeader','WaitForServer','WaitForTServerHeartBeats','DeleteClusterFromUniverse','InstanceActions','WaitForServerReady','CloudAccessKeyCleanup','CloudAccessKeySetup','CloudInitializer','CloudProviderCleanup','CloudRegionCleanup','CloudRegionSetup','CloudSetup','BackupTable','WaitForLeadersOnPreferredOnly','EnableEncryptionAtRest','DisableEncryptionAtRest','DestroyEncryptionAtRest','KubernetesCommandExecutor','KubernetesWaitForPod','CopyEncryptionKeyFile','WaitForEncryptionKeyInMemory')),
@@ -245,7 +248,8 @@ create table universe (
   name                          varchar(255),
   customer_id                   bigint,
   config                        TEXT,
-  universe_details_json         TEXT not null,
+  universe_details_json         TEXT,
+  universe_details_binary       bytea,
   constraint uq_universe_name_customer_id unique (name,customer_id),
   constraint pk_universe primary key (universe_uuid)
 );
@@ -282,6 +286,10 @@ create index ix_availability_zone_region_uuid on availability_zone (region_uuid)
 alter table region add constraint fk_region_provider_uuid foreign key (provider_uuid) references provider (uuid) on delete restrict on update restrict;
 create index ix_region_provider_uuid on region (provider_uuid);
 
+create index ix_task_info_parent_uuid on task_info (parent_uuid);
+create index ix_customer_task_task_uuid on customer_task (task_uuid);
+create index ix_customer_task_customer_uuid_id on customer_task (customer_uuid, id);
+
 
 # --- !Downs
 
@@ -291,6 +299,10 @@ drop index if exists ix_availability_zone_region_uuid;
 alter table region drop constraint if exists fk_region_provider_uuid;
 drop index if exists ix_region_provider_uuid;
 
+drop index if exists ix_task_info_parent_uuid;
+drop index if exists ix_customer_task_task_uuid;
+drop index if exists ix_customer_task_customer_uuid_id;
+
 drop table if exists access_key;
 
 drop table if exists alert;
@@ -0,0 +1,26 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import com.yugabyte.yw.forms.UniverseTaskParams;
+
+/**
+ * Subtasks running a given body, for the tests of the task groups.
+ */
+public class FakeTasks {
+
+  // Named after a task type, since subtasks are persisted with the type of their class name.
+  public static class SwamperTargetsFileUpdate extends AbstractTaskBase {
+    private final Runnable body;
+
+    public SwamperTargetsFileUpdate(Runnable body) {
+      this.body = body;
+      initialize(new UniverseTaskParams());
+    }
+
+    @Override
+    public void run() {
+      body.run();
+    }
+  }
+}
@@ -43,6 +43,8 @@ import play.libs.Json;
 import scala.concurrent.ExecutionContext;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import io.prometheus.client.CollectorRegistry;
@@ -464,4 +466,60 @@ public class HealthCheckerTest extends FakeDBApplication {
     verify(mockHealthManager, times(2)).runCommand(
         any(), any(), any(), any(), any(), any(), eq(true), eq(false), any());
   }
+
+  private double getCheckCount(String result) {
+    Double count = testRegistry.getSampleValue("yb_health_check_duration_seconds_count",
+        new String[] {"result"}, new String[] {result});
+    return count == null ? 0 : count;
+  }
+
+  private void waitForCheckCount(String result, int expectedCount) {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (getCheckCount(result) < expectedCount && System.currentTimeMillis() < deadline) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+      }
+    }
+    assertEquals(expectedCount, getCheckCount(result), 0);
+  }
+
+  @Test
+  public void testScheduleRunnerChecksInParallel() {
+    setupUniverse("univ1");
+    setupUniverse("univ2");
+    setupAlertingData(null, false, false);
+    // Each check only completes once the other one started.
+    CountDownLatch started = new CountDownLatch(2);
+    when(mockHealthManager.runCommand(
+        any(), any(), any(), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      started.countDown();
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      return ShellProcessHandler.ShellResponse.create(0, "{}");
+    });
+    healthChecker.scheduleRunner();
+    waitForCheckCount("success", 2);
+    assertEquals(2, testRegistry.getSampleValue("yb_health_check_queue_delay_seconds_count"), 0);
+  }
+
+  @Test
+  public void testScheduleRunnerCheckTimeout() {
+    when(mockConfig.getLong("yb.health.check_timeout_ms")).thenReturn(100L);
+    setupUniverse("univ1");
+    setupAlertingData(null, false, false);
+    when(mockHealthManager.runCommand(
+        any(), any(), any(), any(), any(), any(), any(), any(), any())
+    ).thenAnswer(invocation -> {
+      // Like the health check script, which is stopped on interrupt.
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return ShellProcessHandler.ShellResponse.create(-1, "interrupted");
+    });
+    healthChecker.scheduleRunner();
+    waitForCheckCount("timeout", 1);
+  }
 }
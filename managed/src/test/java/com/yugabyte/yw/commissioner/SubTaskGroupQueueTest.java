@@ -0,0 +1,152 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import com.yugabyte.yw.commissioner.FakeTasks.SwamperTargetsFileUpdate;
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.forms.UniverseTaskParams;
+import com.yugabyte.yw.models.TaskInfo;
+import com.yugabyte.yw.models.helpers.TaskType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SubTaskGroupQueueTest extends FakeDBApplication {
+
+  private ExecutorService executor;
+  private List<String> ran;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+    ran = new CopyOnWriteArrayList<>();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private SubTaskGroup group(String name, Runnable body) {
+    SubTaskGroup subTaskGroup = new SubTaskGroup(name, executor);
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+      body.run();
+      ran.add(name);
+    }));
+    return subTaskGroup;
+  }
+
+  private SubTaskGroup group(String name) {
+    return group(name, () -> {});
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testSequentialByDefault() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    queue.add(group("a"));
+    queue.add(group("b"));
+    queue.add(group("c"));
+    queue.run();
+    assertEquals("[a, b, c]", ran.toString());
+  }
+
+  @Test
+  public void testIndependentGroupsOverlap() {
+    CountDownLatch bStarted = new CountDownLatch(1);
+    CountDownLatch cStarted = new CountDownLatch(1);
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    SubTaskGroup a = group("a");
+    queue.add(a);
+    // Each of b and c only completes once the other started.
+    SubTaskGroup b = group("b", () -> {
+      bStarted.countDown();
+      await(cStarted);
+    });
+    queue.add(b);
+    SubTaskGroup c = group("c", () -> {
+      cStarted.countDown();
+      await(bStarted);
+    });
+    queue.add(c);
+    queue.add(group("d"));
+    queue.setDependencies(b, a);
+    queue.setDependencies(c, a);
+    queue.run();
+    assertEquals(4, ran.size());
+    assertEquals("a", ran.get(0));
+    assertEquals("d", ran.get(3));
+  }
+
+  @Test
+  public void testFailureStopsDependents() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    SubTaskGroup a = group("a", () -> {
+      throw new RuntimeException("boom");
+    });
+    queue.add(a);
+    SubTaskGroup b = group("b");
+    queue.add(b);
+    queue.add(group("c"));
+    queue.setDependencies(b, a);
+    try {
+      queue.run();
+      fail("Expected the queue to fail");
+    } catch (RuntimeException e) {
+      // Expected.
+    }
+    assertTrue(ran.isEmpty());
+    assertEquals(TaskInfo.State.Failure, a.getUserSubTaskState());
+  }
+
+  @Test
+  public void testSkipsGroupsCompletedOutOfOrder() {
+    UUID userTaskUUID = UUID.randomUUID();
+    // The second group completed before the first one was interrupted.
+    TaskInfo completed = new TaskInfo(TaskType.SwamperTargetsFileUpdate);
+    completed.setTaskDetails(Json.toJson(new UniverseTaskParams()));
+    completed.setOwner("");
+    completed.setParentUuid(userTaskUUID);
+    completed.setPosition(1);
+    completed.setTaskState(TaskInfo.State.Success);
+    completed.save();
+    SubTaskGroupQueue.setCompletedPositions(userTaskUUID, Collections.singleton(1));
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(userTaskUUID);
+    queue.add(group("a"));
+    queue.add(group("b"));
+    queue.add(group("c"));
+    queue.run();
+    assertEquals("[a, c]", ran.toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDependencyMustBeAddedBefore() {
+    SubTaskGroupQueue queue = new SubTaskGroupQueue(UUID.randomUUID());
+    SubTaskGroup a = group("a");
+    SubTaskGroup b = group("b");
+    queue.add(a);
+    queue.add(b);
+    queue.setDependencies(a, b);
+  }
+}
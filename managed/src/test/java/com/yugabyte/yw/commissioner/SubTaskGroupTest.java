@@ -0,0 +1,144 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import com.yugabyte.yw.commissioner.FakeTasks.SwamperTargetsFileUpdate;
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.models.TaskInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SubTaskGroupTest extends FakeDBApplication {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testNumThreadsLimitsRunningTasks() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    SubTaskGroup subTaskGroup = new SubTaskGroup("test", executor);
+    subTaskGroup.setNumThreads(2);
+    for (int i = 0; i < 6; i++) {
+      subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleep(20);
+        running.decrementAndGet();
+      }));
+    }
+    subTaskGroup.run();
+    assertTrue(subTaskGroup.waitFor());
+    assertEquals(6, subTaskGroup.getNumTasksDone());
+    assertEquals(2, maxRunning.get());
+  }
+
+  @Test
+  public void testFailureCancelsSiblings() throws InterruptedException {
+    CountDownLatch slowStarted = new CountDownLatch(1);
+    CountDownLatch slowInterrupted = new CountDownLatch(1);
+    SubTaskGroup subTaskGroup = new SubTaskGroup("test", executor);
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+      slowStarted.countDown();
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        slowInterrupted.countDown();
+      }
+    }));
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+      try {
+        slowStarted.await();
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      throw new RuntimeException("boom");
+    }));
+    subTaskGroup.run();
+    long startTime = System.currentTimeMillis();
+    assertFalse(subTaskGroup.waitFor());
+    assertTrue(System.currentTimeMillis() - startTime < 10000);
+    assertTrue(slowInterrupted.await(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testFailureSkipsPendingTasks() {
+    AtomicBoolean ranAfterFailure = new AtomicBoolean();
+    SubTaskGroup subTaskGroup = new SubTaskGroup("test", executor);
+    subTaskGroup.setNumThreads(1);
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+      throw new RuntimeException("boom");
+    }));
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> ranAfterFailure.set(true)));
+    subTaskGroup.run();
+    assertFalse(subTaskGroup.waitFor());
+    assertFalse(ranAfterFailure.get());
+  }
+
+  @Test
+  public void testFailureMarksCancelledTasksFailed() {
+    UUID parentUUID = UUID.randomUUID();
+    SubTaskGroup subTaskGroup = new SubTaskGroup("test", executor);
+    subTaskGroup.setNumThreads(1);
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+      throw new RuntimeException("boom");
+    }));
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {}));
+    subTaskGroup.setTaskContext(0, parentUUID);
+    subTaskGroup.run();
+    assertFalse(subTaskGroup.waitFor());
+    List<TaskInfo> taskInfos = TaskInfo.find.where().eq("parent_uuid", parentUUID).findList();
+    assertEquals(2, taskInfos.size());
+    for (TaskInfo taskInfo : taskInfos) {
+      if (!taskInfo.getTaskDetails().has("errorString")) {
+        assertEquals(TaskInfo.State.Failure, taskInfo.getTaskState());
+      }
+    }
+  }
+
+  @Test
+  public void testIgnoreErrorsWaitsForAll() {
+    AtomicInteger ran = new AtomicInteger();
+    SubTaskGroup subTaskGroup = new SubTaskGroup("test", executor, true);
+    subTaskGroup.setNumThreads(1);
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(() -> {
+      throw new RuntimeException("boom");
+    }));
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(ran::incrementAndGet));
+    subTaskGroup.addTask(new SwamperTargetsFileUpdate(ran::incrementAndGet));
+    subTaskGroup.run();
+    assertFalse(subTaskGroup.waitFor());
+    assertEquals(2, ran.get());
+    assertEquals(2, subTaskGroup.getNumTasksDone());
+  }
+}
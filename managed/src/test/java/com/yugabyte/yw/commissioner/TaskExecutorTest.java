@@ -0,0 +1,137 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.yugabyte.yw.commissioner.TaskExecutor.Priority.BACKGROUND;
+import static com.yugabyte.yw.commissioner.TaskExecutor.Priority.INTERACTIVE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskExecutorTest {
+
+  // Holds on to the started tasks until the test runs them.
+  private static class ManualExecutor implements Executor {
+    List<Runnable> started = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable command) {
+      started.add(command);
+    }
+
+    void runFirst() {
+      started.remove(0).run();
+    }
+  }
+
+  private ManualExecutor executor;
+  private List<String> ran;
+
+  private Runnable task(String name) {
+    return () -> ran.add(name);
+  }
+
+  @Before
+  public void setUp() {
+    executor = new ManualExecutor();
+    ran = new ArrayList<>();
+  }
+
+  @Test
+  public void testRunningLimit() {
+    TaskExecutor taskExecutor = new TaskExecutor(executor, 2, 10, 10, 10);
+    UUID customer = UUID.randomUUID();
+    taskExecutor.submit(task("a"), customer, null, INTERACTIVE);
+    taskExecutor.submit(task("b"), customer, null, INTERACTIVE);
+    taskExecutor.submit(task("c"), customer, null, INTERACTIVE);
+    assertEquals(2, executor.started.size());
+    assertEquals(2, taskExecutor.getNumRunning());
+    assertEquals(1, taskExecutor.getNumQueued());
+
+    executor.runFirst();
+    assertEquals(2, executor.started.size());
+    assertEquals(0, taskExecutor.getNumQueued());
+    executor.runFirst();
+    executor.runFirst();
+    assertEquals(0, taskExecutor.getNumRunning());
+    assertEquals("[a, b, c]", ran.toString());
+  }
+
+  @Test
+  public void testCustomersTakeTurns() {
+    TaskExecutor taskExecutor = new TaskExecutor(executor, 1, 10, 10, 10);
+    UUID busy = UUID.randomUUID();
+    UUID other = UUID.randomUUID();
+    taskExecutor.submit(task("busy1"), busy, null, BACKGROUND);
+    taskExecutor.submit(task("busy2"), busy, null, BACKGROUND);
+    taskExecutor.submit(task("busy3"), busy, null, BACKGROUND);
+    taskExecutor.submit(task("other1"), other, null, BACKGROUND);
+    while (!executor.started.isEmpty()) {
+      executor.runFirst();
+    }
+    assertEquals("[busy1, other1, busy2, busy3]", ran.toString());
+  }
+
+  @Test
+  public void testInteractiveBeforeBackground() {
+    TaskExecutor taskExecutor = new TaskExecutor(executor, 1, 10, 10, 10);
+    UUID customer = UUID.randomUUID();
+    taskExecutor.submit(task("backup1"), customer, null, BACKGROUND);
+    taskExecutor.submit(task("backup2"), customer, null, BACKGROUND);
+    taskExecutor.submit(task("edit"), UUID.randomUUID(), null, INTERACTIVE);
+    while (!executor.started.isEmpty()) {
+      executor.runFirst();
+    }
+    assertEquals("[backup1, edit, backup2]", ran.toString());
+  }
+
+  @Test
+  public void testCustomerAndUniverseLimits() {
+    TaskExecutor taskExecutor = new TaskExecutor(executor, 10, 2, 1, 10);
+    UUID customer = UUID.randomUUID();
+    UUID universe = UUID.randomUUID();
+    taskExecutor.submit(task("u1"), customer, universe, INTERACTIVE);
+    taskExecutor.submit(task("u2"), customer, universe, INTERACTIVE);
+    // Not blocked by the universe limit of the task queued before it.
+    taskExecutor.submit(task("other"), customer, UUID.randomUUID(), INTERACTIVE);
+    // Over the customer limit.
+    taskExecutor.submit(task("third"), customer, null, INTERACTIVE);
+    assertEquals(2, executor.started.size());
+
+    executor.runFirst();
+    executor.runFirst();
+    assertEquals("[u1, other]", ran.toString());
+    assertEquals(2, executor.started.size());
+    executor.runFirst();
+    executor.runFirst();
+    assertEquals("[u1, other, u2, third]", ran.toString());
+  }
+
+  @Test
+  public void testRejectWhenQueueFull() {
+    TaskExecutor taskExecutor = new TaskExecutor(executor, 1, 10, 10, 2);
+    UUID customer = UUID.randomUUID();
+    taskExecutor.submit(task("a"), customer, null, INTERACTIVE);
+    taskExecutor.submit(task("b"), customer, null, INTERACTIVE);
+    taskExecutor.submit(task("c"), customer, null, INTERACTIVE);
+    assertFalse(taskExecutor.hasCapacity());
+    try {
+      taskExecutor.submit(task("d"), customer, null, BACKGROUND);
+      fail("Expected the task to be rejected");
+    } catch (RejectedExecutionException e) {
+      // Expected.
+    }
+    executor.runFirst();
+    assertTrue(taskExecutor.hasCapacity());
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import com.google.common.collect.ImmutableList;
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.models.TaskInfo;
+import com.yugabyte.yw.models.helpers.TaskType;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskInfoWriterTest extends FakeDBApplication {
+
+  private TaskInfo newTaskInfo() {
+    TaskInfo taskInfo = new TaskInfo(TaskType.AnsibleSetupServer);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("");
+    return taskInfo;
+  }
+
+  @Test
+  public void testInsertOnFlush() {
+    TaskInfo taskInfo = newTaskInfo();
+    TaskInfoWriter.insert(taskInfo);
+    // The id is known before the insert.
+    assertNotNull(taskInfo.getTaskUUID());
+    assertNull(TaskInfo.get(taskInfo.getTaskUUID()));
+    TaskInfoWriter.flush();
+    assertNotNull(TaskInfo.get(taskInfo.getTaskUUID()));
+  }
+
+  // Fails to insert, since the task type is required.
+  private TaskInfo newInvalidTaskInfo() {
+    TaskInfo taskInfo = new TaskInfo(null);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("");
+    return taskInfo;
+  }
+
+  @Test
+  public void testFailedRowDoesNotBlockOthers() {
+    TaskInfo taskInfo = newTaskInfo();
+    TaskInfo invalid = newInvalidTaskInfo();
+    TaskInfoWriter.insert(taskInfo);
+    TaskInfoWriter.insert(invalid);
+    TaskInfoWriter.flush();
+    assertNotNull(TaskInfo.get(taskInfo.getTaskUUID()));
+    // Retried, then dropped.
+    TaskInfoWriter.flush();
+    TaskInfoWriter.flush();
+    TaskInfo other = newTaskInfo();
+    TaskInfoWriter.insert(other);
+    TaskInfoWriter.updateNow(ImmutableList.of(other), t -> t.setPosition(3));
+    assertEquals(3, TaskInfo.get(other.getTaskUUID()).getPosition());
+    assertNull(TaskInfo.get(invalid.getTaskUUID()));
+  }
+
+  @Test
+  public void testUpdateNowThrowsOnFailure() {
+    TaskInfo invalid = newInvalidTaskInfo();
+    TaskInfoWriter.insert(invalid);
+    try {
+      TaskInfoWriter.updateNow(ImmutableList.of(invalid), t -> t.setPosition(3));
+      fail();
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains(invalid.getTaskUUID().toString()));
+    } finally {
+      TaskInfoWriter.delete(ImmutableList.of(invalid));
+    }
+  }
+
+  @Test
+  public void testUpdateOnFlush() {
+    TaskInfo taskInfo = newTaskInfo();
+    taskInfo.save();
+    UUID parentUUID = UUID.randomUUID();
+    TaskInfoWriter.update(ImmutableList.of(taskInfo), t -> t.setParentUuid(parentUUID));
+    assertNull(TaskInfo.get(taskInfo.getTaskUUID()).getParentUUID());
+    TaskInfoWriter.flush();
+    assertEquals(parentUUID, TaskInfo.get(taskInfo.getTaskUUID()).getParentUUID());
+  }
+
+  @Test
+  public void testUpdateNowFlushesPending() {
+    TaskInfo pending = newTaskInfo();
+    TaskInfoWriter.insert(pending);
+    TaskInfo taskInfo = newTaskInfo();
+    taskInfo.save();
+    TaskInfoWriter.updateNow(ImmutableList.of(taskInfo),
+                             t -> t.setTaskState(TaskInfo.State.Running));
+    assertEquals(TaskInfo.State.Running, TaskInfo.get(taskInfo.getTaskUUID()).getTaskState());
+    assertNotNull(TaskInfo.get(pending.getTaskUUID()));
+  }
+
+  @Test
+  public void testDelete() {
+    TaskInfo notInserted = newTaskInfo();
+    TaskInfoWriter.insert(notInserted);
+    TaskInfo inserted = newTaskInfo();
+    inserted.save();
+    TaskInfoWriter.delete(ImmutableList.of(notInserted, inserted));
+    TaskInfoWriter.flush();
+    assertNull(TaskInfo.get(notInserted.getTaskUUID()));
+    assertNull(TaskInfo.get(inserted.getTaskUUID()));
+  }
+
+  @Test
+  public void testProgressOfParent() {
+    TaskInfo userTask = new TaskInfo(TaskType.CreateUniverse);
+    userTask.setTaskDetails(Json.newObject());
+    userTask.setOwner("");
+    userTask.save();
+    TaskInfo subTask1 = newTaskInfo();
+    TaskInfo subTask2 = newTaskInfo();
+    for (TaskInfo subTask : ImmutableList.of(subTask1, subTask2)) {
+      subTask.setParentUuid(userTask.getTaskUUID());
+      subTask.setSubTaskGroupType(UserTaskDetails.SubTaskGroupType.Provisioning);
+      TaskInfoWriter.insert(subTask);
+    }
+    TaskInfoWriter.flush();
+    assertEquals(0.0, TaskInfo.get(userTask.getTaskUUID()).getPercentCompleted(), 0.0);
+
+    TaskInfoWriter.updateNow(ImmutableList.of(subTask1),
+        t -> t.setTaskState(TaskInfo.State.Success));
+    TaskInfo saved = TaskInfo.get(userTask.getTaskUUID());
+    assertEquals(50.0, saved.getPercentCompleted(), 0.0);
+    // The same as counted from the subtasks.
+    TaskInfo.updateProgress(userTask.getTaskUUID());
+    TaskInfo counted = TaskInfo.get(userTask.getTaskUUID());
+    assertEquals(Json.toJson(counted.getUserTaskDetails()),
+        Json.toJson(saved.getUserTaskDetails()));
+
+    TaskInfoWriter.delete(ImmutableList.of(subTask1));
+    assertEquals(0.0, TaskInfo.get(userTask.getTaskUUID()).getPercentCompleted(), 0.0);
+    TaskInfoWriter.forgetProgress(userTask.getTaskUUID());
+  }
+}
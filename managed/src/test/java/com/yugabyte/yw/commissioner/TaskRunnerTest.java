@@ -0,0 +1,110 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.commissioner;
+
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.forms.UpgradeParams;
+import com.yugabyte.yw.models.TaskInfo;
+import com.yugabyte.yw.models.helpers.TaskType;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TaskRunnerTest extends FakeDBApplication {
+
+  private TaskInfo createTask(TaskType taskType, TaskInfo.State state) {
+    UpgradeParams params = new UpgradeParams();
+    params.universeUUID = UUID.randomUUID();
+    params.ybSoftwareVersion = "1.0.0";
+    TaskInfo taskInfo = new TaskInfo(taskType);
+    taskInfo.setTaskDetails(Json.toJson(params));
+    // As claimed by this process.
+    taskInfo.setOwner(TaskRunner.getOwnerId());
+    taskInfo.setTaskState(state);
+    taskInfo.save();
+    return taskInfo;
+  }
+
+  private void createSubTask(TaskInfo parent, int position, TaskInfo.State state) {
+    TaskInfo subTask = new TaskInfo(TaskType.AnsibleConfigureServers);
+    subTask.setTaskDetails(Json.newObject());
+    subTask.setOwner("");
+    subTask.setParentUuid(parent.getTaskUUID());
+    subTask.setPosition(position);
+    subTask.setTaskState(state);
+    subTask.save();
+  }
+
+  @Test
+  public void testResumeCreatedTask() {
+    TaskInfo taskInfo = createTask(TaskType.UpgradeUniverse, TaskInfo.State.Created);
+    TaskRunner taskRunner = TaskRunner.resumeTask(taskInfo);
+    assertNotNull(taskRunner);
+    assertEquals(taskInfo.getTaskUUID(), taskRunner.getTaskUUID());
+    UpgradeParams params = (UpgradeParams) taskRunner.getTaskParams();
+    assertEquals("1.0.0", params.ybSoftwareVersion);
+  }
+
+  @Test
+  public void testResumeInterruptedTask() {
+    TaskInfo taskInfo = createTask(TaskType.UpgradeUniverse, TaskInfo.State.Running);
+    createSubTask(taskInfo, 0, TaskInfo.State.Success);
+    createSubTask(taskInfo, 1, TaskInfo.State.Success);
+    createSubTask(taskInfo, 1, TaskInfo.State.Running);
+    createSubTask(taskInfo, 2, TaskInfo.State.Created);
+    assertNotNull(TaskRunner.resumeTask(taskInfo));
+    // The incomplete groups are created again by the resumed run.
+    List<TaskInfo> subTasks = taskInfo.getSubTasks();
+    assertEquals(1, subTasks.size());
+    assertEquals(0, subTasks.get(0).getPosition());
+  }
+
+  @Test
+  public void testResumeKeepsGroupsCompletedOutOfOrder() {
+    TaskInfo taskInfo = createTask(TaskType.UpgradeUniverse, TaskInfo.State.Running);
+    createSubTask(taskInfo, 0, TaskInfo.State.Success);
+    createSubTask(taskInfo, 1, TaskInfo.State.Running);
+    // Ran in parallel with the group before it, and completed first.
+    createSubTask(taskInfo, 2, TaskInfo.State.Success);
+    assertNotNull(TaskRunner.resumeTask(taskInfo));
+    List<TaskInfo> subTasks = taskInfo.getSubTasks();
+    assertEquals(2, subTasks.size());
+    assertEquals(0, subTasks.get(0).getPosition());
+    assertEquals(2, subTasks.get(1).getPosition());
+  }
+
+  @Test
+  public void testInterruptedTaskNotResumable() {
+    TaskInfo taskInfo = createTask(TaskType.UpgradeKubernetesUniverse, TaskInfo.State.Running);
+    assertNull(TaskRunner.resumeTask(taskInfo));
+    assertEquals(TaskInfo.State.Failure, TaskInfo.get(taskInfo.getTaskUUID()).getTaskState());
+  }
+
+  @Test
+  public void testAbortedTaskDoesNotRun() {
+    TaskInfo taskInfo = createTask(TaskType.UpgradeUniverse, TaskInfo.State.Created);
+    TaskRunner taskRunner = TaskRunner.resumeTask(taskInfo);
+    taskRunner.abort();
+    taskRunner.run();
+    assertEquals(TaskInfo.State.Created, TaskInfo.get(taskInfo.getTaskUUID()).getTaskState());
+  }
+
+  @Test
+  public void testTaskOwnedByAnotherProcessDoesNotRun() {
+    TaskInfo taskInfo = createTask(TaskType.UpgradeUniverse, TaskInfo.State.Created);
+    TaskRunner taskRunner = TaskRunner.resumeTask(taskInfo);
+    // Another process claims the task before it starts here.
+    assertTrue(TaskInfo.claim(taskInfo.getTaskUUID(), "other", -60000));
+    taskRunner.run();
+    TaskInfo saved = TaskInfo.get(taskInfo.getTaskUUID());
+    assertEquals(TaskInfo.State.Created, saved.getTaskState());
+    assertEquals("other", saved.getOwner());
+  }
+}
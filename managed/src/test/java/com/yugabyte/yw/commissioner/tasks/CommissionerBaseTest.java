@@ -10,6 +10,7 @@ import com.yugabyte.yw.commissioner.CallHome;
 import com.yugabyte.yw.commissioner.HealthChecker;
 import com.yugabyte.yw.commissioner.SubTaskGroupQueue;
 import com.yugabyte.yw.common.AccessManager;
+import com.yugabyte.yw.common.ApiHelper;
 import com.yugabyte.yw.common.CloudQueryHelper;
 import com.yugabyte.yw.common.ConfigHelper;
 import com.yugabyte.yw.common.DnsManager;
@@ -71,6 +72,7 @@ public abstract class CommissionerBaseTest extends WithApplication {
   protected SwamperHelper mockSwamperHelper;
   protected CallHome mockCallHome;
   protected HealthChecker mockHealthChecker;
+  protected ApiHelper mockApiHelper;
 
   Customer defaultCustomer;
   Provider defaultProvider;
@@ -99,6 +101,7 @@ public abstract class CommissionerBaseTest extends WithApplication {
     mockSwamperHelper = mock(SwamperHelper.class);
     mockCallHome = mock(CallHome.class);
     mockHealthChecker = mock(HealthChecker.class);
+    mockApiHelper = mock(ApiHelper.class);
 
     return new GuiceApplicationBuilder()
         .configure((Map) Helpers.inMemoryDatabase())
@@ -116,6 +119,7 @@ public abstract class CommissionerBaseTest extends WithApplication {
         .overrides(bind(SwamperHelper.class).toInstance(mockSwamperHelper))
         .overrides(bind(HealthChecker.class).toInstance(mockHealthChecker))
         .overrides(bind(CallHome.class).toInstance(mockCallHome))
+        .overrides(bind(ApiHelper.class).toInstance(mockApiHelper))
         .build();
   }
 
@@ -3,6 +3,7 @@
 package com.yugabyte.yw.commissioner.tasks;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.net.HostAndPort;
@@ -19,6 +20,8 @@ import com.yugabyte.yw.models.AvailabilityZone;
 import com.yugabyte.yw.models.Region;
 import com.yugabyte.yw.models.TaskInfo;
 import com.yugabyte.yw.models.Universe;
+import com.yugabyte.yw.models.helpers.NodeDetails;
+import com.yugabyte.yw.models.helpers.PlacementInfo;
 import com.yugabyte.yw.models.helpers.TaskType;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -28,6 +31,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.yb.client.IsServerReadyResponse;
+import org.yb.client.ListTabletServersResponse;
 import org.yb.client.YBClient;
 import org.yb.client.SetFlagResponse;
 import play.libs.Json;
@@ -483,6 +487,82 @@ public class UpgradeUniverseTest extends CommissionerBaseTest {
     assertEquals(TaskInfo.State.Success, taskInfo.getTaskState());
   }
 
+  @Test
+  public void testSoftwareBatchedRollingUpgrade() {
+    try {
+      ListTabletServersResponse mockResponse = mock(ListTabletServersResponse.class);
+      when(mockResponse.getTabletServersCount()).thenReturn(3);
+      when(mockClient.listTabletServers()).thenReturn(mockResponse);
+    } catch (Exception e) {}
+    ObjectNode healthCheck = Json.newObject();
+    healthCheck.putArray("under_replicated_tablets");
+    when(mockApiHelper.getRequest(anyString())).thenReturn(healthCheck);
+    UpgradeUniverse.Params taskParams = new UpgradeUniverse.Params();
+    taskParams.ybSoftwareVersion = "new-version";
+    taskParams.rollingUpgradeBatchSize = 2;
+    TaskInfo taskInfo = submitTask(taskParams, UpgradeUniverse.UpgradeTaskType.Software);
+    assertEquals(TaskInfo.State.Success, taskInfo.getTaskState());
+
+    Map<Integer, List<TaskInfo>> subTasksByPosition = taskInfo.getSubTasks().stream()
+        .collect(Collectors.groupingBy(w -> w.getPosition()));
+    List<Integer> readyGroupSizes = subTasksByPosition.keySet().stream().sorted()
+        .map(subTasksByPosition::get)
+        .filter(tasks -> tasks.get(0).getTaskType() == TaskType.WaitForServerReady)
+        .map(List::size)
+        .collect(Collectors.toList());
+    // All the replicas are in a single zone, so the tservers still go one at a time.
+    assertEquals(ImmutableList.of(1, 1, 1, 1, 1, 1), readyGroupSizes);
+    long numHeartBeatWaits = subTasksByPosition.values().stream()
+        .filter(tasks -> tasks.get(0).getTaskType() == TaskType.WaitForTServerHeartBeats)
+        .count();
+    assertEquals(3, numHeartBeatWaits);
+    long numReplicationWaits = subTasksByPosition.values().stream()
+        .filter(tasks -> tasks.get(0).getTaskType() == TaskType.WaitForUnderReplicatedTablets)
+        .count();
+    assertEquals(3, numReplicationWaits);
+  }
+
+  private static List<Integer> getUpgradeBatchSizes(int replicationFactor, int numZones,
+                                                    int numNodesPerZone, int batchSize) {
+    UserIntent userIntent = new UserIntent();
+    userIntent.replicationFactor = replicationFactor;
+    PlacementInfo.PlacementRegion placementRegion = new PlacementInfo.PlacementRegion();
+    List<NodeDetails> nodes = new ArrayList<>();
+    for (int zone = 0; zone < numZones; zone++) {
+      PlacementInfo.PlacementAZ placementAZ = new PlacementInfo.PlacementAZ();
+      placementAZ.uuid = UUID.randomUUID();
+      placementAZ.replicationFactor = replicationFactor / numZones;
+      placementRegion.azList.add(placementAZ);
+      for (int i = 0; i < numNodesPerZone; i++) {
+        NodeDetails node = new NodeDetails();
+        node.azUuid = placementAZ.uuid;
+        nodes.add(node);
+      }
+    }
+    PlacementInfo.PlacementCloud placementCloud = new PlacementInfo.PlacementCloud();
+    placementCloud.regionList.add(placementRegion);
+    PlacementInfo placementInfo = new PlacementInfo();
+    placementInfo.cloudList.add(placementCloud);
+    UniverseDefinitionTaskParams universeDetails = new UniverseDefinitionTaskParams();
+    universeDetails.upsertPrimaryCluster(userIntent, placementInfo);
+    for (NodeDetails node : nodes) {
+      node.placementUuid = universeDetails.getPrimaryCluster().uuid;
+    }
+    return UpgradeUniverse.getUpgradeBatches(nodes, batchSize, universeDetails).stream()
+        .map(List::size)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testUpgradeBatchesKeepMajority() {
+    // One replica per zone, whole batches.
+    assertEquals(ImmutableList.of(2, 2, 2), getUpgradeBatchSizes(3, 3, 2, 2));
+    assertEquals(ImmutableList.of(2, 1, 2, 1, 2, 1), getUpgradeBatchSizes(3, 3, 3, 2));
+    // All the replicas in one zone, at most (RF - 1) / 2 nodes at a time.
+    assertEquals(ImmutableList.of(1, 1, 1), getUpgradeBatchSizes(3, 1, 3, 2));
+    assertEquals(ImmutableList.of(2, 2, 1), getUpgradeBatchSizes(5, 1, 5, 3));
+  }
+
   @Test
   public void testSoftwareNonRollingUpgrade() {
     UpgradeUniverse.Params taskParams = new UpgradeUniverse.Params();
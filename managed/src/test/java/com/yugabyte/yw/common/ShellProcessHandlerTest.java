@@ -21,6 +21,7 @@ import java.util.List;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -74,6 +75,19 @@ public class ShellProcessHandlerTest {
         assertThat(response.message, allOf(notNullValue(), equalTo("error")));
     }
 
+    @Test
+    public void testRunInterrupted() {
+        List<String> command = new ArrayList<String>();
+        command.add("sleep");
+        command.add("60");
+        Thread.currentThread().interrupt();
+        ShellProcessHandler.ShellResponse response = shellProcessHandler.run(command, new HashMap<>());
+        // Clears the interrupt, which is kept for the caller.
+        assertTrue(Thread.interrupted());
+        assertEquals(-1, response.code);
+        assertThat(response.message, allOf(notNullValue(), containsString("sleep 60")));
+    }
+
     private String createTestShellScript() throws IOException {
         String fileName = TMP_STORAGE_PATH + "/test.sh";
         FileWriter fw = new FileWriter(fileName);
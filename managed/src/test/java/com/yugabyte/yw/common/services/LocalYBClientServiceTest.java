@@ -0,0 +1,57 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.common.services;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.yb.client.YBClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class LocalYBClientServiceTest {
+  private LocalYBClientService service;
+
+  @Before
+  public void setUp() {
+    service = new LocalYBClientService();
+  }
+
+  @Test
+  public void testNullMasters() {
+    assertNull(service.getClient(null));
+  }
+
+  @Test
+  public void testClientShared() {
+    YBClient client1 = service.getClient("host-1:7100,host-2:7100");
+    YBClient client2 = service.getClient("host-2:7100, host-1:7100");
+    assertSame(client1, client2);
+    assertEquals(1, service.getNumClients());
+
+    // Other masters or another cert get their own client.
+    assertNotSame(client1, service.getClient("host-1:7100,host-3:7100"));
+    assertNotSame(client1, service.getClient("host-1:7100,host-2:7100", "/path/to/cert"));
+    assertEquals(3, service.getNumClients());
+  }
+
+  @Test
+  public void testOnlyIdleClientsEvicted() {
+    String masters = "host-1:7100";
+    YBClient client = service.getClient(masters);
+    service.getClient(masters);
+    service.closeClient(client, masters);
+    service.evictIdleClients(0);
+    assertSame(client, service.getClient(masters));
+
+    service.closeClient(client, masters);
+    service.closeClient(client, masters);
+    service.evictIdleClients(LocalYBClientService.IDLE_TIMEOUT_MS);
+    assertEquals(1, service.getNumClients());
+    service.evictIdleClients(0);
+    assertEquals(0, service.getNumClients());
+    assertNotSame(client, service.getClient(masters));
+  }
+}
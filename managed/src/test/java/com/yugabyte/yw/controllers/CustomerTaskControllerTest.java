@@ -80,7 +80,7 @@ public class CustomerTaskControllerTest extends WithApplication {
 
     assertEquals(OK, result.status());
 
-    JsonNode json = Json.parse(contentAsString(result));
+    JsonNode json = Json.parse(contentAsString(result, mat));
     assertTrue(json.isObject());
     assertEquals(0, json.size());
     assertAuditEntry(0, customer.uuid);
@@ -100,7 +100,24 @@ public class CustomerTaskControllerTest extends WithApplication {
                                                CustomerTask.TaskType taskType, String targetName,
                                                String status, double percentComplete,
                                                ObjectNode responseJson) {
-    UUID taskUUID = UUID.randomUUID();
+    // The task list reads the state and progress of the task from its task info.
+    TaskInfo taskInfo = new TaskInfo(TaskType.CreateUniverse);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("");
+    taskInfo.setTaskState(TaskInfo.State.valueOf(status));
+    taskInfo.save();
+    UUID taskUUID = taskInfo.getTaskUUID();
+    for (int i = 0; i < 10; i++) {
+      TaskInfo subTask = new TaskInfo(TaskType.AnsibleSetupServer);
+      subTask.setParentUuid(taskUUID);
+      subTask.setSubTaskGroupType(UserTaskDetails.SubTaskGroupType.Invalid);
+      subTask.setTaskState(i < percentComplete / 10 ? TaskInfo.State.Success :
+                           TaskInfo.State.Created);
+      subTask.setTaskDetails(Json.newObject());
+      subTask.setOwner("");
+      subTask.save();
+    }
+    TaskInfo.updateProgress(taskUUID);
     CustomerTask task = CustomerTask.create(customer, targetUUID, taskUUID, targetType, taskType,
         targetName);
     responseJson.put("status", status);
@@ -202,7 +219,7 @@ public class CustomerTaskControllerTest extends WithApplication {
     String url = "/api/customers/" + customer.uuid + "/tasks";
     Result result = FakeApiHelper.doRequestWithAuthToken("GET", url, authToken);
     assertEquals(OK, result.status());
-    JsonNode json = Json.parse(contentAsString(result));
+    JsonNode json = Json.parse(contentAsString(result, mat));
     assertTrue(json.isObject());
     assertEquals(2, json.size());
     JsonNode universeTasks = json.get(universeUUID.toString());
@@ -238,7 +255,7 @@ public class CustomerTaskControllerTest extends WithApplication {
       Result result = FakeApiHelper.doRequestWithAuthToken("GET", url, authToken);
       assertEquals(OK, result.status());
       assertAuditEntry(0, customer.uuid);
-      JsonNode tasksJson = Json.parse(contentAsString(result));
+      JsonNode tasksJson = Json.parse(contentAsString(result, mat));
       JsonNode universeTasks = tasksJson.get(universe.universeUUID.toString());
       if (idx == 0) {
         markedCompletionTime = universeTasks.get(0).get("completionTime").asText();
@@ -265,7 +282,7 @@ public class CustomerTaskControllerTest extends WithApplication {
     Result result = FakeApiHelper.doRequestWithAuthToken("GET", "/api/customers/" +
         customer.uuid +  "/universes/" + universe.universeUUID + "/tasks", authToken);
     assertEquals(OK, result.status());
-    JsonNode json = Json.parse(contentAsString(result));
+    JsonNode json = Json.parse(contentAsString(result, mat));
     assertTrue(json.isObject());
     JsonNode universeTasks = json.get(universe.universeUUID.toString());
     assertTrue(universeTasks.isArray());
@@ -274,6 +291,43 @@ public class CustomerTaskControllerTest extends WithApplication {
     assertAuditEntry(0, customer.uuid);
   }
 
+  @Test
+  public void testTaskHistoryListPaged() {
+    String authToken = user.createAuthToken();
+    UUID taskUUID1 = createTaskWithStatus(universe.universeUUID, CustomerTask.TargetType.Universe,
+        Create, "Foo", "Failure", 50.0);
+    UUID taskUUID2 = createTaskWithStatus(universe.universeUUID, CustomerTask.TargetType.Universe,
+        Update, "Foo", "Running", 10.0);
+    UUID taskUUID3 = createTaskWithStatus(universe.universeUUID, CustomerTask.TargetType.Universe,
+        Update, "Foo", "Running", 90.0);
+
+    String url = "/api/customers/" + customer.uuid + "/tasks";
+    Result result = FakeApiHelper.doRequestWithAuthToken("GET", url + "?limit=2", authToken);
+    assertEquals(OK, result.status());
+    JsonNode universeTasks =
+        Json.parse(contentAsString(result, mat)).get(universe.universeUUID.toString());
+    assertValues(universeTasks, "id", ImmutableList.of(taskUUID3.toString(),
+        taskUUID2.toString()));
+    String before = result.header(CustomerTaskController.NEXT_PAGE_HEADER).get();
+
+    result = FakeApiHelper.doRequestWithAuthToken("GET", url + "?limit=2&before=" + before,
+        authToken);
+    assertEquals(OK, result.status());
+    universeTasks = Json.parse(contentAsString(result, mat)).get(universe.universeUUID.toString());
+    assertValues(universeTasks, "id", ImmutableList.of(taskUUID1.toString()));
+    assertFalse(result.header(CustomerTaskController.NEXT_PAGE_HEADER).isPresent());
+
+    result = FakeApiHelper.doRequestWithAuthToken("GET", url + "?state=Running&type=Update",
+        authToken);
+    assertEquals(OK, result.status());
+    universeTasks = Json.parse(contentAsString(result, mat)).get(universe.universeUUID.toString());
+    assertEquals(2, universeTasks.size());
+
+    result = FakeApiHelper.doRequestWithAuthToken("GET", url + "?state=Foo", authToken);
+    assertEquals(BAD_REQUEST, result.status());
+    assertAuditEntry(0, customer.uuid);
+  }
+
   @Test
   public void testTaskHistoryProgressCompletes() {
     String authToken = user.createAuthToken();
@@ -283,7 +337,7 @@ public class CustomerTaskControllerTest extends WithApplication {
         customer.uuid + "/tasks", authToken);
     CustomerTask ct = CustomerTask.find.where().eq("task_uuid", taskUUID.toString()).findUnique();
     assertEquals(OK, result.status());
-    assertThat(contentAsString(result), allOf(notNullValue(),
+    assertThat(contentAsString(result, mat), allOf(notNullValue(),
         containsString("Created Universe : Foo")));
     assertTrue(ct.getCreateTime().before(ct.getCompletionTime()));
     assertAuditEntry(0, customer.uuid);
@@ -38,7 +38,12 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static play.inject.Bindings.bind;
 import static play.test.Helpers.contentAsString;
+import static play.mvc.Http.HeaderNames.ETAG;
+import static play.mvc.Http.HeaderNames.IF_NONE_MATCH;
 import static play.mvc.Http.Status.FORBIDDEN;
+import static play.mvc.Http.Status.NOT_MODIFIED;
+import static play.mvc.Http.Status.OK;
+import static play.test.Helpers.route;
 
 import java.io.File;
 import java.io.IOException;
@@ -107,6 +112,7 @@ import play.Application;
 import play.api.Play;
 import play.inject.guice.GuiceApplicationBuilder;
 import play.libs.Json;
+import play.mvc.Http;
 import play.mvc.Result;
 import play.test.Helpers;
 import play.test.WithApplication;
@@ -257,6 +263,46 @@ public class UniverseControllerTest extends WithApplication {
     assertAuditEntry(0, customer.uuid);
   }
 
+  @Test
+  public void testUniverseSummaryListPaged() {
+    Universe u1 = createUniverse("Universe-1", customer.getCustomerId());
+    Universe u2 = createUniverse("Universe-2", customer.getCustomerId());
+    customer.addUniverseUUID(u1.universeUUID);
+    customer.addUniverseUUID(u2.universeUUID);
+    customer.save();
+
+    String url = "/api/customers/" + customer.uuid + "/universes?summary=true&limit=1&offset=1";
+    Result result = doRequestWithAuthToken("GET", url, authToken);
+    assertOk(result);
+    JsonNode json = Json.parse(contentAsString(result));
+    assertEquals(1, json.size());
+    assertValue(json.get(0), "universeUUID", u2.universeUUID.toString());
+    assertFalse(json.get(0).has("universeDetails"));
+    assertEquals("2", result.header(UniverseController.TOTAL_COUNT_HEADER).get());
+
+    String eTag = result.header(ETAG).get();
+    Http.RequestBuilder request = Helpers.fakeRequest("GET", url)
+        .header("X-AUTH-TOKEN", authToken)
+        .header(IF_NONE_MATCH, eTag);
+    assertEquals(NOT_MODIFIED, route(request).status());
+
+    Universe.saveDetails(u2.universeUUID, ApiUtils.mockUniverseUpdater());
+    assertEquals(OK, route(request).status());
+  }
+
+  @Test
+  public void testUniverseListNoETagWithConfig() {
+    Universe u = createUniverse(customer.getCustomerId());
+    customer.addUniverseUUID(u.universeUUID);
+    customer.save();
+
+    // The full json has the config, which changes without a new universe version.
+    Result result = doRequestWithAuthToken("GET", "/api/customers/" + customer.uuid +
+        "/universes", authToken);
+    assertOk(result);
+    assertFalse(result.header(ETAG).isPresent());
+  }
+
   @Test
   public void testUniverseListWithInvalidUUID() {
     UUID invalidUUID = UUID.randomUUID();
@@ -0,0 +1,85 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.metrics;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricDownsamplerTest {
+
+  private static MetricGraphData createSeries(String name, int numPoints, int spikeAt) {
+    MetricGraphData data = new MetricGraphData();
+    data.name = name;
+    for (int i = 0; i < numPoints; i++) {
+      data.x.add(1479278137000L + i * 1000L);
+      data.y.add(i == spikeAt ? "100.0" : "1.0");
+    }
+    return data;
+  }
+
+  @Test
+  public void testDownsampleKeepsEndsAndSpike() {
+    MetricGraphData data = createSeries("spiky", 1000, 567);
+    MetricDownsampler.downsample(data, 50);
+    assertEquals(50, data.x.size());
+    assertEquals(50, data.y.size());
+    assertEquals(1479278137000L, data.x.get(0).asLong());
+    assertEquals(1479278137000L + 999000L, data.x.get(49).asLong());
+    boolean hasSpike = false;
+    for (int i = 0; i < data.x.size(); i++) {
+      if (data.x.get(i).asLong() == 1479278137000L + 567000L) {
+        assertEquals("100.0", data.y.get(i).asText());
+        hasSpike = true;
+      }
+    }
+    assertTrue(hasSpike);
+  }
+
+  @Test
+  public void testDownsampleShortSeries() {
+    MetricGraphData data = createSeries("short", 10, -1);
+    MetricDownsampler.downsample(data, 50);
+    assertEquals(10, data.x.size());
+  }
+
+  @Test
+  public void testDownsampleLimitsTotalPoints() {
+    List<MetricGraphData> series = ImmutableList.of(
+        createSeries("a", 100, -1), createSeries("b", 100, -1), createSeries("c", 100, -1),
+        createSeries("d", 100, -1));
+    MetricDownsampler.downsample(series, 50, 120);
+    for (MetricGraphData data : series) {
+      assertEquals(30, data.x.size());
+    }
+    // Each series keeps a minimum, whatever the total.
+    MetricDownsampler.downsample(series, 50, 40);
+    for (MetricGraphData data : series) {
+      assertEquals(MetricDownsampler.MIN_POINTS_PER_SERIES, data.x.size());
+    }
+    MetricDownsampler.downsample(series, 10, 0);
+    for (MetricGraphData data : series) {
+      assertEquals(10, data.x.size());
+    }
+  }
+
+  @Test
+  public void testSelectTopSeries() {
+    List<MetricGraphData> series = ImmutableList.of(
+        createSeries("low", 10, -1), createSeries("high", 10, 3), createSeries("mid", 10, -1),
+        createSeries("higher", 10, 5));
+    series.get(2).y.set(0, Json.toJson("50.0"));
+    List<MetricGraphData> top = MetricDownsampler.selectTopSeries(series, 3);
+    assertEquals(3, top.size());
+    assertEquals("high", top.get(0).name);
+    assertEquals("mid", top.get(1).name);
+    assertEquals("higher", top.get(2).name);
+    assertSame(series, MetricDownsampler.selectTopSeries(series, 0));
+  }
+}
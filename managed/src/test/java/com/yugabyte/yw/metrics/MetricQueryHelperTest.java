@@ -28,6 +28,8 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.core.AllOf.allOf;
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
@@ -171,4 +173,64 @@ public class MetricQueryHelperTest extends FakeDBApplication {
       assertThat(Integer.parseInt(capturedQueryParam.get("end").toString()), allOf(notNullValue(), equalTo(1481147648)));
     }
   }
+
+  @Test
+  public void testQueryCachedWithinStep() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("start", "1481147400");
+    params.put("end", "1481148000");
+
+    JsonNode responseJson = Json.parse("{\"status\":\"success\",\"data\":{\"resultType\":\"vector\",\"result\":[{\"metric\":\n" +
+                                         " {\"cpu\":\"system\"},\"value\":[1479278137,\"0.027751899056199826\"]}]}}");
+    when(mockApiHelper.getRequest(anyString(), anyMap(), anyMap())).thenReturn(responseJson);
+
+    JsonNode result1 = metricQueryHelper.query(ImmutableList.of("valid_metric"), params);
+    // Within the same 6 second step.
+    params = new HashMap<>();
+    params.put("start", "1481147403");
+    params.put("end", "1481148003");
+    JsonNode result2 = metricQueryHelper.query(ImmutableList.of("valid_metric"), params);
+    verify(mockApiHelper, times(1)).getRequest(anyString(), anyMap(), anyMap());
+    assertEquals(result1, result2);
+
+    // The next step is queried again.
+    params = new HashMap<>();
+    params.put("start", "1481147406");
+    params.put("end", "1481148006");
+    metricQueryHelper.query(ImmutableList.of("valid_metric"), params);
+    verify(mockApiHelper, times(2)).getRequest(anyString(), anyMap(), anyMap());
+  }
+
+  @Test
+  public void testQueryErrorNotCached() {
+    HashMap<String, String> params = new HashMap<>();
+    params.put("start", "1481147400");
+    params.put("end", "1481148000");
+
+    JsonNode responseJson = Json.parse("{\"status\":\"error\",\"errorType\":\"bad_data\",\"error\":\"bad\"}");
+    when(mockApiHelper.getRequest(anyString(), anyMap(), anyMap())).thenReturn(responseJson);
+
+    JsonNode result = metricQueryHelper.query(ImmutableList.of("valid_metric"), params);
+    assertThat(result.get("valid_metric").get("error").asText(), equalTo("bad"));
+    metricQueryHelper.query(ImmutableList.of("valid_metric"), new HashMap<>(params));
+    verify(mockApiHelper, times(2)).getRequest(anyString(), anyMap(), anyMap());
+  }
+
+  @Test
+  public void testCacheKey() {
+    Map<String, String> params = new HashMap<>();
+    params.put("queryKey", "valid_metric");
+    params.put("time", "1481147401");
+    params.put("step", "10");
+    params.put("_", "1481147500");
+    Map<String, String> filters = Collections.singletonMap("node_prefix", "yb-test");
+    String cacheKey = MetricQueryHelper.getCacheKey(params, filters);
+
+    params.put("time", "1481147409");
+    params.put("_", "1481147600");
+    assertEquals(cacheKey, MetricQueryHelper.getCacheKey(params, filters));
+    assertNotEquals(cacheKey, MetricQueryHelper.getCacheKey(params, Collections.emptyMap()));
+    params.put("queryKey", "valid_metric2");
+    assertNotEquals(cacheKey, MetricQueryHelper.getCacheKey(params, filters));
+  }
 }
@@ -2,24 +2,38 @@
 
 package com.yugabyte.yw.metrics;
 
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableMap;
 import com.yugabyte.yw.common.ApiHelper;
+import com.yugabyte.yw.common.ApiUtils;
 import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.common.ModelFactory;
+import com.yugabyte.yw.common.services.YBClientService;
+import com.yugabyte.yw.models.Universe;
 import com.yugabyte.yw.models.MetricConfig;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.InjectMocks;
 import org.mockito.stubbing.OngoingStubbing;
+import org.yb.client.ListTabletServersResponse;
+import org.yb.client.YBClient;
+import org.yb.util.ServerInfo;
 import play.libs.Json;
 
 import java.util.HashMap;
@@ -27,12 +41,15 @@ import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
@@ -41,6 +58,10 @@ import static org.mockito.Mockito.when;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.core.AllOf.allOf;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import static com.yugabyte.yw.metrics.YBMetricQueryComponent.Function.Sum;
@@ -52,6 +73,9 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
   @InjectMocks
   YBMetricQueryComponent ybMetricQueryComponent;
 
+  @Mock
+  YBClientService mockYBClientService;
+
   private class MockResultSet {
     List<Date> times;
     List<Long> values;
@@ -128,6 +152,75 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
     return allRS;
   }
 
+  private static Row mockRow(String node, long timestampSec, long value) {
+    Row row = Mockito.mock(Row.class);
+    when(row.getString("node")).thenReturn(node);
+    when(row.getTimestamp("ts")).thenReturn(new Date(timestampSec * 1000));
+    when(row.getLong("value")).thenReturn(value);
+    return row;
+  }
+
+  private static ResultSetFuture mockFuture(List<Row> rows) {
+    ResultSet rs = Mockito.mock(ResultSet.class);
+    when(rs.iterator()).thenAnswer(invocation -> rows.iterator());
+    ResultSetFuture future = Mockito.mock(ResultSetFuture.class);
+    when(future.getUninterruptibly()).thenReturn(rs);
+    return future;
+  }
+
+  // Runs the query with the metrics table holding the given rows, by metric name, for the tserver
+  // UUID1 on host-n1.
+  private JsonNode queryRows(String queryKey, Map<String, List<Row>> rowsByMetric) {
+    Universe universe = ModelFactory.createUniverse("golden",
+                                                    ModelFactory.testCustomer().getCustomerId());
+    YBMetricQueryComponent.CassandraConnection cc =
+        new YBMetricQueryComponent.CassandraConnection();
+    cc.session = Mockito.mock(Session.class);
+    cc.selectStatement = Mockito.mock(PreparedStatement.class);
+    // Each bound statement stands for the metric it selects.
+    Map<String, BoundStatement> statements = new HashMap<>();
+    when(cc.selectStatement.bind(Matchers.<Object>anyVararg())).thenAnswer(invocation ->
+        statements.get((String) invocation.getArguments()[0]));
+    ResultSetFuture emptyFuture = mockFuture(Collections.emptyList());
+    when(cc.session.executeAsync(any(Statement.class))).thenReturn(emptyFuture);
+    for (String metric : Arrays.asList(
+        String.format(ybMetricQueryComponent.COUNT_METRIC_STRING, "Read"),
+        String.format(ybMetricQueryComponent.COUNT_METRIC_STRING, "Write"),
+        String.format(ybMetricQueryComponent.SUM_METRIC_STRING, "Read"),
+        String.format(ybMetricQueryComponent.SUM_METRIC_STRING, "Write"),
+        "node_up")) {
+      BoundStatement statement = Mockito.mock(BoundStatement.class);
+      statements.put(metric, statement);
+      ResultSetFuture future = mockFuture(
+          rowsByMetric.getOrDefault(metric, Collections.emptyList()));
+      when(cc.session.executeAsync(statement)).thenReturn(future);
+    }
+    YBMetricQueryComponent component = Mockito.spy(ybMetricQueryComponent);
+    doReturn(cc).when(component).getCassandraConnection(any());
+    doReturn(ybMetricQueryComponent.new TServerMappings(ImmutableMap.of("host-n1", "UUID1"),
+                                                        ImmutableMap.of("UUID1", "host-n1")))
+        .when(component).getTservers(any());
+    return component.query(ImmutableMap.of(
+        "queryKey", queryKey,
+        "start", "1000",
+        "filters", "{\"node_prefix\": \"yb-test-" + universe.name + "\"}"));
+  }
+
+  // The response as the component used to format it into a string before parsing it.
+  private static String stringFormattedResponse(List<String> metrics) {
+    return String.format("{\"status\":\"success\"," +
+                         "\"data\":{\"resultType\":\"matrix\"," +
+                         "\"result\":%s}}", metrics);
+  }
+
+  private static Map<Long, Double> toMap(YBMetricQueryComponent.TimeSeries series) {
+    Map<Long, Double> map = new HashMap<>();
+    for (int i = 0; i < series.size(); i++) {
+      map.put(series.getTimestamp(i), series.getValue(i));
+    }
+    return map;
+  }
+
   @Test
   public void testRateCalculateSum() throws Exception {
     Long timeVal = 2323283232L;
@@ -149,7 +242,7 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323193L, (300.0 / 3) * 3,
                                                        2323223L, (200.0 / 3) * 3,
                                                        2323253L, (400.0 / 3) * 3);
-    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3));
+    assertEquals(expectedValues, toMap(ybMetricQueryComponent.calculateRate(allRS, Sum, 3)));
   }
 
   @Test
@@ -173,7 +266,7 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323193L, 300.0 / 3,
                                                        2323223L, 200.0 / 3,
                                                        2323253L, 400.0 / 3);
-    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Average, 3));
+    assertEquals(expectedValues, toMap(ybMetricQueryComponent.calculateRate(allRS, Average, 3)));
   }
 
   @Test
@@ -207,6 +300,97 @@ public class YBMetricQueryComponentTest extends FakeDBApplication {
                                                        2323193L, (300.0 / 3) * 2 + (500.0 / 6),
                                                        2323223L, (200.0 / 3) * 2,
                                                        2323253L, (400.0 / 3) * 3);
-    assertEquals(expectedValues, ybMetricQueryComponent.calculateRate(allRS, Sum, 3));
+    assertEquals(expectedValues, toMap(ybMetricQueryComponent.calculateRate(allRS, Sum, 3)));
+  }
+
+  @Test
+  public void testTserverMappingsCached() throws Exception {
+    Universe universe = ModelFactory.createUniverse(ModelFactory.testCustomer().getCustomerId());
+    universe = Universe.saveDetails(universe.universeUUID, ApiUtils.mockUniverseUpdater());
+    YBClient mockClient = Mockito.mock(YBClient.class);
+    ListTabletServersResponse mockResponse = Mockito.mock(ListTabletServersResponse.class);
+    when(mockYBClientService.getClient(any(), any())).thenReturn(mockClient);
+    when(mockClient.listTabletServers()).thenReturn(mockResponse);
+    when(mockResponse.getTabletServersList()).thenReturn(Arrays.asList(
+        new ServerInfo("UUID1", "host-n1", 9100, false, "ALIVE"),
+        new ServerInfo("UUID2", "host-n2", 9100, false, "ALIVE")));
+
+    YBMetricQueryComponent.TServerMappings mappings =
+        ybMetricQueryComponent.getTservers(universe);
+    assertEquals(ImmutableMap.of("host-n1", "UUID1", "host-n2", "UUID2"), mappings.nameToUUID);
+    assertEquals("host-n2", mappings.uuidToIP.get("UUID2"));
+    ybMetricQueryComponent.getTservers(universe);
+    verify(mockClient, times(1)).listTabletServers();
+
+    // Listed again once the universe changes.
+    universe = Universe.saveDetails(universe.universeUUID, ApiUtils.mockUniverseUpdater());
+    ybMetricQueryComponent.getTservers(universe);
+    verify(mockClient, times(2)).listTabletServers();
+  }
+
+  @Test
+  public void testConnectionClosedOnceUnused() {
+    YBMetricQueryComponent.CassandraConnection cc =
+        new YBMetricQueryComponent.CassandraConnection();
+    cc.cluster = Mockito.mock(Cluster.class);
+    cc.session = Mockito.mock(Session.class);
+    assertTrue(cc.retain());
+    // Dropped from the pool while a query still uses it.
+    cc.release();
+    verify(cc.session, never()).close();
+    cc.release();
+    verify(cc.session).close();
+    verify(cc.cluster).close();
+    assertFalse(cc.retain());
+  }
+
+  @Test
+  public void testRpcsResponseMatchesStringFormatted() {
+    // Only the Read RPCs have samples, the last one only serves as the base of a rate.
+    JsonNode response = queryRows("total_rpcs_per_sec", ImmutableMap.of(
+        String.format(ybMetricQueryComponent.COUNT_METRIC_STRING, "Read"), Arrays.asList(
+            mockRow("UUID1", 2323283L, 16000L),
+            mockRow("UUID1", 2323253L, 12000L),
+            mockRow("UUID1", 2323223L, 10000L),
+            mockRow("UUID1", 2323193L, 7000L),
+            mockRow("UUID1", 2323163L, 5000L))));
+    String expected = stringFormattedResponse(Arrays.asList(
+        "{\"metric\":{\"service_method\":\"Read\"}," +
+        "\"values\":[[2323193,\"100.000000\"], [2323223,\"66.666667\"], " +
+        "[2323253,\"133.333333\"]]}"));
+    assertEquals(Json.stringify(Json.parse(expected)), Json.stringify(response));
+  }
+
+  @Test
+  public void testNodeUpResponseMatchesStringFormatted() {
+    JsonNode response = queryRows("node_up", ImmutableMap.of("node_up", Arrays.asList(
+        mockRow("UUID1", 2323163L, 1L),
+        mockRow("UUID1", 2323193L, 0L),
+        // Not a known tserver.
+        mockRow("UUID2", 2323193L, 1L))));
+    String values = "[[2323163,\"1.000000\"], [2323193,\"0.000000\"]]";
+    String expected = stringFormattedResponse(Arrays.asList(
+        "{\"metric\": {\"node_prefix\": \"host-n1:7000\"},\"values\":" + values + "} ",
+        "{\"metric\": {\"node_prefix\": \"host-n1:9000\"},\"values\":" + values + "} "));
+    assertEquals(Json.stringify(Json.parse(expected)), Json.stringify(response));
+  }
+
+  @Test
+  public void testTimeSeries() {
+    YBMetricQueryComponent.TimeSeries series = new YBMetricQueryComponent.TimeSeries();
+    assertEquals(-1, series.floorIndex(100));
+    for (long timestamp = 1000; timestamp > 0; timestamp -= 10) {
+      series.put(timestamp, timestamp / 10.0);
+    }
+    series.put(500, 1.5);
+    assertEquals(100, series.size());
+    for (int i = 1; i < series.size(); i++) {
+      assertTrue(series.getTimestamp(i - 1) < series.getTimestamp(i));
+    }
+    int idx = series.floorIndex(505);
+    assertEquals(500, series.getTimestamp(idx));
+    assertEquals(1.5, series.getValue(idx), 0);
+    assertEquals(-1, series.floorIndex(5));
+    assertEquals(1000, series.getTimestamp(series.floorIndex(2000)));
   }
 }
@@ -2,19 +2,25 @@
 
 package com.yugabyte.yw.models;
 
+import com.yugabyte.yw.commissioner.UserTaskDetails;
 import com.yugabyte.yw.common.ModelFactory;
+import com.yugabyte.yw.models.helpers.TaskType;
 import org.junit.Before;
 import org.junit.Test;
+import play.libs.Json;
 
 import com.yugabyte.yw.common.FakeDBApplication;
 
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import static com.yugabyte.yw.models.CustomerTask.TaskType.Create;
+import static com.yugabyte.yw.models.CustomerTask.TaskType.Update;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class CustomerTaskTest extends FakeDBApplication {
@@ -79,4 +85,81 @@ public class CustomerTaskTest extends FakeDBApplication {
       }
     }
   }
+
+  private CustomerTask createTaskWithInfo(CustomerTask.TargetType targetType, UUID targetUUID,
+                                          CustomerTask.TaskType taskType, TaskInfo.State state) {
+    TaskInfo taskInfo = new TaskInfo(TaskType.CreateUniverse);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("");
+    taskInfo.setTaskState(state);
+    taskInfo.save();
+    return CustomerTask.create(defaultCustomer, targetUUID, taskInfo.getTaskUUID(),
+        targetType, taskType, "Foo");
+  }
+
+  @Test
+  public void testFindPage() {
+    UUID universeUUID = UUID.randomUUID();
+    CustomerTask task1 = createTaskWithInfo(CustomerTask.TargetType.Universe, universeUUID,
+        Create, TaskInfo.State.Success);
+    CustomerTask task2 = createTaskWithInfo(CustomerTask.TargetType.KMSConfiguration,
+        UUID.randomUUID(), Create, TaskInfo.State.Failure);
+    CustomerTask task3 = createTaskWithInfo(CustomerTask.TargetType.Universe, universeUUID,
+        Update, TaskInfo.State.Running);
+    // A task without a task info is not listed.
+    CustomerTask.create(defaultCustomer, universeUUID, UUID.randomUUID(),
+        CustomerTask.TargetType.Universe, Update, "Foo");
+
+    List<CustomerTask> page = CustomerTask.findPage(defaultCustomer.uuid, null, null, null, null,
+        null, 2);
+    assertEquals(2, page.size());
+    assertEquals(task3.getTaskUUID(), page.get(0).getTaskUUID());
+    assertEquals(TaskInfo.State.Running, page.get(0).getTaskState());
+    assertEquals("Updating Universe : Foo", page.get(0).getFriendlyDescription());
+    assertEquals(task2.getTaskUUID(), page.get(1).getTaskUUID());
+    assertEquals(CustomerTask.TargetType.KMSConfiguration, page.get(1).getTarget());
+
+    page = CustomerTask.findPage(defaultCustomer.uuid, null, null, null, null,
+        page.get(1).getId(), 2);
+    assertEquals(1, page.size());
+    assertEquals(task1.getTaskUUID(), page.get(0).getTaskUUID());
+    assertNull(page.get(0).getCompletionTime());
+
+    page = CustomerTask.findPage(defaultCustomer.uuid, universeUUID, null, Create, null, null, 10);
+    assertEquals(1, page.size());
+    assertEquals(task1.getTaskUUID(), page.get(0).getTaskUUID());
+    page = CustomerTask.findPage(defaultCustomer.uuid, null, CustomerTask.TargetType.KMSConfiguration,
+        null, TaskInfo.State.Failure, null, 10);
+    assertEquals(1, page.size());
+    assertEquals(task2.getTaskUUID(), page.get(0).getTaskUUID());
+    assertEquals(0, CustomerTask.findPage(UUID.randomUUID(), null, null, null, null, null, 10)
+        .size());
+  }
+
+  @Test
+  public void testFindWithProgress() {
+    CustomerTask task = createTaskWithInfo(CustomerTask.TargetType.Universe, UUID.randomUUID(),
+        Create, TaskInfo.State.Running);
+    TaskInfo.State[] subTaskStates = {TaskInfo.State.Success, TaskInfo.State.Running};
+    for (int i = 0; i < subTaskStates.length; i++) {
+      TaskInfo subTask = new TaskInfo(TaskType.AnsibleSetupServer);
+      subTask.setTaskDetails(Json.newObject());
+      subTask.setOwner("");
+      subTask.setParentUuid(task.getTaskUUID());
+      subTask.setPosition(i);
+      subTask.setSubTaskGroupType(UserTaskDetails.SubTaskGroupType.Provisioning);
+      subTask.setTaskState(subTaskStates[i]);
+      subTask.save();
+    }
+    TaskInfo.updateProgress(task.getTaskUUID());
+
+    CustomerTask found = CustomerTask.findWithProgress(task.getTaskUUID());
+    assertEquals(task.getTaskUUID(), found.getTaskUUID());
+    assertEquals("Creating Universe : Foo", found.getFriendlyDescription());
+    assertEquals(TaskInfo.State.Running, found.getTaskState());
+    assertEquals(50.0, found.getPercentComplete(), 0.0);
+    assertEquals(Json.toJson(TaskInfo.get(task.getTaskUUID()).getUserTaskDetails()),
+        Json.toJson(found.getUserTaskDetails()));
+    assertNull(CustomerTask.findWithProgress(UUID.randomUUID()));
+  }
 }
@@ -0,0 +1,192 @@
+// Copyright (c) YugaByte, Inc.
+
+package com.yugabyte.yw.models;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskDetails;
+import com.yugabyte.yw.commissioner.UserTaskDetails.SubTaskGroupType;
+import com.yugabyte.yw.common.FakeDBApplication;
+import com.yugabyte.yw.common.ModelFactory;
+import com.yugabyte.yw.models.helpers.TaskType;
+import org.junit.Before;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskInfoTest extends FakeDBApplication {
+  private Customer defaultCustomer;
+
+  @Before
+  public void setUp() {
+    defaultCustomer = ModelFactory.testCustomer();
+  }
+
+  private TaskInfo createTask(String owner, TaskInfo.State state) {
+    TaskInfo taskInfo = new TaskInfo(TaskType.CreateUniverse);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner(owner);
+    taskInfo.setTaskState(state);
+    taskInfo.save();
+    CustomerTask.create(defaultCustomer, UUID.randomUUID(), taskInfo.getTaskUUID(),
+        CustomerTask.TargetType.Universe, CustomerTask.TaskType.Create, "Foo");
+    return taskInfo;
+  }
+
+  // Long enough that a task just created is not stale.
+  private static final long LEASE_MS = 60000;
+  // Makes a task updated up to a minute from now stale.
+  private static final long EXPIRED_LEASE_MS = -60000;
+
+  @Test
+  public void testClaimUnowned() {
+    TaskInfo taskInfo = createTask("", TaskInfo.State.Created);
+    // Claimable whatever its last update time.
+    assertTrue(TaskInfo.claim(taskInfo.getTaskUUID(), "a", LEASE_MS));
+    assertFalse(TaskInfo.claim(taskInfo.getTaskUUID(), "b", LEASE_MS));
+    assertEquals("a", TaskInfo.get(taskInfo.getTaskUUID()).getOwner());
+  }
+
+  @Test
+  public void testClaimStale() {
+    TaskInfo taskInfo = createTask("a", TaskInfo.State.Running);
+    assertFalse(TaskInfo.claim(taskInfo.getTaskUUID(), "b", LEASE_MS));
+    assertTrue(TaskInfo.claim(taskInfo.getTaskUUID(), "b", EXPIRED_LEASE_MS));
+    assertEquals("b", TaskInfo.get(taskInfo.getTaskUUID()).getOwner());
+  }
+
+  @Test
+  public void testClaimCompleted() {
+    TaskInfo taskInfo = createTask("", TaskInfo.State.Success);
+    assertFalse(TaskInfo.claim(taskInfo.getTaskUUID(), "a", EXPIRED_LEASE_MS));
+  }
+
+  @Test
+  public void testHeartbeatAndRelease() {
+    TaskInfo taskInfo = createTask("a", TaskInfo.State.Running);
+    UUID taskUUID = taskInfo.getTaskUUID();
+    assertTrue(TaskInfo.heartbeat(ImmutableList.of(taskUUID), "a").isEmpty());
+    assertEquals(ImmutableSet.of(taskUUID), TaskInfo.heartbeat(ImmutableList.of(taskUUID), "b"));
+    TaskInfo.release(taskUUID, "b");
+    assertEquals("a", TaskInfo.get(taskUUID).getOwner());
+    TaskInfo.release(taskUUID, "a");
+    assertEquals("", TaskInfo.get(taskUUID).getOwner());
+  }
+
+  @Test
+  public void testHeartbeatMany() {
+    TaskInfo owned1 = createTask("a", TaskInfo.State.Running);
+    TaskInfo owned2 = createTask("a", TaskInfo.State.Created);
+    TaskInfo lost = createTask("b", TaskInfo.State.Running);
+    Date before = TaskInfo.get(owned1.getTaskUUID()).getLastUpdateTime();
+    Set<UUID> result = TaskInfo.heartbeat(
+        ImmutableList.of(owned1.getTaskUUID(), owned2.getTaskUUID(), lost.getTaskUUID()), "a");
+    assertEquals(ImmutableSet.of(lost.getTaskUUID()), result);
+    assertFalse(TaskInfo.get(owned1.getTaskUUID()).getLastUpdateTime().before(before));
+    assertTrue(TaskInfo.heartbeat(ImmutableList.of(), "a").isEmpty());
+  }
+
+  @Test
+  public void testUpdateStateFencedOnOwner() {
+    TaskInfo taskInfo = createTask("a", TaskInfo.State.Running);
+    UUID taskUUID = taskInfo.getTaskUUID();
+    assertFalse(TaskInfo.updateState(taskUUID, TaskInfo.State.Failure, "b"));
+    assertEquals(TaskInfo.State.Running, TaskInfo.get(taskUUID).getTaskState());
+    assertTrue(TaskInfo.updateState(taskUUID, TaskInfo.State.Success, "a"));
+    assertEquals(TaskInfo.State.Success, TaskInfo.get(taskUUID).getTaskState());
+    assertTrue(TaskInfo.isOwner(taskUUID, "a"));
+    assertFalse(TaskInfo.isOwner(taskUUID, "b"));
+  }
+
+  @Test
+  public void testFindClaimable() {
+    TaskInfo unowned = createTask("", TaskInfo.State.Created);
+    TaskInfo owned = createTask("a", TaskInfo.State.Running);
+    createTask("", TaskInfo.State.Failure);
+    // A subtask is never claimed on its own.
+    TaskInfo subTask = new TaskInfo(TaskType.AnsibleSetupServer);
+    subTask.setTaskDetails(Json.newObject());
+    subTask.setOwner("");
+    subTask.save();
+
+    List<TaskInfo> claimable = TaskInfo.findClaimable(LEASE_MS, 10);
+    assertEquals(1, claimable.size());
+    assertEquals(unowned.getTaskUUID(), claimable.get(0).getTaskUUID());
+
+    claimable = TaskInfo.findClaimable(EXPIRED_LEASE_MS, 10);
+    assertEquals(2, claimable.size());
+    assertTrue(claimable.stream().anyMatch(t -> t.getTaskUUID().equals(owned.getTaskUUID())));
+  }
+
+  @Test
+  public void testDeleteIncompleteSubTasks() {
+    TaskInfo parent = createTask("a", TaskInfo.State.Running);
+    TaskInfo.State[] states = {TaskInfo.State.Success, TaskInfo.State.Running,
+                               TaskInfo.State.Success};
+    for (int position = 0; position < 3; position++) {
+      TaskInfo subTask = new TaskInfo(TaskType.AnsibleSetupServer);
+      subTask.setTaskDetails(Json.newObject());
+      subTask.setOwner("a");
+      subTask.setParentUuid(parent.getTaskUUID());
+      subTask.setPosition(position);
+      subTask.setTaskState(states[position]);
+      subTask.save();
+    }
+    parent.deleteIncompleteSubTasks();
+    List<TaskInfo> subTasks = parent.getSubTasks();
+    assertEquals(2, subTasks.size());
+    assertEquals(0, subTasks.get(0).getPosition());
+    assertEquals(2, subTasks.get(1).getPosition());
+  }
+
+  private void createSubTask(TaskInfo parent, int position, SubTaskGroupType subTaskGroupType,
+                             TaskInfo.State state) {
+    TaskInfo subTask = new TaskInfo(TaskType.AnsibleSetupServer);
+    subTask.setTaskDetails(Json.newObject());
+    subTask.setOwner("a");
+    subTask.setParentUuid(parent.getTaskUUID());
+    subTask.setPosition(position);
+    subTask.setSubTaskGroupType(subTaskGroupType);
+    subTask.setTaskState(state);
+    subTask.save();
+  }
+
+  @Test
+  public void testUpdateProgress() {
+    TaskInfo parent = createTask("a", TaskInfo.State.Running);
+    createSubTask(parent, 0, SubTaskGroupType.Provisioning, TaskInfo.State.Success);
+    createSubTask(parent, 0, SubTaskGroupType.Provisioning, TaskInfo.State.Success);
+    createSubTask(parent, 1, SubTaskGroupType.Invalid, TaskInfo.State.Success);
+    createSubTask(parent, 2, SubTaskGroupType.ConfigureUniverse, TaskInfo.State.Success);
+    createSubTask(parent, 3, SubTaskGroupType.ConfigureUniverse, TaskInfo.State.Running);
+    createSubTask(parent, 4, SubTaskGroupType.ConfigureUniverse, TaskInfo.State.Failure);
+    createSubTask(parent, 5, SubTaskGroupType.StartingNode, TaskInfo.State.Created);
+    TaskInfo.updateProgress(parent.getTaskUUID());
+
+    TaskInfo taskInfo = TaskInfo.get(parent.getTaskUUID());
+    assertEquals(400.0 / 7, taskInfo.getPercentCompleted(), 0.001);
+    assertEquals(57, taskInfo.getPercentDone());
+    List<SubTaskDetails> details = taskInfo.getUserTaskDetails().taskDetails;
+    assertEquals(3, details.size());
+    assertEquals("Unknown", details.get(0).getState());
+    assertEquals("Failure", details.get(1).getState());
+    assertEquals("Created", details.get(2).getState());
+
+    // The progress is kept when the task itself is saved.
+    taskInfo.setTaskState(TaskInfo.State.Failure);
+    taskInfo.save();
+    taskInfo = TaskInfo.get(parent.getTaskUUID());
+    assertEquals(400.0 / 7, taskInfo.getPercentCompleted(), 0.001);
+    details = taskInfo.getUserTaskDetails().taskDetails;
+    assertEquals(3, details.size());
+    assertEquals("Unknown", details.get(2).getState());
+  }
+}
@@ -1,6 +1,8 @@
 // Copyright (c) YugaByte, Inc.
 package com.yugabyte.yw.models;
 
+import com.avaje.ebean.Ebean;
+import com.avaje.ebean.SqlRow;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
@@ -14,6 +16,7 @@ import com.yugabyte.yw.commissioner.Common.CloudType;
 import com.yugabyte.yw.models.helpers.CloudSpecificInfo;
 import com.yugabyte.yw.models.helpers.DeviceInfo;
 import com.yugabyte.yw.models.helpers.NodeDetails;
+import com.yugabyte.yw.models.helpers.TaskType;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams.Cluster;
 import com.yugabyte.yw.forms.UniverseDefinitionTaskParams.ClusterType;
@@ -518,6 +521,160 @@ public class UniverseTest extends FakeDBApplication {
     }
   }
 
+  @Test
+  public void testConcurrentSaveDetails() throws Exception {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      futures.add(executor.submit(() -> Universe.saveDetails(u.universeUUID, universe -> {})));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertEquals(41, Universe.get(u.universeUUID).version);
+  }
+
+  @Test
+  public void testSaveDetailsRetriesStaleVersion() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    int[] numRuns = {0};
+    u = Universe.saveDetails(u.universeUUID, universe -> {
+      if (numRuns[0]++ == 0) {
+        // Another process updates the universe in the meantime.
+        Ebean.createSqlUpdate("UPDATE universe SET version = version + 1 " +
+                              "WHERE universe_uuid = :universeUUID")
+             .setParameter("universeUUID", universe.universeUUID)
+             .execute();
+      }
+    });
+    assertEquals(2, numRuns[0]);
+    assertEquals(3, u.version);
+  }
+
+  @Test
+  public void testSaveDetailsFencedOnTaskOwner() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    TaskInfo taskInfo = new TaskInfo(TaskType.UpgradeUniverse);
+    taskInfo.setTaskDetails(Json.newObject());
+    taskInfo.setOwner("a");
+    taskInfo.save();
+    Universe.setWriteLease(u.universeUUID, taskInfo.getTaskUUID(), "a");
+    try {
+      u = Universe.saveDetails(u.universeUUID, universe -> {});
+      assertEquals(2, u.version);
+      // Another process claims the task.
+      assertTrue(TaskInfo.claim(taskInfo.getTaskUUID(), "b", -60000));
+      try {
+        Universe.saveDetails(u.universeUUID, universe -> {});
+        fail();
+      } catch (IllegalStateException e) {
+        assertEquals(2, Universe.get(u.universeUUID).version);
+      }
+    } finally {
+      Universe.clearWriteLeases(taskInfo.getTaskUUID());
+    }
+    // Without the lease, the updates apply again.
+    assertEquals(3, Universe.saveDetails(u.universeUUID, universe -> {}).version);
+  }
+
+  @Test
+  public void testGetDetailsCopyOnWrite() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    Universe u1 = Universe.get(u.universeUUID);
+    Universe u2 = Universe.get(u.universeUUID);
+    // Readers of the same version share the details.
+    assertSame(u1.getUniverseDetailsReadOnly(), u2.getUniverseDetailsReadOnly());
+    // Asking for details to modify copies them.
+    u1.getUniverseDetails().nodePrefix = "changed";
+    assertSame(u1.getUniverseDetails(), u1.getUniverseDetailsReadOnly());
+    assertNotSame(u1.getUniverseDetails(), u2.getUniverseDetailsReadOnly());
+    assertNotEquals("changed", u2.getUniverseDetailsReadOnly().nodePrefix);
+    assertNotEquals("changed", Universe.get(u.universeUUID).getUniverseDetails().nodePrefix);
+
+    Universe.saveDetails(u.universeUUID, universe -> {
+      universe.getUniverseDetails().nodePrefix = "saved";
+    });
+    Universe saved = Universe.get(u.universeUUID);
+    assertEquals("saved", saved.getUniverseDetailsReadOnly().nodePrefix);
+    assertNotSame(u2.getUniverseDetailsReadOnly(), saved.getUniverseDetailsReadOnly());
+    // Updates that leave the details alone keep them.
+    Universe.saveDetails(u.universeUUID, universe -> {});
+    assertEquals("saved", Universe.get(u.universeUUID).getUniverseDetailsReadOnly().nodePrefix);
+  }
+
+  @Test
+  public void testGetDetailsWrittenElsewhere() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    UniverseDefinitionTaskParams details = Universe.get(u.universeUUID).getUniverseDetails();
+    details.nodePrefix = "elsewhere";
+    // As written by older versions, which bump the version as well.
+    Ebean.createSqlUpdate("UPDATE universe SET universe_details_json = :details, " +
+                          "universe_details_binary = NULL, version = version + 1 " +
+                          "WHERE universe_uuid = :universeUUID")
+         .setParameter("details", Json.stringify(Json.toJson(details)))
+         .setParameter("universeUUID", u.universeUUID)
+         .execute();
+    assertEquals("elsewhere", Universe.get(u.universeUUID).getUniverseDetails().nodePrefix);
+
+    // The next save switches to the binary format.
+    u = Universe.saveDetails(u.universeUUID, universe -> {
+      universe.getUniverseDetails().nodePrefix = "binary";
+    });
+    SqlRow row = Ebean.createSqlQuery("SELECT universe_details_json, universe_details_binary " +
+                                      "FROM universe WHERE universe_uuid = :universeUUID")
+                      .setParameter("universeUUID", u.universeUUID)
+                      .findUnique();
+    assertNull(row.getString("universe_details_json"));
+    assertEquals("binary", Universe.decodeDetails((byte[]) row.get("universe_details_binary"))
+                                   .get("nodePrefix").asText());
+    assertEquals("binary", Universe.get(u.universeUUID).getUniverseDetails().nodePrefix);
+  }
+
+  @Test
+  public void testEncodeDetails() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    JsonNode detailsJson = Json.toJson(u.getUniverseDetails());
+    byte[] detailsBinary = Universe.encodeDetails(detailsJson);
+    assertEquals(detailsJson, Universe.decodeDetails(detailsBinary));
+    assertTrue(detailsBinary.length < Json.stringify(detailsJson).length());
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testDecodeUnknownFormat() {
+    Universe.decodeDetails(new byte[] {42, 0});
+  }
+
+  @Test
+  public void testGetVersions() {
+    Universe u2 = createUniverse("Universe-2", defaultCustomer.getCustomerId());
+    Universe u1 = createUniverse("Universe-1", defaultCustomer.getCustomerId());
+    createUniverse("Universe-3", defaultCustomer.getCustomerId());
+    Universe.saveDetails(u2.universeUUID, ApiUtils.mockUniverseUpdater());
+
+    List<Universe> versions =
+        Universe.getVersions(new HashSet<>(Arrays.asList(u2.universeUUID, u1.universeUUID)));
+    assertEquals(2, versions.size());
+    assertEquals(u1.universeUUID, versions.get(0).universeUUID);
+    assertEquals(1, versions.get(0).version);
+    assertEquals(u2.universeUUID, versions.get(1).universeUUID);
+    assertEquals(2, versions.get(1).version);
+    assertTrue(Universe.getVersions(new HashSet<>()).isEmpty());
+  }
+
+  @Test
+  public void testToSummaryJson() {
+    Universe u = createUniverse(defaultCustomer.getCustomerId());
+    u = Universe.saveDetails(u.universeUUID, ApiUtils.mockUniverseUpdater());
+    JsonNode summary = u.toSummaryJson();
+    assertEquals(u.universeUUID.toString(), summary.get("universeUUID").asText());
+    assertEquals(u.version, summary.get("version").asInt());
+    assertEquals(u.getNodes().size(), summary.get("numNodes").asInt());
+    assertEquals(u.getNodes().size(), summary.get("nodeStates").get("Live").asInt());
+    assertFalse(summary.has("universeDetails"));
+  }
+
   private UserIntent getBaseIntent() {
 
     // Create regions